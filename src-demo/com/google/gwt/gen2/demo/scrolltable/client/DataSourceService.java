@@ -16,14 +16,19 @@
 package com.google.gwt.gen2.demo.scrolltable.client;
 
 import com.google.gwt.gen2.demo.scrolltable.shared.Student;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.SerializableResponse;
 import com.google.gwt.user.client.rpc.RemoteService;
 
+import java.util.List;
+
 /**
  * A {@link RemoteService} to retrieve row data for the
  * {@link PagingScrollTableDemo}.
  */
 public interface DataSourceService extends RemoteService {
+  List<SerializableResponse<Student>> requestRows(BatchRequest request);
+
   SerializableResponse<Student> requestRows(Request request);
 }
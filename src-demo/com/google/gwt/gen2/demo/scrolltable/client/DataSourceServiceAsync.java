@@ -16,14 +16,20 @@
 package com.google.gwt.gen2.demo.scrolltable.client;
 
 import com.google.gwt.gen2.demo.scrolltable.shared.Student;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.SerializableResponse;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
+import java.util.List;
+
 /**
  * Asynchronous version of {@link DataSourceService}.
  */
 public interface DataSourceServiceAsync {
+  void requestRows(BatchRequest request,
+      AsyncCallback<List<SerializableResponse<Student>>> callback);
+
   void requestRows(Request request,
       AsyncCallback<SerializableResponse<Student>> callback);
 }
@@ -19,12 +19,15 @@ import com.google.gwt.core.client.GWT;
 import com.google.gwt.gen2.demo.scrolltable.shared.Student;
 import com.google.gwt.gen2.demo.scrolltable.shared.StudentGenerator;
 import com.google.gwt.gen2.table.client.MutableTableModel;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.Response;
 import com.google.gwt.gen2.table.client.TableModelHelper.SerializableResponse;
 import com.google.gwt.user.client.Random;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.gwt.user.client.rpc.ServiceDefTarget;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -89,6 +92,32 @@ public class DataSourceTableModel extends MutableTableModel<Student> {
     return zeroMode;
   }
 
+  /**
+   * Override that loads all of the ranges in a single RPC request if RPC mode
+   * is enabled.
+   */
+  @Override
+  public void requestRows(final BatchRequest request,
+      final BatchCallback<Student> callback) {
+    if (!rpcMode || errorMode || zeroMode) {
+      super.requestRows(request, callback);
+      return;
+    }
+
+    // Send RPC request for all of the ranges
+    getDataService().requestRows(request,
+        new AsyncCallback<List<SerializableResponse<Student>>>() {
+          public void onFailure(Throwable caught) {
+            callback.onFailure(new Exception("RPC Failure"));
+          }
+
+          public void onSuccess(List<SerializableResponse<Student>> result) {
+            callback.onRowsReady(request, new ArrayList<Response<Student>>(
+                result));
+          }
+        });
+  }
+
   /**
    * Override that can optionally throw an error.
    */
@@ -103,16 +132,8 @@ public class DataSourceTableModel extends MutableTableModel<Student> {
       List<Student> students = data.generateStudents(0);
       callback.onRowsReady(request, new SerializableResponse<Student>(students));
     } else if (rpcMode) {
-      // Create the service if needed
-      if (dataService == null) {
-        dataService = GWT.create(DataSourceService.class);
-        ServiceDefTarget endpoint = (ServiceDefTarget) dataService;
-        String moduleRelativeURL = GWT.getModuleBaseURL() + "datasource";
-        endpoint.setServiceEntryPoint(moduleRelativeURL);
-      }
-
       // Send RPC request for data
-      dataService.requestRows(request,
+      getDataService().requestRows(request,
           new AsyncCallback<SerializableResponse<Student>>() {
             public void onFailure(Throwable caught) {
               callback.onFailure(new Exception("RPC Failure"));
@@ -173,4 +194,19 @@ public class DataSourceTableModel extends MutableTableModel<Student> {
   protected boolean onSetRowValue(int row, Student rowValue) {
     return true;
   }
+
+  /**
+   * Get the RPC service used to generate data, creating it if needed.
+   * 
+   * @return the data service
+   */
+  private DataSourceServiceAsync getDataService() {
+    if (dataService == null) {
+      dataService = GWT.create(DataSourceService.class);
+      ServiceDefTarget endpoint = (ServiceDefTarget) dataService;
+      String moduleRelativeURL = GWT.getModuleBaseURL() + "datasource";
+      endpoint.setServiceEntryPoint(moduleRelativeURL);
+    }
+    return dataService;
+  }
 }
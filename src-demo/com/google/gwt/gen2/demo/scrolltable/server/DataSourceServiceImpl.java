@@ -18,11 +18,15 @@ package com.google.gwt.gen2.demo.scrolltable.server;
 import com.google.gwt.gen2.demo.scrolltable.client.DataSourceService;
 import com.google.gwt.gen2.demo.scrolltable.shared.Student;
 import com.google.gwt.gen2.demo.scrolltable.shared.StudentGenerator;
-import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.SerializableResponse;
+import com.google.gwt.gen2.table.server.TableQueryEngine;
+import com.google.gwt.gen2.table.server.TableQueryEngine.ColumnAccessor;
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -30,31 +34,110 @@ import java.util.Random;
  */
 public class DataSourceServiceImpl extends RemoteServiceServlet implements
     DataSourceService {
+  /**
+   * The number of students in the dataset.
+   */
+  private static final int ROW_COUNT = 10000;
+
   private static final long serialVersionUID = 1L;
 
   /**
-   * The source of the data.
+   * The engine used to answer requests.
    */
-  private StudentGenerator data = new StudentGenerator() {
-    @Override
-    protected int getRandomInt(int max) {
-      return random.nextInt(max);
-    }
-  };
+  private TableQueryEngine<Student> engine;
 
   /**
    * A random number generator.
    */
   private Random random = new Random();
 
+  /**
+   * Construct a new {@link DataSourceServiceImpl}.
+   */
+  public DataSourceServiceImpl() {
+    // Generate the dataset
+    StudentGenerator generator = new StudentGenerator() {
+      @Override
+      protected int getRandomInt(int max) {
+        return random.nextInt(max);
+      }
+    };
+    List<Student> students = generator.generateStudents(ROW_COUNT);
+
+    // Extract the columns in the order used by the PagingScrollTableDemo
+    List<ColumnAccessor<Student>> columns = new ArrayList<ColumnAccessor<Student>>();
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getFirstName();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getLastName();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getAge();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.isMale();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getRace();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getFavoriteColor();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getFavoriteSport();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getCollege();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getGraduationYear();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getGpa();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getId();
+      }
+    });
+    columns.add(new ColumnAccessor<Student>() {
+      public Object getCellValue(Student rowValue) {
+        return rowValue.getPin();
+      }
+    });
+    engine = new TableQueryEngine<Student>(students, columns);
+  }
+
+  public List<SerializableResponse<Student>> requestRows(BatchRequest request) {
+    List<SerializableResponse<Student>> responses = new ArrayList<SerializableResponse<Student>>();
+    for (List<Student> rowValues : engine.getRowValues(request)) {
+      responses.add(new SerializableResponse<Student>(rowValues));
+    }
+    return responses;
+  }
+
   public SerializableResponse<Student> requestRows(Request request) {
-    // Get the sort info, even though we ignore it
-    ColumnSortList sortList = request.getColumnSortList();
-    sortList.getPrimaryColumn();
-    sortList.isPrimaryAscending();
-
-    // Return the data
-    int numRows = request.getNumRows();
-    return new SerializableResponse<Student>(data.generateStudents(numRows));
+    return new SerializableResponse<Student>(engine.getRowValues(request));
   }
 }
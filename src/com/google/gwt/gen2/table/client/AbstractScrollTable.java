@@ -164,26 +164,52 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     }
 
     /**
-     * Reposition the header spacer as needed.
+     * Measure the width of the spacer needed to line up the header and footer
+     * tables with the data table, which is the width of its vertical scroll
+     * bar.
      * 
      * @param scrollTable the scroll table
      * @param force if true, ignore the scroll policy
+     * @return the spacer width, or -1 if the spacer should not be changed
      */
-    public void repositionSpacer(AbstractScrollTable scrollTable, boolean force) {
+    public int measureSpacerWidth(AbstractScrollTable scrollTable, boolean force) {
       // Only ScrollPolicy.BOTH has a vertical scroll bar
       if (!force && scrollTable.scrollPolicy != ScrollPolicy.BOTH) {
-        return;
+        return -1;
       }
 
       Element dataWrapper = scrollTable.dataWrapper;
-      int spacerWidth = dataWrapper.getOffsetWidth()
+      return dataWrapper.getOffsetWidth()
           - dataWrapper.getPropertyInt("clientWidth");
+    }
+
+    /**
+     * Reposition the header spacer as needed.
+     * 
+     * @param scrollTable the scroll table
+     * @param force if true, ignore the scroll policy
+     */
+    public void repositionSpacer(AbstractScrollTable scrollTable, boolean force) {
+      resizeSpacers(scrollTable, measureSpacerWidth(scrollTable, force));
+    }
+
+    /**
+     * Resize the header and footer spacers.
+     * 
+     * @param scrollTable the scroll table
+     * @param spacerWidth the new spacer width, or -1 to leave them unchanged
+     */
+    public void resizeSpacers(AbstractScrollTable scrollTable, int spacerWidth) {
+      if (spacerWidth < 0) {
+        return;
+      }
       resizeSpacer(scrollTable.headerTable, scrollTable.headerSpacer,
           spacerWidth);
       if (scrollTable.footerTable != null) {
         resizeSpacer(scrollTable.footerTable, scrollTable.footerSpacer,
             spacerWidth);
       }
+      scrollTable.layoutDirty = true;
     }
 
     /**
@@ -578,8 +604,9 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
           table.applyNewColumnWidths(sacrificeCellIndex, sacrificeCells, true);
         }
 
-        // Set the new widths
+        // Set the new widths, then measure and apply the layout once
         table.applyNewColumnWidths(curCellIndex, curCells, true);
+        table.applyTableLayout(table.measureTableLayout(true, true), false);
 
         // Scroll to table back into alignment
         table.scrollTables(false);
@@ -670,9 +697,10 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
 
     /**
      * Construct a new {@link TableHeightInfo}.
+     * 
+     * @param totalHeight the client height of the scroll table
      */
-    public TableHeightInfo() {
-      int totalHeight = DOM.getElementPropertyInt(getElement(), "clientHeight");
+    public TableHeightInfo(int totalHeight) {
       headerTableHeight = headerTable.getOffsetHeight();
       if (footerTable != null) {
         footerTableHeight = footerTable.getOffsetHeight();
@@ -681,6 +709,83 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     }
   }
 
+  /**
+   * Measurements of the spacer width and the heights of the inner tables. The
+   * constructor only reads the layout, so all measurements are taken after a
+   * single reflow and the results are written afterward.
+   */
+  private class TableLayoutInfo {
+    /**
+     * The height of the scroll table if the data table does not scroll
+     * vertically, or -1 if not measured.
+     */
+    private int absoluteHeight = -1;
+
+    /**
+     * The client height of the scroll table, or -1 if not measured.
+     */
+    private int clientHeight = -1;
+
+    /**
+     * The heights of the table wrappers, or null if not measured.
+     */
+    private TableHeightInfo heights = null;
+
+    /**
+     * The width of the header spacer, or -1 if not measured.
+     */
+    private int spacerWidth = -1;
+
+    /**
+     * Construct a new {@link TableLayoutInfo}. Changing the column widths does
+     * not change the client height of the scroll table or the width of the
+     * spacer, so those can be reused from an earlier layout.
+     * 
+     * @param includeSpacer true to measure the spacer width
+     * @param cached an earlier layout to reuse measurements from, or null
+     */
+    public TableLayoutInfo(boolean includeSpacer, TableLayoutInfo cached) {
+      beginLayoutRead();
+      if (includeSpacer) {
+        if (cached != null && cached.spacerWidth >= 0) {
+          spacerWidth = cached.spacerWidth;
+        } else {
+          spacerWidth = impl.measureSpacerWidth(AbstractScrollTable.this,
+              false);
+        }
+      }
+      if (scrollPolicy == ScrollPolicy.DISABLED
+          || scrollPolicy == ScrollPolicy.HORIZONTAL) {
+        absoluteHeight = Math.max(1, absoluteElem.getOffsetHeight());
+      } else if (isAttached()) {
+        if (cached != null && cached.clientHeight >= 0) {
+          clientHeight = cached.clientHeight;
+        } else {
+          clientHeight = DOM.getElementPropertyInt(getElement(),
+              "clientHeight");
+        }
+        heights = new TableHeightInfo(clientHeight);
+      }
+    }
+
+    /**
+     * Check if another layout has the same heights as this one.
+     * 
+     * @param other the other layout
+     * @return true if the heights are the same
+     */
+    public boolean hasSameHeights(TableLayoutInfo other) {
+      if (absoluteHeight != other.absoluteHeight) {
+        return false;
+      } else if (heights == null || other.heights == null) {
+        return heights == other.heights;
+      }
+      return heights.headerTableHeight == other.heights.headerTableHeight
+          && heights.dataTableHeight == other.heights.dataTableHeight
+          && heights.footerTableHeight == other.heights.footerTableHeight;
+    }
+  }
+
   /**
    * Information about the width of the inner tables.
    */
@@ -696,6 +801,7 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
      * @param includeSpacer true to include spacer in calculations
      */
     public TableWidthInfo(boolean includeSpacer) {
+      beginLayoutRead();
       availableWidth = getAvailableWidth();
       headerTableWidth = impl.getTableWidth(headerTable, includeSpacer);
       dataTableWidth = dataTable.getElement().getScrollWidth();
@@ -829,11 +935,23 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
    */
   private ColumnResizePolicy columnResizePolicy = ColumnResizePolicy.MULTI_CELL;
 
+  /**
+   * A spacer below the data table, used to fake the height of rows that are
+   * not rendered.
+   */
+  private Element dataBottomSpacer = null;
+
   /**
    * The data table.
    */
   private FixedWidthGrid dataTable;
 
+  /**
+   * A spacer above the data table, used to fake the height of rows that are
+   * not rendered.
+   */
+  private Element dataTopSpacer = null;
+
   /**
    * The scrollable wrapper div around the data table.
    */
@@ -886,6 +1004,23 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
    */
   private Impl impl = GWT.create(Impl.class);
 
+  /**
+   * The layout measurements that were last applied to the tables.
+   */
+  private TableLayoutInfo lastLayout = null;
+
+  /**
+   * A boolean indicating that styles were written since the layout was last
+   * read, so the next read forces the browser to reflow.
+   */
+  private boolean layoutDirty = true;
+
+  /**
+   * The number of layout reads that forced a reflow in the current layout
+   * pass.
+   */
+  private int layoutReadCount = 0;
+
   /**
    * The last known height of this widget that the user set.
    */
@@ -901,6 +1036,11 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
    */
   private com.google.gwt.dom.client.Element mockScrollable;
 
+  /**
+   * The cached width of a scroll bar, or -1 if it has not been measured.
+   */
+  private int scrollBarWidth = -1;
+
   /**
    * A boolean indicating whether or not the grid should try to maintain its
    * width as much as possible.
@@ -1093,6 +1233,7 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
   public void fillWidth() {
     List<ColumnWidthInfo> colWidths = getFillColumnWidths(null);
     applyNewColumnWidths(0, colWidths, false);
+    impl.repositionSpacer(this, false);
     scrollTables(false);
   }
 
@@ -1148,6 +1289,19 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     return headerTable;
   }
 
+  /**
+   * Get the number of times the most recent layout pass, which is started by
+   * {@link #redraw()} or {@link #setColumnWidth(int, int)}, read the layout
+   * after writing styles. Each of these reads forces the browser to reflow
+   * synchronously, so this can be used to verify that a layout pass does not
+   * interleave reads and writes.
+   * 
+   * @return the number of layout reads that forced a reflow
+   */
+  public int getLayoutReadCount() {
+    return layoutReadCount;
+  }
+
   /**
    * Get the absolute maximum width of a column.
    * 
@@ -1396,6 +1550,7 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     if (!isAttached()) {
       return;
     }
+    startLayoutPass();
 
     // Create a command to execute while recalculating widths. Using this
     // command prevents an extra browser layout by grouping read operations.
@@ -1422,10 +1577,11 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     }
     applyNewColumnWidths(0, colWidths, true);
 
-    // Update the overall height of the scroll table. This can only happen
-    // after the widths have been set because setting the width of cells can
-    // cause word wrap, which increases the height of the inner tables.
-    resizeTablesVertically();
+    // Update the spacer and the overall height of the scroll table. This can
+    // only happen after the widths have been set because setting the width of
+    // cells can cause word wrap, which increases the height of the inner
+    // tables. Both are measured together to avoid an extra browser layout.
+    applyTableLayout(measureTableLayout(true, false), true);
 
     // Reset the scroll position, which might be lost when we change the layout.
     scrollTables(false);
@@ -1449,6 +1605,7 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
    */
   public void resetColumnWidths() {
     applyNewColumnWidths(0, getBoundedColumnWidths(false), false);
+    impl.repositionSpacer(this, false);
     scrollTables(false);
   }
 
@@ -1498,6 +1655,8 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
    * @return the new column width
    */
   public int setColumnWidth(int column, int width) {
+    startLayoutPass();
+
     // Constrain the size of the column
     ColumnWidthInfo info = getColumnWidthInfo(column);
     if (info.hasMaximumWidth()) {
@@ -1536,10 +1695,10 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     if (footerTable != null) {
       footerTable.setColumnWidth(column + offset, width);
     }
+    layoutDirty = true;
 
-    // Reposition things as needed
-    impl.repositionSpacer(this, false);
-    resizeTablesVertically();
+    // Reposition things as needed, measuring everything in a single layout
+    applyTableLayout(measureTableLayout(true, true), false);
     scrollTables(false);
     return width;
   }
@@ -1753,20 +1912,7 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
    * remaining vertical space.
    */
   protected void resizeTablesVertically() {
-    if (scrollPolicy == ScrollPolicy.DISABLED) {
-      dataWrapper.getStyle().setProperty("overflow", "auto");
-      dataWrapper.getStyle().setProperty("overflow", "");
-      int height = Math.max(1, absoluteElem.getOffsetHeight());
-      super.setHeight(height + "px");
-    } else if (scrollPolicy == ScrollPolicy.HORIZONTAL) {
-      dataWrapper.getStyle().setProperty("overflow", "hidden");
-      dataWrapper.getStyle().setProperty("overflow", "auto");
-      int height = Math.max(1, absoluteElem.getOffsetHeight());
-      super.setHeight(height + "px");
-    } else {
-      applyTableWrapperSizes(getTableWrapperSizes());
-      dataWrapper.getStyle().setProperty("width", "100%");
-    }
+    applyTableLayout(measureTableLayout(false, false), true);
   }
 
   /**
@@ -1801,6 +1947,30 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     }
   }
 
+  /**
+   * Set the heights of the spacers above and below the data table. Subclasses
+   * that only render some of their rows can use the spacers to fake the full
+   * scroll height of the data table. The spacers are created the first time
+   * they are needed.
+   * 
+   * @param topHeight the height in pixels above the data table
+   * @param bottomHeight the height in pixels below the data table
+   */
+  protected void setDataSpacerHeights(int topHeight, int bottomHeight) {
+    if (dataTopSpacer == null) {
+      if (topHeight <= 0 && bottomHeight <= 0) {
+        return;
+      }
+      dataTopSpacer = createDataSpacer();
+      dataBottomSpacer = createDataSpacer();
+      dataWrapper.insertBefore(dataTopSpacer, dataTable.getElement());
+      dataWrapper.appendChild(dataBottomSpacer);
+    }
+    dataTopSpacer.getStyle().setPropertyPx("height", Math.max(0, topHeight));
+    dataBottomSpacer.getStyle().setPropertyPx("height",
+        Math.max(0, bottomHeight));
+  }
+
   /**
    * @return the absolutely positioned wrapper element
    */
@@ -1845,9 +2015,35 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
         if (footerTable != null) {
           footerTable.setColumnWidth(startIndex + i + offset, newWidth);
         }
+        layoutDirty = true;
       }
     }
-    impl.repositionSpacer(this, false);
+  }
+
+  /**
+   * Apply layout measurements to the tables. The measurements must be read
+   * before calling this method, so all style changes are batched together
+   * after the reads.
+   * 
+   * @param info the layout measurements
+   * @param forced if false, skip resizing if the heights have not changed
+   */
+  private void applyTableLayout(TableLayoutInfo info, boolean forced) {
+    impl.resizeSpacers(this, info.spacerWidth);
+    if (!forced && lastLayout != null && info.hasSameHeights(lastLayout)) {
+      return;
+    }
+    lastLayout = info;
+    layoutDirty = true;
+
+    // Apply the new heights
+    if (scrollPolicy == ScrollPolicy.DISABLED
+        || scrollPolicy == ScrollPolicy.HORIZONTAL) {
+      super.setHeight(info.absoluteHeight + "px");
+    } else {
+      applyTableWrapperSizes(info.heights);
+      dataWrapper.getStyle().setProperty("width", "100%");
+    }
   }
 
   /**
@@ -1870,6 +2066,33 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     dataWrapper.getStyle().setProperty("overflow", "auto");
   }
 
+  /**
+   * Called before the layout is read. If styles were written since the last
+   * read, the browser is forced to reflow synchronously.
+   */
+  private void beginLayoutRead() {
+    if (layoutDirty) {
+      layoutReadCount++;
+      layoutDirty = false;
+    }
+  }
+
+  /**
+   * Create a spacer element used in the data wrapper.
+   * 
+   * @return the new spacer element
+   */
+  private Element createDataSpacer() {
+    Element spacer = DOM.createDiv();
+    spacer.getStyle().setPropertyPx("height", 0);
+    spacer.getStyle().setProperty("overflow", "hidden");
+    spacer.getStyle().setPropertyPx("fontSize", 0);
+    spacer.getStyle().setPropertyPx("padding", 0);
+    spacer.getStyle().setPropertyPx("margin", 0);
+    spacer.getStyle().setPropertyPx("border", 0);
+    return spacer;
+  }
+
   /**
    * Get the width available for the tables.
    * 
@@ -1878,10 +2101,12 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
   private int getAvailableWidth() {
     int clientWidth = absoluteElem.getPropertyInt("clientWidth");
     if (scrollPolicy == ScrollPolicy.BOTH) {
-      int scrollbarWidth = mockScrollable.getOffsetWidth()
-          - mockScrollable.getPropertyInt("clientWidth");
-      clientWidth = absoluteElem.getPropertyInt("clientWidth") - scrollbarWidth
-          - 1;
+      // The scroll bar width does not change, so only measure it once
+      if (scrollBarWidth <= 0) {
+        scrollBarWidth = mockScrollable.getOffsetWidth()
+            - mockScrollable.getPropertyInt("clientWidth");
+      }
+      clientWidth -= scrollBarWidth + 1;
     }
     return Math.max(clientWidth, -1);
   }
@@ -2053,28 +2278,6 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     return 0;
   }
 
-  /**
-   * Returns the new heights of the header, data, and footer tables based on the
-   * {@link ScrollPolicy}.
-   * 
-   * @return the new table heights, or null
-   */
-  private TableHeightInfo getTableWrapperSizes() {
-    // If we aren't attached, return immediately
-    if (!isAttached()) {
-      return null;
-    }
-
-    // Heights only apply with vertical scrolling
-    if (scrollPolicy == ScrollPolicy.DISABLED
-        || scrollPolicy == ScrollPolicy.HORIZONTAL) {
-      return null;
-    }
-
-    // Give the data wrapper all remaining height
-    return new TableHeightInfo();
-  }
-
   /**
    * Recalculate the ideal columns widths of all inner tables.
    * 
@@ -2096,7 +2299,36 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
       return;
     }
 
+    // Recalculating modifies the tables before measuring them
+    layoutDirty = true;
+    beginLayoutRead();
     impl.recalculateIdealColumnWidths(this, command);
+    layoutDirty = true;
+  }
+
+  /**
+   * Measure the layout of the tables. If the data table does not scroll
+   * vertically, the overflow of the data wrapper is toggled first so the
+   * browser recalculates its height. This is the last style write before the
+   * layout is read, so all measurements are taken after a single reflow.
+   * 
+   * @param includeSpacer true to measure the spacer width
+   * @param useCache true to reuse the measurements of the last layout that do
+   *          not depend on the column widths
+   * @return the layout measurements
+   */
+  private TableLayoutInfo measureTableLayout(boolean includeSpacer,
+      boolean useCache) {
+    if (scrollPolicy == ScrollPolicy.DISABLED) {
+      dataWrapper.getStyle().setProperty("overflow", "auto");
+      dataWrapper.getStyle().setProperty("overflow", "");
+      layoutDirty = true;
+    } else if (scrollPolicy == ScrollPolicy.HORIZONTAL) {
+      dataWrapper.getStyle().setProperty("overflow", "hidden");
+      dataWrapper.getStyle().setProperty("overflow", "auto");
+      layoutDirty = true;
+    }
+    return new TableLayoutInfo(includeSpacer, useCache ? lastLayout : null);
   }
 
   /**
@@ -2112,6 +2344,15 @@ public abstract class AbstractScrollTable extends ComplexPanel implements
     table.addStyleName(cssName);
   }
 
+  /**
+   * Start a new layout pass, resetting the count of layout reads. The layout is
+   * assumed to have been modified since it was last read.
+   */
+  private void startLayoutPass() {
+    layoutReadCount = 0;
+    layoutDirty = true;
+  }
+
   /**
    * Show or hide to fillWidthImage depending on current policies.
    */
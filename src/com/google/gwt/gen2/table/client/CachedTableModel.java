@@ -15,12 +15,23 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.RowCache.EvictionPolicy;
+import com.google.gwt.gen2.table.client.RowCache.LruEvictionPolicy;
+import com.google.gwt.gen2.table.client.RowCache.RowSizeEstimator;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+import com.google.gwt.gen2.table.event.client.RowInsertionEvent;
+import com.google.gwt.gen2.table.event.client.RowRemovalEvent;
+import com.google.gwt.gen2.table.event.client.RowValueChangeEvent;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -51,236 +62,1382 @@ import java.util.NoSuchElementException;
  * {@link PagingScrollTable}, you should set your cache to a multiple of the
  * page size so the user can go to the next and previous pages quickly.
  * </p>
- * <h1>Limitations</h1>
  * <p>
- * The cache is cleared every time the sort order changes. However, if you
- * disallow column sorting or expect that the user will not sort the columns
- * repeatedly, the cache will still improve paging performance.
+ * By default, the cache grows without bounds. Use
+ * {@link #setMaximumCachedRowCount(int)} or
+ * {@link #setMaximumCachedByteSize(int, RowSizeEstimator)} to limit the size
+ * of the cache, and {@link #setEvictionPolicy(EvictionPolicy)} to control
+ * which rows are discarded when the limit is reached. The eviction counts can
+ * be used to tune the pre and post cache sizes.
+ * </p>
+ * 
+ * <h1>Sort Partitions</h1>
+ * <p>
+ * Rows are cached separately for each {@link ColumnSortList}. The most
+ * recently used sort orders are retained, so switching back to a recent sort
+ * order can be served entirely from the cache. Use
+ * {@link #setMaximumSortPartitionCount(int)} to control the number of sort
+ * orders that are retained. Each partition is limited separately by the
+ * maximum cache size.
+ * </p>
+ * <p>
+ * Requests with a {@link RowFilter} are cached in their own partitions, one
+ * for each combination of sort order and filter, because the row indexes refer
+ * to the filtered rows. The number of rows that match a filter is learned when
+ * the underlying table model returns fewer rows than requested, after which
+ * rows past the end of the filtered data are no longer requested.
+ * </p>
+ * 
+ * <h1>Pending Requests</h1>
+ * <p>
+ * The CachedTableModel keeps track of the requests that have been sent to the
+ * underlying table model but have not returned yet. If a new request can be
+ * satisfied by the cache and the pending requests, it waits for the pending
+ * requests instead of sending a new one. Every request is answered, even if a
+ * newer request uses the same {@link Callback}, unless it is cancelled
+ * explicitly using {@link #cancelRequest(Request)}.
+ * </p>
+ * <p>
+ * Only the rows that are neither cached nor pending are requested. If the
+ * missing rows form several disjoint ranges around the requested rows, they
+ * are requested together in a single {@link BatchRequest}.
+ * </p>
+ * <p>
+ * Rows that the user has not viewed yet can be requested using
+ * {@link #prefetchRows(Request, Callback)}, so the rows around the viewed
+ * page are not evicted to make room for them.
+ * </p>
+ * <p>
+ * If the underlying table model streams its rows, each chunk is added to the
+ * cache as it arrives. Requests that use a {@link StreamingCallback} receive
+ * their rows in chunks as soon as they are cached, in order.
+ * </p>
+ * 
+ * <h1>Mutations</h1>
+ * <p>
+ * When a row is inserted or removed, the cached rows after it are shifted in
+ * place, so only the new row needs to be requested again. Inserting, removing
+ * or setting a row discards the partitions of every sort order except the
+ * current one, because the row may have moved in those orders. The row
+ * indexes of a mutation refer to the unfiltered rows, so a filtered partition
+ * is always emptied, and the number of rows that match its filter has to be
+ * learned again. Responses to pending requests that were sent before a row
+ * was inserted or removed are not added to the cache, because their row
+ * indexes are out of date. Requests that were waiting on them are sent again
+ * when they return.
+ * </p>
+ * 
+ * <h1>Shared Caches</h1>
+ * <p>
+ * Several tables that show the same data source can share a single cache by
+ * creating their models with {@link #createSharedModel(MutableTableModel)}.
+ * The shared models use one set of sort partitions and one list of pending
+ * requests, so a row requested by one table is served to the others from the
+ * cache, and a request that is already pending for one table is not sent again
+ * for another. Each shared model keeps its own current sort order, pre and
+ * post cache and statistics, and a partition is never discarded while a
+ * shared model uses it. The cache limits, eviction policy and maximum number
+ * of sort orders belong to the shared cache, so setting them through any of
+ * the shared models changes them for all of them.
+ * </p>
+ * <p>
+ * Mutations made through one shared model update the shared cache, and the
+ * other shared models fire the same row insertion, removal, value change and
+ * row count events, so their tables stay up to date without reloading. Call
+ * {@link #release()} when a shared model is no longer used. The shared cache
+ * is discarded when its last model is released.
  * </p>
  * 
  * @param <RowType> the data type of the row values
  */
 public class CachedTableModel<RowType> extends MutableTableModel<RowType> {
   /**
-   * An intermediate callback that adds the response from the inner table model
-   * into the cache, then responds to the original request.
+   * An {@link Iterator} that iterates over the cached rows of data.
+   */
+  private class CacheIterator implements Iterator<RowType> {
+    /**
+     * The cache that contains the rows.
+     */
+    private RowCache<RowType> cache;
+
+    /**
+     * The current row that will be returned on the next call to next.
+     */
+    int curRow;
+
+    /**
+     * The last row to iterate, inclusively.
+     */
+    int lastRow;
+
+    /**
+     * Construct a new iterator.
+     * 
+     * @param cache the cache that contains the rows
+     * @param firstRow the first row of data
+     * @param lastRow the last row of data
+     */
+    public CacheIterator(RowCache<RowType> cache, int firstRow, int lastRow) {
+      this.cache = cache;
+      this.curRow = firstRow - 1;
+      this.lastRow = lastRow;
+    }
+
+    public boolean hasNext() {
+      return curRow < lastRow && cache.contains(curRow + 1);
+    }
+
+    public RowType next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      curRow++;
+      return cache.get(curRow);
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("Remove not supported.");
+    }
+  }
+
+  /**
+   * A Response that comes directly from the cache.
+   */
+  private class CacheResponse extends Response<RowType> {
+    /**
+     * An iterator over the row values.
+     */
+    private CacheIterator it;
+
+    public CacheResponse(RowCache<RowType> cache, int firstRow, int lastRow) {
+      it = new CacheIterator(cache, firstRow, lastRow);
+    }
+
+    @Override
+    public Iterator<RowType> getRowValues() {
+      return it;
+    }
+  }
+
+  /**
+   * A request that has been sent to the underlying table model, but has not
+   * returned yet. The response is added to the cache, then every
+   * {@link RequestWaiter} that depends on it is notified. If the underlying
+   * table model streams the response, each chunk is handled the same way.
+   */
+  private class PendingRequest implements StreamingCallback<RowType> {
+    /**
+     * The cache that the response will be added to.
+     */
+    private RowCache<RowType> cache;
+
+    /**
+     * The partition that owns the cache.
+     */
+    private SortPartition partition;
+
+    /**
+     * The first row requested from the underlying table model.
+     */
+    private int firstRow;
+
+    /**
+     * The last row requested from the underlying table model.
+     */
+    private int lastRow;
+
+    /**
+     * The row index of the next row in the response.
+     */
+    private int nextRow;
+
+    /**
+     * True if the row indexes have shifted since the request was sent.
+     */
+    private boolean stale = false;
+
+    /**
+     * The waiters that depend on this request.
+     */
+    private List<RequestWaiter> waiters = new ArrayList<RequestWaiter>();
+
+    /**
+     * Construct a new {@link PendingRequest}.
+     * 
+     * @param partition the partition that the response will be added to
+     * @param firstRow the first requested row
+     * @param lastRow the last requested row
+     */
+    public PendingRequest(SortPartition partition, int firstRow, int lastRow) {
+      this.partition = partition;
+      this.cache = partition.cache;
+      this.firstRow = firstRow;
+      this.lastRow = lastRow;
+      this.nextRow = firstRow;
+    }
+
+    /**
+     * Check if a row will be included in the response to this request.
+     * 
+     * @param row the row index
+     * @return true if the row was requested
+     */
+    public boolean isRowRequested(int row) {
+      return row >= firstRow && row <= lastRow;
+    }
+
+    public void onFailure(Throwable caught) {
+      pendingRequests.remove(this);
+      for (RequestWaiter waiter : new ArrayList<RequestWaiter>(waiters)) {
+        waiter.onFailure(caught);
+      }
+    }
+
+    public void onRowsChunk(Request request, Response<RowType> chunk) {
+      putRows(chunk);
+
+      // Pass the new rows to the waiters
+      for (RequestWaiter waiter : new ArrayList<RequestWaiter>(waiters)) {
+        waiter.onPendingRequestChunk(this);
+      }
+    }
+
+    public void onRowsReady(Request request, Response<RowType> response) {
+      pendingRequests.remove(this);
+
+      // Save the response data into the cache
+      putRows(response);
+
+      // A short response marks the end of the filtered rows
+      if (!stale && partition.filter != null && nextRow <= lastRow
+          && (nextRow > firstRow || nextRow == 0)) {
+        partition.rowCount = nextRow;
+      }
+
+      // Notify the waiters
+      for (RequestWaiter waiter : new ArrayList<RequestWaiter>(waiters)) {
+        waiter.onPendingRequestComplete(this);
+      }
+    }
+
+    /**
+     * Add the rows of a response or a chunk to the cache, following the rows
+     * of the previous chunks.
+     * 
+     * @param response the response
+     */
+    private void putRows(Response<RowType> response) {
+      if (response == null) {
+        return;
+      }
+      Iterator<RowType> rowValues = response.getRowValues();
+      if (rowValues == null) {
+        return;
+      }
+      while (rowValues.hasNext()) {
+        RowType rowValue = rowValues.next();
+        if (!stale) {
+          cache.put(nextRow, rowValue);
+        }
+        nextRow++;
+      }
+    }
+  }
+
+  /**
+   * An original request that is waiting on one or more {@link PendingRequest}
+   * before it can be answered from the cache.
+   */
+  private class RequestWaiter {
+    /**
+     * The actual callback from the original requester.
+     */
+    private Callback<RowType> actualCallback;
+
+    /**
+     * The original request.
+     */
+    private Request actualRequest;
+
+    /**
+     * The actual first requested row.
+     */
+    private int actualStartRow;
+
+    /**
+     * The actual last requested row.
+     */
+    private int actualLastRow;
+
+    /**
+     * The cache that will contain the rows.
+     */
+    private RowCache<RowType> cache;
+
+    /**
+     * The pending requests that this waiter depends on.
+     */
+    private List<PendingRequest> dependencies = new ArrayList<PendingRequest>();
+
+    /**
+     * The first row that has not been passed to the callback in a chunk.
+     */
+    private int nextRow;
+
+    /**
+     * True if the original request is a prefetch.
+     */
+    private boolean prefetch;
+
+    /**
+     * Construct a new {@link RequestWaiter}.
+     * 
+     * @param request the original request
+     * @param callback the actual callback from the requester
+     * @param prefetch true if the original request is a prefetch
+     * @param cache the cache that will contain the rows
+     * @param startRow the actual first requested row
+     * @param lastRow the actual last requested row
+     */
+    public RequestWaiter(Request request, Callback<RowType> callback,
+        boolean prefetch, RowCache<RowType> cache, int startRow, int lastRow) {
+      this.actualRequest = request;
+      this.actualCallback = callback;
+      this.prefetch = prefetch;
+      this.cache = cache;
+      this.actualStartRow = startRow;
+      this.actualLastRow = lastRow;
+      this.nextRow = startRow;
+    }
+
+    /**
+     * Wait for a pending request to complete.
+     * 
+     * @param pending the pending request
+     */
+    public void addDependency(PendingRequest pending) {
+      dependencies.add(pending);
+      pending.waiters.add(this);
+    }
+
+    /**
+     * Stop waiting for all pending requests.
+     */
+    public void cancel() {
+      waiters.remove(this);
+      for (PendingRequest pending : dependencies) {
+        pending.waiters.remove(this);
+      }
+      dependencies.clear();
+    }
+
+    /**
+     * Called when one of the pending requests fails.
+     * 
+     * @param caught the exception that was thrown
+     */
+    public void onFailure(Throwable caught) {
+      cancel();
+      actualCallback.onFailure(caught);
+    }
+
+    /**
+     * Called when one of the pending requests receives a chunk of rows. If
+     * the original request uses a {@link StreamingCallback}, the rows that
+     * follow the rows passed so far are passed to it as soon as they are
+     * cached.
+     * 
+     * @param pending the pending request
+     */
+    public void onPendingRequestChunk(PendingRequest pending) {
+      if (pending.stale || !(actualCallback instanceof StreamingCallback)) {
+        return;
+      }
+      int firstRow = nextRow;
+      while (nextRow <= actualLastRow && cache.contains(nextRow)) {
+        nextRow++;
+      }
+      if (nextRow > firstRow) {
+        ((StreamingCallback<RowType>) actualCallback).onRowsChunk(
+            actualRequest, new CacheResponse(cache, firstRow, nextRow - 1));
+      }
+    }
+
+    /**
+     * Called when one of the pending requests completes. If the response was
+     * not added to the cache because the request is stale, the original
+     * request is sent again so the missing rows are requested. Rows that were
+     * already passed in chunks are not requested again. A prefetch is sent
+     * again as a prefetch.
+     * 
+     * @param pending the pending request
+     */
+    public void onPendingRequestComplete(PendingRequest pending) {
+      if (pending.stale) {
+        cancel();
+        if (nextRow == actualStartRow) {
+          requestRows(actualRequest, actualCallback, prefetch);
+        } else {
+          requestRows(new Request(nextRow, actualLastRow - nextRow + 1,
+              actualRequest.getColumnSortList(),
+              actualRequest.getRowFilter(), actualRequest.getColumns()),
+              actualCallback, prefetch);
+        }
+        return;
+      }
+      dependencies.remove(pending);
+      pending.waiters.remove(this);
+      if (dependencies.size() == 0) {
+        waiters.remove(this);
+        actualCallback.onRowsReady(actualRequest, new CacheResponse(cache,
+            nextRow, actualLastRow));
+      }
+    }
+  }
+
+  /**
+   * The cached rows and pending requests of a data source, which may be shared
+   * by several {@link CachedTableModel}s.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  private static class RowStore<RowType> {
+    /**
+     * The number of rows evicted from caches that have since been discarded.
+     */
+    private int discardedEvictedRowCount = 0;
+
+    /**
+     * The policy used to evict rows when the cache is full.
+     */
+    private EvictionPolicy evictionPolicy = new LruEvictionPolicy();
+
+    /**
+     * The maximum estimated size of the cache in bytes.
+     */
+    private int maxByteSize = RowCache.UNLIMITED;
+
+    /**
+     * The maximum number of rows in the cache.
+     */
+    private int maxRowCount = RowCache.UNLIMITED;
+
+    /**
+     * The maximum number of sort orders that are retained.
+     */
+    private int maxSortPartitionCount = DEFAULT_SORT_PARTITION_COUNT;
+
+    /**
+     * The models that use this store.
+     */
+    private List<CachedTableModel<RowType>> models = new ArrayList<CachedTableModel<RowType>>();
+
+    /**
+     * The cache partitions of each retained sort order, ordered from the most
+     * to least recently used.
+     */
+    private List<CachedTableModel<RowType>.SortPartition> partitions = new ArrayList<CachedTableModel<RowType>.SortPartition>();
+
+    /**
+     * The requests sent to the underlying table model that have not returned.
+     */
+    private List<CachedTableModel<RowType>.PendingRequest> pendingRequests = new ArrayList<CachedTableModel<RowType>.PendingRequest>();
+
+    /**
+     * The estimator used to measure the size of rows.
+     */
+    private RowSizeEstimator<RowType> rowSizeEstimator = null;
+
+    /**
+     * True if the store is registered as the shared store of the data source.
+     */
+    private boolean shared;
+
+    /**
+     * The underlying, non-cached table model.
+     */
+    private MutableTableModel<RowType> tableModel;
+
+    /**
+     * Construct a new {@link RowStore}.
+     * 
+     * @param tableModel the underlying table model
+     * @param shared true if the store is shared
+     */
+    public RowStore(MutableTableModel<RowType> tableModel, boolean shared) {
+      this.tableModel = tableModel;
+      this.shared = shared;
+    }
+  }
+
+  /**
+   * The rows cached for a specific sort order and filter.
+   */
+  private class SortPartition {
+    /**
+     * The cache of row values.
+     */
+    private RowCache<RowType> cache = createRowCache();
+
+    /**
+     * The columns that the cached rows contain, or null for all columns. An
+     * empty array means that no rows have been loaded yet.
+     */
+    private int[] columns;
+
+    /**
+     * The filter that the rows match, or null if not filtered.
+     */
+    private RowFilter filter;
+
+    /**
+     * The number of models that use this partition as their current partition.
+     */
+    private int modelCount = 0;
+
+    /**
+     * The number of rows that match the filter, if known.
+     */
+    private int rowCount = UNKNOWN_ROW_COUNT;
+
+    /**
+     * The sort order of the rows, or null if not sorted.
+     */
+    private ColumnSortList sortList;
+
+    /**
+     * Construct a new {@link SortPartition}.
+     * 
+     * @param sortList the sort order of the rows
+     * @param filter the filter that the rows match
+     * @param columns the columns that the rows contain, or null for all
+     */
+    public SortPartition(ColumnSortList sortList, RowFilter filter,
+        int[] columns) {
+      this.sortList = (sortList == null) ? null : sortList.copy();
+      this.filter = filter;
+      this.columns = columns;
+    }
+
+    /**
+     * Make sure the cached rows contain the values of a set of columns. If a
+     * column is missing, the cached rows are discarded and later requests load
+     * rows with both the old and new columns.
+     * 
+     * @param otherColumns the columns, or null for all columns
+     * @return true if the cached rows had to be discarded
+     */
+    public boolean ensureColumns(int[] otherColumns) {
+      if (columns == null) {
+        return false;
+      } else if (columns.length == 0) {
+        columns = otherColumns;
+        return false;
+      } else if (otherColumns == null) {
+        columns = null;
+        return true;
+      }
+
+      // Add the missing columns
+      List<Integer> missing = new ArrayList<Integer>();
+      for (int column : otherColumns) {
+        if (!containsColumn(column) && !missing.contains(column)) {
+          missing.add(column);
+        }
+      }
+      if (missing.isEmpty()) {
+        return false;
+      }
+      int[] newColumns = new int[columns.length + missing.size()];
+      for (int i = 0; i < columns.length; i++) {
+        newColumns[i] = columns[i];
+      }
+      for (int i = 0; i < missing.size(); i++) {
+        newColumns[columns.length + i] = missing.get(i);
+      }
+      columns = newColumns;
+      return true;
+    }
+
+    /**
+     * Check if this partition contains rows in a given sort order that match a
+     * given filter.
+     * 
+     * @param otherSortList the sort order
+     * @param otherFilter the filter
+     * @return true if the sort orders and filters are equal
+     */
+    public boolean matches(ColumnSortList otherSortList, RowFilter otherFilter) {
+      if (filter == null ? otherFilter != null : !filter.equals(otherFilter)) {
+        return false;
+      } else if (sortList == null) {
+        return otherSortList == null;
+      }
+      return sortList.equals(otherSortList);
+    }
+
+    /**
+     * Check if the cached rows contain the values of a column.
+     * 
+     * @param column the column index
+     * @return true if the column is cached
+     */
+    private boolean containsColumn(int column) {
+      for (int cached : columns) {
+        if (cached == column) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The default number of sort orders that are retained in the cache.
+   */
+  public static final int DEFAULT_SORT_PARTITION_COUNT = 2;
+
+  /**
+   * The shared row stores, keyed by their underlying table model.
+   */
+  private static Map<MutableTableModel<?>, RowStore<?>> sharedStores = new IdentityHashMap<MutableTableModel<?>, RowStore<?>>();
+
+  /**
+   * The number of batch requests sent to the underlying table model.
+   */
+  private int batchRequestCount = 0;
+
+  /**
+   * The number of requested rows that were already in the cache.
+   */
+  private int cachedRowHitCount = 0;
+
+  /**
+   * The number of requests that were answered using a pending request instead
+   * of a new request.
+   */
+  private int coalescedRequestCount = 0;
+
+  /**
+   * The cache partition of the current sort order and filter.
+   */
+  private SortPartition currentPartition = null;
+
+  /**
+   * The most recent request received by {@link #requestRows}, or null if none.
+   * Prefetches do not replace it.
+   */
+  private Request lastViewedRequest = null;
+
+  /**
+   * The number of rows of the last viewed request that were already cached.
+   */
+  private int lastViewedCachedRowCount = 0;
+
+  /**
+   * The number of rows of the last viewed request that exist in the model.
+   */
+  private int lastViewedRowCount = 0;
+
+  /**
+   * The number of requests with a sort order that was already cached.
+   */
+  private int partitionHitCount = 0;
+
+  /**
+   * The number of requests with a sort order that was not already cached.
+   */
+  private int partitionMissCount = 0;
+
+  /**
+   * The number of rows requested from this model.
+   */
+  private int requestedRowCount = 0;
+
+  /**
+   * The cache partitions of each retained sort order, ordered from the most to
+   * least recently used. The list belongs to the row store.
+   */
+  private List<SortPartition> partitions;
+
+  /**
+   * The requests sent to the underlying table model that have not returned.
+   * The list belongs to the row store.
+   */
+  private List<PendingRequest> pendingRequests;
+
+  /**
+   * The number of rows to request that come after the actual requested rows.
+   */
+  private int postCacheRows = 0;
+
+  /**
+   * The number of rows to request that come before the actual requested rows.
+   */
+  private int preCacheRows = 0;
+
+  /**
+   * The cache of row values in the current sort order.
+   */
+  private RowCache<RowType> rowCache;
+
+  /**
+   * The cached rows and pending requests, which may be shared.
+   */
+  private RowStore<RowType> store;
+
+  /**
+   * The underlying, non-cached table model.
+   */
+  private MutableTableModel<RowType> tableModel;
+
+  /**
+   * The original requests that are waiting on pending requests.
+   */
+  private List<RequestWaiter> waiters = new ArrayList<RequestWaiter>();
+
+  /**
+   * Construct a new {@link CachedTableModel}.
+   * 
+   * @param tableModel the underlying {@link MutableTableModel}
+   */
+  public CachedTableModel(MutableTableModel<RowType> tableModel) {
+    this(new RowStore<RowType>(tableModel, false));
+  }
+
+  /**
+   * Construct a new {@link CachedTableModel} that uses a row store.
+   * 
+   * @param store the row store
+   */
+  private CachedTableModel(RowStore<RowType> store) {
+    this.store = store;
+    this.tableModel = store.tableModel;
+    this.partitions = store.partitions;
+    this.pendingRequests = store.pendingRequests;
+    store.models.add(this);
+
+    // Start in the unsorted, unfiltered partition
+    SortPartition partition = findPartition(null, null);
+    if (partition == null) {
+      partition = new SortPartition(null, null, new int[0]);
+    }
+    setCurrentPartition(partition);
+  }
+
+  /**
+   * Create a {@link CachedTableModel} that shares its cache with the other
+   * shared models of the same underlying table model. The shared cache is
+   * created with the first shared model.
+   * 
+   * @param <RowType> the data type of the row values
+   * @param tableModel the underlying {@link MutableTableModel}
+   * @return a new model that uses the shared cache
+   */
+  @SuppressWarnings("unchecked")
+  public static <RowType> CachedTableModel<RowType> createSharedModel(
+      MutableTableModel<RowType> tableModel) {
+    RowStore<RowType> store = (RowStore<RowType>) sharedStores.get(tableModel);
+    if (store == null) {
+      store = new RowStore<RowType>(tableModel, true);
+      sharedStores.put(tableModel, store);
+    }
+    return new CachedTableModel<RowType>(store);
+  }
+
+  /**
+   * Cancel a request that is waiting for data from the underlying table model.
+   * The callback associated with the request will not be called. If the
+   * request has already been answered, this method has no effect.
+   * 
+   * @param request the original request
+   * @return true if the request was cancelled
+   */
+  public boolean cancelRequest(Request request) {
+    for (RequestWaiter waiter : waiters) {
+      if (waiter.actualRequest == request) {
+        waiter.cancel();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Clear all data from the cache.
+   */
+  public void clearCache() {
+    for (SortPartition partition : partitions) {
+      partition.cache.clear();
+    }
+  }
+
+  /**
+   * @return the number of batch requests sent to the underlying table model to
+   *         load several disjoint ranges of missing rows
+   */
+  public int getBatchRequestCount() {
+    return batchRequestCount;
+  }
+
+  /**
+   * @return the number of rows currently in the cache, in all sort orders
+   */
+  public int getCachedRowCount() {
+    int count = 0;
+    for (SortPartition partition : partitions) {
+      count += partition.cache.getRowCount();
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of requested rows that were already in the cache when
+   *         they were requested
+   */
+  public int getCachedRowHitCount() {
+    return cachedRowHitCount;
+  }
+
+  /**
+   * Get the number of rows of a request that were already cached when the
+   * request was received. Only the most recent request sent to
+   * {@link #requestRows} is tracked, so the counts of a page request are not
+   * mixed with the rows of prefetches or other requests.
+   * 
+   * @param request the request
+   * @return the number of cached rows, or -1 if the request is not tracked
+   */
+  public int getCachedRowHitCount(Request request) {
+    return (request == lastViewedRequest) ? lastViewedCachedRowCount : -1;
+  }
+
+  /**
+   * @return the number of requests that waited on a pending request instead of
+   *         sending a new request to the underlying table model
+   */
+  public int getCoalescedRequestCount() {
+    return coalescedRequestCount;
+  }
+
+  /**
+   * @return the number of rows evicted from the cache
+   */
+  public int getEvictedRowCount() {
+    int count = store.discardedEvictedRowCount;
+    for (SortPartition partition : partitions) {
+      count += partition.cache.getEvictedRowCount();
+    }
+    return count;
+  }
+
+  /**
+   * @return the {@link EvictionPolicy} used when the cache is full
+   */
+  public EvictionPolicy getEvictionPolicy() {
+    return store.evictionPolicy;
+  }
+
+  /**
+   * @return the maximum number of cached rows, or {@link RowCache#UNLIMITED}
+   */
+  public int getMaximumCachedRowCount() {
+    return store.maxRowCount;
+  }
+
+  /**
+   * @return the maximum number of sort orders that are retained
+   */
+  public int getMaximumSortPartitionCount() {
+    return store.maxSortPartitionCount;
+  }
+
+  /**
+   * @return the number of requests whose sort order was already cached
+   */
+  public int getPartitionHitCount() {
+    return partitionHitCount;
+  }
+
+  /**
+   * @return the number of requests whose sort order was not already cached
+   */
+  public int getPartitionMissCount() {
+    return partitionMissCount;
+  }
+
+  /**
+   * @return the number of requests sent to the underlying table model that
+   *         have not returned yet, including the requests of shared models
+   */
+  public int getPendingRequestCount() {
+    return pendingRequests.size();
+  }
+
+  /**
+   * @return the number of rows to cache after the requested rows
+   */
+  public int getPostCachedRowCount() {
+    return postCacheRows;
+  }
+
+  /**
+   * @return the number of rows to cache before the requested rows
+   */
+  public int getPreCachedRowCount() {
+    return preCacheRows;
+  }
+
+  /**
+   * @return the number of rows requested from this model, which together with
+   *         {@link #getCachedRowHitCount()} gives the cache hit ratio
+   */
+  public int getRequestedRowCount() {
+    return requestedRowCount;
+  }
+
+  /**
+   * Get the number of rows of a request that exist in the model. See
+   * {@link #getCachedRowHitCount(Request)}.
+   * 
+   * @param request the request
+   * @return the number of requested rows, or -1 if the request is not tracked
+   */
+  public int getRequestedRowCount(Request request) {
+    return (request == lastViewedRequest) ? lastViewedRowCount : -1;
+  }
+
+  /**
+   * @return the number of models that use the cache of this model, including
+   *         this model
+   */
+  public int getSharedModelCount() {
+    return store.models.size();
+  }
+
+  /**
+   * Get the number of rows. If the current partition is filtered and the
+   * number of rows that match its filter is known, that number is returned
+   * instead of the number of rows in the underlying table model.
+   * 
+   * @return the number of rows
+   */
+  @Override
+  public int getRowCount() {
+    if (currentPartition.filter != null
+        && currentPartition.rowCount != UNKNOWN_ROW_COUNT) {
+      return currentPartition.rowCount;
+    }
+    return tableModel.getRowCount();
+  }
+
+  /**
+   * Request rows that the user is likely to view soon, such as the next page.
+   * The request is handled like {@link #requestRows(Request, Callback)}, but
+   * it does not move the focus range of the cache to the requested rows, so
+   * the rows around the viewed page are not evicted to make room for them.
+   * 
+   * @param request the request
+   * @param callback the callback
    */
-  private class CacheCallback implements Callback<RowType> {
-    /**
-     * The actual callback from the original requester.
-     */
-    private Callback<RowType> actualCallback;
-
-    /**
-     * The actual number of requested rows.
-     */
-    private int actualNumRows;
+  public void prefetchRows(Request request, Callback<RowType> callback) {
+    requestRows(request, callback, true);
+  }
 
-    /**
-     * The original request.
-     */
-    private Request actualRequest;
+  /**
+   * Stop using the cache. The pending requests of this model are cancelled, and
+   * the partition of its sort order may be discarded. The cache is discarded
+   * when it is no longer used by any shared model. The model must not be used
+   * after it is released.
+   */
+  public void release() {
+    if (!store.models.remove(this)) {
+      return;
+    }
+    for (RequestWaiter waiter : new ArrayList<RequestWaiter>(waiters)) {
+      waiter.cancel();
+    }
+    currentPartition.modelCount--;
+    if (store.models.isEmpty()) {
+      if (store.shared) {
+        sharedStores.remove(tableModel);
+      }
+      clearCache();
+    } else {
+      trimPartitions();
+    }
+  }
 
-    /**
-     * The actual first requested row.
-     */
-    private int actualStartRow;
+  @Override
+  public void requestRows(Request request, Callback<RowType> callback) {
+    requestRows(request, callback, false);
+  }
 
-    /**
-     * Construct a new {@link CacheCallback}.
-     * 
-     * @param request the original request
-     * @param callback The actual callback from the requestor
-     * @param startRow The actual first requested row
-     * @param numRows The actual number of requested rows
-     */
-    public CacheCallback(Request request, Callback<RowType> callback,
-        int startRow, int numRows) {
-      actualRequest = request;
-      actualCallback = callback;
-      actualStartRow = startRow;
-      actualNumRows = numRows;
+  /**
+   * Set the {@link EvictionPolicy} used to select the rows to discard when the
+   * cache is full.
+   * 
+   * @param evictionPolicy the eviction policy
+   */
+  public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+    store.evictionPolicy = evictionPolicy;
+    for (SortPartition partition : partitions) {
+      partition.cache.setEvictionPolicy(evictionPolicy);
     }
+  }
 
-    public void onFailure(Throwable caught) {
-      actualCallback.onFailure(caught);
+  /**
+   * Limit the cache to an estimated number of bytes.
+   * 
+   * @param maxByteSize the maximum number of bytes, or
+   *          {@link RowCache#UNLIMITED}
+   * @param estimator the estimator used to measure the size of each row
+   */
+  public void setMaximumCachedByteSize(int maxByteSize,
+      RowSizeEstimator<RowType> estimator) {
+    store.maxByteSize = maxByteSize;
+    store.rowSizeEstimator = estimator;
+    for (SortPartition partition : partitions) {
+      partition.cache.setRowSizeEstimator(estimator);
+      partition.cache.setMaximumByteSize(maxByteSize);
     }
+  }
 
-    public void onRowsReady(Request request, Response<RowType> response) {
-      // Save the response data into the cache
-      if (response != null) {
-        Iterator<RowType> rowValues = response.getRowValues();
-        if (rowValues != null) {
-          int curRow = request.getStartRow();
-          while (rowValues.hasNext()) {
-            rowValuesMap.put(new Integer(curRow), rowValues.next());
-            curRow++;
-          }
-        }
-      }
-
-      // Forward the data to the actual callback
-      actualCallback.onRowsReady(actualRequest, new CacheResponse(
-          actualStartRow, actualStartRow + actualNumRows - 1));
+  /**
+   * Limit the cache to a maximum number of rows. The limit should be at least
+   * as large as the page size plus the pre and post cache.
+   * 
+   * @param maxRowCount the maximum number of rows, or {@link RowCache#UNLIMITED}
+   */
+  public void setMaximumCachedRowCount(int maxRowCount) {
+    store.maxRowCount = maxRowCount;
+    for (SortPartition partition : partitions) {
+      partition.cache.setMaximumRowCount(maxRowCount);
     }
   }
 
   /**
-   * An {@link Iterator} that iterates over the cached rows of data.
+   * Set the maximum number of sort orders that are retained in the cache. When
+   * the limit is reached, the least recently used sort order is discarded.
+   * 
+   * @param maxCount the maximum number of sort orders, at least one
    */
-  private class CacheIterator implements Iterator<RowType> {
-    /**
-     * The current row that will be returned on the next call to next.
-     */
-    int curRow;
+  public void setMaximumSortPartitionCount(int maxCount) {
+    store.maxSortPartitionCount = Math.max(1, maxCount);
+    trimPartitions();
+  }
 
-    /**
-     * The last row to iterate, inclusively.
-     */
-    int lastRow;
+  /**
+   * Set the number of rows to cache after the visible data area.
+   * 
+   * @param postCacheRows the number of rows to post cache
+   */
+  public void setPostCachedRowCount(int postCacheRows) {
+    this.postCacheRows = postCacheRows;
+  }
 
-    /**
-     * Construct a new iterator.
-     * 
-     * @param firstRow the first row of data
-     * @param lastRow the last row of data
-     */
-    public CacheIterator(int firstRow, int lastRow) {
-      this.curRow = firstRow - 1;
-      this.lastRow = lastRow;
-    }
+  /**
+   * Set the number of rows to cache before the visible data area.
+   * 
+   * @param preCacheRows the number of rows to pre cache
+   */
+  public void setPreCachedRowCount(int preCacheRows) {
+    this.preCacheRows = preCacheRows;
+  }
 
-    public boolean hasNext() {
-      return curRow < lastRow
-          && rowValuesMap.containsKey(new Integer(curRow + 1));
+  @Override
+  public void setRowCount(int rowCount) {
+    tableModel.setRowCount(rowCount);
+    super.setRowCount(rowCount);
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.setSharedRowCount(rowCount);
     }
+  }
 
-    public RowType next() {
-      if (!hasNext()) {
-        throw new NoSuchElementException();
-      }
+  @Override
+  protected boolean onRowInserted(int beforeRow) {
+    if (prepareMutation(true)) {
+      rowCache.insertRow(beforeRow);
+    }
+    if (!tableModel.onRowInserted(beforeRow)) {
+      return false;
+    }
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.fireEvent(new RowInsertionEvent(beforeRow));
+    }
+    return true;
+  }
 
-      curRow++;
-      return rowValuesMap.get(new Integer(curRow));
+  @Override
+  protected boolean onRowRemoved(int row) {
+    if (prepareMutation(true)) {
+      rowCache.removeRow(row);
+    }
+    if (!tableModel.onRowRemoved(row)) {
+      return false;
     }
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.fireEvent(new RowRemovalEvent(row));
+    }
+    return true;
+  }
 
-    public void remove() {
-      throw new UnsupportedOperationException("Remove not supported.");
+  @Override
+  protected boolean onRowsInserted(int beforeRow, int count) {
+    if (prepareMutation(true)) {
+      rowCache.insertRows(beforeRow, count);
+    }
+    if (!tableModel.onRowsInserted(beforeRow, count)) {
+      return false;
     }
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.fireEvent(new RowInsertionEvent(beforeRow, count));
+    }
+    return true;
   }
 
-  /**
-   * A Response that comes directly from the cache.
-   */
-  private class CacheResponse extends Response<RowType> {
-    /**
-     * An iterator over the row values.
-     */
-    private CacheIterator it;
+  @Override
+  protected boolean onRowsRemoved(int firstRow, int count) {
+    if (prepareMutation(true)) {
+      rowCache.removeRows(firstRow, count);
+    }
+    if (!tableModel.onRowsRemoved(firstRow, count)) {
+      return false;
+    }
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.fireEvent(new RowRemovalEvent(firstRow, count));
+    }
+    return true;
+  }
 
-    public CacheResponse(int firstRow, int lastRow) {
-      it = new CacheIterator(firstRow, lastRow);
+  @Override
+  protected boolean onSetRowValue(int row, RowType rowValue) {
+    if (prepareMutation(false)) {
+      rowCache.put(row, rowValue);
+    }
+    if (!tableModel.onSetRowValue(row, rowValue)) {
+      return false;
+    }
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.fireEvent(new RowValueChangeEvent<RowType>(row, rowValue));
     }
+    return true;
+  }
 
-    @Override
-    public Iterator<RowType> getRowValues() {
-      return it;
+  @Override
+  protected boolean onSetRowValues(int firstRow, List<RowType> rowValues) {
+    if (prepareMutation(false)) {
+      for (int i = 0; i < rowValues.size(); i++) {
+        rowCache.put(firstRow + i, rowValues.get(i));
+      }
+    }
+    if (!tableModel.onSetRowValues(firstRow, rowValues)) {
+      return false;
+    }
+    for (CachedTableModel<RowType> model : getOtherSharedModels()) {
+      model.fireEvent(new RowValueChangeEvent<RowType>(firstRow, rowValues));
     }
+    return true;
   }
 
   /**
-   * The sort list included with the last request.
+   * @return the number of data sources that have a shared cache
    */
-  private ColumnSortList lastSortList = null;
+  static int getSharedStoreCount() {
+    return sharedStores.size();
+  }
 
   /**
-   * The number of rows to request that come after the actual requested rows.
+   * Create a new, empty {@link RowCache} using the current cache settings.
+   * 
+   * @return the new cache
    */
-  private int postCacheRows = 0;
+  private RowCache<RowType> createRowCache() {
+    RowCache<RowType> cache = new RowCache<RowType>();
+    cache.setEvictionPolicy(store.evictionPolicy);
+    cache.setRowSizeEstimator(store.rowSizeEstimator);
+    cache.setMaximumByteSize(store.maxByteSize);
+    cache.setMaximumRowCount(store.maxRowCount);
+    return cache;
+  }
 
   /**
-   * The number of rows to request that come before the actual requested rows.
+   * Discard the cache partition of a sort order. Pending requests will continue
+   * to fill the discarded cache.
+   * 
+   * @param index the index of the partition
    */
-  private int preCacheRows = 0;
+  private void discardPartition(int index) {
+    SortPartition partition = partitions.remove(index);
+    store.discardedEvictedRowCount += partition.cache.getEvictedRowCount();
+  }
 
   /**
-   * A mapping of rows to the associated row values.
+   * Discard the partitions of every sort order except the current one. The
+   * partitions used by shared models are emptied instead. The number of rows
+   * that match the filter of the current partition is no longer known.
    */
-  private HashMap<Integer, RowType> rowValuesMap = new HashMap<Integer, RowType>();
+  private void discardOtherPartitions() {
+    for (int i = partitions.size() - 1; i >= 0; i--) {
+      SortPartition partition = partitions.get(i);
+      if (partition == currentPartition) {
+        continue;
+      } else if (partition.modelCount > 0) {
+        partition.cache.clear();
+        partition.rowCount = UNKNOWN_ROW_COUNT;
+      } else {
+        discardPartition(i);
+      }
+    }
+    currentPartition.rowCount = UNKNOWN_ROW_COUNT;
+  }
 
   /**
-   * The underlying, non-cached table model.
+   * Find the retained partition of a sort order and filter.
+   * 
+   * @param sortList the sort order
+   * @param filter the filter
+   * @return the partition, or null if it is not retained
    */
-  private MutableTableModel<RowType> tableModel;
+  private SortPartition findPartition(ColumnSortList sortList,
+      RowFilter filter) {
+    for (SortPartition partition : partitions) {
+      if (partition.matches(sortList, filter)) {
+        return partition;
+      }
+    }
+    return null;
+  }
 
   /**
-   * Construct a new {@link CachedTableModel}.
+   * Get the other models that share the cache of this model, so they can fire
+   * the events of mutations made through this model.
    * 
-   * @param tableModel the underlying {@link MutableTableModel}
+   * @return a copy of the list of other shared models
    */
-  public CachedTableModel(MutableTableModel<RowType> tableModel) {
-    this.tableModel = tableModel;
+  private List<CachedTableModel<RowType>> getOtherSharedModels() {
+    List<CachedTableModel<RowType>> models = new ArrayList<CachedTableModel<RowType>>(
+        store.models);
+    models.remove(this);
+    return models;
   }
 
   /**
-   * Clear all data from the cache.
+   * Get the pending request that will return a row in the current cache.
+   * 
+   * @param row the row index
+   * @return the pending request, or null if the row has not been requested
    */
-  public void clearCache() {
-    rowValuesMap.clear();
+  private PendingRequest getPendingRequest(int row) {
+    for (PendingRequest pending : pendingRequests) {
+      if (pending.cache == rowCache && !pending.stale
+          && pending.isRowRequested(row)) {
+        return pending;
+      }
+    }
+    return null;
   }
 
   /**
-   * @return the number of rows to cache after the requested rows
+   * Prepare the cache for a mutation of the underlying data. The partitions of
+   * the other sort orders are discarded. The row indexes of a mutation refer
+   * to the unfiltered rows, and the cache cannot check if a new row value
+   * matches a filter, so a filtered current partition is emptied as well.
+   * Responses to pending requests that are affected by the mutation are not
+   * added to the cache.
+   * 
+   * @param shift true if rows are inserted or removed
+   * @return true if the rows in the current partition can be updated in place
    */
-  public int getPostCachedRowCount() {
-    return postCacheRows;
+  private boolean prepareMutation(boolean shift) {
+    discardOtherPartitions();
+    boolean filtered = currentPartition.filter != null;
+    if (filtered) {
+      rowCache.clear();
+    }
+    for (PendingRequest pending : pendingRequests) {
+      if (shift || filtered || pending.partition != currentPartition) {
+        pending.stale = true;
+      }
+    }
+    return !filtered;
   }
 
   /**
-   * @return the number of rows to cache before the requested rows
+   * Request rows from the cache, or from the underlying table model if they are
+   * not cached.
+   * 
+   * @param request the request
+   * @param callback the callback
+   * @param prefetch true if the rows are not viewed yet, so the focus range of
+   *          the cache is not moved
    */
-  public int getPreCachedRowCount() {
-    return preCacheRows;
-  }
-
-  @Override
-  public int getRowCount() {
-    return tableModel.getRowCount();
-  }
-
-  @Override
-  public void requestRows(Request request, Callback<RowType> callback) {
-    // Clear the cache if the sort order has changed
+  private void requestRows(Request request, Callback<RowType> callback,
+      boolean prefetch) {
+    // Switch to the cache partition of the sort order and filter
     ColumnSortList sortList = request.getColumnSortList();
-    if (sortList == null) {
-      if (lastSortList != null) {
-        clearCache();
-        lastSortList = null;
-      }
-    } else if (!sortList.equals(lastSortList)) {
-      clearCache();
-      lastSortList = sortList.copy();
-    }
+    RowFilter filter = request.getRowFilter();
+    selectPartition(sortList, filter, request.getColumns());
+    SortPartition partition = currentPartition;
 
     // Check if all requested rows are in the cache
     int startRow = request.getStartRow();
     int numRows = request.getNumRows();
     int lastRow = startRow + numRows - 1;
     int totalNumRows = getRowCount();
+    if (partition.rowCount != UNKNOWN_ROW_COUNT) {
+      totalNumRows = partition.rowCount;
+    }
     if (totalNumRows != UNKNOWN_ROW_COUNT) {
       lastRow = Math.min(lastRow, totalNumRows - 1);
     }
-    boolean fullyCached = true;
+    if (!prefetch) {
+      rowCache.setFocusRange(startRow, lastRow);
+    }
+    int cachedRows = 0;
     for (int row = startRow; row <= lastRow; row++) {
-      if (!rowValuesMap.containsKey(new Integer(row))) {
-        fullyCached = false;
-        break;
+      if (rowCache.contains(row)) {
+        cachedRows++;
       }
     }
+    // Requests past the last row are answered with an empty response
+    boolean fullyCached = (lastRow < startRow)
+        || (cachedRows == lastRow - startRow + 1);
+    requestedRowCount += Math.max(0, lastRow - startRow + 1);
+    cachedRowHitCount += cachedRows;
+    if (!prefetch) {
+      lastViewedRequest = request;
+      lastViewedRowCount = Math.max(0, lastRow - startRow + 1);
+      lastViewedCachedRowCount = cachedRows;
+    }
 
     // Return the fully cached data
     if (fullyCached) {
-      callback.onRowsReady(request, new CacheResponse(startRow, lastRow));
+      callback.onRowsReady(request, new CacheResponse(rowCache, startRow,
+          lastRow));
+      return;
+    }
+
+    // Wait on the pending requests that will return the missing rows
+    RequestWaiter waiter = new RequestWaiter(request, callback, prefetch,
+        rowCache, startRow, lastRow);
+    boolean fullyPending = true;
+    for (int row = startRow; row <= lastRow; row++) {
+      if (!rowCache.contains(row)) {
+        PendingRequest pending = getPendingRequest(row);
+        if (pending == null) {
+          fullyPending = false;
+        } else if (!waiter.dependencies.contains(pending)) {
+          waiter.addDependency(pending);
+        }
+      }
+    }
+    waiters.add(waiter);
+
+    // All of the missing rows have already been requested
+    if (fullyPending) {
+      coalescedRequestCount++;
       return;
     }
 
@@ -290,77 +1447,171 @@ public class CachedTableModel<RowType> extends MutableTableModel<RowType> {
 
     // Check the upper bounds against the total number of rows
     if (totalNumRows != UNKNOWN_ROW_COUNT) {
-      lastRow = Math.min(totalNumRows - 1, lastRow);
       uncachedLastRow = Math.min(totalNumRows - 1, uncachedLastRow);
     }
 
-    // Skip past any data already retrieved starting at the first row
-    for (int row = uncachedFirstRow; row <= lastRow; row++) {
-      if (rowValuesMap.containsKey(new Integer(row))) {
-        uncachedFirstRow++;
-      } else {
-        // Need to request the remaining rows
-        break;
+    // Find the holes that have not been retrieved or requested
+    List<Integer> holeStartRows = new ArrayList<Integer>();
+    List<Integer> holeNumRows = new ArrayList<Integer>();
+    int holeStartRow = -1;
+    for (int row = uncachedFirstRow; row <= uncachedLastRow + 1; row++) {
+      boolean missing = row <= uncachedLastRow && !rowCache.contains(row)
+          && getPendingRequest(row) == null;
+      if (missing && holeStartRow < 0) {
+        holeStartRow = row;
+      } else if (!missing && holeStartRow >= 0) {
+        holeStartRows.add(holeStartRow);
+        holeNumRows.add(row - holeStartRow);
+        holeStartRow = -1;
       }
     }
 
-    // Skip past any data already retrieved from the last row
-    for (int row = uncachedLastRow; row >= startRow; row--) {
-      if (rowValuesMap.containsKey(new Integer(row))) {
-        uncachedLastRow--;
-      } else {
-        // Need to request the remaining rows
-        break;
-      }
+    // Request a single hole directly
+    int holeCount = holeStartRows.size();
+    if (holeCount == 1) {
+      int holeFirstRow = holeStartRows.get(0);
+      int holeLastRow = holeFirstRow + holeNumRows.get(0) - 1;
+      Request newRequest = new Request(holeFirstRow, holeLastRow
+          - holeFirstRow + 1, sortList, filter, partition.columns);
+      PendingRequest pending = new PendingRequest(partition, holeFirstRow,
+          holeLastRow);
+      waiter.addDependency(pending);
+      pendingRequests.add(pending);
+      tableModel.requestRows(newRequest, pending);
+      return;
+    }
+
+    // Request all of the holes in a single batch
+    int[] holeStartRowsArray = new int[holeCount];
+    int[] holeNumRowsArray = new int[holeCount];
+    final List<PendingRequest> batchPending = new ArrayList<PendingRequest>();
+    for (int i = 0; i < holeCount; i++) {
+      holeStartRowsArray[i] = holeStartRows.get(i);
+      holeNumRowsArray[i] = holeNumRows.get(i);
+      PendingRequest pending = new PendingRequest(partition,
+          holeStartRowsArray[i], holeStartRowsArray[i] + holeNumRowsArray[i]
+              - 1);
+      waiter.addDependency(pending);
+      pendingRequests.add(pending);
+      batchPending.add(pending);
     }
+    batchRequestCount++;
+    BatchRequest batchRequest = new BatchRequest(holeStartRowsArray,
+        holeNumRowsArray, sortList, filter, partition.columns);
+    tableModel.requestRows(batchRequest, new BatchCallback<RowType>() {
+      public void onFailure(Throwable caught) {
+        for (PendingRequest pending : batchPending) {
+          pending.onFailure(caught);
+        }
+      }
 
-    // Request the remaining rows that aren't in the cache
-    int uncachedNumRows = uncachedLastRow - uncachedFirstRow + 1;
-    Request newRequest = new Request(uncachedFirstRow, uncachedNumRows,
-        sortList);
-    tableModel.requestRows(newRequest, new CacheCallback(request, callback,
-        startRow, lastRow - startRow + 1));
+      public void onRowsReady(BatchRequest request,
+          List<Response<RowType>> responses) {
+        // Fail every range if the responses do not match the ranges
+        int rangeCount = batchPending.size();
+        if (responses == null || responses.size() != rangeCount) {
+          onFailure(new IllegalStateException("Expected " + rangeCount
+              + " responses to a batch request, but received "
+              + (responses == null ? 0 : responses.size())));
+          return;
+        }
+        for (int i = 0; i < rangeCount; i++) {
+          batchPending.get(i).onRowsReady(request.getRequest(i),
+              responses.get(i));
+        }
+      }
+    });
   }
 
+
   /**
-   * Set the number of rows to cache after the visible data area.
+   * Make the cache partition of a sort order and filter the current partition,
+   * creating a new partition if needed. If the cached rows do not contain the
+   * requested columns, they are discarded.
    * 
-   * @param postCacheRows the number of rows to post cache
+   * @param sortList the sort order
+   * @param filter the filter
+   * @param columns the requested columns, or null for all columns
    */
-  public void setPostCachedRowCount(int postCacheRows) {
-    this.postCacheRows = postCacheRows;
+  private void selectPartition(ColumnSortList sortList, RowFilter filter,
+      int[] columns) {
+    // Check the current partition first
+    SortPartition partition = currentPartition;
+    if (!partition.matches(sortList, filter)) {
+      partition = findPartition(sortList, filter);
+    }
+
+    // Create a new partition
+    if (partition == null) {
+      partitionMissCount++;
+      partition = new SortPartition(sortList, filter, columns);
+    } else {
+      partitionHitCount++;
+    }
+    setCurrentPartition(partition);
+    selectColumns(partition, columns);
   }
 
   /**
-   * Set the number of rows to cache before the visible data area.
+   * Make sure the rows cached in a partition contain the requested columns,
+   * discarding the cached rows and ignoring the pending responses that do not.
    * 
-   * @param preCacheRows the number of rows to pre cache
+   * @param partition the partition
+   * @param columns the requested columns, or null for all columns
    */
-  public void setPreCachedRowCount(int preCacheRows) {
-    this.preCacheRows = preCacheRows;
-  }
-
-  @Override
-  public void setRowCount(int rowCount) {
-    tableModel.setRowCount(rowCount);
-    super.setRowCount(rowCount);
+  private void selectColumns(SortPartition partition, int[] columns) {
+    if (partition.ensureColumns(columns)) {
+      partition.cache.clear();
+      partition.rowCount = UNKNOWN_ROW_COUNT;
+      for (PendingRequest pending : pendingRequests) {
+        if (pending.partition == partition) {
+          pending.stale = true;
+        }
+      }
+    }
   }
 
-  @Override
-  protected boolean onRowInserted(int beforeRow) {
-    clearCache();
-    return tableModel.onRowInserted(beforeRow);
+  /**
+   * Make a partition the current partition of this model and the most recently
+   * used partition.
+   * 
+   * @param partition the partition
+   */
+  private void setCurrentPartition(SortPartition partition) {
+    if (currentPartition != null) {
+      currentPartition.modelCount--;
+    }
+    partition.modelCount++;
+    currentPartition = partition;
+    rowCache = partition.cache;
+    if (partitions.isEmpty() || partitions.get(0) != partition) {
+      partitions.remove(partition);
+      partitions.add(0, partition);
+    }
+    trimPartitions();
   }
 
-  @Override
-  protected boolean onRowRemoved(int row) {
-    clearCache();
-    return tableModel.onRowRemoved(row);
+  /**
+   * Set the row count of this model without changing the underlying table
+   * model, firing an event if it changed. Used when a shared model changes the
+   * row count of the shared data.
+   * 
+   * @param rowCount the new row count
+   */
+  private void setSharedRowCount(int rowCount) {
+    super.setRowCount(rowCount);
   }
 
-  @Override
-  protected boolean onSetRowValue(int row, RowType rowValue) {
-    rowValuesMap.put(new Integer(row), rowValue);
-    return tableModel.onSetRowValue(row, rowValue);
+  /**
+   * Discard the least recently used partitions that exceed the maximum number
+   * of sort partitions. Partitions used by shared models are retained.
+   */
+  private void trimPartitions() {
+    for (int i = partitions.size() - 1; i >= 0
+        && partitions.size() > store.maxSortPartitionCount; i--) {
+      if (partitions.get(i).modelCount == 0) {
+        discardPartition(i);
+      }
+    }
   }
 }
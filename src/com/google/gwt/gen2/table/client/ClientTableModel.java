@@ -15,8 +15,10 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -25,7 +27,11 @@ import java.util.NoSuchElementException;
 
 /**
  * A {@link MutableTableModel} used when the data source can be accessed
- * synchronously.
+ * synchronously. Requests are sorted by the {@link ColumnSortList} and
+ * filtered by the {@link RowFilter} using a cached order of the rows, so the
+ * data source is never reordered. Call
+ * {@link #clearRowOrderCache()} if the data source changes without going
+ * through this table model.
  */
 public abstract class ClientTableModel extends MutableTableModel<List<Object>> {
   /**
@@ -81,6 +87,7 @@ public abstract class ClientTableModel extends MutableTableModel<List<Object>> {
    */
   private class RowIterator extends StubIterator<List<Object>> {
     private int max;
+    private int[] order;
 
     public RowIterator(Request request) {
       index = request.getStartRow();
@@ -89,19 +96,30 @@ public abstract class ClientTableModel extends MutableTableModel<List<Object>> {
       } else {
         max = request.getNumRows() + index;
       }
+      order = rowOrders.getRowOrder(request.getColumnSortList(),
+          request.getRowFilter());
+      if (order != null) {
+        max = Math.min(max, order.length);
+      }
     }
 
     @Override
     protected List<Object> computeNext() {
+      // Stop after the last requested row
+      if (index >= max) {
+        return null;
+      }
+
       // Reset column iterator rather than creating new one.
       final ColumnIterator colIt = new ColumnIterator();
       colIt.index = 0;
-      colIt.row = index++;
+      colIt.row = (order == null) ? index : order[index];
       colIt.done = false;
       colIt.next = null;
+      index++;
 
       // Now check for next.
-      if (colIt.hasNext() && colIt.row < max) {
+      if (colIt.hasNext()) {
         List<Object> next = new ArrayList<Object>();
         while (colIt.hasNext()) {
           next.add(colIt.next());
@@ -113,6 +131,34 @@ public abstract class ClientTableModel extends MutableTableModel<List<Object>> {
     }
   }
 
+  /**
+   * The cached orders of the rows for each {@link ColumnSortList}.
+   */
+  private RowOrderCache rowOrders = new RowOrderCache() {
+    @Override
+    protected Object getCellValue(int row, int column) {
+      return getCell(row, column);
+    }
+
+    @Override
+    protected int getRowCount() {
+      // Count the rows until there are no more values
+      int rowCount = 0;
+      while (getCell(rowCount, 0) != null) {
+        rowCount++;
+      }
+      return rowCount;
+    }
+  };
+
+  /**
+   * Discard the cached orders of the rows. This method must be called if the
+   * data source changes without going through this table model.
+   */
+  public void clearRowOrderCache() {
+    rowOrders.clear();
+  }
+
   /**
    * Get the value for a given cell. Return null if no more values are
    * available.
@@ -123,6 +169,30 @@ public abstract class ClientTableModel extends MutableTableModel<List<Object>> {
    */
   public abstract Object getCell(int rowNum, int colNum);
 
+  @Override
+  public void insertRow(int beforeRow) {
+    rowOrders.clear();
+    super.insertRow(beforeRow);
+  }
+
+  @Override
+  public void insertRows(int beforeRow, int count) {
+    rowOrders.clear();
+    super.insertRows(beforeRow, count);
+  }
+
+  @Override
+  public void removeRow(int row) {
+    rowOrders.clear();
+    super.removeRow(row);
+  }
+
+  @Override
+  public void removeRows(int firstRow, int count) {
+    rowOrders.clear();
+    super.removeRows(firstRow, count);
+  }
+
   @Override
   public void requestRows(Request request, Callback<List<Object>> callback) {
     final RowIterator rowIter = new RowIterator(request);
@@ -134,4 +204,16 @@ public abstract class ClientTableModel extends MutableTableModel<List<Object>> {
     };
     callback.onRowsReady(request, response);
   }
+
+  @Override
+  public void setRowValue(int row, List<Object> rowValue) {
+    rowOrders.clear();
+    super.setRowValue(row, rowValue);
+  }
+
+  @Override
+  public void setRowValues(int firstRow, List<List<Object>> rowValues) {
+    rowOrders.clear();
+    super.setRowValues(firstRow, rowValues);
+  }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+
+import java.util.List;
+
+/**
+ * A {@link RowFilter} compiled into a tree of predicates that can be evaluated
+ * against many rows. Compiling a filter parses its numeric values and
+ * normalizes its text once, so each row only costs the comparisons themselves.
+ * Compiled filters are immutable and can be reused for as long as the filter
+ * is in use.
+ */
+public abstract class CompiledRowFilter {
+  /**
+   * The source of the cell values that a {@link CompiledRowFilter} evaluates.
+   */
+  public static interface CellSource {
+    /**
+     * Get the value of a cell.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return the cell value, or null if the cell is empty
+     */
+    Object getCellValue(int row, int column);
+  }
+
+  /**
+   * A filter that combines other filters with AND or OR.
+   */
+  private static class CompositeFilter extends CompiledRowFilter {
+    private CompiledRowFilter[] children;
+    private boolean matchAll;
+
+    public CompositeFilter(List<RowFilter> filters, boolean matchAll) {
+      this.matchAll = matchAll;
+      children = new CompiledRowFilter[filters.size()];
+      for (int i = 0; i < children.length; i++) {
+        children[i] = compile(filters.get(i));
+      }
+    }
+
+    @Override
+    public boolean matches(CellSource cells, int row) {
+      for (CompiledRowFilter child : children) {
+        if (child.matches(cells, row) != matchAll) {
+          return !matchAll;
+        }
+      }
+      return matchAll;
+    }
+  }
+
+  /**
+   * A filter that matches cells that contain a string, ignoring case.
+   */
+  private static class ContainsFilter extends CompiledRowFilter {
+    private int column;
+    private String text;
+
+    public ContainsFilter(int column, String text) {
+      this.column = column;
+      this.text = (text == null) ? "" : text.toLowerCase();
+    }
+
+    @Override
+    public boolean matches(CellSource cells, int row) {
+      Object cellValue = cells.getCellValue(row, column);
+      return cellValue != null
+          && cellValue.toString().toLowerCase().indexOf(text) >= 0;
+    }
+  }
+
+  /**
+   * A filter that matches cells that equal a value.
+   */
+  private static class EqualsFilter extends CompiledRowFilter {
+    private int column;
+    private double number;
+    private String value;
+
+    public EqualsFilter(int column, String value) {
+      this.column = column;
+      this.value = value;
+      this.number = parseNumber(value);
+    }
+
+    @Override
+    public boolean matches(CellSource cells, int row) {
+      Object cellValue = cells.getCellValue(row, column);
+      if (cellValue == null || value == null) {
+        return cellValue == value;
+      } else if (cellValue instanceof Number) {
+        return ((Number) cellValue).doubleValue() == number;
+      }
+      return value.equals(cellValue.toString());
+    }
+  }
+
+  /**
+   * A filter that matches cells between two values, inclusive.
+   */
+  private static class RangeFilter extends CompiledRowFilter {
+    private int column;
+    private String maxValue;
+    private double maxNumber;
+    private String minValue;
+    private double minNumber;
+
+    public RangeFilter(int column, String minValue, String maxValue) {
+      this.column = column;
+      this.minValue = minValue;
+      this.maxValue = maxValue;
+      this.minNumber = (minValue == null) ? Double.NEGATIVE_INFINITY
+          : parseNumber(minValue);
+      this.maxNumber = (maxValue == null) ? Double.POSITIVE_INFINITY
+          : parseNumber(maxValue);
+    }
+
+    @Override
+    public boolean matches(CellSource cells, int row) {
+      Object cellValue = cells.getCellValue(row, column);
+      if (cellValue == null) {
+        return false;
+      } else if (cellValue instanceof Number) {
+        // Comparisons with NaN are false, so unparsable bounds never match
+        double number = ((Number) cellValue).doubleValue();
+        return number >= minNumber && number <= maxNumber;
+      }
+      String string = cellValue.toString();
+      return (minValue == null || string.compareTo(minValue) >= 0)
+          && (maxValue == null || string.compareTo(maxValue) <= 0);
+    }
+  }
+
+  /**
+   * A filter that matches every row.
+   */
+  private static final CompiledRowFilter MATCH_ALL = new CompiledRowFilter() {
+    @Override
+    public boolean matches(CellSource cells, int row) {
+      return true;
+    }
+  };
+
+  /**
+   * Compile a {@link RowFilter}.
+   * 
+   * @param filter the filter to compile, or null to match every row
+   * @return the compiled filter
+   */
+  public static CompiledRowFilter compile(RowFilter filter) {
+    if (filter == null) {
+      return MATCH_ALL;
+    }
+    switch (filter.getType()) {
+      case RowFilter.TYPE_AND:
+        return new CompositeFilter(filter.getChildren(), true);
+      case RowFilter.TYPE_CONTAINS:
+        return new ContainsFilter(filter.getColumn(), filter.getValue());
+      case RowFilter.TYPE_EQUALS:
+        return new EqualsFilter(filter.getColumn(), filter.getValue());
+      case RowFilter.TYPE_OR:
+        return new CompositeFilter(filter.getChildren(), false);
+      case RowFilter.TYPE_RANGE:
+        return new RangeFilter(filter.getColumn(), filter.getValue(),
+            filter.getMaxValue());
+      default:
+        throw new IllegalArgumentException("Unknown filter type: "
+            + filter.getType());
+    }
+  }
+
+  /**
+   * Parse a number from a filter value.
+   * 
+   * @param value the filter value
+   * @return the number, or NaN if the value is not a number
+   */
+  private static double parseNumber(String value) {
+    if (value == null) {
+      return Double.NaN;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Check if a row matches the filter.
+   * 
+   * @param cells the source of the cell values
+   * @param row the row index
+   * @return true if the row matches
+   */
+  public abstract boolean matches(CellSource cells, int row);
+}
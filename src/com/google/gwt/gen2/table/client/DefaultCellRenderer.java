@@ -21,14 +21,17 @@ import com.google.gwt.user.client.ui.Widget;
 /**
  * The default {@link CellRenderer} used by the {@link AbstractColumnDefinition}
  * when the user does not specify one. By default, {@link Widget}s are rendered
- * as {@link Widget}s, and all other values are rendered as text.
- * 
+ * as {@link Widget}s, and all other values are rendered as text. Cells that do
+ * not contain a {@link Widget} can be rendered directly as HTML. Bulk renderers
+ * only render subclasses through {@link #renderRowValue}, because a subclass
+ * may change how cells are rendered without overriding
+ * {@link #renderCellHtml}.
  * 
  * @param <RowType> the type of the row value
  * @param <ColType> the data type of the column
  */
 public class DefaultCellRenderer<RowType, ColType> implements
-    CellRenderer<RowType, ColType> {
+    HtmlCellRenderer<RowType, ColType> {
 
   /**
    * If true, text will be rendered as html.
@@ -50,6 +53,20 @@ public class DefaultCellRenderer<RowType, ColType> implements
     this.asHtml = asHtml;
   }
 
+  public String renderCellHtml(RowType rowValue,
+      ColumnDefinition<RowType, ColType> columnDef) {
+    Object cellValue = columnDef.getCellValue(rowValue);
+    if (cellValue == null) {
+      return "";
+    } else if (cellValue instanceof Widget) {
+      return null;
+    } else if (asHtml) {
+      return cellValue.toString();
+    } else {
+      return escapeHtml(cellValue.toString());
+    }
+  }
+
   public void renderRowValue(RowType rowValue,
       ColumnDefinition<RowType, ColType> columnDef,
       AbstractCellView<RowType> view) {
@@ -64,4 +81,51 @@ public class DefaultCellRenderer<RowType, ColType> implements
       view.setText(cellValue.toString());
     }
   }
+
+  /**
+   * Escape the characters in a string that have a special meaning in HTML. The
+   * escaped string can be used as text or as the value of an attribute. The
+   * server side renderer uses the same method, so both produce the same HTML.
+   * 
+   * @param text the text to escape, or null
+   * @return the escaped HTML, or an empty string if the text is null
+   */
+  public static String escapeHtml(String text) {
+    if (text == null) {
+      return "";
+    }
+    int length = text.length();
+    StringBuilder html = null;
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      String entity;
+      switch (c) {
+        case '&':
+          entity = "&amp;";
+          break;
+        case '<':
+          entity = "&lt;";
+          break;
+        case '>':
+          entity = "&gt;";
+          break;
+        case '"':
+          entity = "&quot;";
+          break;
+        default:
+          if (html != null) {
+            html.append(c);
+          }
+          continue;
+      }
+
+      // Copy the safe prefix the first time an escape is needed
+      if (html == null) {
+        html = new StringBuilder(length + 16);
+        html.append(text.substring(0, i));
+      }
+      html.append(entity);
+    }
+    return (html == null) ? text : html.toString();
+  }
 }
@@ -479,6 +479,33 @@ public class FixedWidthGrid extends SortableGrid {
     idealColumnWidthInfo = null;
   }
 
+  /**
+   * Move rows from one end of the grid to the other without recreating their
+   * elements. A positive count moves the first rows to the bottom of the grid,
+   * and a negative count moves the last rows to the top of the grid. Rows must
+   * be deselected before they are moved.
+   * 
+   * @param count the number of rows to move
+   */
+  void rotateRows(int count) {
+    Element bodyElem = getBodyElement();
+    int rowCount = getRowCount();
+    if (count > 0) {
+      for (int i = 0; i < count; i++) {
+        Element tr = getFixedWidthGridRowFormatter().getRawElement(0);
+        DOM.removeChild(bodyElem, tr);
+        DOM.appendChild(bodyElem, tr);
+      }
+    } else {
+      for (int i = 0; i < -count; i++) {
+        Element tr = getFixedWidthGridRowFormatter().getRawElement(rowCount - 1);
+        DOM.removeChild(bodyElem, tr);
+        // Need to insert below the ghost row
+        DOM.insertChild(bodyElem, tr, 1);
+      }
+    }
+  }
+
   /**
    * Returns a cell in the ghost row.
    * 
@@ -64,11 +64,16 @@ public class FixedWidthGridBulkRenderer<RowType> extends
     return table.@com.google.gwt.gen2.table.override.client.HTMLTable::getBodyElement()(table).rows[0];
   }-*/;
 
+  @Override
+  protected String getHeaderRowHtml() {
+    FixedWidthGrid table = (FixedWidthGrid) super.getTable();
+    return DOM.toString(table.getGhostRow());
+  }
+
   @Override
   protected void renderRows(Iterator<RowType> iterator,
       final RenderingOptions options) {
-    FixedWidthGrid table = (FixedWidthGrid) super.getTable();
-    options.headerRow = DOM.toString(table.getGhostRow());
+    options.headerRow = getHeaderRowHtml();
     super.renderRows(iterator, options);
   }
 
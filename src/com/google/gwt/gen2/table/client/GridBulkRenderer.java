@@ -48,6 +48,12 @@ public class GridBulkRenderer<RowType> extends TableBulkRenderer<RowType> {
     init(grid);
   }
 
+  @Override
+  protected void appendRows(String rawHTMLTable) {
+    super.appendRows(rawHTMLTable);
+    setGridDimensions((Grid) getTable());
+  }
+
   @Override
   protected void renderRows(String rawHTMLTable) {
     super.renderRows(rawHTMLTable);
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+/**
+ * A {@link CellRenderer} that can render the contents of a cell directly as an
+ * HTML string, without setting any attributes on the cell. Bulk renderers use
+ * the HTML string to fill a precompiled row template instead of going through
+ * a {@link TableDefinition.AbstractCellView} for every cell.
+ * 
+ * @param <RowType> the type of the row value
+ * @param <ColType> the data type of the column
+ */
+public interface HtmlCellRenderer<RowType, ColType> extends
+    CellRenderer<RowType, ColType> {
+  /**
+   * Render the contents of a cell as an HTML string. The result must match the
+   * contents that {@link #renderRowValue} would set, and that method must not
+   * set any attributes on the cell.
+   * 
+   * @param rowValue the object associated with the row
+   * @param columnDef the associated column definition
+   * @return the HTML contents of the cell, or null if the cell must be rendered
+   *         using {@link #renderRowValue}, such as when it contains a widget
+   */
+  String renderCellHtml(RowType rowValue,
+      ColumnDefinition<RowType, ColType> columnDef);
+}
@@ -15,22 +15,131 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
+ * <p>
  * A class to retrieve row data to be used in a table.
+ * </p>
+ * <p>
+ * Requests skip directly to the first requested row and stop after the
+ * requested number of rows. If the table model is created with a
+ * {@link TableDefinition}, requests are also sorted by the
+ * {@link ColumnSortList} and filtered by the {@link RowFilter}, using the cell
+ * values of the visible {@link ColumnDefinition}s. Without a
+ * {@link TableDefinition}, requests are not sorted, and requests with a
+ * {@link RowFilter} fail because the cell values cannot be read. The sorted
+ * order is cached, and
+ * the rows are copied when the first sorted or filtered request is made. Call
+ * {@link #clearRowOrderCache()} if the rows change.
+ * </p>
  * 
  * @param <RowType> the data type of the row values
  */
 public class IterableTableModel<RowType> extends TableModel<RowType> {
+  /**
+   * An {@link Iterator} over the requested rows.
+   */
+  private class RowIterator implements Iterator<RowType> {
+    /**
+     * The position after the last requested row.
+     */
+    private int end;
+
+    /**
+     * The iterator over the unsorted rows.
+     */
+    private Iterator<RowType> it = null;
+
+    /**
+     * The order of the sorted rows.
+     */
+    private int[] order = null;
+
+    /**
+     * The position of the next row.
+     */
+    private int position;
+
+    /**
+     * Construct a new {@link RowIterator}.
+     * 
+     * @param request the request
+     */
+    public RowIterator(Request request) {
+      position = Math.max(0, request.getStartRow());
+      end = Integer.MAX_VALUE;
+      if (request.getNumRows() != ALL_ROWS) {
+        end = position + request.getNumRows();
+      }
+
+      // Use the sorted order if the request is sorted or filtered
+      if (rowOrders != null) {
+        order = rowOrders.getRowOrder(request.getColumnSortList(),
+            request.getRowFilter());
+      }
+      if (order != null) {
+        end = Math.min(end, order.length);
+      } else {
+        // Skip to the first requested row
+        it = rows.iterator();
+        for (int i = 0; i < position && it.hasNext(); i++) {
+          it.next();
+        }
+      }
+    }
+
+    public boolean hasNext() {
+      return position < end && (it == null || it.hasNext());
+    }
+
+    public RowType next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int row = position++;
+      return (it == null) ? getRowList().get(order[row]) : it.next();
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * The visible columns used to read the cell values while an order is
+   * calculated.
+   */
+  private List<ColumnDefinition<RowType, ?>> orderColumns = null;
+
+  /**
+   * The copy of the rows used to sort them.
+   */
+  private List<RowType> rowList = null;
+
+  /**
+   * The cached orders of the rows, or null if the rows cannot be sorted.
+   */
+  private RowOrderCache rowOrders = null;
+
   /**
    * The values associated with each row.
    */
   private Iterable<RowType> rows;
 
+  /**
+   * The definition used to get the cell values when sorting.
+   */
+  private TableDefinition<RowType> tableDefinition;
+
   /**
    * Create a new {@link IterableTableModel}.
    * 
@@ -40,14 +149,75 @@ public class IterableTableModel<RowType> extends TableModel<RowType> {
     this.rows = rows;
   }
 
-  @Override
-  public void requestRows(Request request, TableModel.Callback<RowType> callback) {
+  /**
+   * Create a new {@link IterableTableModel} that sorts requests using the
+   * cell values of the visible columns in a {@link TableDefinition}.
+   * 
+   * @param rows the values associated with each row.
+   * @param tableDefinition the definition of the columns
+   */
+  public IterableTableModel(Iterable<RowType> rows,
+      TableDefinition<RowType> tableDefinition) {
+    this(rows);
+    this.tableDefinition = tableDefinition;
+    rowOrders = new RowOrderCache() {
+      @Override
+      protected Object getCellValue(int row, int column) {
+        if (column >= orderColumns.size()) {
+          return null;
+        }
+        return orderColumns.get(column).getCellValue(getRowList().get(row));
+      }
+
+      @Override
+      protected int getRowCount() {
+        return getRowList().size();
+      }
+
+      @Override
+      protected void prepareCellValues() {
+        orderColumns = IterableTableModel.this.tableDefinition.getVisibleColumnDefinitions();
+      }
+    };
+  }
+
+  /**
+   * Discard the cached orders of the rows and the copy of the rows. This
+   * method must be called if the rows change.
+   */
+  public void clearRowOrderCache() {
+    rowList = null;
+    if (rowOrders != null) {
+      rowOrders.clear();
+    }
+  }
 
+  @Override
+  public void requestRows(final Request request,
+      TableModel.Callback<RowType> callback) {
+    if (rowOrders == null && request.getRowFilter() != null) {
+      callback.onFailure(new UnsupportedOperationException(
+          "Filtering requires a TableDefinition"));
+      return;
+    }
     callback.onRowsReady(request, new Response<RowType>() {
       @Override
       public Iterator<RowType> getRowValues() {
-        return rows.iterator();
+        return new RowIterator(request);
       }
     });
   }
+
+  /**
+   * @return the copy of the rows used to sort them
+   */
+  private List<RowType> getRowList() {
+    if (rowList == null) {
+      rowList = new ArrayList<RowType>();
+      for (RowType row : rows) {
+        rowList.add(row);
+      }
+    }
+    return rowList;
+  }
 }
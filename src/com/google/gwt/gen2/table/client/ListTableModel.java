@@ -15,16 +15,20 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
  * A {@link ClientTableModel} that uses a 2D {@link List} of Objects as its
- * source of data.
+ * source of data. Requests are sorted by the {@link ColumnSortList} and
+ * filtered by the {@link RowFilter} without reordering the underlying list.
  */
 public class ListTableModel extends MutableTableModel<List<Object>> {
   /**
@@ -33,10 +37,19 @@ public class ListTableModel extends MutableTableModel<List<Object>> {
   private class RowIterator implements Iterator<List<Object>> {
     private int curRow;
     private int lastRow;
+    private int[] order;
 
     public RowIterator(Request request) {
       curRow = request.getStartRow() - 1;
-      lastRow = Math.min(rowValues.size() - 1, curRow + request.getNumRows());
+      lastRow = rowValues.size() - 1;
+      if (request.getNumRows() != ALL_ROWS) {
+        lastRow = Math.min(lastRow, curRow + request.getNumRows());
+      }
+      order = rowOrders.getRowOrder(request.getColumnSortList(),
+          request.getRowFilter());
+      if (order != null) {
+        lastRow = Math.min(lastRow, order.length - 1);
+      }
     }
 
     public boolean hasNext() {
@@ -49,7 +62,7 @@ public class ListTableModel extends MutableTableModel<List<Object>> {
       }
 
       curRow++;
-      return rowValues.get(new Integer(curRow));
+      return rowValues.get((order == null) ? curRow : order[curRow]);
     }
 
     public void remove() {
@@ -57,6 +70,21 @@ public class ListTableModel extends MutableTableModel<List<Object>> {
     }
   }
 
+  /**
+   * The cached orders of the rows for each {@link ColumnSortList}.
+   */
+  private RowOrderCache rowOrders = new RowOrderCache() {
+    @Override
+    protected Object getCellValue(int row, int column) {
+      return ListTableModel.this.getCellValue(row, column);
+    }
+
+    @Override
+    protected int getRowCount() {
+      return rowValues.size();
+    }
+  };
+
   /**
    * The values associated with each cell.
    */
@@ -86,6 +114,7 @@ public class ListTableModel extends MutableTableModel<List<Object>> {
 
   @Override
   protected boolean onRowInserted(int beforeRow) {
+    rowOrders.clear();
     if (beforeRow < rowValues.size()) {
       rowValues.add(beforeRow, null);
     }
@@ -94,14 +123,40 @@ public class ListTableModel extends MutableTableModel<List<Object>> {
 
   @Override
   protected boolean onRowRemoved(int row) {
+    rowOrders.clear();
     if (row < rowValues.size()) {
       rowValues.remove(row);
     }
     return true;
   }
 
+  @Override
+  protected boolean onRowsInserted(int beforeRow, int count) {
+    rowOrders.clear();
+    if (beforeRow < rowValues.size()) {
+      List<List<Object>> newRows = new ArrayList<List<Object>>(count);
+      for (int i = 0; i < count; i++) {
+        newRows.add(null);
+      }
+      rowValues.addAll(beforeRow, newRows);
+    }
+    return true;
+  }
+
+  @Override
+  protected boolean onRowsRemoved(int firstRow, int count) {
+    rowOrders.clear();
+    if (firstRow < rowValues.size()) {
+      int lastRow = Math.min(firstRow + count, rowValues.size());
+      rowValues.subList(firstRow, lastRow).clear();
+    }
+    return true;
+  }
+
   @Override
   protected boolean onSetRowValue(int row, List<Object> rowValue) {
+    rowOrders.clear();
+
     // Expand to fit row
     for (int i = rowValues.size(); i <= row; i++) {
       rowValues.add(null);
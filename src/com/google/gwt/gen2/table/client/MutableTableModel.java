@@ -26,10 +26,17 @@ import com.google.gwt.gen2.table.event.client.RowRemovalHandler;
 import com.google.gwt.gen2.table.event.client.RowValueChangeEvent;
 import com.google.gwt.gen2.table.event.client.RowValueChangeHandler;
 
+import java.util.List;
+
 /**
  * A mutable version of the {@link TableModel} that supports inserting and
  * removing rows and setting cell data.
  * 
+ * Ranges of rows can be changed at once using {@link #insertRows(int, int)},
+ * {@link #removeRows(int, int)} and {@link #setRowValues(int, List)}, which
+ * fire a single event for the whole range. Subclasses should override the
+ * matching <code>on</code> methods to change their data in one pass.
+ * 
  * @param <RowType> the data type of the row values
  */
 public abstract class MutableTableModel<RowType> extends TableModel<RowType> implements
@@ -65,6 +72,27 @@ public abstract class MutableTableModel<RowType> extends TableModel<RowType> imp
     }
   }
 
+  /**
+   * Insert a range of rows and increment the row count by the number of rows.
+   * A single {@link RowInsertionEvent} is fired for the whole range, after the
+   * row count is updated.
+   * 
+   * @param beforeRow the row index of the first new row
+   * @param count the number of rows to insert
+   */
+  public void insertRows(int beforeRow, int count) {
+    if (count > 0 && onRowsInserted(beforeRow, count)) {
+      // Increment the row count
+      int numRows = getRowCount();
+      if (numRows != UNKNOWN_ROW_COUNT) {
+        setRowCount(numRows + count);
+      }
+
+      // Fire listeners
+      fireEvent(new RowInsertionEvent(beforeRow, count));
+    }
+  }
+
   /**
    * Remove a row and decrement the row count by one.
    * 
@@ -83,6 +111,27 @@ public abstract class MutableTableModel<RowType> extends TableModel<RowType> imp
     }
   }
 
+  /**
+   * Remove a range of rows and decrement the row count by the number of rows.
+   * A single {@link RowRemovalEvent} is fired for the whole range, after the
+   * row count is updated.
+   * 
+   * @param firstRow the row index of the first removed row
+   * @param count the number of rows to remove
+   */
+  public void removeRows(int firstRow, int count) {
+    if (count > 0 && onRowsRemoved(firstRow, count)) {
+      // Decrement the row count
+      int numRows = getRowCount();
+      if (numRows != UNKNOWN_ROW_COUNT) {
+        setRowCount(Math.max(0, numRows - count));
+      }
+
+      // Fire listeners
+      fireEvent(new RowRemovalEvent(firstRow, count));
+    }
+  }
+
   /**
    * Set a new row value.
    * 
@@ -102,6 +151,27 @@ public abstract class MutableTableModel<RowType> extends TableModel<RowType> imp
     }
   }
 
+  /**
+   * Set the values of a range of rows. A single {@link RowValueChangeEvent} is
+   * fired for the whole range, after the row count is updated.
+   * 
+   * @param firstRow the row index of the first value
+   * @param rowValues the new row values
+   */
+  public void setRowValues(int firstRow, List<RowType> rowValues) {
+    if (rowValues.size() > 0 && onSetRowValues(firstRow, rowValues)) {
+      // Update the row count
+      int numRows = getRowCount();
+      int lastRow = firstRow + rowValues.size() - 1;
+      if (numRows != UNKNOWN_ROW_COUNT && lastRow >= numRows) {
+        setRowCount(lastRow + 1);
+      }
+
+      // Fire the listeners
+      fireEvent(new RowValueChangeEvent<RowType>(firstRow, rowValues));
+    }
+  }
+
   /**
    * Event fired when a row is inserted. Returning true will increment the row
    * count by one.
@@ -120,6 +190,40 @@ public abstract class MutableTableModel<RowType> extends TableModel<RowType> imp
    */
   protected abstract boolean onRowRemoved(int row);
 
+  /**
+   * Event fired when a range of rows is inserted. Returning true will increment
+   * the row count by the number of rows. By default, each row is inserted
+   * using {@link #onRowInserted(int)}.
+   * 
+   * @param beforeRow the row index of the first new row
+   * @param count the number of new rows
+   * @return true if the action is successful
+   */
+  protected boolean onRowsInserted(int beforeRow, int count) {
+    boolean success = true;
+    for (int i = 0; i < count; i++) {
+      success &= onRowInserted(beforeRow);
+    }
+    return success;
+  }
+
+  /**
+   * Event fired when a range of rows is removed. Returning true will decrement
+   * the row count by the number of rows. By default, each row is removed using
+   * {@link #onRowRemoved(int)}.
+   * 
+   * @param firstRow the row index of the first removed row
+   * @param count the number of removed rows
+   * @return true if the action is successful
+   */
+  protected boolean onRowsRemoved(int firstRow, int count) {
+    boolean success = true;
+    for (int i = 0; i < count; i++) {
+      success &= onRowRemoved(firstRow);
+    }
+    return success;
+  }
+
   /**
    * Event fired when the local data changes. Returning true will ensure that
    * the row count is at least as one greater than the row index.
@@ -129,4 +233,21 @@ public abstract class MutableTableModel<RowType> extends TableModel<RowType> imp
    * @return true if the action is successful
    */
   protected abstract boolean onSetRowValue(int row, RowType rowValue);
+
+  /**
+   * Event fired when the values of a range of rows change. Returning true will
+   * ensure that the row count covers every row in the range. By default, each
+   * value is set using {@link #onSetRowValue(int, Object)}.
+   * 
+   * @param firstRow the row index of the first value
+   * @param rowValues the new row values
+   * @return true if the action is successful
+   */
+  protected boolean onSetRowValues(int firstRow, List<RowType> rowValues) {
+    boolean success = true;
+    for (int i = 0; i < rowValues.size(); i++) {
+      success &= onSetRowValue(firstRow + i, rowValues.get(i));
+    }
+    return success;
+  }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+/**
+ * The timing breakdown of a page load in a {@link PagingScrollTable}. All times
+ * are in milliseconds.
+ * 
+ * <ul>
+ * <li>request time: from the request to the table model until the rows are
+ * ready</li>
+ * <li>build time: building the HTML of the rows</li>
+ * <li>insert time: inserting the rows into the table</li>
+ * <li>attach time: adding widgets to the cells</li>
+ * <li>total time: from the request until the page has loaded</li>
+ * </ul>
+ * 
+ * Build and attach times are only known when the rows are rendered by a
+ * {@link TableBulkRenderer}. Otherwise, the whole render is counted as insert
+ * time.
+ */
+public class PageLoadTimings {
+  /**
+   * The value of the cache hit ratio when the ratio is not known.
+   */
+  public static final double UNKNOWN_CACHE_HIT_RATIO = -1;
+
+  /**
+   * The time spent adding widgets to the cells.
+   */
+  private double attachTime = 0;
+
+  /**
+   * The time spent building the HTML of the rows.
+   */
+  private double buildTime = 0;
+
+  /**
+   * The ratio of requested rows that were already cached.
+   */
+  private double cacheHitRatio = UNKNOWN_CACHE_HIT_RATIO;
+
+  /**
+   * The time spent inserting the rows into the table.
+   */
+  private double insertTime = 0;
+
+  /**
+   * The page that was loaded.
+   */
+  private int page;
+
+  /**
+   * The number of rows that were rendered.
+   */
+  private int renderedRowCount = 0;
+
+  /**
+   * The time spent waiting for the table model.
+   */
+  private double requestTime = 0;
+
+  /**
+   * The time spent loading the page.
+   */
+  private double totalTime = 0;
+
+  /**
+   * Construct a new {@link PageLoadTimings}.
+   * 
+   * @param page the page that was loaded
+   */
+  public PageLoadTimings(int page) {
+    this.page = page;
+  }
+
+  /**
+   * @return the time spent adding widgets to the cells
+   */
+  public double getAttachTime() {
+    return attachTime;
+  }
+
+  /**
+   * @return the time spent building the HTML of the rows
+   */
+  public double getBuildTime() {
+    return buildTime;
+  }
+
+  /**
+   * @return the ratio of the rows of the page request that were already in
+   *         the cache, from 0 to 1, or {@link #UNKNOWN_CACHE_HIT_RATIO} if the
+   *         table model is not a {@link CachedTableModel}
+   */
+  public double getCacheHitRatio() {
+    return cacheHitRatio;
+  }
+
+  /**
+   * @return the time spent inserting the rows into the table
+   */
+  public double getInsertTime() {
+    return insertTime;
+  }
+
+  /**
+   * @return the page that was loaded
+   */
+  public int getPage() {
+    return page;
+  }
+
+  /**
+   * @return the number of rows that were rendered
+   */
+  public int getRenderedRowCount() {
+    return renderedRowCount;
+  }
+
+  /**
+   * @return the time from the request to the table model until the rows were
+   *         ready
+   */
+  public double getRequestTime() {
+    return requestTime;
+  }
+
+  /**
+   * @return the time from the request until the page had loaded
+   */
+  public double getTotalTime() {
+    return totalTime;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
+    sb.append("page ").append(page);
+    sb.append(": request ").append(requestTime).append("ms");
+    if (cacheHitRatio != UNKNOWN_CACHE_HIT_RATIO) {
+      sb.append(", cache hits ").append(Math.round(cacheHitRatio * 100));
+      sb.append("%");
+    }
+    sb.append(", rows ").append(renderedRowCount);
+    sb.append(", build ").append(buildTime).append("ms");
+    sb.append(", insert ").append(insertTime).append("ms");
+    sb.append(", attach ").append(attachTime).append("ms");
+    sb.append(", total ").append(totalTime).append("ms");
+    return sb.toString();
+  }
+
+  /**
+   * Set the ratio of requested rows that were already cached.
+   * 
+   * @param cacheHitRatio the ratio from 0 to 1
+   */
+  void setCacheHitRatio(double cacheHitRatio) {
+    this.cacheHitRatio = cacheHitRatio;
+  }
+
+  /**
+   * Set the number of rows that were rendered.
+   * 
+   * @param renderedRowCount the number of rows
+   */
+  void setRenderedRowCount(int renderedRowCount) {
+    this.renderedRowCount = renderedRowCount;
+  }
+
+  /**
+   * Set the times of each render phase.
+   * 
+   * @param buildTime the time spent building the HTML of the rows
+   * @param insertTime the time spent inserting the rows into the table
+   * @param attachTime the time spent adding widgets to the cells
+   */
+  void setRenderTimes(double buildTime, double insertTime, double attachTime) {
+    this.buildTime = buildTime;
+    this.insertTime = insertTime;
+    this.attachTime = attachTime;
+  }
+
+  /**
+   * Set the time spent waiting for the table model.
+   * 
+   * @param requestTime the time in milliseconds
+   */
+  void setRequestTime(double requestTime) {
+    this.requestTime = requestTime;
+  }
+
+  /**
+   * Set the total time spent loading the page.
+   * 
+   * @param totalTime the time in milliseconds
+   */
+  void setTotalTime(double totalTime) {
+    this.totalTime = totalTime;
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.gen2.event.shared.HandlerRegistration;
+import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.event.client.PageChangeEvent;
+import com.google.gwt.gen2.table.event.client.PageChangeHandler;
+import com.google.gwt.gen2.table.event.client.PageLoadEvent;
+import com.google.gwt.gen2.table.event.client.PageLoadHandler;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.DeferredCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Requests the pages that the user is likely to visit next from the
+ * {@link TableModel} of a {@link PagingScrollTable}, so they are already cached
+ * when the user gets there. The {@link PagePrefetcher} should be used with a
+ * {@link CachedTableModel}, which keeps the prefetched rows and lets page
+ * requests wait on prefetches that have not returned yet.
+ * </p>
+ * 
+ * <h1>Prediction</h1>
+ * <p>
+ * The prefetcher watches the direction and speed of page changes. After each
+ * page loads, it requests the pages that follow the current page in the
+ * direction that the user is moving. The faster the user is paging, the more
+ * pages are requested, up to {@link #getMaximumPrefetchPageCount()}.
+ * </p>
+ * 
+ * <h1>Server Protection</h1>
+ * <p>
+ * Prefetches are sent in a deferred command after the page has loaded, so they
+ * never delay the page itself. No more than
+ * {@link #getMaximumOutstandingPrefetchCount()} prefetches are outstanding at
+ * once. When the user reverses direction or changes the sort order, the
+ * outstanding prefetches are cancelled and their responses are ignored.
+ * Cancelled prefetches still count towards the limit until they return,
+ * because the server is still handling them.
+ * </p>
+ * <p>
+ * If the table uses a {@link CachedTableModel}, prefetches are sent using
+ * {@link CachedTableModel#prefetchRows(Request, Callback)}, so they do not
+ * cause the rows of the current page to be evicted. Cancelled prefetches are
+ * also cancelled in the {@link CachedTableModel}, and the requests that it
+ * has not received responses for count towards the limit.
+ * </p>
+ * 
+ * @param <RowType> the data type of the row values
+ */
+public class PagePrefetcher<RowType> {
+  /**
+   * A callback for a single prefetch request.
+   */
+  private class PrefetchCallback implements Callback<RowType> {
+    /**
+     * True if the prefetch has been cancelled.
+     */
+    private boolean cancelled = false;
+
+    /**
+     * The prefetch request.
+     */
+    private Request request;
+
+    /**
+     * Construct a new {@link PrefetchCallback}.
+     * 
+     * @param request the prefetch request
+     */
+    public PrefetchCallback(Request request) {
+      this.request = request;
+    }
+
+    public void onFailure(Throwable caught) {
+      outstanding.remove(this);
+    }
+
+    public void onRowsReady(Request request, Response<RowType> response) {
+      outstanding.remove(this);
+      if (!cancelled) {
+        prefetchedPageCount++;
+      }
+    }
+  }
+
+  /**
+   * The default maximum number of outstanding prefetches.
+   */
+  public static final int DEFAULT_MAX_OUTSTANDING_PREFETCHES = 2;
+
+  /**
+   * The default maximum number of pages to prefetch after a page loads.
+   */
+  public static final int DEFAULT_MAX_PREFETCH_PAGES = 3;
+
+  /**
+   * The period in milliseconds during which page changes are considered part of
+   * the same paging run when estimating the paging speed.
+   */
+  private static final int SPEED_WINDOW = 2000;
+
+  /**
+   * The number of page changes in the current paging run.
+   */
+  private int curRunLength = 0;
+
+  /**
+   * The direction of the last page change, 1 for forward and -1 for backward.
+   */
+  private int direction = 1;
+
+  /**
+   * True if prefetching is enabled.
+   */
+  private boolean enabled = true;
+
+  /**
+   * The time of the last page change.
+   */
+  private double lastPageChangeTime = 0;
+
+  /**
+   * The sort order used by the outstanding prefetches.
+   */
+  private ColumnSortList lastSortList = null;
+
+  /**
+   * The maximum number of outstanding prefetches.
+   */
+  private int maxOutstanding = DEFAULT_MAX_OUTSTANDING_PREFETCHES;
+
+  /**
+   * The maximum number of pages to prefetch after a page loads.
+   */
+  private int maxPrefetchPages = DEFAULT_MAX_PREFETCH_PAGES;
+
+  /**
+   * The prefetch requests that have not returned.
+   */
+  private List<PrefetchCallback> outstanding = new ArrayList<PrefetchCallback>();
+
+  /**
+   * True if a prefetch command is already scheduled.
+   */
+  private boolean prefetchScheduled = false;
+
+  /**
+   * The number of prefetched pages that returned without being cancelled.
+   */
+  private int prefetchedPageCount = 0;
+
+  /**
+   * The handler registrations on the table.
+   */
+  private List<HandlerRegistration> registrations = new ArrayList<HandlerRegistration>();
+
+  /**
+   * The table being prefetched.
+   */
+  private PagingScrollTable<RowType> table;
+
+  /**
+   * Construct a new {@link PagePrefetcher}.
+   * 
+   * @param table the table to prefetch pages for
+   */
+  public PagePrefetcher(PagingScrollTable<RowType> table) {
+    this.table = table;
+    registrations.add(table.addPageChangeHandler(new PageChangeHandler() {
+      public void onPageChange(PageChangeEvent event) {
+        recordPageChange(event.getOldPage(), event.getNewPage(),
+            Duration.currentTimeMillis());
+      }
+    }));
+    registrations.add(table.addPageLoadHandler(new PageLoadHandler() {
+      public void onPageLoad(PageLoadEvent event) {
+        schedulePrefetch();
+      }
+    }));
+  }
+
+  /**
+   * Cancel all outstanding prefetches. Their responses will be ignored.
+   */
+  public void cancelPrefetches() {
+    CachedTableModel<RowType> cachedModel = getCachedTableModel();
+    for (PrefetchCallback callback : new ArrayList<PrefetchCallback>(
+        outstanding)) {
+      callback.cancelled = true;
+      if (cachedModel != null && cachedModel.cancelRequest(callback.request)) {
+        // The callback will never be called
+        outstanding.remove(callback);
+      }
+    }
+  }
+
+  /**
+   * @return the maximum number of outstanding prefetches
+   */
+  public int getMaximumOutstandingPrefetchCount() {
+    return maxOutstanding;
+  }
+
+  /**
+   * @return the maximum number of pages to prefetch after a page loads
+   */
+  public int getMaximumPrefetchPageCount() {
+    return maxPrefetchPages;
+  }
+
+  /**
+   * @return the number of prefetches that have not returned
+   */
+  public int getOutstandingPrefetchCount() {
+    return outstanding.size();
+  }
+
+  /**
+   * @return the number of prefetched pages that returned without being
+   *         cancelled
+   */
+  public int getPrefetchedPageCount() {
+    return prefetchedPageCount;
+  }
+
+  /**
+   * @return true if prefetching is enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Request the pages that the user is likely to visit next. This method is
+   * called automatically after each page loads.
+   */
+  public void prefetch() {
+    int pageSize = table.getPageSize();
+    if (!enabled || pageSize <= 0 || table.isPageLoading()) {
+      return;
+    }
+
+    // Cancel prefetches for an old sort order
+    ColumnSortList sortList = table.getDataTable().getColumnSortList();
+    if (lastSortList != null && !lastSortList.equals(sortList)) {
+      cancelPrefetches();
+    }
+    lastSortList = (sortList == null) ? null : sortList.copy();
+
+    // Request the pages in the direction of travel
+    CachedTableModel<RowType> cachedModel = getCachedTableModel();
+    int pageCount = table.getPageCount();
+    int numPages = getPredictedPageCount();
+    int page = table.getCurrentPage();
+    for (int i = 0; i < numPages && getOutstandingCount() < maxOutstanding;
+        i++) {
+      page += direction;
+      if (page < 0 || (pageCount >= 0 && page >= pageCount)) {
+        return;
+      }
+      Request request = new Request(page * pageSize, pageSize, sortList, null,
+          table.getRequestedColumns());
+      PrefetchCallback callback = new PrefetchCallback(request);
+      outstanding.add(callback);
+      if (cachedModel == null) {
+        table.getTableModel().requestRows(request, callback);
+      } else {
+        cachedModel.prefetchRows(request, callback);
+      }
+    }
+  }
+
+  /**
+   * Stop prefetching and remove all handlers from the table.
+   */
+  public void removeFromTable() {
+    cancelPrefetches();
+    for (HandlerRegistration registration : registrations) {
+      registration.removeHandler();
+    }
+    registrations.clear();
+  }
+
+  /**
+   * Enable or disable prefetching. Disabling prefetching cancels all
+   * outstanding prefetches.
+   * 
+   * @param enabled true to enable, false to disable
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      cancelPrefetches();
+    }
+  }
+
+  /**
+   * Set the maximum number of prefetches that can be outstanding at once.
+   * 
+   * @param maxOutstanding the maximum number of outstanding prefetches
+   */
+  public void setMaximumOutstandingPrefetchCount(int maxOutstanding) {
+    this.maxOutstanding = Math.max(0, maxOutstanding);
+  }
+
+  /**
+   * Set the maximum number of pages to prefetch after a page loads.
+   * 
+   * @param maxPages the maximum number of pages
+   */
+  public void setMaximumPrefetchPageCount(int maxPages) {
+    this.maxPrefetchPages = Math.max(0, maxPages);
+  }
+
+  /**
+   * @return the direction of travel, 1 for forward and -1 for backward
+   */
+  int getDirection() {
+    return direction;
+  }
+
+  /**
+   * Get the number of pages that should be prefetched based on the paging
+   * speed.
+   * 
+   * @return the number of pages to prefetch
+   */
+  int getPredictedPageCount() {
+    return Math.min(maxPrefetchPages, Math.max(1, curRunLength));
+  }
+
+  /**
+   * Record a page change.
+   * 
+   * @param oldPage the previous page
+   * @param newPage the new page
+   * @param time the time of the page change
+   */
+  void recordPageChange(int oldPage, int newPage, double time) {
+    // Ignore page reloads and the initial page load
+    if (oldPage < 0 || oldPage == newPage) {
+      return;
+    }
+
+    // Cancel prefetches if the user changes direction
+    int newDirection = (newPage > oldPage) ? 1 : -1;
+    if (newDirection != direction) {
+      cancelPrefetches();
+      direction = newDirection;
+      curRunLength = 1;
+    } else if (time - lastPageChangeTime <= SPEED_WINDOW) {
+      curRunLength++;
+    } else {
+      curRunLength = 1;
+    }
+    lastPageChangeTime = time;
+  }
+
+  /**
+   * @return the {@link CachedTableModel} of the table, or null if the table
+   *         does not use one
+   */
+  private CachedTableModel<RowType> getCachedTableModel() {
+    TableModel<RowType> tableModel = table.getTableModel();
+    if (tableModel instanceof CachedTableModel) {
+      return (CachedTableModel<RowType>) tableModel;
+    }
+    return null;
+  }
+
+  /**
+   * Get the number of prefetches that the server may still be handling,
+   * including cancelled prefetches that have not returned.
+   * 
+   * @return the number of outstanding prefetches
+   */
+  private int getOutstandingCount() {
+    CachedTableModel<RowType> cachedModel = getCachedTableModel();
+    if (cachedModel == null) {
+      return outstanding.size();
+    }
+    return Math.max(outstanding.size(), cachedModel.getPendingRequestCount());
+  }
+
+  /**
+   * Schedule a prefetch after the current event has been handled.
+   */
+  private void schedulePrefetch() {
+    if (!enabled || prefetchScheduled) {
+      return;
+    }
+    prefetchScheduled = true;
+    DeferredCommand.addCommand(new Command() {
+      public void execute() {
+        prefetchScheduled = false;
+        prefetch();
+      }
+    });
+  }
+}
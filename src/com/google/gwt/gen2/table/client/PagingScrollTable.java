@@ -15,6 +15,7 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
@@ -26,9 +27,11 @@ import com.google.gwt.gen2.table.client.SortableGrid.ColumnSorterCallback;
 import com.google.gwt.gen2.table.client.TableDefinition.AbstractCellView;
 import com.google.gwt.gen2.table.client.TableDefinition.AbstractRowView;
 import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModel.StreamingCallback;
 import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.property.ColumnIdProperty;
 import com.google.gwt.gen2.table.client.property.FooterProperty;
 import com.google.gwt.gen2.table.client.property.HeaderProperty;
 import com.google.gwt.gen2.table.client.property.MaximumWidthProperty;
@@ -63,6 +66,10 @@ import com.google.gwt.gen2.table.event.client.RowValueChangeEvent;
 import com.google.gwt.gen2.table.event.client.RowValueChangeHandler;
 import com.google.gwt.gen2.table.event.client.TableEvent.Row;
 import com.google.gwt.gen2.table.override.client.FlexTable.FlexCellFormatter;
+import com.google.gwt.gen2.table.override.client.HTMLTable.RowFormatter;
+import com.google.gwt.user.client.DOM;
+import com.google.gwt.user.client.Element;
+import com.google.gwt.user.client.Event;
 import com.google.gwt.user.client.ui.CheckBox;
 import com.google.gwt.user.client.ui.HasHorizontalAlignment;
 import com.google.gwt.user.client.ui.SimplePanel;
@@ -73,9 +80,12 @@ import com.google.gwt.user.client.ui.HasHorizontalAlignment.HorizontalAlignmentC
 import com.google.gwt.user.client.ui.HasVerticalAlignment.VerticalAlignmentConstant;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -88,6 +98,43 @@ import java.util.Set;
 public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     HasTableDefinition<RowType>, HasPageCountChangeHandlers,
     HasPageLoadHandlers, HasPageChangeHandlers, HasPagingFailureHandlers {
+  /**
+   * Provides a key that identifies a row value across page loads. When row
+   * diffing is enabled, rows with equal keys are considered the same row, even
+   * if the table model returns a new row value instance.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  public static interface RowKeyProvider<RowType> {
+    /**
+     * Get the key that identifies a row value.
+     * 
+     * @param rowValue the row value
+     * @return the key of the row value, which must implement equals and
+     *         hashCode
+     */
+    Object getRowKey(RowType rowValue);
+  }
+
+  /**
+   * Provides an index that identifies a row value regardless of the sort
+   * order, such as its index in the unsorted data or a numeric id. When cross
+   * page selection is enabled, the selection is stored using these indexes, so
+   * the same rows stay selected when the table is sorted.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  public static interface RowIndexProvider<RowType> {
+    /**
+     * Get the index that identifies a row value. The index must not change
+     * when rows are sorted, inserted or removed.
+     * 
+     * @param rowValue the row value
+     * @return the non-negative index of the row value
+     */
+    int getRowIndex(RowType rowValue);
+  }
+
   /**
    * A custom {@link AbstractCellView} used by the {@link PagingScrollTable}.
    * 
@@ -271,6 +318,40 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     }
   }
 
+  /**
+   * The default number of rows rendered above and below the visible rows when
+   * virtual rendering is enabled.
+   */
+  public static final int DEFAULT_OVERSCAN_ROW_COUNT = 10;
+
+  /**
+   * The default height of a row in pixels when virtual rendering is enabled.
+   */
+  public static final int DEFAULT_VIRTUAL_ROW_HEIGHT = 22;
+
+  /**
+   * The number of rows appended after the first block of the current page when
+   * infinite scroll is enabled.
+   */
+  private int appendedRowCount = 0;
+
+  /**
+   * The callback that handles the blocks of rows requested while scrolling.
+   */
+  private Callback<RowType> blockCallback = new Callback<RowType>() {
+    public void onFailure(Throwable caught) {
+      lastRequest = null;
+      fireEvent(new PagingFailureEvent(caught));
+    }
+
+    public void onRowsReady(Request request, Response<RowType> response) {
+      if (lastRequest == request) {
+        lastRequest = null;
+        insertBlock(request, response.getRowValues());
+      }
+    }
+  };
+
   /**
    * The bulk render used to render the contents of this table.
    */
@@ -291,20 +372,46 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    */
   private int currentPage = -1;
 
+  /**
+   * The estimated height of a row in pixels, measured from the loaded rows and
+   * used to size the spacer above the rows trimmed by infinite scroll and to
+   * find the visible rows when virtual rendering is not used.
+   */
+  private int estimatedRowHeight = DEFAULT_VIRTUAL_ROW_HEIGHT;
+
   /**
    * The last request that was sent to the {@link TableModel}.
    */
   private Request lastRequest = null;
 
+  /**
+   * A boolean indicating that requests only ask for the visible columns.
+   */
+  private boolean isColumnProjectionEnabled = false;
+
   /**
    * A boolean indicating that cross page selection is enabled.
    */
   private boolean isCrossPageSelectionEnabled;
 
   /**
-   * The set of selected row values.
+   * The indexes of the selected rows. The indexes come from the
+   * {@link RowIndexProvider} if there is one, or are absolute row indexes.
+   */
+  private RowRangeSet selectedRowIndexes = new RowRangeSet();
+
+  /**
+   * The values of the selected rows that have been loaded, keyed by their
+   * selection index. Rows that were selected without being loaded, such as the
+   * rows selected using {@link #selectAllRows()}, have no value.
+   */
+  private Map<Integer, RowType> selectedRowValues = new HashMap<Integer, RowType>();
+
+  /**
+   * The sort order of the last page load, used to clear a selection of
+   * absolute row indexes when the rows are sorted.
    */
-  private Set<RowType> selectedRowValues = new HashSet<RowType>();
+  private ColumnSortList selectionSortList = null;
 
   /**
    * A boolean indicating that the footer should be generated automatically.
@@ -316,16 +423,54 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    */
   private boolean isHeaderGenerated;
 
+  /**
+   * A boolean indicating that the next block of rows is loaded when the user
+   * scrolls near the bottom of the data table.
+   */
+  private boolean isInfiniteScrollEnabled = false;
+
+  /**
+   * A boolean indicating that infinite scroll has reached the last row.
+   */
+  private boolean isLastBlockLoaded = false;
+
   /**
    * A boolean indicating that the page is currently being loaded.
    */
   private boolean isPageLoading;
 
+  /**
+   * A boolean indicating that page reloads only render the rows that changed.
+   */
+  private boolean isRowDiffingEnabled = false;
+
+  /**
+   * A boolean indicating that only the rows near the viewport are rendered.
+   */
+  private boolean isVirtualRenderingEnabled = false;
+
+  /**
+   * The maximum number of rows kept in the data table when infinite scroll is
+   * enabled, or 0 to keep all rows.
+   */
+  private int maximumLoadedRowCount = 0;
+
+  /**
+   * The sink that receives the timings of each page load.
+   */
+  private TableMetricsSink metricsSink = null;
+
   /**
    * The old page count, used to detect when the number of pages changes.
    */
   private int oldPageCount;
 
+  /**
+   * The number of rows rendered above and below the visible rows when virtual
+   * rendering is enabled.
+   */
+  private int overscanRowCount = DEFAULT_OVERSCAN_ROW_COUNT;
+
   /**
    * The number of rows per page. If the number of rows per page is equal to the
    * number of rows, paging is disabled because only one page exists.
@@ -333,28 +478,88 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
   private int pageSize = 0;
 
   /**
-   * The callback that handles page requests.
+   * The time when the current page load started.
+   */
+  private double pageLoadStartTime = 0;
+
+  /**
+   * The timings of the page that is loading, or null if no page is loading.
+   */
+  private PageLoadTimings pageLoadTimings = null;
+
+  /**
+   * The values of all rows on the current page when virtual rendering is
+   * enabled, or null if all rows are rendered.
+   */
+  private List<RowType> pageRowValues = null;
+
+  /**
+   * The renderer that appends the chunks of the page that is loading, or null
+   * if the page is not streamed.
    */
-  private Callback<RowType> pagingCallback = new Callback<RowType>() {
+  private TableBulkRenderer<RowType>.ChunkRenderer pageChunkRenderer = null;
+
+  /**
+   * The callback that handles page requests. If the table model streams the
+   * rows of a page, they are rendered as they arrive when possible.
+   */
+  private StreamingCallback<RowType> pagingCallback = new StreamingCallback<RowType>() {
     public void onFailure(Throwable caught) {
       isPageLoading = false;
+      streamedRowValues = null;
+      pageChunkRenderer = null;
       fireEvent(new PagingFailureEvent(caught));
     }
 
+    public void onRowsChunk(Request request, Response<RowType> chunk) {
+      if (lastRequest == request) {
+        renderPageChunk(request.getStartRow(), chunk.getRowValues(), false);
+      }
+    }
+
     public void onRowsReady(Request request, Response<RowType> response) {
       if (lastRequest == request) {
-        setData(request.getStartRow(), response.getRowValues());
+        recordRequestTime(request);
+        if (streamedRowValues == null) {
+          setData(request.getStartRow(), response.getRowValues());
+        } else {
+          renderPageChunk(request.getStartRow(), response.getRowValues(), true);
+        }
         lastRequest = null;
       }
     }
   };
 
+  /**
+   * The rows of the page that is loading that have arrived in chunks, or null
+   * if no chunk has arrived.
+   */
+  private List<RowType> streamedRowValues = null;
+
   /**
    * The values associated with each row. This is an optional list of data that
    * ties the visible content in each row to an underlying object.
    */
   private List<RowType> rowValues = new ArrayList<RowType>();
 
+  /**
+   * The absolute index of the first row in the data table, or -1 if the data
+   * table cannot be patched.
+   */
+  private int renderedFirstRow = -1;
+
+  /**
+   * The provider of row keys used when diffing rows, or null to compare row
+   * values by identity.
+   */
+  private RowKeyProvider<RowType> rowKeyProvider = null;
+
+  /**
+   * The provider of the indexes used to store the selection, or null to use
+   * absolute row indexes.
+   */
+  private RowIndexProvider<RowType> rowIndexProvider = null;
+
   /**
    * The view of this table.
    */
@@ -376,10 +581,17 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    */
   private RendererCallback tableRendererCallback = new RendererCallback() {
     public void onRendered() {
+      recordRenderTimes(bulkRenderer);
       onDataTableRendered();
     }
   };
 
+  /**
+   * The number of rows trimmed from the top of the current page when infinite
+   * scroll is enabled.
+   */
+  private int trimmedRowCount = 0;
+
   /**
    * The columns that are currently visible.
    */
@@ -390,6 +602,17 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    */
   private boolean headersObsolete;
 
+  /**
+   * The index of the first rendered row relative to the current page.
+   */
+  private int virtualFirstRow = 0;
+
+  /**
+   * The height of a row in pixels, used to calculate which rows are visible
+   * when virtual rendering is enabled.
+   */
+  private int virtualRowHeight = DEFAULT_VIRTUAL_ROW_HEIGHT;
+
   /**
    * Construct a new {@link PagingScrollTable}.
    * 
@@ -460,27 +683,59 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     if (tableModel instanceof HasRowInsertionHandlers) {
       ((HasRowInsertionHandlers) tableModel).addRowInsertionHandler(new RowInsertionHandler() {
         public void onRowInsertion(RowInsertionEvent event) {
-          insertAbsoluteRow(event.getRowIndex());
+          if (event.getRowCount() == 1) {
+            insertAbsoluteRow(event.getRowIndex());
+          } else {
+            insertAbsoluteRows(event.getRowIndex(), event.getRowCount());
+          }
         }
       });
     }
     if (tableModel instanceof HasRowRemovalHandlers) {
       ((HasRowRemovalHandlers) tableModel).addRowRemovalHandler(new RowRemovalHandler() {
         public void onRowRemoval(RowRemovalEvent event) {
-          removeAbsoluteRow(event.getRowIndex());
+          if (event.getRowCount() == 1) {
+            removeAbsoluteRow(event.getRowIndex());
+          } else {
+            removeAbsoluteRows(event.getRowIndex(), event.getRowCount());
+          }
         }
       });
     }
     if (tableModel instanceof HasRowValueChangeHandlers) {
       ((HasRowValueChangeHandlers<RowType>) tableModel).addRowValueChangeHandler(new RowValueChangeHandler<RowType>() {
         public void onRowValueChange(RowValueChangeEvent<RowType> event) {
+          // Clip the changed rows to the current page
           int rowIndex = event.getRowIndex();
-          if (rowIndex < getAbsoluteFirstRowIndex()
-              || rowIndex > getAbsoluteLastRowIndex()) {
+          List<RowType> values = event.getRowValues();
+          int pageFirstRow = getAbsoluteFirstRowIndex();
+          int firstRow = Math.max(rowIndex, pageFirstRow);
+          int lastRow = Math.min(rowIndex + values.size() - 1,
+              getAbsoluteLastRowIndex());
+          if (firstRow > lastRow) {
             return;
           }
-          setRowValue(rowIndex - getAbsoluteFirstRowIndex(),
-              event.getRowValue());
+
+          // Update the values of rows that are not rendered
+          int firstPageRow = firstRow - pageFirstRow;
+          int lastPageRow = lastRow - pageFirstRow;
+          int offset = pageFirstRow - rowIndex;
+          if (pageRowValues != null) {
+            int last = Math.min(lastPageRow, pageRowValues.size() - 1);
+            for (int pageRow = firstPageRow; pageRow <= last; pageRow++) {
+              pageRowValues.set(pageRow, values.get(pageRow + offset));
+            }
+            firstPageRow = Math.max(firstPageRow, virtualFirstRow);
+            lastPageRow = Math.min(lastPageRow, virtualFirstRow
+                + rowValues.size() - 1);
+            if (firstPageRow > lastPageRow) {
+              return;
+            }
+          }
+
+          // Render the rows that changed at once
+          setRowValues(firstPageRow - virtualFirstRow, values.subList(
+              firstPageRow + offset, lastPageRow + offset + 1));
         }
       });
     }
@@ -499,7 +754,10 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
         public void onSortColumn(SortableGrid grid, ColumnSortList sortList,
             ColumnSorterCallback callback) {
           reloadPage();
-          callback.onSortingComplete();
+
+          // Selections are restored or cleared when the page loads, so the
+          // elements that were selected before sorting are not reselected
+          grid.new ColumnSorterCallback(new Element[0]).onSortingComplete();
         }
       };
       dataTable.setColumnSorter(sorter);
@@ -513,11 +771,15 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
         }
         Set<Row> deselected = event.getDeselectedRows();
         for (Row row : deselected) {
-          selectedRowValues.remove(getRowValue(row.getRowIndex()));
+          int index = getSelectionIndex(row.getRowIndex());
+          if (index >= 0) {
+            selectedRowIndexes.remove(index);
+            selectedRowValues.remove(index);
+          }
         }
         Set<Row> selected = event.getSelectedRows();
         for (Row row : selected) {
-          selectedRowValues.add(getRowValue(row.getRowIndex()));
+          selectRowIndex(row.getRowIndex());
         }
       }
     });
@@ -541,25 +803,55 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return addHandler(PagingFailureEvent.TYPE, handler);
   }
 
+  /**
+   * Attach row values to rows that were rendered from HTML by
+   * {@link #renderPageHtml(String)}, without rendering the rows again. The row
+   * values are used for editing and selection, so they can be attached lazily,
+   * such as when the user first interacts with the table.
+   * 
+   * @param firstRow the index of the first row in the data table
+   * @param values the row values
+   */
+  public void attachRowValues(int firstRow, List<RowType> values) {
+    int lastRow = firstRow + values.size();
+    for (int i = rowValues.size(); i < lastRow; i++) {
+      rowValues.add(null);
+    }
+    for (int i = 0; i < values.size(); i++) {
+      rowValues.set(firstRow + i, values.get(i));
+    }
+    applySelectedRowIndexes();
+  }
+
+  /**
+   * Deselect all rows, including the rows selected on other pages if cross
+   * page selection is enabled.
+   */
+  public void deselectAllRows() {
+    clearSelection();
+    getDataTable().deselectAllRows();
+  }
+
   /**
    * @return the absolute index of the first visible row
    */
   public int getAbsoluteFirstRowIndex() {
-    return currentPage * pageSize;
+    return currentPage * pageSize + trimmedRowCount;
   }
 
   /**
    * @return the absolute index of the last visible row
    */
   public int getAbsoluteLastRowIndex() {
+    int lastRow = (currentPage + 1) * pageSize + appendedRowCount - 1;
     if (tableModel.getRowCount() < 0) {
       // Unknown row count, so just return based on current page
-      return (currentPage + 1) * pageSize - 1;
+      return lastRow;
     } else if (pageSize == 0) {
       // Only one page, so return row count
       return tableModel.getRowCount() - 1;
     }
-    return Math.min(tableModel.getRowCount(), (currentPage + 1) * pageSize) - 1;
+    return Math.min(tableModel.getRowCount() - 1, lastRow);
   }
 
   /**
@@ -576,6 +868,29 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return emptyTableWidgetWrapper.getWidget();
   }
 
+  /**
+   * @return the index of the first rendered row relative to the current page,
+   *         which is always zero unless virtual rendering is enabled
+   */
+  public int getFirstRenderedRowIndex() {
+    return virtualFirstRow;
+  }
+
+  /**
+   * @return the maximum number of rows kept in the data table when infinite
+   *         scroll is enabled, or 0 if all rows are kept
+   */
+  public int getMaximumLoadedRowCount() {
+    return maximumLoadedRowCount;
+  }
+
+  /**
+   * @return the sink that receives the timings of each page load, or null
+   */
+  public TableMetricsSink getMetricsSink() {
+    return metricsSink;
+  }
+
   @Override
   public int getMaximumColumnWidth(int column) {
     ColumnDefinition<RowType, ?> colDef = getColumnDefinition(column);
@@ -595,6 +910,14 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return Math.max(FixedWidthGrid.MIN_COLUMN_WIDTH, minWidth);
   }
 
+  /**
+   * @return the number of rows rendered above and below the visible rows when
+   *         virtual rendering is enabled
+   */
+  public int getOverscanRowCount() {
+    return overscanRowCount;
+  }
+
   /**
    * @return the number of pages, or -1 if not known
    */
@@ -626,6 +949,47 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return colDef.getColumnProperty(PreferredWidthProperty.TYPE).getPreferredColumnWidth();
   }
 
+  /**
+   * Get the columns that are sent with each request when column projection is
+   * enabled. Each visible column is identified by its {@link ColumnIdProperty}
+   * or, if it does not have one, by its index in the full list of columns of a
+   * {@link DefaultTableDefinition}, so the identifiers do not change when other
+   * columns are shown or hidden. If a visible column cannot be identified, all
+   * columns are requested.
+   * 
+   * @return the identifiers of the requested columns, or null for all columns
+   */
+  public int[] getRequestedColumns() {
+    if (!isColumnProjectionEnabled) {
+      return null;
+    }
+    List<ColumnDefinition<RowType, ?>> colDefs = tableDefinition.getVisibleColumnDefinitions();
+    int[] columns = new int[colDefs.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = getColumnId(colDefs.get(i));
+      if (columns[i] == ColumnIdProperty.NO_COLUMN_ID) {
+        return null;
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * @return the provider of row keys used when diffing rows, or null if row
+   *         values are compared by identity
+   */
+  public RowKeyProvider<RowType> getRowKeyProvider() {
+    return rowKeyProvider;
+  }
+
+  /**
+   * @return the provider of the indexes used to store the selection, or null
+   *         if absolute row indexes are used
+   */
+  public RowIndexProvider<RowType> getRowIndexProvider() {
+    return rowIndexProvider;
+  }
+
   /**
    * Get the value associated with a row.
    * 
@@ -639,15 +1003,36 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return rowValues.get(row);
   }
 
+  /**
+   * Get the indexes of the selected rows. If cross page selection is enabled,
+   * this will include rows selected on all pages, including rows that were
+   * selected using {@link #selectAllRows()} but never loaded. The ranges of the
+   * returned set can be sent to the server to process the selection without
+   * loading the rows. The returned set is updated as the selection changes and
+   * should not be modified. If a {@link RowIndexProvider} is specified, the set
+   * contains the indexes that it provides, so the selection is kept when the
+   * table is sorted. Otherwise the set contains absolute row indexes, and the
+   * selection is cleared when the table is sorted.
+   * 
+   * @return the selected row indexes
+   * @see #setCrossPageSelectionEnabled(boolean)
+   */
+  public RowRangeSet getSelectedRowIndexes() {
+    return selectedRowIndexes;
+  }
+
   /**
    * Get the selected row values. If cross page selection is enabled, this will
-   * include row values selected on all pages.
+   * include row values selected on all pages. Rows that were selected without
+   * being loaded, such as the rows selected using {@link #selectAllRows()},
+   * are not included, so use {@link #getSelectedRowIndexes()} to get the
+   * complete selection.
    * 
    * @return the selected row values
    * @see #setCrossPageSelectionEnabled(boolean)
    */
   public Set<RowType> getSelectedRowValues() {
-    return selectedRowValues;
+    return new HashSet<RowType>(selectedRowValues.values());
   }
 
   public TableDefinition<RowType> getTableDefinition() {
@@ -661,6 +1046,13 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return tableModel;
   }
 
+  /**
+   * @return the height of a row in pixels when virtual rendering is enabled
+   */
+  public int getVirtualRowHeight() {
+    return virtualRowHeight;
+  }
+
   /**
    * Go to the first page.
    */
@@ -704,21 +1096,34 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     if (currentPage != oldPage || forced) {
       isPageLoading = true;
 
-      // Deselect rows when switching pages
+      // Deselect rows when switching pages. A selection of absolute row
+      // indexes refers to other rows once the rows are sorted, so it is cleared
       FixedWidthGrid dataTable = getDataTable();
       dataTable.deselectAllRows();
-      if (!isCrossPageSelectionEnabled) {
-        selectedRowValues = new HashSet<RowType>();
+      ColumnSortList sortList = dataTable.getColumnSortList();
+      boolean resorted = selectionSortList != null
+          && !selectionSortList.equals(sortList);
+      if (!isCrossPageSelectionEnabled
+          || (resorted && rowIndexProvider == null)) {
+        clearSelection();
       }
+      selectionSortList = sortList.copy();
+
+      // Start again from the first block of the page
+      appendedRowCount = 0;
+      trimmedRowCount = 0;
+      isLastBlockLoaded = false;
 
       // Fire listeners
       fireEvent(new PageChangeEvent(oldPage, currentPage));
 
-      // Clear out existing data if we aren't bulk rendering
-      if (bulkRenderer == null) {
+      // Clear out existing data if we aren't bulk rendering or patching rows
+      boolean patchable = isRowDiffingEnabled && currentPage == oldPage
+          && renderedFirstRow >= 0;
+      if (bulkRenderer == null && !patchable) {
         int rowCount = getAbsoluteLastRowIndex() - getAbsoluteFirstRowIndex()
             + 1;
-        if (rowCount != dataTable.getRowCount()) {
+        if (!isVirtualRenderingEnabled && rowCount != dataTable.getRowCount()) {
           dataTable.resizeRows(rowCount);
         }
         dataTable.clearAll();
@@ -727,12 +1132,20 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
       // Request the new data from the table model
       int firstRow = getAbsoluteFirstRowIndex();
       int lastRow = pageSize == 0 ? tableModel.getRowCount() : pageSize;
-      lastRequest = new Request(firstRow, lastRow,
-          dataTable.getColumnSortList());
+      cancelLastRequest();
+      lastRequest = createRequest(firstRow, lastRow);
+      startPageLoadTimings();
       tableModel.requestRows(lastRequest, pagingCallback);
     }
   }
 
+  /**
+   * @return true if requests only ask for the visible columns
+   */
+  public boolean isColumnProjectionEnabled() {
+    return isColumnProjectionEnabled;
+  }
+
   /**
    * Go to the previous page.
    */
@@ -800,6 +1213,13 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return isHeaderGenerated;
   }
 
+  /**
+   * @return true if blocks of rows are loaded as the user scrolls
+   */
+  public boolean isInfiniteScrollEnabled() {
+    return isInfiniteScrollEnabled;
+  }
+
   /**
    * @return true if a page load is pending
    */
@@ -807,6 +1227,30 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     return isPageLoading;
   }
 
+  /**
+   * @return true if page reloads only render the rows that changed
+   */
+  public boolean isRowDiffingEnabled() {
+    return isRowDiffingEnabled;
+  }
+
+  /**
+   * @return true if only the rows near the viewport are rendered
+   */
+  public boolean isVirtualRenderingEnabled() {
+    return isVirtualRenderingEnabled;
+  }
+
+  @Override
+  public void onBrowserEvent(Event event) {
+    super.onBrowserEvent(event);
+    if (DOM.eventGetType(event) == Event.ONSCROLL) {
+      maybeShiftVirtualRows();
+      maybeLoadBlock();
+      updateVisibleWidgetRows();
+    }
+  }
+
   /**
    * Reload the current page.
    */
@@ -818,6 +1262,62 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     }
   }
 
+  /**
+   * Replace the rows of the current page with rows that were rendered into
+   * HTML on the server, such as by a <code>TableHtmlRenderer</code> using the
+   * same {@link TableDefinition}. Pending page requests are ignored, and a
+   * {@link PageLoadEvent} is fired once the rows are rendered. The row values
+   * are null until they are set with
+   * {@link #attachRowValues(int, List)}. Infinite scroll does not load more
+   * blocks after a page of HTML.
+   * 
+   * @param rawHTMLTable the HTML of a table that contains the rows of the page
+   */
+  public void renderPageHtml(String rawHTMLTable) {
+    currentPage = Math.max(0, currentPage);
+    isPageLoading = true;
+    cancelLastRequest();
+    lastRequest = null;
+    getDataTable().deselectAllRows();
+    rowValues = new ArrayList<RowType>();
+    pageRowValues = null;
+    virtualFirstRow = 0;
+    renderedFirstRow = -1;
+    appendedRowCount = 0;
+    trimmedRowCount = 0;
+    isLastBlockLoaded = true;
+    setDataSpacerHeights(0, 0);
+    setEmptyTableWidgetVisible(false);
+    refreshVisibleColumnDefinitions();
+
+    // Render the HTML using the bulk renderer
+    FixedWidthGridBulkRenderer<RowType> renderer = bulkRenderer;
+    if (renderer == null) {
+      renderer = new FixedWidthGridBulkRenderer<RowType>(getDataTable(), this);
+    }
+    final TableBulkRenderer<RowType> htmlRenderer = renderer;
+    startPageLoadTimings();
+    renderer.renderRows(rawHTMLTable, new RendererCallback() {
+      public void onRendered() {
+        recordRenderTimes(htmlRenderer);
+        onDataTableRendered();
+      }
+    });
+  }
+
+  /**
+   * Select all rows. If cross page selection is enabled, the rows on every page
+   * are selected without loading them.
+   * 
+   * @see #getSelectedRowIndexes()
+   */
+  public void selectAllRows() {
+    if (isCrossPageSelectionEnabled) {
+      selectedRowIndexes.addAll();
+    }
+    getDataTable().selectAllRows();
+  }
+
   /**
    * Set the {@link FixedWidthGridBulkRenderer} used to render the data table.
    * 
@@ -828,10 +1328,28 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
   }
 
   /**
-   * Enable or disable cross page selection. When enabled, row value selections
-   * are maintained across page loads. Selections are remembered by type (not by
-   * row index), so row values can move around and still maintain their
-   * selection.
+   * Enable or disable column projection. When enabled, each request carries
+   * the identifiers of the visible columns, as returned by
+   * {@link #getRequestedColumns()}, so a table model can leave the hidden
+   * columns out of the rows it returns. A {@link CachedTableModel} reloads its
+   * rows when a column that it did not load becomes visible. Call
+   * {@link #reloadPage()} after showing a column so the current page contains
+   * its values.
+   * 
+   * @param enabled true to enable, false to disable
+   */
+  public void setColumnProjectionEnabled(boolean enabled) {
+    this.isColumnProjectionEnabled = enabled;
+  }
+
+  /**
+   * Enable or disable cross page selection. When enabled, selections are
+   * maintained across page loads. Selections are remembered as ranges of row
+   * indexes, so all rows can be selected using {@link #selectAllRows()} without
+   * loading them. By default the indexes are absolute row indexes, so the
+   * selection is cleared when the table is sorted. Use
+   * {@link #setRowIndexProvider(RowIndexProvider)} to keep the selection when
+   * the table is sorted.
    * 
    * @param enabled true to enable, false to disable
    */
@@ -841,11 +1359,7 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
 
       // Reselected only the rows on this page
       if (!enabled) {
-        selectedRowValues = new HashSet<RowType>();
-        Set<Integer> selectedRows = getDataTable().getSelectedRows();
-        for (Integer selectedRow : selectedRows) {
-          selectedRowValues.add(getRowValue(selectedRow));
-        }
+        reselectLoadedRows();
       }
     }
   }
@@ -884,6 +1398,70 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     }
   }
 
+  /**
+   * <p>
+   * Enable or disable infinite scroll. When enabled, the current page is
+   * loaded one block of {@link #getPageSize()} rows at a time: when the user
+   * scrolls near the bottom of the data table, the next block is requested
+   * from the table model and appended to the data table. This allows tables
+   * with an unknown number of rows to be browsed without paging and without
+   * ever counting the rows.
+   * </p>
+   * <p>
+   * If {@link #setMaximumLoadedRowCount(int)} is set, blocks are trimmed from
+   * the top of the data table as new blocks are appended, and a spacer sized
+   * from the measured row height takes their place so the scroll bar does not
+   * jump. Trimmed blocks are requested again when the user scrolls back up.
+   * </p>
+   * <p>
+   * Infinite scroll requires a page size greater than zero. Virtual rendering
+   * is not applied while infinite scroll is enabled. Changing the page,
+   * sorting, or reloading the page starts again from the first block.
+   * </p>
+   * 
+   * @param enabled true to enable, false to disable
+   */
+  public void setInfiniteScrollEnabled(boolean enabled) {
+    if (isInfiniteScrollEnabled != enabled) {
+      isInfiniteScrollEnabled = enabled;
+      if (currentPage >= 0) {
+        reloadPage();
+      }
+    }
+  }
+
+  /**
+   * Set the maximum number of rows kept in the data table when infinite scroll
+   * is enabled. The limit is raised to at least two blocks so the rows near the
+   * viewport are never trimmed.
+   * 
+   * @param rowCount the maximum number of rows, or 0 to keep all rows
+   */
+  public void setMaximumLoadedRowCount(int rowCount) {
+    this.maximumLoadedRowCount = Math.max(0, rowCount);
+  }
+
+  /**
+   * Set the sink that receives the timing breakdown of each page load. The
+   * same timings are available from {@link PageLoadEvent#getTimings()}.
+   * 
+   * @param sink the sink, or null to stop reporting timings
+   */
+  public void setMetricsSink(TableMetricsSink sink) {
+    this.metricsSink = sink;
+  }
+
+  /**
+   * Set the number of rows rendered above and below the visible rows when
+   * virtual rendering is enabled. A larger overscan renders new rows less often
+   * while scrolling, but keeps more rows in the DOM.
+   * 
+   * @param overscanRowCount the number of extra rows
+   */
+  public void setOverscanRowCount(int overscanRowCount) {
+    this.overscanRowCount = Math.max(0, overscanRowCount);
+  }
+
   /**
    * Set the number of rows per page.
    * 
@@ -909,24 +1487,103 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
   }
 
   /**
-   * Associate a row in the table with a value.
+   * <p>
+   * Enable or disable row diffing. When enabled, reloading the current page
+   * compares the new row values to the rendered row values and only renders
+   * the rows that were inserted, removed, or replaced, leaving the other rows
+   * untouched. This keeps tables that update a few rows at a time, such as live
+   * dashboards, from rendering the entire page on every update.
+   * </p>
+   * <p>
+   * Row values are compared by identity unless a {@link RowKeyProvider} is
+   * specified, so a row value that is modified in place is not rendered again
+   * unless the table model fires a {@link RowValueChangeEvent}. Rows that only
+   * shift position are not rendered again either, so row renderers should not
+   * depend on the row index. If more than half of the rows change, or virtual
+   * rendering is enabled, the entire page is rendered.
+   * </p>
    * 
-   * @param row the row index
-   * @param value the value to associate
+   * @param enabled true to enable, false to disable
    */
-  public void setRowValue(int row, RowType value) {
-    // Make sure the list can fit the row
-    for (int i = rowValues.size(); i <= row; i++) {
-      rowValues.add(null);
-    }
+  public void setRowDiffingEnabled(boolean enabled) {
+    isRowDiffingEnabled = enabled;
+  }
+
+  /**
+   * Set the provider of row keys used when diffing rows.
+   * 
+   * @param rowKeyProvider the provider, or null to compare rows by identity
+   */
+  public void setRowKeyProvider(RowKeyProvider<RowType> rowKeyProvider) {
+    this.rowKeyProvider = rowKeyProvider;
+  }
+
+  /**
+   * Set the provider of the indexes used to store the selection. The indexes
+   * identify the rows regardless of the sort order, so the same rows stay
+   * selected when the table is sorted. Rows without a loaded value cannot be
+   * selected. Changing the provider keeps only the selected rows that are
+   * currently loaded.
+   * 
+   * @param rowIndexProvider the provider, or null to use absolute row indexes,
+   *          which are cleared when the table is sorted
+   */
+  public void setRowIndexProvider(RowIndexProvider<RowType> rowIndexProvider) {
+    this.rowIndexProvider = rowIndexProvider;
+    reselectLoadedRows();
+  }
+
+  /**
+   * Associate a row in the table with a value.
+   * 
+   * @param row the row index
+   * @param value the value to associate
+   */
+  public void setRowValue(int row, RowType value) {
+    // Make sure the list can fit the row
+    for (int i = rowValues.size(); i <= row; i++) {
+      rowValues.add(null);
+    }
 
     // Set the row value
     rowValues.set(row, value);
+    if (pageRowValues != null && virtualFirstRow + row < pageRowValues.size()) {
+      pageRowValues.set(virtualFirstRow + row, value);
+    }
 
     // Render the new row value
     refreshRow(row);
   }
 
+  /**
+   * Set the values of a range of rows and render them in a single pass.
+   * 
+   * @param firstRow the row index in the data table of the first value
+   * @param values the new row values
+   */
+  public void setRowValues(int firstRow, List<RowType> values) {
+    // Make sure the list can fit the rows
+    int count = values.size();
+    for (int i = rowValues.size(); i < firstRow + count; i++) {
+      rowValues.add(null);
+    }
+
+    // Set the row values
+    for (int i = 0; i < count; i++) {
+      int row = firstRow + i;
+      rowValues.set(row, values.get(i));
+      if (pageRowValues != null
+          && virtualFirstRow + row < pageRowValues.size()) {
+        pageRowValues.set(virtualFirstRow + row, values.get(i));
+      }
+    }
+
+    // Render the new row values
+    if (count > 0) {
+      renderRowValues(firstRow, count);
+    }
+  }
+
   /**
    * Set the {@link TableDefinition} used to define the columns.
    * 
@@ -937,6 +1594,42 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     this.tableDefinition = tableDefinition;
   }
 
+  /**
+   * <p>
+   * Enable or disable virtual rendering. When enabled, only the rows near the
+   * viewport are rendered into the data table, and spacers above and below the
+   * data table fake the height of the other rows on the page. As the user
+   * scrolls, rows that move out of view are reused for the rows that move into
+   * view, so the size of the DOM stays the same regardless of the page size.
+   * </p>
+   * <p>
+   * Virtual rendering assumes that every row has the height specified in
+   * {@link #setVirtualRowHeight(int)}, so rows should not wrap. Row renderers
+   * receive the index of the row in the data table, which is relative to
+   * {@link #getFirstRenderedRowIndex()}.
+   * </p>
+   * 
+   * @param enabled true to enable, false to disable
+   */
+  public void setVirtualRenderingEnabled(boolean enabled) {
+    if (isVirtualRenderingEnabled != enabled) {
+      isVirtualRenderingEnabled = enabled;
+      if (currentPage >= 0) {
+        reloadPage();
+      }
+    }
+  }
+
+  /**
+   * Set the height of a row in pixels, which is used to calculate which rows
+   * are visible when virtual rendering is enabled.
+   * 
+   * @param rowHeight the height of a row in pixels
+   */
+  public void setVirtualRowHeight(int rowHeight) {
+    this.virtualRowHeight = Math.max(1, rowHeight);
+  }
+
   /**
    * Invoke the cell editor on a cell, if one is set. If a cell editor is not
    * specified, this method has no effect.
@@ -963,7 +1656,8 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
           public void onComplete(CellEditInfo cellEditInfo, Object cellValue) {
             colDef.setCellValue(rowValue, cellValue);
             if (tableModel instanceof MutableTableModel) {
-              int row = getAbsoluteFirstRowIndex() + cellEditInfo.getRowIndex();
+              int row = getAbsoluteFirstRowIndex() + virtualFirstRow
+                  + cellEditInfo.getRowIndex();
               ((MutableTableModel<RowType>) tableModel).setRowValue(row,
                   rowValue);
             } else {
@@ -1023,9 +1717,9 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
       box.addClickHandler(new ClickHandler() {
         public void onClick(ClickEvent event) {
           if (box.getValue()) {
-            getDataTable().selectAllRows();
+            selectAllRows();
           } else {
-            getDataTable().deselectAllRows();
+            deselectAllRows();
           }
         }
       });
@@ -1046,21 +1740,47 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    * @param beforeRow the row index
    */
   protected void insertAbsoluteRow(int beforeRow) {
+    if (pageRowValues != null) {
+      insertVirtualRow(beforeRow - getAbsoluteFirstRowIndex());
+      insertSelectedRows(beforeRow, 1);
+      return;
+    }
+
     // Physically insert the row
     int lastRow = getAbsoluteLastRowIndex() + 1;
     if (beforeRow <= lastRow) {
       int firstRow = getAbsoluteFirstRowIndex();
-      if (beforeRow >= firstRow) {
-        // Insert row in the middle of the page
-        getDataTable().insertRow(beforeRow - firstRow);
-      } else {
-        // Insert zero row because row is before this page
-        getDataTable().insertRow(0);
+      int row = Math.max(0, beforeRow - firstRow);
+      getDataTable().insertRow(row);
+      if (row <= rowValues.size()) {
+        rowValues.add(row, null);
       }
-      if (getDataTable().getRowCount() > pageSize) {
-        getDataTable().removeRow(pageSize);
+      int capacity = pageSize + appendedRowCount - trimmedRowCount;
+      if (getDataTable().getRowCount() > capacity) {
+        getDataTable().removeRow(capacity);
+        if (capacity < rowValues.size()) {
+          rowValues.remove(capacity);
+        }
       }
     }
+
+    // Shift the selected rows after the data table fires its events
+    insertSelectedRows(beforeRow, 1);
+  }
+
+  /**
+   * Insert a range of rows at an absolute row index. The selected rows are
+   * shifted, and the current page is reloaded once if the new rows move any of
+   * its rows.
+   * 
+   * @param beforeRow the absolute index of the first new row
+   * @param count the number of new rows
+   */
+  protected void insertAbsoluteRows(int beforeRow, int count) {
+    insertSelectedRows(beforeRow, count);
+    if (currentPage >= 0 && beforeRow <= getLoadedLastRowIndex() + 1) {
+      reloadPage();
+    }
   }
 
   /**
@@ -1075,19 +1795,39 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     }
 
     // Select rows
-    FixedWidthGrid dataTable = getDataTable();
-    int rowCount = dataTable.getRowCount();
-    for (int i = 0; i < rowCount; i++) {
-      if (selectedRowValues.contains(getRowValue(i))) {
-        dataTable.selectRow(i, false);
-      }
-    }
+    applySelectedRowIndexes();
 
     // Update the UI of the table
+    FixedWidthGrid dataTable = getDataTable();
     dataTable.clearIdealWidths();
     redraw();
+
+    // Measure the rows only if infinite scroll or lazy widgets use the
+    // estimate, and no spacer already depends on it
+    int rowCount = dataTable.getRowCount();
+    boolean needsRowHeight = isInfiniteScrollEnabled
+        || (bulkRenderer != null && bulkRenderer.isLazyWidgetsEnabled());
+    if (needsRowHeight && pageRowValues == null && trimmedRowCount == 0
+        && rowCount > 0) {
+      estimatedRowHeight = Math.max(1, dataTable.getOffsetHeight() / rowCount);
+    }
+    updateVisibleWidgetRows();
     isPageLoading = false;
-    fireEvent(new PageLoadEvent(currentPage));
+
+    // Report the timings of the page load
+    if (pageLoadTimings == null) {
+      startPageLoadTimings();
+    }
+    PageLoadTimings timings = pageLoadTimings;
+    pageLoadTimings = null;
+    timings.setTotalTime(Duration.currentTimeMillis() - pageLoadStartTime);
+    fireEvent(new PageLoadEvent(currentPage, timings));
+    if (metricsSink != null) {
+      metricsSink.onPageLoad(this, timings);
+    }
+
+    // Fill the viewport if infinite scroll is enabled
+    maybeLoadBlock();
   }
 
   /**
@@ -1231,6 +1971,12 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    * @param row the row index
    */
   protected void removeAbsoluteRow(int row) {
+    if (pageRowValues != null) {
+      removeVirtualRow(row - getAbsoluteFirstRowIndex());
+      removeSelectedRows(row, 1);
+      return;
+    }
+
     // Physically remove the row if it is in the middle of the data table
     int firstRow = getAbsoluteFirstRowIndex();
     int lastRow = getAbsoluteLastRowIndex();
@@ -1239,8 +1985,28 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
       int relativeRow = row - firstRow;
       if (relativeRow < dataTable.getRowCount()) {
         dataTable.removeRow(relativeRow);
+        if (relativeRow < rowValues.size()) {
+          rowValues.remove(relativeRow);
+        }
       }
     }
+
+    // Shift the selected rows after the data table fires its events
+    removeSelectedRows(row, 1);
+  }
+
+  /**
+   * Remove a range of rows at an absolute row index. The selected rows are
+   * shifted, and the current page is reloaded once if any of its rows moved.
+   * 
+   * @param firstRow the absolute index of the first removed row
+   * @param count the number of removed rows
+   */
+  protected void removeAbsoluteRows(int firstRow, int count) {
+    removeSelectedRows(firstRow, count);
+    if (currentPage >= 0 && firstRow <= getLoadedLastRowIndex()) {
+      reloadPage();
+    }
   }
 
   /**
@@ -1254,19 +2020,51 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
    */
   protected void setData(int firstRow, Iterator<RowType> rows) {
     getDataTable().deselectAllRows();
-    rowValues = new ArrayList<RowType>();
-    if (rows != null && rows.hasNext()) {
-      setEmptyTableWidgetVisible(false);
+    boolean hasRows = rows != null && rows.hasNext();
 
-      // Get an iterator over the visible rows
-      int firstVisibleRow = getAbsoluteFirstRowIndex();
+    // Get the visible rows
+    List<RowType> newRowValues = new ArrayList<RowType>();
+    int firstVisibleRow = getAbsoluteFirstRowIndex();
+    if (hasRows) {
       int lastVisibleRow = getAbsoluteLastRowIndex();
       Iterator<RowType> visibleIter = new VisibleRowsIterator(rows, firstRow,
           firstVisibleRow, lastVisibleRow);
-
-      // Set the row values
       while (visibleIter.hasNext()) {
-        rowValues.add(visibleIter.next());
+        newRowValues.add(visibleIter.next());
+      }
+    }
+
+    // A short first block is the end of an infinite scroll
+    if (newRowValues.size() < pageSize) {
+      isLastBlockLoaded = true;
+    }
+
+    // Only render the rows that changed if possible
+    double startRender = Duration.currentTimeMillis();
+    if (patchRows(firstVisibleRow, newRowValues)) {
+      recordRenderTime(startRender);
+      onDataTableRendered();
+      return;
+    }
+
+    rowValues = newRowValues;
+    pageRowValues = null;
+    virtualFirstRow = 0;
+    renderedFirstRow = -1;
+    setDataSpacerHeights(0, 0);
+    if (hasRows) {
+      setEmptyTableWidgetVisible(false);
+
+      // Only render the rows near the viewport
+      if (isVirtualRenderingEnabled && !isInfiniteScrollEnabled) {
+        pageRowValues = rowValues;
+        int windowSize = getVirtualWindowSize();
+        virtualFirstRow = getVirtualWindowStart(windowSize);
+        rowValues = new ArrayList<RowType>(pageRowValues.subList(
+            virtualFirstRow, virtualFirstRow + windowSize));
+        updateDataSpacers();
+      } else {
+        renderedFirstRow = firstVisibleRow;
       }
 
       // Copy the visible column definitions
@@ -1284,7 +2082,12 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
       getDataTable().resize(rowCount, colCount);
 
       // Render the rows
+      startRender = Duration.currentTimeMillis();
       tableDefinition.renderRows(0, rowValues.iterator(), rowView);
+      recordRenderTime(startRender);
+      if (pageLoadTimings != null) {
+        pageLoadTimings.setRenderedRowCount(rowCount);
+      }
     } else {
       setEmptyTableWidgetVisible(true);
     }
@@ -1307,6 +2110,589 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     }
   }
 
+  /**
+   * Select the rows in the data table whose indexes are selected.
+   */
+  private void applySelectedRowIndexes() {
+    FixedWidthGrid dataTable = getDataTable();
+    int rowCount = dataTable.getRowCount();
+    for (int i = 0; i < rowCount; i++) {
+      int index = getSelectionIndex(i);
+      if (index >= 0 && selectedRowIndexes.contains(index)) {
+        dataTable.selectRow(i, false);
+        RowType rowValue = getRowValue(i);
+        if (rowValue != null) {
+          selectedRowValues.put(index, rowValue);
+        }
+      }
+    }
+  }
+
+  /**
+   * Cancel the last request if a {@link CachedTableModel} is still loading it,
+   * so the model does not keep waiting on rows that the table will ignore.
+   */
+  private void cancelLastRequest() {
+    if (lastRequest != null && tableModel instanceof CachedTableModel) {
+      ((CachedTableModel<RowType>) tableModel).cancelRequest(lastRequest);
+    }
+    streamedRowValues = null;
+    pageChunkRenderer = null;
+  }
+
+  /**
+   * Check if the rows of a page can be rendered in chunks as they arrive. Pages
+   * are only streamed into the bulk renderer when all of their rows are
+   * rendered and no rows need to be patched.
+   * 
+   * @param startRow the first requested row
+   * @return true if the page can be streamed
+   */
+  private boolean canStreamPage(int startRow) {
+    return bulkRenderer != null && !isVirtualRenderingEnabled
+        && !isRowDiffingEnabled && startRow == getAbsoluteFirstRowIndex();
+  }
+
+  /**
+   * Clear the selected row indexes and values. The set returned by
+   * {@link #getSelectedRowIndexes()} is cleared in place, so callers that hold
+   * it see the change.
+   */
+  private void clearSelection() {
+    selectedRowIndexes.clear();
+    selectedRowValues.clear();
+  }
+
+  /**
+   * Count the occurrences of each row key in a list of row values.
+   * 
+   * @param values the row values
+   * @return a map of row keys to counts
+   */
+  private Map<Object, int[]> countRowKeys(List<RowType> values) {
+    Map<Object, int[]> counts;
+    if (rowKeyProvider == null) {
+      counts = new IdentityHashMap<Object, int[]>();
+    } else {
+      counts = new HashMap<Object, int[]>();
+    }
+    for (RowType value : values) {
+      Object key = getRowKey(value);
+      int[] count = counts.get(key);
+      if (count == null) {
+        counts.put(key, new int[] {1});
+      } else {
+        count[0]++;
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Create a request for a range of rows using the current sort order and
+   * projection.
+   * 
+   * @param startRow the absolute index of the first row
+   * @param numRows the number of rows
+   * @return the new request
+   */
+  private Request createRequest(int startRow, int numRows) {
+    return new Request(startRow, numRows, getDataTable().getColumnSortList(),
+        null, getRequestedColumns());
+  }
+
+  /**
+   * Walk the rendered row values and the new row values, matching rows by key.
+   * Rows that only exist in the new values are inserted, rows that only exist
+   * in the rendered values are removed, and all other mismatches are replaced
+   * in place.
+   * 
+   * @param newValues the new row values
+   * @param apply true to patch the data table, false to only count changes
+   * @return the number of rows that are inserted, removed, or rendered
+   */
+  private int diffRows(List<RowType> newValues, boolean apply) {
+    FixedWidthGrid dataTable = getDataTable();
+    List<RowType> oldValues = new ArrayList<RowType>(rowValues);
+    Map<Object, int[]> oldCounts = countRowKeys(oldValues);
+    Map<Object, int[]> newCounts = countRowKeys(newValues);
+    int oldSize = oldValues.size();
+    int newSize = newValues.size();
+    int changes = 0;
+    int i = 0;
+    int j = 0;
+    while (i < oldSize && j < newSize) {
+      RowType oldValue = oldValues.get(i);
+      RowType newValue = newValues.get(j);
+      Object oldKey = getRowKey(oldValue);
+      Object newKey = getRowKey(newValue);
+      boolean sameKey = (rowKeyProvider == null) ? oldKey == newKey
+          : (oldKey == null ? newKey == null : oldKey.equals(newKey));
+      boolean oldKeyRemains = newCounts.get(oldKey) != null
+          && newCounts.get(oldKey)[0] > 0;
+      boolean newKeyRemains = oldCounts.get(newKey) != null
+          && oldCounts.get(newKey)[0] > 0;
+      if (sameKey || oldKeyRemains == newKeyRemains) {
+        // Keep or replace the row, rendering it if the value changed
+        if (oldValue != newValue) {
+          changes++;
+          if (apply) {
+            setRowValue(j, newValue);
+          }
+        }
+        oldCounts.get(oldKey)[0]--;
+        newCounts.get(newKey)[0]--;
+        i++;
+        j++;
+      } else if (oldKeyRemains) {
+        // Insert a new row
+        changes++;
+        if (apply) {
+          dataTable.insertRow(j);
+          rowValues.add(j, newValue);
+          refreshRow(j);
+        }
+        newCounts.get(newKey)[0]--;
+        j++;
+      } else {
+        // Remove a row that no longer exists
+        changes++;
+        if (apply) {
+          dataTable.removeRow(j);
+          rowValues.remove(j);
+        }
+        oldCounts.get(oldKey)[0]--;
+        i++;
+      }
+    }
+
+    // Add or remove rows at the end of the page
+    int remaining = (oldSize - i) + (newSize - j);
+    if (apply && remaining > 0) {
+      dataTable.resizeRows(newSize);
+      while (rowValues.size() > newSize) {
+        rowValues.remove(rowValues.size() - 1);
+      }
+      for (; j < newSize; j++) {
+        rowValues.add(newValues.get(j));
+        refreshRow(j);
+      }
+    }
+    return changes + remaining;
+  }
+
+  /**
+   * Get the stable identifier of a column that is sent with projected requests.
+   * 
+   * @param colDef the column definition
+   * @return the identifier, or {@link ColumnIdProperty#NO_COLUMN_ID} if the
+   *         column cannot be identified
+   */
+  private int getColumnId(ColumnDefinition<RowType, ?> colDef) {
+    int columnId = colDef.getColumnProperty(ColumnIdProperty.TYPE).getColumnId();
+    if (columnId == ColumnIdProperty.NO_COLUMN_ID
+        && tableDefinition instanceof DefaultTableDefinition) {
+      DefaultTableDefinition<RowType> tableDef = (DefaultTableDefinition<RowType>) tableDefinition;
+      int columnCount = tableDef.getColumnDefinitionCount();
+      for (int column = 0; column < columnCount; column++) {
+        if (tableDef.getColumnDefinition(column) == colDef) {
+          return column;
+        }
+      }
+    }
+    return columnId;
+  }
+
+  /**
+   * Get the height of the first rows in the data table.
+   * 
+   * @param count the number of rows
+   * @return the height of the rows in pixels
+   */
+  private int getLeadingRowsHeight(int count) {
+    FixedWidthGrid dataTable = getDataTable();
+    count = Math.min(count, dataTable.getRowCount());
+    if (count <= 0) {
+      return 0;
+    }
+    RowFormatter formatter = dataTable.getRowFormatter();
+    int top = formatter.getElement(0).getOffsetTop();
+    if (count < dataTable.getRowCount()) {
+      return formatter.getElement(count).getOffsetTop() - top;
+    }
+    Element lastRow = formatter.getElement(count - 1);
+    return lastRow.getOffsetTop() + lastRow.getOffsetHeight() - top;
+  }
+
+  /**
+   * Get the absolute index of the last row loaded on the current page. Unlike
+   * {@link #getAbsoluteLastRowIndex()}, this does not depend on the row count
+   * of the table model, which may already include a change.
+   * 
+   * @return the absolute index of the last loaded row
+   */
+  private int getLoadedLastRowIndex() {
+    List<RowType> loaded = (pageRowValues == null) ? rowValues : pageRowValues;
+    return getAbsoluteFirstRowIndex() + loaded.size() - 1;
+  }
+
+  /**
+   * Get the key used to match a row value when diffing rows.
+   * 
+   * @param rowValue the row value
+   * @return the key of the row value
+   */
+  private Object getRowKey(RowType rowValue) {
+    if (rowKeyProvider == null || rowValue == null) {
+      return rowValue;
+    }
+    return rowKeyProvider.getRowKey(rowValue);
+  }
+
+  /**
+   * Get the index used to store the selection of a row in the data table.
+   * 
+   * @param row the row index in the data table
+   * @return the selection index, or -1 if the row cannot be selected
+   */
+  private int getSelectionIndex(int row) {
+    if (rowIndexProvider == null) {
+      return getAbsoluteFirstRowIndex() + virtualFirstRow + row;
+    }
+    RowType rowValue = getRowValue(row);
+    return (rowValue == null) ? -1 : rowIndexProvider.getRowIndex(rowValue);
+  }
+
+  /**
+   * @return the number of rows to render when virtual rendering is enabled
+   */
+  private int getVirtualWindowSize() {
+    int clientHeight = getDataWrapper().getClientHeight();
+    int visibleRowCount = (clientHeight + virtualRowHeight - 1)
+        / virtualRowHeight + 1;
+    return Math.min(pageRowValues.size(), visibleRowCount + 2
+        * overscanRowCount);
+  }
+
+  /**
+   * Get the first row to render when virtual rendering is enabled, based on the
+   * current scroll position.
+   * 
+   * @param windowSize the number of rows to render
+   * @return the index of the first row relative to the current page
+   */
+  private int getVirtualWindowStart(int windowSize) {
+    int firstVisibleRow = getDataWrapper().getScrollTop() / virtualRowHeight;
+    int firstRow = Math.min(firstVisibleRow - overscanRowCount,
+        pageRowValues.size() - windowSize);
+    return Math.max(0, firstRow);
+  }
+
+  /**
+   * Add a block of rows loaded by infinite scroll to the top or bottom of the
+   * data table, trimming rows from the other end if there are too many. The
+   * scroll position is adjusted so the visible rows do not move.
+   * 
+   * @param request the request for the block
+   * @param rows the rows in the block
+   */
+  private void insertBlock(Request request, Iterator<RowType> rows) {
+    List<RowType> values = new ArrayList<RowType>();
+    while (rows != null && rows.hasNext()) {
+      values.add(rows.next());
+    }
+    int firstRow = getAbsoluteFirstRowIndex();
+    boolean prepend = request.getStartRow() < firstRow;
+    if (prepend) {
+      while (values.size() > firstRow - request.getStartRow()) {
+        values.remove(values.size() - 1);
+      }
+    } else if (values.size() < request.getNumRows()) {
+      isLastBlockLoaded = true;
+    }
+    int count = values.size();
+    if (count == 0) {
+      return;
+    }
+
+    // Read the scroll position before changing the data table
+    FixedWidthGrid dataTable = getDataTable();
+    Element wrapper = getDataWrapper();
+    int scrollTop = wrapper.getScrollTop();
+    int clientHeight = wrapper.getClientHeight();
+    boolean wasScrollable = wrapper.getScrollHeight() > clientHeight;
+    int oldSpacerHeight = trimmedRowCount * estimatedRowHeight;
+
+    // Render the block, ignoring selection events while rows are moved
+    isPageLoading = true;
+    renderedFirstRow = -1;
+    int rowCount = rowValues.size();
+    if (prepend) {
+      for (int i = 0; i < count; i++) {
+        dataTable.insertRow(0);
+      }
+      rowValues.addAll(0, values);
+      renderRowValues(0, count);
+      trimmedRowCount -= count;
+    } else {
+      dataTable.resizeRows(rowCount + count);
+      rowValues.addAll(values);
+      renderRowValues(rowCount, count);
+      appendedRowCount += count;
+    }
+    rowCount += count;
+
+    // Measure the rows in a single layout pass
+    int maxRowCount = rowCount;
+    if (maximumLoadedRowCount > 0) {
+      maxRowCount = Math.max(maximumLoadedRowCount, 2 * pageSize);
+    }
+    int trimCount = Math.max(0, rowCount - maxRowCount);
+    int insertedHeight = prepend ? getLeadingRowsHeight(count) : 0;
+    int trimmedHeight = prepend ? 0 : getLeadingRowsHeight(trimCount);
+    estimatedRowHeight = Math.max(1, dataTable.getOffsetHeight() / rowCount);
+
+    // Trim the rows at the other end of the data table
+    if (trimCount > 0) {
+      if (prepend) {
+        dataTable.resizeRows(maxRowCount);
+        while (rowValues.size() > maxRowCount) {
+          rowValues.remove(rowValues.size() - 1);
+        }
+        appendedRowCount -= trimCount;
+        isLastBlockLoaded = false;
+      } else {
+        for (int i = 0; i < trimCount; i++) {
+          dataTable.removeRow(0);
+          rowValues.remove(0);
+        }
+        trimmedRowCount += trimCount;
+      }
+    }
+
+    // Replace the trimmed rows with a spacer and keep the visible rows in place
+    int spacerHeight = trimmedRowCount * estimatedRowHeight;
+    setDataSpacerHeights(spacerHeight, 0);
+    int shift = spacerHeight - oldSpacerHeight + insertedHeight - trimmedHeight;
+    if (shift != 0) {
+      wrapper.setScrollTop(scrollTop + shift);
+    }
+    applySelectedRowIndexes();
+    isPageLoading = false;
+    if (!wasScrollable) {
+      redraw();
+    }
+
+    // Keep filling the viewport
+    if (!prepend && trimCount == 0) {
+      maybeLoadBlock();
+    }
+  }
+
+  /**
+   * Shift the selected row indexes to account for inserted rows. Indexes from
+   * a {@link RowIndexProvider} do not change when rows are inserted.
+   * 
+   * @param beforeRow the absolute index of the first inserted row
+   * @param count the number of inserted rows
+   */
+  private void insertSelectedRows(int beforeRow, int count) {
+    if (rowIndexProvider == null) {
+      selectedRowIndexes.insertRows(beforeRow, count);
+      shiftSelectedRowValues(beforeRow, beforeRow, count);
+    }
+  }
+
+  /**
+   * Insert an empty row when virtual rendering is enabled.
+   * 
+   * @param pageRow the index of the row relative to the current page
+   */
+  private void insertVirtualRow(int pageRow) {
+    if (pageRow > pageRowValues.size()) {
+      return;
+    }
+
+    // Insert the row before or within the rendered rows
+    pageRow = Math.max(0, pageRow);
+    pageRowValues.add(pageRow, null);
+    int windowSize = rowValues.size();
+    int row = pageRow - virtualFirstRow;
+    if (row < 0) {
+      virtualFirstRow++;
+    } else if (row < windowSize) {
+      getDataTable().insertRow(row);
+      rowValues.add(row, null);
+    }
+    if (pageSize > 0 && pageRowValues.size() > pageSize) {
+      pageRowValues.remove(pageSize);
+    }
+
+    // Keep the rendered rows within the page
+    int maxRowCount = Math.min(windowSize, pageRowValues.size()
+        - virtualFirstRow);
+    while (rowValues.size() > maxRowCount) {
+      getDataTable().removeRow(rowValues.size() - 1);
+      rowValues.remove(rowValues.size() - 1);
+    }
+    updateDataSpacers();
+  }
+
+  /**
+   * Request the next or previous block of rows if infinite scroll is enabled
+   * and the user has scrolled near the bottom of the data table or into the
+   * rows that were trimmed from the top.
+   */
+  private void maybeLoadBlock() {
+    if (!isInfiniteScrollEnabled || pageSize < 1 || currentPage < 0
+        || isPageLoading || lastRequest != null || pageRowValues != null
+        || (bulkRenderer != null && bulkRenderer.isRendering())) {
+      return;
+    }
+    Element wrapper = getDataWrapper();
+    int clientHeight = wrapper.getClientHeight();
+    if (clientHeight <= 0) {
+      return;
+    }
+
+    // Load the rows that were trimmed from the top
+    int scrollTop = wrapper.getScrollTop();
+    int firstRow = getAbsoluteFirstRowIndex();
+    if (trimmedRowCount > 0
+        && scrollTop < trimmedRowCount * estimatedRowHeight + clientHeight) {
+      int startRow = Math.max(currentPage * pageSize, firstRow - pageSize);
+      requestBlock(startRow, firstRow - startRow);
+      return;
+    }
+
+    // Load the next block when within a viewport of the bottom
+    int nextRow = getAbsoluteLastRowIndex() + 1;
+    int rowCount = tableModel.getRowCount();
+    if (!isLastBlockLoaded && (rowCount < 0 || nextRow < rowCount)
+        && scrollTop + 2 * clientHeight >= wrapper.getScrollHeight()) {
+      requestBlock(nextRow, pageSize);
+    }
+  }
+
+  /**
+   * Render the rows that have scrolled into view if virtual rendering is
+   * enabled.
+   */
+  private void maybeShiftVirtualRows() {
+    if (pageRowValues == null || isPageLoading) {
+      return;
+    }
+
+    // Check if the visible rows are already rendered
+    int scrollTop = getDataWrapper().getScrollTop();
+    int clientHeight = getDataWrapper().getClientHeight();
+    int firstVisibleRow = scrollTop / virtualRowHeight;
+    int lastVisibleRow = Math.min(pageRowValues.size() - 1,
+        (scrollTop + clientHeight) / virtualRowHeight);
+    int windowSize = getVirtualWindowSize();
+    if (windowSize == rowValues.size() && firstVisibleRow >= virtualFirstRow
+        && lastVisibleRow < virtualFirstRow + windowSize) {
+      return;
+    }
+
+    // Prefer an even shift so row styles based on the row index stay aligned
+    int firstRow = getVirtualWindowStart(windowSize);
+    if ((firstRow - virtualFirstRow) % 2 != 0) {
+      if (firstRow > 0 && firstRow + windowSize - 2 >= lastVisibleRow) {
+        firstRow--;
+      } else if (firstRow + windowSize < pageRowValues.size()
+          && firstRow < firstVisibleRow) {
+        firstRow++;
+      }
+    }
+    shiftVirtualRows(firstRow, windowSize);
+  }
+
+  /**
+   * Patch the data table with a new set of row values, rendering only the rows
+   * that changed.
+   * 
+   * @param firstRow the absolute index of the first new row
+   * @param newValues the new row values
+   * @return true if the data table was patched, false if the entire page must
+   *         be rendered
+   */
+  private boolean patchRows(int firstRow, List<RowType> newValues) {
+    if (!isRowDiffingEnabled || isVirtualRenderingEnabled
+        || pageRowValues != null || renderedFirstRow != firstRow
+        || rowValues.size() == 0 || newValues.size() == 0
+        || rowValues.size() != getDataTable().getRowCount()
+        || (bulkRenderer != null && bulkRenderer.isRendering())) {
+      return false;
+    }
+
+    // Rows cannot be patched if the columns changed
+    List<ColumnDefinition<RowType, ?>> oldColumns = visibleColumns;
+    refreshVisibleColumnDefinitions();
+    if (visibleColumns != oldColumns) {
+      return false;
+    }
+
+    // Render the entire page if most of the rows changed
+    int changes = diffRows(newValues, false);
+    if (changes * 2 > Math.max(rowValues.size(), newValues.size())) {
+      return false;
+    }
+    diffRows(newValues, true);
+    if (pageLoadTimings != null) {
+      pageLoadTimings.setRenderedRowCount(changes);
+    }
+    return true;
+  }
+
+  /**
+   * Record the time spent rendering rows without the bulk renderer as the
+   * insert time of the page load.
+   * 
+   * @param startTime the time when rendering started
+   */
+  private void recordRenderTime(double startTime) {
+    if (pageLoadTimings != null) {
+      pageLoadTimings.setRenderTimes(0, Duration.currentTimeMillis()
+          - startTime, 0);
+    }
+  }
+
+  /**
+   * Record the render phases of the page load measured by a bulk renderer.
+   * 
+   * @param renderer the renderer that rendered the page
+   */
+  private void recordRenderTimes(TableBulkRenderer<RowType> renderer) {
+    if (pageLoadTimings != null && renderer != null) {
+      pageLoadTimings.setRenderTimes(renderer.getLastBuildTime(),
+          renderer.getLastInsertTime(), renderer.getLastAttachTime());
+      pageLoadTimings.setRenderedRowCount(renderer.getLastRenderedRowCount());
+    }
+  }
+
+  /**
+   * Record the time spent waiting for the table model and the ratio of rows
+   * of the page request that were served from the cache.
+   * 
+   * @param request the page request
+   */
+  private void recordRequestTime(Request request) {
+    if (pageLoadTimings == null) {
+      return;
+    }
+    pageLoadTimings.setRequestTime(Duration.currentTimeMillis()
+        - pageLoadStartTime);
+    if (tableModel instanceof CachedTableModel) {
+      CachedTableModel<RowType> cachedModel = (CachedTableModel<RowType>) tableModel;
+      int requested = cachedModel.getRequestedRowCount(request);
+      int hits = cachedModel.getCachedRowHitCount(request);
+      if (requested > 0 && hits >= 0) {
+        pageLoadTimings.setCacheHitRatio((double) hits / requested);
+      }
+    }
+  }
+
   /**
    * Update the header or footer tables based on the new
    * {@link ColumnDefinition}.
@@ -1437,4 +2823,269 @@ public class PagingScrollTable<RowType> extends AbstractScrollTable implements
     };
     tableDefinition.renderRows(rowIndex, singleIterator, rowView);
   }
+
+  /**
+   * Shift the selected row indexes to account for removed rows. Indexes from a
+   * {@link RowIndexProvider} do not change when rows are removed.
+   * 
+   * @param firstRow the absolute index of the first removed row
+   * @param count the number of removed rows
+   */
+  private void removeSelectedRows(int firstRow, int count) {
+    if (rowIndexProvider == null) {
+      selectedRowIndexes.removeRows(firstRow, count);
+      shiftSelectedRowValues(firstRow, firstRow + count, -count);
+    }
+  }
+
+  /**
+   * Remove a row when virtual rendering is enabled.
+   * 
+   * @param pageRow the index of the row relative to the current page
+   */
+  private void removeVirtualRow(int pageRow) {
+    if (pageRow < 0 || pageRow >= pageRowValues.size()) {
+      return;
+    }
+
+    // Remove the row before or within the rendered rows
+    pageRowValues.remove(pageRow);
+    int row = pageRow - virtualFirstRow;
+    if (row < 0) {
+      virtualFirstRow--;
+    } else if (row < rowValues.size()) {
+      getDataTable().removeRow(row);
+      rowValues.remove(row);
+
+      // Render the next row to fill the gap
+      int nextRow = virtualFirstRow + rowValues.size();
+      if (nextRow < pageRowValues.size()) {
+        rowValues.add(pageRowValues.get(nextRow));
+        getDataTable().resizeRows(rowValues.size());
+        renderRowValues(rowValues.size() - 1, 1);
+      }
+    }
+    updateDataSpacers();
+  }
+
+  /**
+   * Handle a chunk of the rows of the page that is loading. If the page can be
+   * streamed, the visible rows of the chunk are appended to the data table
+   * right away. Otherwise, the rows are kept until the last chunk arrives and
+   * the page is rendered at once.
+   * 
+   * @param startRow the first requested row
+   * @param rows the rows in the chunk
+   * @param lastChunk true if this is the last chunk of the page
+   */
+  private void renderPageChunk(int startRow, Iterator<RowType> rows,
+      boolean lastChunk) {
+    // Start rendering with the first chunk
+    if (streamedRowValues == null) {
+      streamedRowValues = new ArrayList<RowType>();
+      if (canStreamPage(startRow)) {
+        getDataTable().deselectAllRows();
+        rowValues = new ArrayList<RowType>();
+        pageRowValues = null;
+        virtualFirstRow = 0;
+        renderedFirstRow = startRow;
+        setDataSpacerHeights(0, 0);
+        setEmptyTableWidgetVisible(false);
+        refreshVisibleColumnDefinitions();
+        pageChunkRenderer = bulkRenderer.startChunkedRendering(tableRendererCallback);
+      }
+    }
+
+    // Collect the visible rows of the chunk
+    int maxRowCount = getAbsoluteLastRowIndex() - startRow + 1;
+    List<RowType> chunkValues = new ArrayList<RowType>();
+    while (rows != null && rows.hasNext()) {
+      RowType rowValue = rows.next();
+      streamedRowValues.add(rowValue);
+      if (streamedRowValues.size() <= maxRowCount) {
+        chunkValues.add(rowValue);
+      }
+    }
+
+    // Render the whole page if it cannot be streamed
+    TableBulkRenderer<RowType>.ChunkRenderer chunkRenderer = pageChunkRenderer;
+    if (chunkRenderer == null || chunkRenderer.isCancelled()) {
+      if (lastChunk) {
+        List<RowType> pageValues = streamedRowValues;
+        streamedRowValues = null;
+        pageChunkRenderer = null;
+        setData(startRow, pageValues.iterator());
+      }
+      return;
+    }
+
+    // Append the rows of the chunk
+    rowValues.addAll(chunkValues);
+    if (lastChunk) {
+      streamedRowValues = null;
+      pageChunkRenderer = null;
+      if (rowValues.size() == 0) {
+        setData(startRow, null);
+        return;
+      } else if (rowValues.size() < pageSize) {
+        isLastBlockLoaded = true;
+      }
+    }
+    chunkRenderer.renderChunk(chunkValues.iterator(), lastChunk);
+  }
+
+  /**
+   * Render a range of row values into the data table.
+   * 
+   * @param row the first row in the data table
+   * @param count the number of rows to render
+   */
+  private void renderRowValues(int row, int count) {
+    tableDefinition.renderRows(row,
+        rowValues.subList(row, row + count).iterator(), rowView);
+  }
+
+  /**
+   * Request a block of rows for infinite scroll.
+   * 
+   * @param startRow the absolute index of the first row
+   * @param numRows the number of rows
+   */
+  private void requestBlock(int startRow, int numRows) {
+    cancelLastRequest();
+    lastRequest = createRequest(startRow, numRows);
+    tableModel.requestRows(lastRequest, blockCallback);
+  }
+
+  /**
+   * Clear the selected row indexes, then add the indexes of the rows that are
+   * selected in the data table.
+   */
+  private void reselectLoadedRows() {
+    clearSelection();
+    Set<Integer> selectedRows = getDataTable().getSelectedRows();
+    for (Integer selectedRow : selectedRows) {
+      selectRowIndex(selectedRow);
+    }
+  }
+
+  /**
+   * Add a row in the data table to the selected row indexes, and remember its
+   * value if it is loaded.
+   * 
+   * @param row the row index in the data table
+   */
+  private void selectRowIndex(int row) {
+    int index = getSelectionIndex(row);
+    if (index >= 0) {
+      selectedRowIndexes.add(index);
+      RowType rowValue = getRowValue(row);
+      if (rowValue != null) {
+        selectedRowValues.put(index, rowValue);
+      }
+    }
+  }
+
+  /**
+   * Move the selected row values to account for inserted or removed rows. The
+   * values of the rows from firstRow up to firstShiftedRow are removed, and the
+   * values of the rows after them are shifted.
+   * 
+   * @param firstRow the absolute index of the first removed row
+   * @param firstShiftedRow the absolute index of the first shifted row
+   * @param delta the number of rows to shift by
+   */
+  private void shiftSelectedRowValues(int firstRow, int firstShiftedRow,
+      int delta) {
+    Map<Integer, RowType> shifted = new HashMap<Integer, RowType>();
+    for (Map.Entry<Integer, RowType> entry : selectedRowValues.entrySet()) {
+      int index = entry.getKey();
+      if (index < firstRow) {
+        shifted.put(index, entry.getValue());
+      } else if (index >= firstShiftedRow) {
+        shifted.put(index + delta, entry.getValue());
+      }
+    }
+    selectedRowValues = shifted;
+  }
+
+  /**
+   * Render a new range of rows when virtual rendering is enabled. Row elements
+   * that scroll out of view are moved to the other end of the data table and
+   * reused for the rows that scroll into view.
+   * 
+   * @param firstRow the index of the first row relative to the current page
+   * @param windowSize the number of rows to render
+   */
+  private void shiftVirtualRows(int firstRow, int windowSize) {
+    FixedWidthGrid dataTable = getDataTable();
+    dataTable.deselectAllRows(false);
+    int delta = firstRow - virtualFirstRow;
+    virtualFirstRow = firstRow;
+    if (windowSize != rowValues.size() || delta % 2 != 0
+        || Math.abs(delta) >= windowSize) {
+      // Render all of the rows
+      rowValues = new ArrayList<RowType>(pageRowValues.subList(firstRow,
+          firstRow + windowSize));
+      dataTable.resizeRows(windowSize);
+      renderRowValues(0, windowSize);
+    } else if (delta > 0) {
+      // Move rows from the top to the bottom
+      dataTable.rotateRows(delta);
+      rowValues.subList(0, delta).clear();
+      rowValues.addAll(pageRowValues.subList(firstRow + windowSize - delta,
+          firstRow + windowSize));
+      renderRowValues(windowSize - delta, delta);
+    } else if (delta < 0) {
+      // Move rows from the bottom to the top
+      dataTable.rotateRows(delta);
+      rowValues.subList(windowSize + delta, windowSize).clear();
+      rowValues.addAll(0, pageRowValues.subList(firstRow, firstRow - delta));
+      renderRowValues(0, -delta);
+    }
+    updateDataSpacers();
+    applySelectedRowIndexes();
+  }
+
+  /**
+   * Start timing a new page load, replacing the timings of a page load that
+   * has not finished.
+   */
+  private void startPageLoadTimings() {
+    pageLoadTimings = new PageLoadTimings(currentPage);
+    pageLoadStartTime = Duration.currentTimeMillis();
+  }
+
+  /**
+   * Update the spacers that fake the height of the rows that are not rendered.
+   */
+  private void updateDataSpacers() {
+    int bottomRowCount = pageRowValues.size() - virtualFirstRow
+        - rowValues.size();
+    setDataSpacerHeights(virtualFirstRow * virtualRowHeight, bottomRowCount
+        * virtualRowHeight);
+  }
+
+  /**
+   * Tell the bulk renderer which rows are visible so it can create the lazy
+   * widgets near the viewport. The rows are estimated using the virtual row
+   * height if virtual rendering is used, or the measured row height otherwise,
+   * skipping the spacer above the first rendered row.
+   */
+  private void updateVisibleWidgetRows() {
+    if (bulkRenderer == null || !bulkRenderer.isLazyWidgetsEnabled()) {
+      return;
+    }
+    int rowHeight = estimatedRowHeight;
+    int spacerHeight = trimmedRowCount * estimatedRowHeight;
+    if (pageRowValues != null) {
+      rowHeight = virtualRowHeight;
+      spacerHeight = virtualFirstRow * virtualRowHeight;
+    }
+    int scrollTop = getDataWrapper().getScrollTop() - spacerHeight;
+    int clientHeight = getDataWrapper().getClientHeight();
+    int firstRow = Math.max(0, scrollTop) / rowHeight;
+    int lastRow = Math.max(0, scrollTop + clientHeight) / rowHeight;
+    bulkRenderer.setVisibleRows(firstRow, lastRow);
+  }
 }
@@ -0,0 +1,840 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A bounded store of row values indexed by their absolute row index.
+ * </p>
+ * 
+ * <h1>Storage</h1>
+ * <p>
+ * Rows are stored in chunks of at most the chunk size contiguous row indexes.
+ * Each chunk is a plain array that starts at its own first row, and the chunks
+ * are kept in order of their first rows. A row is found with a binary search
+ * over the chunks, so looking up a row never requires boxing the row index.
+ * </p>
+ * 
+ * <h1>Eviction</h1>
+ * <p>
+ * The cache can be limited to a maximum number of rows and/or a maximum number
+ * of bytes, as estimated by a {@link RowSizeEstimator}. When the cache grows
+ * past its limits, the {@link EvictionPolicy} selects entire chunks to discard.
+ * Chunks that overlap the focus range (the rows most recently requested) are
+ * never evicted.
+ * </p>
+ * 
+ * <h1>Shifting</h1>
+ * <p>
+ * When rows are inserted or removed, the rows after them are shifted in place
+ * using {@link #insertRows(int, int)} and {@link #removeRows(int, int)}. Only
+ * the chunk that contains the first shifted row is split in two, and the
+ * following chunks are moved by changing their first rows, so the cost
+ * depends on the number of chunks rather than the number of cached rows. The
+ * focus range is shifted with the rows, so the rows that it covered are still
+ * protected from eviction.
+ * </p>
+ * 
+ * @param <RowType> the data type of the row values
+ */
+public class RowCache<RowType> {
+  /**
+   * A policy that determines which chunk of rows should be evicted when the
+   * cache exceeds its limits.
+   */
+  public static interface EvictionPolicy {
+    /**
+     * Select the chunk that should be evicted from the cache. Implementations
+     * should only return chunks for which
+     * {@link RowCache#isChunkEvictable(int)} returns true.
+     * 
+     * @param cache the cache that needs to free space
+     * @return the index of the chunk to evict, or -1 if none can be evicted
+     */
+    int getChunkToEvict(RowCache<?> cache);
+  }
+
+  /**
+   * An {@link EvictionPolicy} that evicts the least recently used chunk.
+   */
+  public static class LruEvictionPolicy implements EvictionPolicy {
+    public int getChunkToEvict(RowCache<?> cache) {
+      int victim = -1;
+      int oldestStamp = Integer.MAX_VALUE;
+      int chunkCount = cache.getChunkCount();
+      for (int i = 0; i < chunkCount; i++) {
+        if (cache.isChunkEvictable(i)) {
+          int stamp = cache.getChunkAccessStamp(i);
+          if (stamp < oldestStamp) {
+            oldestStamp = stamp;
+            victim = i;
+          }
+        }
+      }
+      return victim;
+    }
+  }
+
+  /**
+   * An estimate of the memory used by a row value.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  public static interface RowSizeEstimator<RowType> {
+    /**
+     * Estimate the number of bytes used by a row value.
+     * 
+     * @param rowValue the row value
+     * @return the estimated size in bytes
+     */
+    int getRowSize(RowType rowValue);
+  }
+
+  /**
+   * An {@link EvictionPolicy} that keeps a window of rows around the focus
+   * range, evicting the chunk that is furthest away from it.
+   */
+  public static class WindowEvictionPolicy implements EvictionPolicy {
+    public int getChunkToEvict(RowCache<?> cache) {
+      int focusRow = cache.getFocusFirstRow();
+      int victim = -1;
+      int maxDistance = -1;
+      int chunkCount = cache.getChunkCount();
+      for (int i = 0; i < chunkCount; i++) {
+        if (cache.isChunkEvictable(i)) {
+          int distance = Math.abs(cache.getChunkFirstRow(i) - focusRow);
+          if (distance > maxDistance) {
+            maxDistance = distance;
+            victim = i;
+          }
+        }
+      }
+      return victim;
+    }
+  }
+
+  /**
+   * A chunk of contiguous rows.
+   */
+  private static class Chunk {
+    /**
+     * The stamp of the last access to this chunk.
+     */
+    private int accessStamp;
+
+    /**
+     * The estimated number of bytes used by the rows in this chunk.
+     */
+    private int byteSize;
+
+    /**
+     * The index of the first row that this chunk can hold.
+     */
+    private int firstRow;
+
+    /**
+     * The number of rows present in this chunk.
+     */
+    private int rowCount;
+
+    /**
+     * The row values, where null indicates a missing row.
+     */
+    private Object[] rows;
+
+    public Chunk(int firstRow, int size) {
+      this.firstRow = firstRow;
+      rows = new Object[size];
+    }
+
+    /**
+     * @return the index after the last row that this chunk can hold
+     */
+    public int getEndRow() {
+      return firstRow + rows.length;
+    }
+  }
+
+  /**
+   * The default number of rows in each chunk.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64;
+
+  /**
+   * Indicates that a limit is not set.
+   */
+  public static final int UNLIMITED = -1;
+
+  /**
+   * A placeholder used to store null row values.
+   */
+  private static final Object NULL_ROW = new Object();
+
+  /**
+   * The estimated number of bytes used by all rows in the cache.
+   */
+  private int byteSize = 0;
+
+  /**
+   * The chunks that contain rows, in order of their first rows.
+   */
+  private List<Chunk> chunks = new ArrayList<Chunk>();
+
+  /**
+   * The number of rows in each chunk.
+   */
+  private int chunkSize;
+
+  /**
+   * The stamp of the most recent access.
+   */
+  private int curAccessStamp = 0;
+
+  /**
+   * The number of chunks evicted from the cache.
+   */
+  private int evictedChunkCount = 0;
+
+  /**
+   * The number of rows evicted from the cache.
+   */
+  private int evictedRowCount = 0;
+
+  /**
+   * The policy used to select chunks to evict.
+   */
+  private EvictionPolicy evictionPolicy = new LruEvictionPolicy();
+
+  /**
+   * The first row of the focus range.
+   */
+  private int focusFirstRow = 0;
+
+  /**
+   * The last row of the focus range.
+   */
+  private int focusLastRow = -1;
+
+  /**
+   * The maximum estimated number of bytes.
+   */
+  private int maxByteSize = UNLIMITED;
+
+  /**
+   * The maximum number of rows.
+   */
+  private int maxRowCount = UNLIMITED;
+
+  /**
+   * The number of rows in the cache.
+   */
+  private int rowCount = 0;
+
+  /**
+   * The estimator used to measure row sizes.
+   */
+  private RowSizeEstimator<RowType> rowSizeEstimator = null;
+
+  /**
+   * Construct a new {@link RowCache} using the default chunk size.
+   */
+  public RowCache() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Construct a new {@link RowCache}.
+   * 
+   * @param chunkSize the number of rows in each chunk
+   */
+  public RowCache(int chunkSize) {
+    assert chunkSize > 0 : "chunkSize must be greater than zero";
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Remove all rows from the cache. Eviction counts are not affected.
+   */
+  public void clear() {
+    chunks = new ArrayList<Chunk>();
+    rowCount = 0;
+    byteSize = 0;
+  }
+
+  /**
+   * Check if a row is in the cache.
+   * 
+   * @param row the row index
+   * @return true if the row is cached
+   */
+  public boolean contains(int row) {
+    Chunk chunk = getChunk(row);
+    return chunk != null && chunk.rows[row - chunk.firstRow] != null;
+  }
+
+  /**
+   * Get a cached row value. Call {@link #contains(int)} to distinguish between
+   * a missing row and a null row value.
+   * 
+   * @param row the row index
+   * @return the row value, or null if not cached
+   */
+  @SuppressWarnings("unchecked")
+  public RowType get(int row) {
+    Chunk chunk = getChunk(row);
+    if (chunk == null) {
+      return null;
+    }
+    chunk.accessStamp = ++curAccessStamp;
+    Object value = chunk.rows[row - chunk.firstRow];
+    return (value == NULL_ROW) ? null : (RowType) value;
+  }
+
+  /**
+   * @return the estimated number of bytes used by the cached rows
+   */
+  public int getByteSize() {
+    return byteSize;
+  }
+
+  /**
+   * Get the access stamp of a chunk. Larger stamps indicate more recent
+   * accesses.
+   * 
+   * @param chunk the chunk index
+   * @return the access stamp
+   */
+  public int getChunkAccessStamp(int chunk) {
+    return chunks.get(chunk).accessStamp;
+  }
+
+  /**
+   * @return the number of chunks that contain rows
+   */
+  public int getChunkCount() {
+    return chunks.size();
+  }
+
+  /**
+   * Get the index of the first row that a chunk can hold. Chunks are ordered
+   * by their first rows.
+   * 
+   * @param chunk the chunk index
+   * @return the first row index
+   */
+  public int getChunkFirstRow(int chunk) {
+    return chunks.get(chunk).firstRow;
+  }
+
+  /**
+   * @return the maximum number of rows in each chunk
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return the number of chunks evicted from the cache
+   */
+  public int getEvictedChunkCount() {
+    return evictedChunkCount;
+  }
+
+  /**
+   * @return the number of rows evicted from the cache
+   */
+  public int getEvictedRowCount() {
+    return evictedRowCount;
+  }
+
+  /**
+   * @return the {@link EvictionPolicy}
+   */
+  public EvictionPolicy getEvictionPolicy() {
+    return evictionPolicy;
+  }
+
+  /**
+   * @return the first row of the focus range
+   */
+  public int getFocusFirstRow() {
+    return focusFirstRow;
+  }
+
+  /**
+   * @return the last row of the focus range
+   */
+  public int getFocusLastRow() {
+    return focusLastRow;
+  }
+
+  /**
+   * @return the maximum estimated number of bytes, or {@link #UNLIMITED}
+   */
+  public int getMaximumByteSize() {
+    return maxByteSize;
+  }
+
+  /**
+   * @return the maximum number of rows, or {@link #UNLIMITED}
+   */
+  public int getMaximumRowCount() {
+    return maxRowCount;
+  }
+
+  /**
+   * @return the number of rows in the cache
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Insert an empty row, shifting the rows at and after the index up by one.
+   * The new row is not cached.
+   * 
+   * @param beforeRow the index of the new row
+   */
+  public void insertRow(int beforeRow) {
+    insertRows(beforeRow, 1);
+  }
+
+  /**
+   * Insert a range of empty rows, shifting the rows at and after the index up
+   * by the number of rows. The focus range is shifted or extended to cover the
+   * same rows.
+   * 
+   * @param beforeRow the index of the first new row
+   * @param count the number of new rows
+   */
+  public void insertRows(int beforeRow, int count) {
+    if (count <= 0) {
+      return;
+    }
+
+    // Move the chunks at and after the new rows
+    int first = splitChunk(beforeRow);
+    int chunkCount = chunks.size();
+    for (int i = first; i < chunkCount; i++) {
+      chunks.get(i).firstRow += count;
+    }
+
+    // Move the focus range
+    if (beforeRow <= focusFirstRow) {
+      focusFirstRow += count;
+      focusLastRow += count;
+    } else if (beforeRow <= focusLastRow) {
+      focusLastRow += count;
+    }
+  }
+
+  /**
+   * Check if a chunk contains rows and can be evicted. A chunk cannot be
+   * evicted if it overlaps the focus range.
+   * 
+   * @param chunk the chunk index
+   * @return true if the chunk can be evicted
+   */
+  public boolean isChunkEvictable(int chunk) {
+    Chunk c = chunks.get(chunk);
+    return c.getEndRow() <= focusFirstRow || c.firstRow > focusLastRow;
+  }
+
+  /**
+   * Add a row value to the cache, evicting other rows if the cache exceeds its
+   * limits.
+   * 
+   * @param row the row index
+   * @param rowValue the row value
+   */
+  public void put(int row, RowType rowValue) {
+    putImpl(row, rowValue);
+    evictIfNeeded();
+  }
+
+  /**
+   * Remove a single row from the cache.
+   * 
+   * @param row the row index
+   */
+  public void remove(int row) {
+    int index = findChunk(row);
+    Chunk chunk = (index < 0) ? null : chunks.get(index);
+    if (chunk == null || row >= chunk.getEndRow()) {
+      return;
+    }
+    int offset = row - chunk.firstRow;
+    if (chunk.rows[offset] != null) {
+      int size = getRowSize(chunk.rows[offset]);
+      chunk.rows[offset] = null;
+      chunk.byteSize -= size;
+      chunk.rowCount--;
+      byteSize -= size;
+      rowCount--;
+      if (chunk.rowCount == 0) {
+        chunks.remove(index);
+      }
+    }
+  }
+
+  /**
+   * Remove a row, shifting the rows after the index down by one.
+   * 
+   * @param row the index of the removed row
+   */
+  public void removeRow(int row) {
+    removeRows(row, 1);
+  }
+
+  /**
+   * Remove a range of rows, shifting the rows after the range down by the
+   * number of rows. The focus range is shifted or shrunk to cover the same
+   * rows.
+   * 
+   * @param firstRow the index of the first removed row
+   * @param count the number of removed rows
+   */
+  public void removeRows(int firstRow, int count) {
+    if (count <= 0) {
+      return;
+    }
+    int endRow = firstRow + count;
+
+    // Discard the chunks that only contain removed rows
+    int first = splitChunk(firstRow);
+    int last = splitChunk(endRow);
+    for (int i = last - 1; i >= first; i--) {
+      Chunk chunk = chunks.remove(i);
+      rowCount -= chunk.rowCount;
+      byteSize -= chunk.byteSize;
+    }
+
+    // Move the chunks after the removed rows
+    int chunkCount = chunks.size();
+    for (int i = first; i < chunkCount; i++) {
+      chunks.get(i).firstRow -= count;
+    }
+    if (first > 0) {
+      mergeChunks(first - 1);
+    }
+
+    // Move the focus range
+    if (focusFirstRow >= endRow) {
+      focusFirstRow -= count;
+    } else if (focusFirstRow > firstRow) {
+      focusFirstRow = firstRow;
+    }
+    if (focusLastRow >= endRow) {
+      focusLastRow -= count;
+    } else if (focusLastRow >= firstRow) {
+      focusLastRow = firstRow - 1;
+    }
+  }
+
+  /**
+   * Reset the eviction counts to zero.
+   */
+  public void resetStatistics() {
+    evictedChunkCount = 0;
+    evictedRowCount = 0;
+  }
+
+  /**
+   * Set the {@link EvictionPolicy} used to select chunks to evict.
+   * 
+   * @param evictionPolicy the eviction policy
+   */
+  public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+    assert evictionPolicy != null : "evictionPolicy cannot be null";
+    this.evictionPolicy = evictionPolicy;
+  }
+
+  /**
+   * Set the focus range, which is usually the range of the most recent request.
+   * Rows in the focus range will not be evicted.
+   * 
+   * @param firstRow the first row in the range
+   * @param lastRow the last row in the range
+   */
+  public void setFocusRange(int firstRow, int lastRow) {
+    this.focusFirstRow = firstRow;
+    this.focusLastRow = lastRow;
+  }
+
+  /**
+   * Set the maximum estimated number of bytes that the cache can hold. A
+   * {@link RowSizeEstimator} must be set for this limit to have any effect.
+   * 
+   * @param maxByteSize the maximum number of bytes, or {@link #UNLIMITED}
+   */
+  public void setMaximumByteSize(int maxByteSize) {
+    this.maxByteSize = maxByteSize;
+    evictIfNeeded();
+  }
+
+  /**
+   * Set the maximum number of rows that the cache can hold.
+   * 
+   * @param maxRowCount the maximum number of rows, or {@link #UNLIMITED}
+   */
+  public void setMaximumRowCount(int maxRowCount) {
+    this.maxRowCount = maxRowCount;
+    evictIfNeeded();
+  }
+
+  /**
+   * Set the {@link RowSizeEstimator} used to estimate the size of rows. The
+   * size of rows already in the cache is not recalculated, so the estimator
+   * should be set before any rows are added.
+   * 
+   * @param rowSizeEstimator the estimator, or null to disable
+   */
+  public void setRowSizeEstimator(RowSizeEstimator<RowType> rowSizeEstimator) {
+    this.rowSizeEstimator = rowSizeEstimator;
+  }
+
+  /**
+   * Evict a chunk of rows.
+   * 
+   * @param chunkIndex the index of the chunk
+   */
+  private void evictChunk(int chunkIndex) {
+    Chunk chunk = chunks.remove(chunkIndex);
+    rowCount -= chunk.rowCount;
+    byteSize -= chunk.byteSize;
+    evictedRowCount += chunk.rowCount;
+    evictedChunkCount++;
+  }
+
+  /**
+   * Get the chunk that can hold a row, creating it if needed. A new chunk is
+   * aligned to the chunk size where possible, and shrunk to fit between the
+   * chunks around it.
+   * 
+   * @param row the row index
+   * @return the chunk
+   */
+  private Chunk ensureChunk(int row) {
+    int index = findChunk(row);
+    if (index >= 0 && row < chunks.get(index).getEndRow()) {
+      return chunks.get(index);
+    }
+
+    // Fit a new chunk between the chunks before and after the row
+    int firstRow = row - row % chunkSize;
+    int endRow = firstRow + chunkSize;
+    if (index >= 0) {
+      firstRow = Math.max(firstRow, chunks.get(index).getEndRow());
+    }
+    if (index + 1 < chunks.size()) {
+      endRow = Math.min(endRow, chunks.get(index + 1).firstRow);
+    }
+    Chunk chunk = new Chunk(firstRow, endRow - firstRow);
+    chunks.add(index + 1, chunk);
+
+    // Merge small chunks left behind by earlier shifts
+    if (mergeChunks(index + 1)) {
+      chunk = chunks.get(index + 1);
+    }
+    if (index >= 0 && mergeChunks(index)) {
+      chunk = chunks.get(index);
+    }
+    return chunk;
+  }
+
+  /**
+   * Evict chunks until the cache is within its limits or nothing else can be
+   * evicted.
+   */
+  private void evictIfNeeded() {
+    while (isOverLimit()) {
+      int victim = evictionPolicy.getChunkToEvict(this);
+      if (victim < 0) {
+        return;
+      }
+      evictChunk(victim);
+    }
+  }
+
+  /**
+   * Find the last chunk that starts at or before a row. The chunk does not
+   * necessarily contain the row.
+   * 
+   * @param row the row index
+   * @return the chunk index, or -1 if every chunk starts after the row
+   */
+  private int findChunk(int row) {
+    int low = 0;
+    int high = chunks.size() - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (chunks.get(mid).firstRow <= row) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Get the chunk that contains a row.
+   * 
+   * @param row the row index
+   * @return the chunk, or null if no chunk can hold the row
+   */
+  private Chunk getChunk(int row) {
+    int index = findChunk(row);
+    if (index < 0) {
+      return null;
+    }
+    Chunk chunk = chunks.get(index);
+    return (row < chunk.getEndRow()) ? chunk : null;
+  }
+
+  /**
+   * Get the estimated size of a stored row.
+   * 
+   * @param value the stored value
+   * @return the estimated size in bytes
+   */
+  @SuppressWarnings("unchecked")
+  private int getRowSize(Object value) {
+    if (rowSizeEstimator == null || value == NULL_ROW) {
+      return 0;
+    }
+    return rowSizeEstimator.getRowSize((RowType) value);
+  }
+
+  /**
+   * @return true if the cache exceeds its limits
+   */
+  private boolean isOverLimit() {
+    if (maxRowCount != UNLIMITED && rowCount > maxRowCount) {
+      return true;
+    }
+    return maxByteSize != UNLIMITED && byteSize > maxByteSize;
+  }
+
+  /**
+   * Add a row value to the cache without enforcing the limits.
+   * 
+   * @param row the row index
+   * @param rowValue the row value
+   */
+  private void putImpl(int row, RowType rowValue) {
+    assert row >= 0 : "row cannot be negative";
+    Chunk chunk = ensureChunk(row);
+    chunk.accessStamp = ++curAccessStamp;
+
+    // Replace the old value
+    int offset = row - chunk.firstRow;
+    Object oldValue = chunk.rows[offset];
+    Object newValue = (rowValue == null) ? NULL_ROW : rowValue;
+    int sizeDelta = getRowSize(newValue);
+    if (oldValue == null) {
+      chunk.rowCount++;
+      rowCount++;
+    } else {
+      sizeDelta -= getRowSize(oldValue);
+    }
+    chunk.rows[offset] = newValue;
+    chunk.byteSize += sizeDelta;
+    byteSize += sizeDelta;
+  }
+
+  /**
+   * Merge a chunk with the chunk after it if they hold contiguous rows and fit
+   * in a single chunk.
+   * 
+   * @param index the index of the first chunk
+   * @return true if the chunks were merged
+   */
+  private boolean mergeChunks(int index) {
+    if (index + 1 >= chunks.size()) {
+      return false;
+    }
+    Chunk chunk = chunks.get(index);
+    Chunk next = chunks.get(index + 1);
+    int size = chunk.rows.length;
+    if (chunk.getEndRow() != next.firstRow
+        || size + next.rows.length > chunkSize) {
+      return false;
+    }
+    Object[] rows = new Object[size + next.rows.length];
+    System.arraycopy(chunk.rows, 0, rows, 0, size);
+    System.arraycopy(next.rows, 0, rows, size, next.rows.length);
+    chunk.rows = rows;
+    chunk.rowCount += next.rowCount;
+    chunk.byteSize += next.byteSize;
+    chunk.accessStamp = Math.max(chunk.accessStamp, next.accessStamp);
+    chunks.remove(index + 1);
+    return true;
+  }
+
+  /**
+   * Split the chunk that contains a row so the row is the first row of a chunk.
+   * Halves of the chunk that do not contain any rows are discarded.
+   * 
+   * @param row the row index
+   * @return the index of the first chunk that starts at or after the row
+   */
+  private int splitChunk(int row) {
+    int index = findChunk(row);
+    if (index < 0) {
+      return 0;
+    }
+    Chunk chunk = chunks.get(index);
+    if (chunk.firstRow == row) {
+      return index;
+    } else if (row >= chunk.getEndRow()) {
+      return index + 1;
+    }
+
+    // Move the rows at and after the row into a new chunk
+    int headSize = row - chunk.firstRow;
+    Chunk tail = new Chunk(row, chunk.rows.length - headSize);
+    Object[] headRows = new Object[headSize];
+    System.arraycopy(chunk.rows, 0, headRows, 0, headSize);
+    System.arraycopy(chunk.rows, headSize, tail.rows, 0, tail.rows.length);
+    chunk.rows = headRows;
+    tail.accessStamp = chunk.accessStamp;
+    for (Object value : tail.rows) {
+      if (value != null) {
+        int size = getRowSize(value);
+        chunk.rowCount--;
+        chunk.byteSize -= size;
+        tail.rowCount++;
+        tail.byteSize += size;
+      }
+    }
+
+    // Keep the halves that contain rows
+    if (chunk.rowCount == 0) {
+      chunks.remove(index);
+      index--;
+    }
+    if (tail.rowCount > 0) {
+      chunks.add(index + 1, tail);
+    }
+    return index + 1;
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Caches the order of the rows in an in-memory {@link TableModel} for each
+ * {@link ColumnSortList} and {@link RowFilter}. The order is an index that maps
+ * the position of a row in the sorted, filtered table to its position in the
+ * underlying data, so the underlying data is never reordered. After the order
+ * is calculated, a request for a page of sorted rows only costs the size of the
+ * page.
+ * </p>
+ * <p>
+ * Filters are compiled into a {@link CompiledRowFilter} once per order, and
+ * only the rows that match the filter are sorted.
+ * </p>
+ * <p>
+ * Cell values are compared using their natural order if they are
+ * {@link Comparable} and of the same class, and by their string values
+ * otherwise. Null values are sorted before all other values. The sort is
+ * stable, so rows with equal values keep their order in the underlying data.
+ * </p>
+ */
+abstract class RowOrderCache {
+  /**
+   * The order of the rows for a single {@link ColumnSortList} and
+   * {@link RowFilter}.
+   */
+  private static class RowOrder {
+    /**
+     * The filter that the order was calculated for.
+     */
+    private RowFilter filter;
+
+    /**
+     * The row indexes in sorted order.
+     */
+    private int[] order;
+
+    /**
+     * A copy of the sort list that the order was calculated for.
+     */
+    private ColumnSortList sortList;
+
+    /**
+     * Construct a new {@link RowOrder}.
+     * 
+     * @param sortList the sort list
+     * @param filter the filter
+     * @param order the row indexes in sorted order
+     */
+    public RowOrder(ColumnSortList sortList, RowFilter filter, int[] order) {
+      this.sortList = sortList;
+      this.filter = filter;
+      this.order = order;
+    }
+
+    /**
+     * Check if this order was calculated for a sort list and filter.
+     * 
+     * @param sortList the sort list
+     * @param filter the filter
+     * @return true if the order matches
+     */
+    public boolean matches(ColumnSortList sortList, RowFilter filter) {
+      if (this.sortList.size() != sortList.size()
+          || (this.sortList.size() > 0 && !this.sortList.equals(sortList))) {
+        return false;
+      }
+      return (this.filter == null) ? filter == null
+          : this.filter.equals(filter);
+    }
+  }
+
+  /**
+   * The default maximum number of orders to cache.
+   */
+  public static final int DEFAULT_MAX_CACHED_ORDER_COUNT = 4;
+
+  /**
+   * Compare two cell values.
+   * 
+   * @param value1 the first value
+   * @param value2 the second value
+   * @return the result of the comparison
+   */
+  @SuppressWarnings("unchecked")
+  static int compareCellValues(Object value1, Object value2) {
+    if (value1 == value2) {
+      return 0;
+    } else if (value1 == null) {
+      return -1;
+    } else if (value2 == null) {
+      return 1;
+    } else if (value1 instanceof Comparable
+        && value1.getClass() == value2.getClass()) {
+      return ((Comparable<Object>) value1).compareTo(value2);
+    }
+    return value1.toString().compareTo(value2.toString());
+  }
+
+  /**
+   * The maximum number of orders to cache.
+   */
+  private int maxOrderCount = DEFAULT_MAX_CACHED_ORDER_COUNT;
+
+  /**
+   * The cached orders, in order of most recent use.
+   */
+  private List<RowOrder> orders = new ArrayList<RowOrder>();
+
+  /**
+   * Discard all cached orders. Call this method whenever the underlying data
+   * changes.
+   */
+  public void clear() {
+    orders.clear();
+  }
+
+  /**
+   * @return the number of orders that are currently cached
+   */
+  public int getCachedOrderCount() {
+    return orders.size();
+  }
+
+  /**
+   * @return the maximum number of orders to cache
+   */
+  public int getMaximumCachedOrderCount() {
+    return maxOrderCount;
+  }
+
+  /**
+   * Get the order of the rows for a {@link ColumnSortList}, calculating it if
+   * it is not cached.
+   * 
+   * @param sortList the sort list
+   * @return the row indexes in sorted order, or null if the rows are not
+   *         sorted
+   */
+  public int[] getRowOrder(ColumnSortList sortList) {
+    return getRowOrder(sortList, null);
+  }
+
+  /**
+   * Get the order of the rows that match a {@link RowFilter} for a
+   * {@link ColumnSortList}, calculating it if it is not cached.
+   * 
+   * @param sortList the sort list, or null if the rows are not sorted
+   * @param filter the filter, or null for all rows
+   * @return the indexes of the matching rows in sorted order, or null if the
+   *         rows are neither sorted nor filtered
+   */
+  public int[] getRowOrder(ColumnSortList sortList, RowFilter filter) {
+    if (sortList == null) {
+      sortList = new ColumnSortList();
+    }
+    if (sortList.size() == 0 && filter == null) {
+      return null;
+    }
+
+    // Check the cache
+    for (int i = 0; i < orders.size(); i++) {
+      RowOrder rowOrder = orders.get(i);
+      if (rowOrder.matches(sortList, filter)) {
+        if (i > 0) {
+          orders.remove(i);
+          orders.add(0, rowOrder);
+        }
+        return rowOrder.order;
+      }
+    }
+
+    // Find the rows that match the filter
+    prepareCellValues();
+    int[] rows = getMatchingRows(filter);
+    int rowCount = rows.length;
+
+    // Extract the sort keys of every matching row into a flat array
+    final int keyCount = sortList.size();
+    final boolean[] ascending = new boolean[keyCount];
+    final Object[] keys = new Object[rowCount * keyCount];
+    int key = 0;
+    for (ColumnSortInfo sortInfo : sortList) {
+      ascending[key] = sortInfo.isAscending();
+      int column = sortInfo.getColumn();
+      for (int i = 0; i < rowCount; i++) {
+        keys[i * keyCount + key] = getCellValue(rows[i], column);
+      }
+      key++;
+    }
+
+    // Sort the positions of the matching rows, which is stable for objects
+    Integer[] sorted = new Integer[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      sorted[i] = new Integer(i);
+    }
+    Arrays.sort(sorted, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        int offset1 = o1.intValue() * keyCount;
+        int offset2 = o2.intValue() * keyCount;
+        for (int i = 0; i < keyCount; i++) {
+          int diff = compareCellValues(keys[offset1 + i], keys[offset2 + i]);
+          if (diff != 0) {
+            return ascending[i] ? diff : -diff;
+          }
+        }
+        return 0;
+      }
+    });
+    int[] order = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      order[i] = rows[sorted[i].intValue()];
+    }
+
+    // Cache the order
+    orders.add(0, new RowOrder(sortList.copy(), filter, order));
+    trimOrders();
+    return order;
+  }
+
+  /**
+   * Set the maximum number of orders to cache.
+   * 
+   * @param maxCount the maximum number of orders
+   */
+  public void setMaximumCachedOrderCount(int maxCount) {
+    this.maxOrderCount = Math.max(0, maxCount);
+    trimOrders();
+  }
+
+  /**
+   * Get the value of a cell in the underlying data.
+   * 
+   * @param row the row index
+   * @param column the column index
+   * @return the cell value
+   */
+  protected abstract Object getCellValue(int row, int column);
+
+  /**
+   * @return the number of rows in the underlying data
+   */
+  protected abstract int getRowCount();
+
+  /**
+   * Called once before the cell values are read to calculate a new order, so
+   * anything needed to read the cell values can be looked up once per order
+   * instead of once per cell. The default implementation does nothing.
+   */
+  protected void prepareCellValues() {
+  }
+
+  /**
+   * Get the indexes of the rows that match a filter.
+   * 
+   * @param filter the filter, or null for all rows
+   * @return the indexes of the matching rows
+   */
+  private int[] getMatchingRows(RowFilter filter) {
+    int rowCount = getRowCount();
+    int[] rows = new int[rowCount];
+    if (filter == null) {
+      for (int row = 0; row < rowCount; row++) {
+        rows[row] = row;
+      }
+      return rows;
+    }
+
+    // Evaluate the compiled filter against every row
+    CompiledRowFilter compiled = CompiledRowFilter.compile(filter);
+    CompiledRowFilter.CellSource cells = new CompiledRowFilter.CellSource() {
+      public Object getCellValue(int row, int column) {
+        return RowOrderCache.this.getCellValue(row, column);
+      }
+    };
+    int matchCount = 0;
+    for (int row = 0; row < rowCount; row++) {
+      if (compiled.matches(cells, row)) {
+        rows[matchCount++] = row;
+      }
+    }
+    int[] matches = new int[matchCount];
+    System.arraycopy(rows, 0, matches, 0, matchCount);
+    return matches;
+  }
+
+  /**
+   * Discard the least recently used orders until the cache fits its limit.
+   */
+  private void trimOrders() {
+    while (orders.size() > maxOrderCount) {
+      orders.remove(orders.size() - 1);
+    }
+  }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * <p>
+ * A compact set of row indexes stored as sorted, disjoint ranges. Selecting a
+ * block of contiguous rows costs the same as selecting a single row, so large
+ * selections do not require a boxed entry per row.
+ * </p>
+ * <p>
+ * The set can be inverted, in which case it contains every row except the rows
+ * in its ranges. Use {@link #addAll()} to select every row of a table without
+ * knowing how many rows it has.
+ * </p>
+ * <p>
+ * The ranges can be iterated using {@link #getRangeCount()},
+ * {@link #getRangeStart(int)}, and {@link #getRangeEnd(int)}, and the set can
+ * be sent to the server as part of an RPC call, so selections can be processed
+ * without loading the rows on the client.
+ * </p>
+ */
+public class RowRangeSet implements IsSerializable {
+  /**
+   * The bounds of the ranges, stored as pairs of the first row (inclusive) and
+   * the last row (exclusive).
+   */
+  private int[] bounds = new int[8];
+
+  /**
+   * True if the set contains all rows except the ranges.
+   */
+  private boolean inverted = false;
+
+  /**
+   * The number of ranges in the bounds array.
+   */
+  private int rangeCount = 0;
+
+  /**
+   * Add a row to the set.
+   * 
+   * @param row the row index
+   */
+  public void add(int row) {
+    addRange(row, row);
+  }
+
+  /**
+   * Add all rows to the set.
+   */
+  public void addAll() {
+    rangeCount = 0;
+    inverted = true;
+  }
+
+  /**
+   * Add a range of rows to the set.
+   * 
+   * @param firstRow the first row to add
+   * @param lastRow the last row to add (inclusive)
+   */
+  public void addRange(int firstRow, int lastRow) {
+    if (inverted) {
+      removeRaw(firstRow, lastRow + 1);
+    } else {
+      addRaw(firstRow, lastRow + 1);
+    }
+  }
+
+  /**
+   * Remove all rows from the set.
+   */
+  public void clear() {
+    rangeCount = 0;
+    inverted = false;
+  }
+
+  /**
+   * Check if the set contains a row.
+   * 
+   * @param row the row index
+   * @return true if the row is in the set
+   */
+  public boolean contains(int row) {
+    int index = findRange(row);
+    boolean inRange = index < rangeCount && bounds[2 * index] <= row;
+    return inRange != inverted;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof RowRangeSet)) {
+      return false;
+    }
+    RowRangeSet other = (RowRangeSet) o;
+    if (inverted != other.inverted || rangeCount != other.rangeCount) {
+      return false;
+    }
+    for (int i = 0; i < 2 * rangeCount; i++) {
+      if (bounds[i] != other.bounds[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of ranges in the set
+   */
+  public int getRangeCount() {
+    return rangeCount;
+  }
+
+  /**
+   * Get the last row in a range. If the set is inverted, the range contains
+   * rows that are excluded from the set.
+   * 
+   * @param index the index of the range
+   * @return the last row in the range (inclusive)
+   */
+  public int getRangeEnd(int index) {
+    checkRangeIndex(index);
+    return bounds[2 * index + 1] - 1;
+  }
+
+  /**
+   * Get the first row in a range. If the set is inverted, the range contains
+   * rows that are excluded from the set.
+   * 
+   * @param index the index of the range
+   * @return the first row in the range
+   */
+  public int getRangeStart(int index) {
+    checkRangeIndex(index);
+    return bounds[2 * index];
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = inverted ? 1 : 0;
+    for (int i = 0; i < 2 * rangeCount; i++) {
+      hash = 31 * hash + bounds[i];
+    }
+    return hash;
+  }
+
+  /**
+   * Shift the rows in the set to account for rows that were inserted. The new
+   * rows are not in the set unless the set is inverted.
+   * 
+   * @param beforeRow the index of the first inserted row
+   * @param count the number of inserted rows
+   */
+  public void insertRows(int beforeRow, int count) {
+    if (count <= 0) {
+      return;
+    }
+
+    // Split the range that contains the inserted rows
+    int index = findRange(beforeRow);
+    if (index < rangeCount && bounds[2 * index] < beforeRow) {
+      int end = bounds[2 * index + 1];
+      splice(index + 1, 0, 1);
+      bounds[2 * index + 1] = beforeRow;
+      bounds[2 * index + 2] = beforeRow;
+      bounds[2 * index + 3] = end;
+      index++;
+    }
+    shiftRanges(index, count);
+  }
+
+  /**
+   * @return true if the set does not contain any rows
+   */
+  public boolean isEmpty() {
+    return !inverted && rangeCount == 0;
+  }
+
+  /**
+   * @return true if the set is inverted, meaning that it contains all rows
+   *         except the rows in its ranges
+   */
+  public boolean isInverted() {
+    return inverted;
+  }
+
+  /**
+   * Remove a row from the set.
+   * 
+   * @param row the row index
+   */
+  public void remove(int row) {
+    removeRange(row, row);
+  }
+
+  /**
+   * Remove a range of rows from the set.
+   * 
+   * @param firstRow the first row to remove
+   * @param lastRow the last row to remove (inclusive)
+   */
+  public void removeRange(int firstRow, int lastRow) {
+    if (inverted) {
+      addRaw(firstRow, lastRow + 1);
+    } else {
+      removeRaw(firstRow, lastRow + 1);
+    }
+  }
+
+  /**
+   * Shift the rows in the set to account for rows that were removed.
+   * 
+   * @param row the index of the first removed row
+   * @param count the number of removed rows
+   */
+  public void removeRows(int row, int count) {
+    if (count <= 0) {
+      return;
+    }
+    removeRaw(row, row + count);
+    int index = findRange(row);
+    shiftRanges(index, -count);
+
+    // Merge the ranges on either side of the removed rows
+    if (index > 0 && index < rangeCount
+        && bounds[2 * index - 1] == bounds[2 * index]) {
+      bounds[2 * index - 1] = bounds[2 * index + 1];
+      splice(index, 1, 0);
+    }
+  }
+
+  /**
+   * Count the rows in the set that are less than the specified row count.
+   * 
+   * @param rowCount the total number of rows
+   * @return the number of rows in the set
+   */
+  public int size(int rowCount) {
+    int size = 0;
+    for (int i = 0; i < rangeCount && bounds[2 * i] < rowCount; i++) {
+      size += Math.min(bounds[2 * i + 1], rowCount) - bounds[2 * i];
+    }
+    return inverted ? rowCount - size : size;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer(inverted ? "all except [" : "[");
+    for (int i = 0; i < rangeCount; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(getRangeStart(i));
+      if (getRangeEnd(i) != getRangeStart(i)) {
+        sb.append("-").append(getRangeEnd(i));
+      }
+    }
+    return sb.append("]").toString();
+  }
+
+  /**
+   * Add a range to the ranges, merging it with overlapping or adjacent ranges.
+   * 
+   * @param start the first row (inclusive)
+   * @param end the last row (exclusive)
+   */
+  private void addRaw(int start, int end) {
+    if (start >= end) {
+      return;
+    }
+    int first = findRange(start - 1);
+    int last = first;
+    while (last < rangeCount && bounds[2 * last] <= end) {
+      last++;
+    }
+    if (last > first) {
+      start = Math.min(start, bounds[2 * first]);
+      end = Math.max(end, bounds[2 * last - 1]);
+    }
+    splice(first, last - first, 1);
+    bounds[2 * first] = start;
+    bounds[2 * first + 1] = end;
+  }
+
+  /**
+   * Verify that a range index is valid.
+   * 
+   * @param index the range index
+   * @throws IndexOutOfBoundsException
+   */
+  private void checkRangeIndex(int index) {
+    if (index < 0 || index >= rangeCount) {
+      throw new IndexOutOfBoundsException("Range index: " + index
+          + ", Range count: " + rangeCount);
+    }
+  }
+
+  /**
+   * Find the first range that ends after the specified row.
+   * 
+   * @param row the row index
+   * @return the index of the range, or the range count if there is none
+   */
+  private int findRange(int row) {
+    int low = 0;
+    int high = rangeCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (bounds[2 * mid + 1] <= row) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Remove a range from the ranges, splitting ranges that contain it.
+   * 
+   * @param start the first row (inclusive)
+   * @param end the last row (exclusive)
+   */
+  private void removeRaw(int start, int end) {
+    if (start >= end) {
+      return;
+    }
+    int first = findRange(start);
+    int last = first;
+    while (last < rangeCount && bounds[2 * last] < end) {
+      last++;
+    }
+    if (last == first) {
+      return;
+    }
+
+    // Keep the parts of the first and last ranges outside of the removed rows
+    int leftStart = bounds[2 * first];
+    int rightEnd = bounds[2 * last - 1];
+    int keep = 0;
+    if (leftStart < start) {
+      keep++;
+    }
+    if (rightEnd > end) {
+      keep++;
+    }
+    splice(first, last - first, keep);
+    int index = first;
+    if (leftStart < start) {
+      bounds[2 * index] = leftStart;
+      bounds[2 * index + 1] = start;
+      index++;
+    }
+    if (rightEnd > end) {
+      bounds[2 * index] = end;
+      bounds[2 * index + 1] = rightEnd;
+    }
+  }
+
+  /**
+   * Shift all ranges starting at the specified index.
+   * 
+   * @param index the index of the first range to shift
+   * @param delta the number of rows to shift by
+   */
+  private void shiftRanges(int index, int delta) {
+    for (int i = 2 * index; i < 2 * rangeCount; i++) {
+      bounds[i] += delta;
+    }
+  }
+
+  /**
+   * Replace ranges in the bounds array, growing the array if needed. The
+   * values of the inserted ranges are undefined.
+   * 
+   * @param index the index of the first range to replace
+   * @param removeCount the number of ranges to remove
+   * @param insertCount the number of ranges to insert
+   */
+  private void splice(int index, int removeCount, int insertCount) {
+    int newCount = rangeCount - removeCount + insertCount;
+    if (2 * newCount > bounds.length) {
+      int[] newBounds = new int[Math.max(2 * bounds.length, 2 * newCount)];
+      System.arraycopy(bounds, 0, newBounds, 0, 2 * rangeCount);
+      bounds = newBounds;
+    }
+    int tail = rangeCount - index - removeCount;
+    if (tail > 0 && removeCount != insertCount) {
+      System.arraycopy(bounds, 2 * (index + removeCount), bounds,
+          2 * (index + insertCount), 2 * tail);
+    }
+    rangeCount = newCount;
+  }
+}
@@ -158,9 +158,9 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
   private int lastSelectedRowIndex = -1;
 
   /**
-   * The rows that are currently selected.
+   * The indexes of the rows that are currently selected.
    */
-  private Map<Integer, Element> selectedRows = new HashMap<Integer, Element>();
+  private RowRangeSet selectedRows = new RowRangeSet();
 
   /**
    * A boolean indicating if selection is enabled disabled.
@@ -240,10 +240,29 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
   }
 
   /**
-   * @return the set of selected row indexes
+   * Get the indexes of the selected rows as a {@link RowRangeSet}, which does
+   * not require an entry per row. The returned set is used internally and
+   * should not be modified.
+   * 
+   * @return the selected row indexes
+   */
+  public RowRangeSet getSelectedRowRanges() {
+    return selectedRows;
+  }
+
+  /**
+   * @return a copy of the set of selected row indexes
    */
   public Set<Integer> getSelectedRows() {
-    return selectedRows.keySet();
+    Set<Integer> rowSet = new TreeSet<Integer>();
+    int rangeCount = selectedRows.getRangeCount();
+    for (int i = 0; i < rangeCount; i++) {
+      int lastRow = selectedRows.getRangeEnd(i);
+      for (int row = selectedRows.getRangeStart(i); row <= lastRow; row++) {
+        rowSet.add(new Integer(row));
+      }
+    }
+    return rowSet;
   }
 
   /**
@@ -286,7 +305,7 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
    * @return true if the row is selected, false if not
    */
   public boolean isRowSelected(int row) {
-    return selectedRows.containsKey(new Integer(row));
+    return selectedRows.contains(row);
   }
 
   /**
@@ -413,7 +432,7 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
     RowFormatter rowFormatter = getRowFormatter();
     int rowCount = getRowCount();
     for (int i = 0; i < rowCount; i++) {
-      if (!selectedRows.containsKey(i)) {
+      if (!selectedRows.contains(i)) {
         selectRow(i, rowFormatter.getElement(i), false, false);
       }
     }
@@ -455,7 +474,7 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
       deselectAllRows(false);
     }
 
-    boolean isSelected = selectedRows.containsKey(new Integer(row));
+    boolean isSelected = selectedRows.contains(row);
     if (shiftKey && (lastSelectedRowIndex > -1)) {
       // Shift+select rows
       SelectionGridRowFormatter formatter = getSelectionGridRowFormatter();
@@ -578,13 +597,8 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
     }
 
     // Deselect all rows
-    boolean hasInputColumn = selectionPolicy.hasInputColumn();
-    for (Element rowElem : selectedRows.values()) {
-      setStyleName(rowElem, "selected", false);
-      if (hasInputColumn) {
-        setInputSelected(getSelectionPolicy(),
-            (Element) rowElem.getFirstChildElement(), false);
-      }
+    for (Element rowElem : getSelectedRowElements()) {
+      setRowSelectedStyle(rowElem, false);
     }
 
     // Clear out the rows
@@ -604,8 +618,8 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
    * @param fireEvent true to fire events
    */
   protected void deselectRow(int row, boolean fireEvent) {
-    Element rowElem = selectedRows.remove(new Integer(row));
-    if (rowElem != null) {
+    if (selectedRows.contains(row)) {
+      selectedRows.remove(row);
       // Get the old list of selected rows
       Set<Row> oldRows = null;
       if (fireEvent) {
@@ -613,10 +627,9 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
       }
 
       // Deselect the row
-      setStyleName(rowElem, "selected", false);
-      if (selectionPolicy.hasInputColumn()) {
-        setInputSelected(getSelectionPolicy(),
-            (Element) rowElem.getFirstChildElement(), false);
+      if (row < getRowCount()) {
+        setRowSelectedStyle(getSelectionGridRowFormatter().getRawElement(row),
+            false);
       }
 
       // Fire Event
@@ -672,11 +685,39 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
     return inputHtml;
   }
 
+  /**
+   * @return the elements of the selected rows, in row order
+   */
+  protected Element[] getSelectedRowElements() {
+    int rowCount = getRowCount();
+    Element[] rowElems = new Element[selectedRows.size(rowCount)];
+    SelectionGridRowFormatter formatter = getSelectionGridRowFormatter();
+    int rangeCount = selectedRows.getRangeCount();
+    int index = 0;
+    for (int i = 0; i < rangeCount; i++) {
+      int lastRow = Math.min(selectedRows.getRangeEnd(i), rowCount - 1);
+      for (int row = selectedRows.getRangeStart(i); row <= lastRow; row++) {
+        rowElems[index++] = formatter.getRawElement(row);
+      }
+    }
+    return rowElems;
+  }
+
   /**
    * @return a map or selected row indexes to their elements
+   * @deprecated use {@link #getSelectedRowRanges()} instead; the returned map
+   *             is a copy, so changes to it do not affect the selection
    */
+  @Deprecated
   protected Map<Integer, Element> getSelectedRowsMap() {
-    return selectedRows;
+    Map<Integer, Element> rowMap = new HashMap<Integer, Element>();
+    SelectionGridRowFormatter formatter = getSelectionGridRowFormatter();
+    for (Integer row : getSelectedRows()) {
+      if (row.intValue() < getRowCount()) {
+        rowMap.put(row, formatter.getRawElement(row.intValue()));
+      }
+    }
+    return rowMap;
   }
 
   /**
@@ -684,8 +725,12 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
    */
   protected Set<Row> getSelectedRowsSet() {
     Set<Row> rowSet = new TreeSet<Row>();
-    for (Integer rowIndex : selectedRows.keySet()) {
-      rowSet.add(new Row(rowIndex.intValue()));
+    int rangeCount = selectedRows.getRangeCount();
+    for (int i = 0; i < rangeCount; i++) {
+      int lastRow = selectedRows.getRangeEnd(i);
+      for (int row = selectedRows.getRangeStart(i); row <= lastRow; row++) {
+        rowSet.add(new Row(row));
+      }
     }
     return rowSet;
   }
@@ -760,8 +805,7 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
     }
 
     // Ignore request if row already selected
-    Integer rowI = new Integer(row);
-    if (selectedRows.containsKey(rowI)) {
+    if (selectedRows.contains(row)) {
       return;
     }
 
@@ -777,12 +821,8 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
     }
 
     // Select the new row
-    selectedRows.put(rowI, rowElem);
-    setStyleName(rowElem, "selected", true);
-    if (selectionPolicy.hasInputColumn()) {
-      setInputSelected(getSelectionPolicy(),
-          (Element) rowElem.getFirstChildElement(), true);
-    }
+    selectedRows.add(row);
+    setRowSelectedStyle(rowElem, true);
 
     // Fire grid listeners
     if (fireEvent) {
@@ -823,4 +863,18 @@ public class SelectionGrid extends Grid implements HasRowHighlightHandlers,
       boolean selected) {
     ((InputElement) td.getFirstChild()).setChecked(selected);
   }
+
+  /**
+   * Update the style and input element of a row to reflect its selection.
+   * 
+   * @param rowElem the row element
+   * @param selected true if the row is selected
+   */
+  private void setRowSelectedStyle(Element rowElem, boolean selected) {
+    setStyleName(rowElem, "selected", selected);
+    if (selectionPolicy.hasInputColumn()) {
+      setInputSelected(getSelectionPolicy(),
+          (Element) rowElem.getFirstChildElement(), selected);
+    }
+  }
 }
@@ -46,20 +46,15 @@ public class SelectionGridBulkRenderer<RowType> extends
     }
 
     @Override
-    protected void renderRowValue(RowType rowValue, ColumnDefinition columnDef) {
+    protected String getLeadingCellsHtml() {
       // Add the input column
-      if (getCellIndex() == 0) {
-        SelectionPolicy selectionPolicy = ((SelectionGrid) bulkRenderer.getTable()).getSelectionPolicy();
-        if (selectionPolicy.hasInputColumn()) {
-          getStringBuffer().append("<td align='CENTER'>");
-          getStringBuffer().append(
-              ((SelectionGrid) bulkRenderer.getTable()).getInputHtml(selectionPolicy));
-          getStringBuffer().append("</td>");
-        }
+      SelectionPolicy selectionPolicy = ((SelectionGrid) bulkRenderer.getTable()).getSelectionPolicy();
+      if (selectionPolicy.hasInputColumn()) {
+        return "<td align='CENTER'>"
+            + ((SelectionGrid) bulkRenderer.getTable()).getInputHtml(selectionPolicy)
+            + "</td>";
       }
-
-      // Render the actual cell
-      super.renderRowValue(rowValue, columnDef);
+      return null;
     }
   }
 
@@ -26,8 +26,9 @@ import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Element;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -53,51 +54,199 @@ public class SortableGrid extends SelectionGrid implements
   }
 
   /**
+   * <p>
    * The default {@link ColumnSorter} used if no other {@link ColumnSorter} is
-   * specified. This column sorted uses a quicksort algorithm to sort columns.
+   * specified.
+   * </p>
+   * <p>
+   * The sorter reads the text of each sorted cell once, converts it into a sort
+   * key using the {@link SortKeyType} of the column, and then sorts the rows by
+   * comparing the keys. The sort is stable and honors every column in the
+   * {@link ColumnSortList}, so rows with equal values in the primary column
+   * are ordered by the secondary column, and so on.
+   * </p>
    */
-  private static class DefaultColumnSorter extends ColumnSorter {
+  public static class DefaultColumnSorter extends ColumnSorter {
+    /**
+     * The {@link SortKeyType} of each column.
+     */
+    private Map<Integer, SortKeyType> sortKeyTypes = new HashMap<Integer, SortKeyType>();
+
+    /**
+     * Get the {@link SortKeyType} used to sort a column.
+     * 
+     * @param column the column index
+     * @return the sort key type, which defaults to {@link SortKeyType#STRING}
+     */
+    public SortKeyType getSortKeyType(int column) {
+      SortKeyType type = sortKeyTypes.get(new Integer(column));
+      return (type == null) ? SortKeyType.STRING : type;
+    }
+
     @Override
     public void onSortColumn(SortableGrid grid, ColumnSortList sortList,
         SortableGrid.ColumnSorterCallback callback) {
-      // Get the primary column and sort order
-      int column = sortList.getPrimaryColumn();
-      boolean ascending = sortList.isPrimaryAscending();
+      // Get the sorted columns that exist in the grid
+      int columnCount = grid.getColumnCount();
+      List<ColumnSortInfo> sortInfos = new ArrayList<ColumnSortInfo>();
+      for (ColumnSortInfo sortInfo : sortList) {
+        int column = sortInfo.getColumn();
+        if (column >= 0 && column < columnCount) {
+          sortInfos.add(sortInfo);
+        }
+      }
+      final int keyCount = sortInfos.size();
+      final boolean[] ascending = new boolean[keyCount];
+      for (int i = 0; i < keyCount; i++) {
+        ascending[i] = sortInfos.get(i).isAscending();
+      }
 
-      // Get all of the cell elements
+      // Extract the sort keys of every row into a flat array
       SelectionGridCellFormatter formatter = grid.getSelectionGridCellFormatter();
       int rowCount = grid.getRowCount();
-      List<Element> tdElems = new ArrayList<Element>(rowCount);
-      for (int i = 0; i < rowCount; i++) {
-        tdElems.add(formatter.getRawElement(i, column));
+      final Object[] keys = new Object[rowCount * keyCount];
+      for (int i = 0; i < keyCount; i++) {
+        int column = sortInfos.get(i).getColumn();
+        SortKeyType type = getSortKeyType(column);
+        for (int row = 0; row < rowCount; row++) {
+          String text = formatter.getRawElement(row, column).getInnerText();
+          keys[row * keyCount + i] = type.getSortKey(text);
+        }
       }
 
-      // Sort the cell elements
-      if (ascending) {
-        Collections.sort(tdElems, new Comparator<Element>() {
-          public int compare(Element o1, Element o2) {
-            return o1.getInnerText().compareTo(o2.getInnerText());
-          }
-        });
-      } else {
-        Collections.sort(tdElems, new Comparator<Element>() {
-          public int compare(Element o1, Element o2) {
-            return o2.getInnerText().compareTo(o1.getInnerText());
-          }
-        });
+      // Sort the row indexes by comparing their keys. Arrays.sort is a stable
+      // merge sort for objects, so equal rows keep their current order.
+      Integer[] order = new Integer[rowCount];
+      for (int row = 0; row < rowCount; row++) {
+        order[row] = new Integer(row);
       }
+      Arrays.sort(order, new Comparator<Integer>() {
+        public int compare(Integer o1, Integer o2) {
+          int offset1 = o1.intValue() * keyCount;
+          int offset2 = o2.intValue() * keyCount;
+          for (int i = 0; i < keyCount; i++) {
+            int diff = compareKeys(keys[offset1 + i], keys[offset2 + i],
+                ascending[i]);
+            if (diff != 0) {
+              return diff;
+            }
+          }
+          return 0;
+        }
+      });
 
-      // Convert tdElems to trElems, reversing if needed
-      Element[] trElems = new Element[rowCount];
+      // Use the callback to reorder the rows in a single pass
+      int[] trIndexes = new int[rowCount];
       for (int i = 0; i < rowCount; i++) {
-        trElems[i] = DOM.getParent(tdElems.get(i));
+        trIndexes[i] = order[i].intValue();
+      }
+      callback.onSortingComplete(trIndexes);
+    }
+
+    /**
+     * Set the {@link SortKeyType} used to sort a column.
+     * 
+     * @param column the column index
+     * @param type the sort key type, or null to use the default
+     */
+    public void setSortKeyType(int column, SortKeyType type) {
+      if (type == null) {
+        sortKeyTypes.remove(new Integer(column));
+      } else {
+        sortKeyTypes.put(new Integer(column), type);
       }
+    }
 
-      // Use the callback to complete the sorting
-      callback.onSortingComplete(trElems);
+    /**
+     * Compare two sort keys in the sort direction. Null keys are sorted after
+     * all other keys in both directions.
+     * 
+     * @param key1 the first key
+     * @param key2 the second key
+     * @param ascending true to sort in ascending order
+     * @return the result of the comparison
+     */
+    @SuppressWarnings("unchecked")
+    private int compareKeys(Object key1, Object key2, boolean ascending) {
+      if (key1 == key2) {
+        return 0;
+      } else if (key1 == null) {
+        return 1;
+      } else if (key2 == null) {
+        return -1;
+      }
+      int diff = ((Comparable<Object>) key1).compareTo(key2);
+      return ascending ? diff : -diff;
     }
   }
 
+  /**
+   * Converts the text of a cell into a key that is used by the
+   * {@link DefaultColumnSorter} to sort the rows.
+   */
+  public abstract static class SortKeyType {
+    /**
+     * Sorts cells by their text, ignoring case.
+     */
+    public static final SortKeyType CASE_INSENSITIVE = new SortKeyType() {
+      @Override
+      public Comparable<?> getSortKey(String text) {
+        return text.toLowerCase();
+      }
+    };
+
+    /**
+     * Sorts cells by the date in their text, as parsed by
+     * {@link java.util.Date#parse(String)}. Cells that cannot be parsed are
+     * sorted last.
+     */
+    public static final SortKeyType DATE = new SortKeyType() {
+      @SuppressWarnings("deprecation")
+      @Override
+      public Comparable<?> getSortKey(String text) {
+        try {
+          return new Long(java.util.Date.parse(text.trim()));
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+      }
+    };
+
+    /**
+     * Sorts cells by the number in their text. Cells that cannot be parsed are
+     * sorted last.
+     */
+    public static final SortKeyType NUMERIC = new SortKeyType() {
+      @Override
+      public Comparable<?> getSortKey(String text) {
+        try {
+          return new Double(Double.parseDouble(text.trim()));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    };
+
+    /**
+     * Sorts cells by their text.
+     */
+    public static final SortKeyType STRING = new SortKeyType() {
+      @Override
+      public Comparable<?> getSortKey(String text) {
+        return text;
+      }
+    };
+
+    /**
+     * Convert the text of a cell into a sort key. Keys of the same type must be
+     * comparable to each other.
+     * 
+     * @param text the text in the cell
+     * @return the sort key, or null to sort the cell after all other cells
+     */
+    public abstract Comparable<?> getSortKey(String text);
+  }
+
   /**
    * Callback that is called when the row sorting is complete.
    */
@@ -322,8 +471,7 @@ public class SortableGrid extends SelectionGrid implements
     columnSortList.add(new ColumnSortInfo(column, ascending));
 
     // Use the onSort method to actually sort the column
-    Element[] selectedRows = getSelectedRowsMap().values().toArray(
-        new Element[0]);
+    Element[] selectedRows = getSelectedRowElements();
     deselectAllRows();
     getColumnSorter(true).onSortColumn(this, columnSortList,
         new SortableGrid.ColumnSorterCallback(selectedRows));
@@ -406,14 +554,16 @@ public class SortableGrid extends SelectionGrid implements
     }
 
     // Update the selected rows table
-    Map<Integer, Element> selectedRows = getSelectedRowsMap();
-    Element tr1 = selectedRows.remove(new Integer(row1));
-    Element tr2 = selectedRows.remove(new Integer(row2));
-    if (tr1 != null) {
-      selectedRows.put(new Integer(row2), tr1);
-    }
-    if (tr2 != null) {
-      selectedRows.put(new Integer(row1), tr2);
+    RowRangeSet selectedRows = getSelectedRowRanges();
+    boolean selected1 = selectedRows.contains(row1);
+    if (selected1 != selectedRows.contains(row2)) {
+      if (selected1) {
+        selectedRows.remove(row1);
+        selectedRows.add(row2);
+      } else {
+        selectedRows.remove(row2);
+        selectedRows.add(row1);
+      }
     }
   }
 
@@ -24,22 +24,49 @@ import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
 import com.google.gwt.gen2.table.override.client.HTMLTable;
 import com.google.gwt.user.client.DOM;
-import com.google.gwt.user.client.DeferredCommand;
 import com.google.gwt.user.client.Element;
-import com.google.gwt.user.client.IncrementalCommand;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.gwt.user.client.ui.HasHorizontalAlignment.HorizontalAlignmentConstant;
 import com.google.gwt.user.client.ui.HasVerticalAlignment.VerticalAlignmentConstant;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
+ * <p>
  * Enables bulk rendering of tables. Each subclass that needs special handling
  * for bulk rendering should have its own bulk renderer.
+ * </p>
+ * <p>
+ * Before rendering, the visible {@link ColumnDefinition}s are compiled into a
+ * row template of static HTML fragments with a hole for the contents of each
+ * cell. Cells whose {@link CellRenderer} is an {@link HtmlCellRenderer} are
+ * filled directly from the HTML it returns, so rendering a row does not go
+ * through the {@link BulkCellView} for those cells. Subclasses of
+ * {@link DefaultCellRenderer} may override its rendering, so only the
+ * {@link DefaultCellRenderer} itself is used to fill the template. Other cells,
+ * and rows that contain widgets, are rendered through the {@link BulkCellView}.
+ * </p>
+ * <p>
+ * Asynchronous renders are split into slices that fit within a frame budget.
+ * Each slice after the first is rendered from a {@link Timer}, so control
+ * returns to the browser between slices. The number of rows rendered between
+ * time checks is learned from the measured cost of previous slices. Starting a
+ * new render pre-empts any render that is still in progress, and
+ * {@link #cancelRendering()} stops the current render without calling its
+ * callback.
+ * </p>
+ * <p>
+ * When lazy widgets are enabled, widget cells far from the visible rows are
+ * rendered as empty placeholders and their widgets are only created when the
+ * rows come near the viewport. See {@link #setLazyWidgetsEnabled(boolean)}.
+ * </p>
  * 
  * @param <RowType> the data type of the row values
  */
@@ -47,11 +74,15 @@ public abstract class TableBulkRenderer<RowType> implements
     HasTableDefinition<RowType> {
   /**
    * A simple class that keeps track of a widget that needs to be add to the
-   * table after it finishes loading.
+   * table after it finishes loading. When lazy widgets are enabled, the widget
+   * is null until the row comes near the visible rows.
    */
   private static class DelayedWidget {
+    public Element cellElem;
     public int cellIndex;
+    public ColumnDefinition<?, ?> columnDef;
     public int rowIndex;
+    public Object rowValue;
     public Widget widget;
 
     /**
@@ -62,6 +93,160 @@ public abstract class TableBulkRenderer<RowType> implements
       this.cellIndex = cellIndex;
       this.widget = widget;
     }
+
+    /**
+     * Construct a new {@link DelayedWidget} for a cell that has not been
+     * rendered yet.
+     */
+    public DelayedWidget(int rowIndex, int cellIndex, Object rowValue,
+        ColumnDefinition<?, ?> columnDef) {
+      this(rowIndex, cellIndex, null);
+      this.rowValue = rowValue;
+      this.columnDef = columnDef;
+    }
+  }
+
+  /**
+   * The static HTML fragments of a row, compiled from the visible
+   * {@link ColumnDefinition}s, with a hole between each fragment for the
+   * contents of a cell.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  private static class RowTemplate<RowType> {
+    /**
+     * Compile a template for the visible columns.
+     * 
+     * @param leadingHtml the HTML of the cells before the visible columns
+     * @param visibleColumns the visible columns
+     * @return the template, or null if no cell can be rendered directly
+     */
+    @SuppressWarnings("unchecked")
+    public static <RowType> RowTemplate<RowType> compile(String leadingHtml,
+        List<ColumnDefinition<RowType, ?>> visibleColumns) {
+      int numColumns = visibleColumns.size();
+      List<HtmlCellRenderer<RowType, Object>> renderers = new ArrayList<HtmlCellRenderer<RowType, Object>>();
+      String[] fragments = new String[numColumns + 1];
+      StringBuilder fragment = new StringBuilder();
+      if (leadingHtml != null) {
+        fragment.append(leadingHtml);
+      }
+      boolean hasRenderers = false;
+      for (int i = 0; i < numColumns; i++) {
+        CellRenderer<RowType, ?> renderer = visibleColumns.get(i)
+            .getCellRenderer();
+        if (isTemplateRenderer(renderer)) {
+          // The cell tags are static, so only the contents are a hole
+          renderers.add((HtmlCellRenderer<RowType, Object>) renderer);
+          hasRenderers = true;
+          fragment.append("<td>");
+          fragments[i] = fragment.toString();
+          fragment = new StringBuilder("</td>");
+        } else {
+          // The cell view renders the entire cell into the hole
+          renderers.add(null);
+          fragments[i] = fragment.toString();
+          fragment = new StringBuilder();
+        }
+      }
+      fragments[numColumns] = fragment.toString();
+      if (!hasRenderers) {
+        return null;
+      }
+      return new RowTemplate<RowType>(visibleColumns, renderers, fragments);
+    }
+
+    /**
+     * Check if a renderer can fill a hole in the template. A subclass of
+     * {@link DefaultCellRenderer} may override
+     * {@link CellRenderer#renderRowValue} without overriding
+     * {@link HtmlCellRenderer#renderCellHtml}, so only the
+     * {@link DefaultCellRenderer} itself is used.
+     * 
+     * @param renderer the renderer
+     * @return true if the renderer can fill a hole
+     */
+    private static boolean isTemplateRenderer(CellRenderer<?, ?> renderer) {
+      if (renderer instanceof DefaultCellRenderer) {
+        return renderer.getClass() == DefaultCellRenderer.class;
+      }
+      return renderer instanceof HtmlCellRenderer;
+    }
+
+    /**
+     * The visible columns.
+     */
+    private List<ColumnDefinition<RowType, ?>> columns;
+
+    /**
+     * The static HTML fragments before each cell and after the last cell.
+     */
+    private String[] fragments;
+
+    /**
+     * The contents of the holes in the current row.
+     */
+    private String[] holes;
+
+    /**
+     * The renderer used to fill each hole, or null if the cell is rendered by
+     * the cell view.
+     */
+    private List<HtmlCellRenderer<RowType, Object>> renderers;
+
+    /**
+     * Construct a new {@link RowTemplate}.
+     * 
+     * @param columns the visible columns
+     * @param renderers the renderer of each hole
+     * @param fragments the static HTML fragments
+     */
+    private RowTemplate(List<ColumnDefinition<RowType, ?>> columns,
+        List<HtmlCellRenderer<RowType, Object>> renderers, String[] fragments) {
+      this.columns = columns;
+      this.renderers = renderers;
+      this.fragments = fragments;
+      this.holes = new String[renderers.size()];
+    }
+
+    /**
+     * Render the cells of a row into a buffer.
+     * 
+     * @param rowIndex the index of the row
+     * @param rowValue the row value
+     * @param cellView the cell view used to render the cells without a
+     *          renderer
+     * @param buffer the buffer
+     * @return false if the row could not be rendered using the template
+     */
+    @SuppressWarnings("unchecked")
+    public boolean render(int rowIndex, RowType rowValue,
+        BulkCellView<RowType> cellView, StringBuffer buffer) {
+      // Fill the holes first, so rows with widgets can fall back
+      int numColumns = renderers.size();
+      for (int i = 0; i < numColumns; i++) {
+        HtmlCellRenderer<RowType, Object> renderer = renderers.get(i);
+        if (renderer != null) {
+          holes[i] = renderer.renderCellHtml(rowValue,
+              (ColumnDefinition<RowType, Object>) columns.get(i));
+          if (holes[i] == null) {
+            return false;
+          }
+        }
+      }
+
+      // Join the fragments and the holes
+      for (int i = 0; i < numColumns; i++) {
+        buffer.append(fragments[i]);
+        if (renderers.get(i) == null) {
+          cellView.renderCellImpl(rowIndex, i, rowValue, columns.get(i));
+        } else {
+          buffer.append(holes[i]);
+        }
+      }
+      buffer.append(fragments[numColumns]);
+      return true;
+    }
   }
 
   /**
@@ -76,6 +261,11 @@ public abstract class TableBulkRenderer<RowType> implements
      */
     private StringBuffer buffer = null;
 
+    /**
+     * The renderer.
+     */
+    private TableBulkRenderer<RowType> bulkRenderer;
+
     /**
      * An element used to convert text to escaped html.
      */
@@ -124,6 +314,7 @@ public abstract class TableBulkRenderer<RowType> implements
      */
     public BulkCellView(TableBulkRenderer<RowType> bulkRenderer) {
       super((bulkRenderer.source == null) ? bulkRenderer : bulkRenderer.source);
+      this.bulkRenderer = bulkRenderer;
     }
 
     @Override
@@ -164,12 +355,32 @@ public abstract class TableBulkRenderer<RowType> implements
       curCellWidget = widget;
     }
 
+    /**
+     * Get the HTML of the cells that precede the cells of the visible columns
+     * in every row, such as an input column.
+     * 
+     * @return the HTML of the leading cells, or null if there are none
+     */
+    protected String getLeadingCellsHtml() {
+      return null;
+    }
+
     protected StringBuffer getStringBuffer() {
       return buffer;
     }
 
     @Override
     protected void renderRowValue(RowType rowValue, ColumnDefinition columnDef) {
+      // Leave a placeholder for widgets that are far from the visible rows
+      if (bulkRenderer.isLazyWidgetsEnabled
+          && bulkRenderer.widgetColumns.contains(columnDef)
+          && !bulkRenderer.isNearVisibleRows(getRowIndex())) {
+        delayedWidgets.add(new DelayedWidget(getRowIndex(), getCellIndex(),
+            rowValue, columnDef));
+        buffer.append("<td></td>");
+        return;
+      }
+
       curCellHtml = null;
       curCellWidget = null;
       curCellStyleName = null;
@@ -182,7 +393,12 @@ public abstract class TableBulkRenderer<RowType> implements
       if (curCellWidget != null) {
         int row = getRowIndex();
         int cell = getCellIndex();
-        delayedWidgets.add(new DelayedWidget(row, cell, curCellWidget));
+        DelayedWidget dw = new DelayedWidget(row, cell, rowValue, columnDef);
+        dw.widget = curCellWidget;
+        delayedWidgets.add(dw);
+        if (bulkRenderer.isLazyWidgetsEnabled) {
+          bulkRenderer.widgetColumns.add(columnDef);
+        }
       }
 
       // Add the open tag
@@ -273,6 +489,12 @@ public abstract class TableBulkRenderer<RowType> implements
      */
     private int rowIndex = 0;
 
+    /**
+     * The template compiled for the visible columns, or null if the cells are
+     * rendered through the cell view.
+     */
+    private RowTemplate<RowType> template = null;
+
     /**
      * Construct a new {@link TableBulkRenderer.BulkRowView}.
      * 
@@ -306,6 +528,20 @@ public abstract class TableBulkRenderer<RowType> implements
       return buffer;
     }
 
+    @Override
+    protected void renderCellsImpl(int rowIndex, RowType rowValue,
+        List<ColumnDefinition<RowType, ?>> visibleColumns) {
+      if (template != null
+          && template.render(rowIndex, rowValue, cellView, buffer)) {
+        return;
+      }
+      String leadingHtml = cellView.getLeadingCellsHtml();
+      if (leadingHtml != null) {
+        buffer.append(leadingHtml);
+      }
+      super.renderCellsImpl(rowIndex, rowValue, visibleColumns);
+    }
+
     @Override
     protected void renderRowImpl(int rowIndex, RowType rowValue,
         RowRenderer<RowType> rowRenderer,
@@ -321,68 +557,117 @@ public abstract class TableBulkRenderer<RowType> implements
         final List<ColumnDefinition<RowType, ?>> visibleColumns) {
       // Create the table
       buffer.append("<table><tbody>");
-      if (options.headerRow != null) {
+      if (options.headerRow != null && !options.appendRows) {
         buffer.append(options.headerRow);
       }
 
-      // Reset the row index
-      rowIndex = startRowIndex;
-      final int myStamp = ++bulkRenderer.requestStamp;
+      // Compile the row template for the visible columns
+      template = RowTemplate.compile(cellView.getLeadingCellsHtml(),
+          visibleColumns);
 
-      // Use an incremental command to render rows in increments
-      class RenderTableCommand implements IncrementalCommand {
+      // Reset the row index. Appended rows continue the current request.
+      rowIndex = startRowIndex;
+      final int myStamp = options.appendRows ? bulkRenderer.requestStamp
+          : bulkRenderer.startRendering();
+
+      // Use a command to render rows in slices
+      class RenderTableCommand {
+        /**
+         * Render the next slice of rows.
+         * 
+         * @return true if more rows remain to be rendered
+         */
         public boolean execute() {
-          // Poor man's cancel() event.
+          // Stop if the render was cancelled or pre-empted
           if (myStamp != bulkRenderer.requestStamp) {
             return false;
           }
-          int checkRow = ROWS_PER_TIME_CHECK;
-          double endSlice = Duration.currentTimeMillis() + TIME_SLICE;
+          double startSlice = Duration.currentTimeMillis();
 
-          // Loop through the rows
+          // Render batches of rows until the frame budget is used up
           while (rowValues.hasNext()) {
-            // Check if we've exceed the time slice
-            if (options.syncCall == false && --checkRow == 0) {
-              checkRow = ROWS_PER_TIME_CHECK;
+            int batchSize = options.syncCall ? Integer.MAX_VALUE
+                : bulkRenderer.rowsPerSlice;
+            double startBatch = Duration.currentTimeMillis();
+            int rendered = 0;
+            while (rendered < batchSize && rowValues.hasNext()) {
+              renderRowImpl(rowIndex, rowValues.next(), rowRenderer,
+                  visibleColumns);
+              rowIndex++;
+              rendered++;
+            }
+            bulkRenderer.lastRenderedRowCount += rendered;
+
+            // Learn from the cost of the batch and yield if needed
+            if (!options.syncCall) {
               double time = Duration.currentTimeMillis();
-              if (time > endSlice) {
+              bulkRenderer.recordSlice(rendered, time - startBatch);
+              if (rowValues.hasNext()
+                  && time - startSlice >= bulkRenderer.frameBudget) {
+                bulkRenderer.lastBuildTime += time - startSlice;
+                bulkRenderer.yieldedStamp = myStamp;
                 return true;
               }
             }
-
-            // Render a single row and increment the row index
-            renderRowImpl(rowIndex, rowValues.next(), rowRenderer,
-                visibleColumns);
-            rowIndex++;
+          }
+          if (bulkRenderer.yieldedStamp == myStamp) {
+            bulkRenderer.yieldedStamp = -1;
           }
 
           // Add the footer row
-          if (options.footerRow != null) {
+          if (options.footerRow != null && options.lastChunk) {
             buffer.append(options.footerRow);
           }
 
           // Finish rendering the table
           buffer.append("</tbody></table>");
-          bulkRenderer.renderRows(buffer.toString());
+          String html = buffer.toString();
+          double startInsert = Duration.currentTimeMillis();
+          bulkRenderer.lastBuildTime += startInsert - startSlice;
+          if (options.appendRows) {
+            bulkRenderer.appendRows(html);
+          } else {
+            bulkRenderer.renderRows(html);
+          }
+          double startAttach = Duration.currentTimeMillis();
+          bulkRenderer.lastInsertTime += startAttach - startInsert;
 
           // Add widgets into the table
+          if (!options.appendRows) {
+            bulkRenderer.lazyWidgets.clear();
+          }
           for (DelayedWidget dw : cellView.delayedWidgets) {
-            bulkRenderer.setWidgetRaw(bulkRenderer.getTable(), dw.rowIndex,
-                dw.cellIndex, dw.widget);
+            if (dw.widget != null) {
+              bulkRenderer.setWidgetRaw(bulkRenderer.getTable(), dw.rowIndex,
+                  dw.cellIndex, dw.widget);
+            }
           }
+          if (bulkRenderer.isLazyWidgetsEnabled) {
+            bulkRenderer.trackLazyWidgets(cellView.delayedWidgets);
+          }
+          bulkRenderer.lastAttachTime += Duration.currentTimeMillis()
+              - startAttach;
 
           // Trigger the callback
-          if (options.callback != null) {
+          if (options.callback != null && options.lastChunk) {
             options.callback.onRendered();
           }
           return false;
         }
       }
 
-      // Fire the incremental command
-      RenderTableCommand renderTable = new RenderTableCommand();
+      // Render the first slice now, and each following slice from a timer so
+      // the browser can paint and handle events between slices
+      final RenderTableCommand renderTable = new RenderTableCommand();
       if (renderTable.execute()) {
-        DeferredCommand.addCommand(renderTable);
+        new Timer() {
+          @Override
+          public void run() {
+            if (renderTable.execute()) {
+              schedule(1);
+            }
+          }
+        }.schedule(1);
       }
     }
 
@@ -424,19 +709,127 @@ public abstract class TableBulkRenderer<RowType> implements
     public String headerRow = null;
     public String footerRow = null;
     public RendererCallback callback = null;
+
+    /**
+     * True to append the rows to the existing rows instead of replacing them.
+     */
+    public boolean appendRows = false;
+
+    /**
+     * False if more rows will be appended after these rows. The footer row and
+     * the callback are only applied to the last chunk.
+     */
+    public boolean lastChunk = true;
   }
 
+  /**
+   * Renders the rows of a single request as they arrive in chunks, such as the
+   * rows streamed to a {@link TableModel.StreamingCallback}. The first chunk
+   * replaces the rows of the table and later chunks are appended to them.
+   * Chunks are ignored once another render starts.
+   */
+  public class ChunkRenderer {
+    /**
+     * The options used to render the chunks.
+     */
+    private RenderingOptions options;
+
+    /**
+     * True if the first chunk has been rendered.
+     */
+    private boolean started = false;
+
+    /**
+     * The request stamp of the rendered chunks.
+     */
+    private int stamp;
+
+    /**
+     * Construct a new {@link ChunkRenderer}, pre-empting the render that is in
+     * progress.
+     * 
+     * @param options the rendering options
+     */
+    private ChunkRenderer(RenderingOptions options) {
+      this.options = options;
+      this.stamp = startRendering();
+    }
+
+    /**
+     * @return true if another render has started since the chunks started
+     */
+    public boolean isCancelled() {
+      return stamp != requestStamp;
+    }
+
+    /**
+     * Render a chunk of rows. Chunks that are followed by other chunks are
+     * rendered synchronously so they stay in order. The callback is called
+     * after the last chunk is rendered.
+     * 
+     * @param rows the rows in the chunk
+     * @param lastChunk true if this is the last chunk
+     */
+    public void renderChunk(Iterator<RowType> rows, boolean lastChunk) {
+      // Ignore the chunk if the render was cancelled or pre-empted
+      if (isCancelled()) {
+        return;
+      }
+
+      boolean syncCall = options.syncCall;
+      options.appendRows = started;
+      options.lastChunk = lastChunk;
+      if (!lastChunk) {
+        options.syncCall = true;
+      }
+      renderRows(rows, options);
+      options.syncCall = syncCall;
+      started = true;
+      stamp = requestStamp;
+    }
+  }
+
+  /**
+   * The default number of rows around the visible rows whose widgets are
+   * created when lazy widgets are enabled.
+   */
+  public static final int DEFAULT_LAZY_WIDGET_MARGIN = 20;
+
+  /**
+   * The default time in milliseconds that a slice of an asynchronous render
+   * can take before yielding to the browser.
+   */
+  public static final int DEFAULT_FRAME_BUDGET = 16;
+
+  /**
+   * The number of rows rendered between time checks before the cost of a row
+   * has been measured.
+   */
+  public static final int INITIAL_ROWS_PER_SLICE = 10;
+
+  /**
+   * The maximum number of rows rendered between time checks.
+   */
+  public static final int MAX_ROWS_PER_SLICE = 10000;
+
   /**
    * Time slice in milliseconds that the construction of the string can take
-   * before flushing the event cue.
+   * before flushing the event cue. This value is read when a renderer is
+   * created and becomes its initial frame budget.
+   * 
+   * @deprecated use {@link #setFrameBudget(int)} instead
    */
-  public static int TIME_SLICE = 1000;
+  @Deprecated
+  public static int TIME_SLICE = DEFAULT_FRAME_BUDGET;
 
   /**
    * How many rows should be processed before time is checked and the event loop
-   * is potentially flushed.
+   * is potentially flushed. This value is ignored.
+   * 
+   * @deprecated the number of rows is learned from the frame budget, see
+   *             {@link #getRowsPerSlice()}
    */
-  // TODO check how long time check takes to see if this guard is worth having.
+  @Deprecated
   public static int ROWS_PER_TIME_CHECK = 10;
 
   /**
@@ -444,11 +837,57 @@ public abstract class TableBulkRenderer<RowType> implements
    */
   private static Element WRAPPER_DIV;
 
+  /**
+   * The time in milliseconds that a slice of an asynchronous render can take.
+   */
+  private int frameBudget = Math.max(1, TIME_SLICE);
+
+  /**
+   * True if widgets are only created for rows near the visible rows.
+   */
+  private boolean isLazyWidgetsEnabled = false;
+
+  /**
+   * The number of rows around the visible rows whose widgets are created.
+   */
+  private int lazyWidgetMargin = DEFAULT_LAZY_WIDGET_MARGIN;
+
+  /**
+   * The time spent adding widgets to the cells during the last render.
+   */
+  private double lastAttachTime = 0;
+
+  /**
+   * The time spent building the HTML during the last render.
+   */
+  private double lastBuildTime = 0;
+
+  /**
+   * The time spent inserting the HTML into the table during the last render.
+   */
+  private double lastInsertTime = 0;
+
+  /**
+   * The number of rows rendered during the last render.
+   */
+  private int lastRenderedRowCount = 0;
+
+  /**
+   * The widget cells of the rendered rows, both created and pending, when lazy
+   * widgets are enabled.
+   */
+  private List<DelayedWidget> lazyWidgets = new ArrayList<DelayedWidget>();
+
   /**
    * Stamp used to detect when a request has been orphaned.
    */
   private int requestStamp = 0;
 
+  /**
+   * The number of rows to render between time checks.
+   */
+  private int rowsPerSlice = INITIAL_ROWS_PER_SLICE;
+
   /**
    * The external source of the rendering requests.
    */
@@ -459,11 +898,32 @@ public abstract class TableBulkRenderer<RowType> implements
    */
   private final HTMLTable table;
 
+  /**
+   * The stamp of the render that yielded to the browser and has not finished.
+   */
+  private int yieldedStamp = -1;
+
   /**
    * The definition of the columns.
    */
   private TableDefinition<RowType> tableDefinition;
 
+  /**
+   * The index of the first visible row in the table.
+   */
+  private int visibleFirstRow = 0;
+
+  /**
+   * The index of the last visible row in the table.
+   */
+  private int visibleLastRow = 0;
+
+  /**
+   * The columns whose cell renderers have created widgets. Cells in these
+   * columns are not rendered until they come near the visible rows.
+   */
+  private Set<ColumnDefinition<?, ?>> widgetColumns = new HashSet<ColumnDefinition<?, ?>>();
+
   /**
    * Constructor for the bulk renderer.
    * 
@@ -489,10 +949,103 @@ public abstract class TableBulkRenderer<RowType> implements
     this.source = sourceTableDef;
   }
 
+  /**
+   * Cancel the render that is in progress, if any. The callback of the render
+   * will not be called, and rows that arrive later from a table model are
+   * ignored.
+   */
+  public void cancelRendering() {
+    startRendering();
+  }
+
+  /**
+   * @return the time in milliseconds that a slice of an asynchronous render
+   *         can take before yielding to the browser
+   */
+  public int getFrameBudget() {
+    return frameBudget;
+  }
+
+  /**
+   * @return the number of rows around the visible rows whose widgets are
+   *         created when lazy widgets are enabled
+   */
+  public int getLazyWidgetMargin() {
+    return lazyWidgetMargin;
+  }
+
+  /**
+   * @return the time in milliseconds spent adding widgets to cells during the
+   *         last render, including appended chunks
+   */
+  public double getLastAttachTime() {
+    return lastAttachTime;
+  }
+
+  /**
+   * @return the time in milliseconds spent building the HTML of the rows
+   *         during the last render, not counting time yielded to the browser
+   */
+  public double getLastBuildTime() {
+    return lastBuildTime;
+  }
+
+  /**
+   * @return the time in milliseconds spent inserting the HTML into the table
+   *         during the last render
+   */
+  public double getLastInsertTime() {
+    return lastInsertTime;
+  }
+
+  /**
+   * @return the number of rows rendered during the last render
+   */
+  public int getLastRenderedRowCount() {
+    return lastRenderedRowCount;
+  }
+
+  /**
+   * @return the number of widget cells that have not been created yet, or
+   *         whose widgets were released after they scrolled away
+   */
+  public int getPendingWidgetCount() {
+    int count = 0;
+    for (DelayedWidget dw : lazyWidgets) {
+      if (dw.widget == null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of rows rendered between time checks, learned from the
+   *         cost of previous slices
+   */
+  public int getRowsPerSlice() {
+    return rowsPerSlice;
+  }
+
   public TableDefinition<RowType> getTableDefinition() {
     return (source == null) ? tableDefinition : source.getTableDefinition();
   }
 
+  /**
+   * @return true if widgets are only created for rows near the visible rows
+   */
+  public boolean isLazyWidgetsEnabled() {
+    return isLazyWidgetsEnabled;
+  }
+
+  /**
+   * @return true if an asynchronous render has yielded to the browser and has
+   *         not finished yet
+   */
+  public boolean isRendering() {
+    return yieldedStamp >= 0 && yieldedStamp == requestStamp;
+  }
+
   /**
    * Removes all rows in the current table replaces them with the rows provided.
    * <p>
@@ -539,6 +1092,38 @@ public abstract class TableBulkRenderer<RowType> implements
     renderRows(rows, options);
   }
 
+  /**
+   * Removes all rows in the current table and replaces them with the rows in a
+   * raw HTML table, such as a page rendered on the server by a
+   * <code>TableHtmlRenderer</code>. The HTML must
+   * contain a single lowercase <code>&lt;tbody&gt;</code> element with one
+   * row per row value, and cannot contain widgets. This call is synchronous,
+   * and pre-empts any render that is in progress.
+   * 
+   * @param rawHTMLTable the HTML of a table that contains the new rows
+   * @param callback callback to be called after the rows are rendered
+   */
+  public final void renderRows(String rawHTMLTable, RendererCallback callback) {
+    startRendering();
+    lazyWidgets.clear();
+    String headerRow = getHeaderRowHtml();
+    if (headerRow != null) {
+      int index = rawHTMLTable.indexOf("<tbody>");
+      if (index >= 0) {
+        index += "<tbody>".length();
+        rawHTMLTable = rawHTMLTable.substring(0, index) + headerRow
+            + rawHTMLTable.substring(index);
+      }
+    }
+    double startInsert = Duration.currentTimeMillis();
+    renderRows(rawHTMLTable);
+    lastInsertTime = Duration.currentTimeMillis() - startInsert;
+    lastRenderedRowCount = table.getRowCount();
+    if (callback != null) {
+      callback.onRendered();
+    }
+  }
+
   /**
    * Removes all rows in the current table and replaces them with the rows
    * supplied by the provided {@link MutableTableModel}.
@@ -570,6 +1155,119 @@ public abstract class TableBulkRenderer<RowType> implements
     renderRows(tableModel, 0, MutableTableModel.ALL_ROWS, callback);
   }
 
+  /**
+   * Set the time that a slice of an asynchronous render can take before
+   * yielding to the browser. Smaller budgets keep the page responsive, larger
+   * budgets finish rendering sooner. Renderers start with
+   * {@link #DEFAULT_FRAME_BUDGET} unless the deprecated {@link #TIME_SLICE}
+   * has been changed.
+   * 
+   * @param frameBudget the budget in milliseconds
+   */
+  public void setFrameBudget(int frameBudget) {
+    this.frameBudget = Math.max(1, frameBudget);
+  }
+
+  /**
+   * Set the number of rows around the visible rows whose widgets are created.
+   * Widgets are released when their rows are more than three times this
+   * distance from the visible rows.
+   * 
+   * @param margin the number of rows
+   */
+  public void setLazyWidgetMargin(int margin) {
+    this.lazyWidgetMargin = Math.max(0, margin);
+  }
+
+  /**
+   * Enable or disable lazy widgets. When enabled, cells in columns whose
+   * {@link CellRenderer} creates widgets are rendered as empty placeholders,
+   * and the renderer is only called when the row comes near the visible rows
+   * set with {@link #setVisibleRows(int, int)}. Widgets of rows that scroll
+   * far away are removed from the table and created again when they come
+   * back. Disabling lazy widgets creates all pending widgets.
+   * 
+   * @param enabled true to enable lazy widgets
+   */
+  public void setLazyWidgetsEnabled(boolean enabled) {
+    if (!enabled && isLazyWidgetsEnabled) {
+      for (DelayedWidget dw : lazyWidgets) {
+        if (dw.widget == null) {
+          int row = getCellRowIndex(table, dw.cellElem);
+          if (row >= 0 && DOM.getFirstChild(dw.cellElem) == null) {
+            realizeWidget(dw, row);
+          }
+        }
+      }
+      lazyWidgets.clear();
+      widgetColumns.clear();
+    }
+    this.isLazyWidgetsEnabled = enabled;
+  }
+
+  /**
+   * Set the rows that are visible in the table. When lazy widgets are enabled,
+   * the pending widgets near the visible rows are created and the widgets far
+   * from them are released.
+   * 
+   * @param firstRow the index of the first visible row
+   * @param lastRow the index of the last visible row
+   */
+  public void setVisibleRows(int firstRow, int lastRow) {
+    visibleFirstRow = firstRow;
+    visibleLastRow = Math.max(firstRow, lastRow);
+    if (!isLazyWidgetsEnabled) {
+      return;
+    }
+
+    int releaseFirstRow = visibleFirstRow - 3 * lazyWidgetMargin;
+    int releaseLastRow = visibleLastRow + 3 * lazyWidgetMargin;
+    Iterator<DelayedWidget> it = lazyWidgets.iterator();
+    while (it.hasNext()) {
+      DelayedWidget dw = it.next();
+      int row = getCellRowIndex(table, dw.cellElem);
+      if (dw.widget == null) {
+        if (row < 0 || DOM.getFirstChild(dw.cellElem) != null) {
+          // The cell was removed or rendered by someone else
+          it.remove();
+        } else if (isNearVisibleRows(row) && !realizeWidget(dw, row)) {
+          it.remove();
+        }
+      } else if (row < 0 || dw.widget.getParent() != table
+          || DOM.getParent(dw.widget.getElement()) != dw.cellElem) {
+        // The widget was replaced
+        it.remove();
+      } else if (row < releaseFirstRow || row > releaseLastRow) {
+        table.remove(dw.widget);
+        dw.widget = null;
+      }
+    }
+  }
+
+  /**
+   * Start rendering rows that arrive in chunks, pre-empting the render that is
+   * in progress. The first chunk replaces the rows in the current table.
+   * 
+   * @param callback callback to be called after the last chunk is rendered
+   * @return the renderer that renders each chunk
+   */
+  public ChunkRenderer startChunkedRendering(RendererCallback callback) {
+    RenderingOptions options = createRenderingOptions();
+    options.callback = callback;
+    return new ChunkRenderer(options);
+  }
+
+  /**
+   * Append the rows in a raw HTML table to the end of the current table.
+   * 
+   * @param rawHTMLTable the HTML of a table that contains the new rows
+   */
+  protected void appendRows(String rawHTMLTable) {
+    DOM.setInnerHTML(getWrapperDiv(), rawHTMLTable);
+    Element tableElement = DOM.getFirstChild(getWrapperDiv());
+    appendBodyRows(table.getElement(), tableElement);
+  }
+
   /**
    * Creates the rendering options associated with this renderer.
    * 
@@ -591,6 +1289,16 @@ public abstract class TableBulkRenderer<RowType> implements
     return new BulkRowView<RowType>(cellView, this, options);
   }
 
+  /**
+   * Get the HTML of a row that is rendered before the rows of a raw HTML table
+   * passed to {@link #renderRows(String, RendererCallback)}.
+   * 
+   * @return the HTML of the header row, or null if there is none
+   */
+  protected String getHeaderRowHtml() {
+    return null;
+  }
+
   /**
    * Gets the table.
    * 
@@ -608,11 +1316,15 @@ public abstract class TableBulkRenderer<RowType> implements
    */
   protected void renderRows(final Iterator<RowType> rows,
       final RenderingOptions options) {
-    getTableDefinition().renderRows(0, rows, createRowView(options));
+    int startRowIndex = options.appendRows ? table.getRowCount() : 0;
+    getTableDefinition().renderRows(startRowIndex, rows,
+        createRowView(options));
   }
 
   /**
-   * Render rows using a table model.
+   * Render rows using a table model. If the table model streams its rows to a
+   * {@link TableModel.StreamingCallback}, each chunk of rows is appended to
+   * the table as soon as it arrives.
    * 
    * @param tableModel table model
    * @param options options
@@ -621,13 +1333,17 @@ public abstract class TableBulkRenderer<RowType> implements
       final RenderingOptions options) {
 
     // Create a callback to handle the request
-    TableModel.Callback<RowType> requestCallback = new TableModel.Callback<RowType>() {
+    final ChunkRenderer chunkRenderer = new ChunkRenderer(options);
+    TableModel.Callback<RowType> requestCallback = new TableModel.StreamingCallback<RowType>() {
       public void onFailure(Throwable caught) {
       }
 
+      public void onRowsChunk(Request request, Response<RowType> chunk) {
+        chunkRenderer.renderChunk(chunk.getRowValues(), false);
+      }
+
       public void onRowsReady(Request request, final Response<RowType> response) {
-        final Iterator<RowType> rows = response.getRowValues();
-        renderRows(rows, options);
+        chunkRenderer.renderChunk(response.getRowValues(), true);
       }
     };
 
@@ -642,6 +1358,72 @@ public abstract class TableBulkRenderer<RowType> implements
     setBodyElement(table, newBody);
   }
 
+  /**
+   * Record the cost of rendering a batch of rows and update the number of rows
+   * to render between time checks, so a slice fits within the frame budget.
+   * 
+   * @param rows the number of rows in the batch
+   * @param elapsed the time spent rendering the batch in milliseconds
+   */
+  void recordSlice(int rows, double elapsed) {
+    if (rows <= 0) {
+      return;
+    }
+    int target;
+    if (elapsed <= 0) {
+      // The batch was faster than the timer resolution
+      target = (rows < rowsPerSlice) ? rowsPerSlice : rowsPerSlice * 2;
+    } else {
+      target = (int) (rows * frameBudget / elapsed);
+    }
+
+    // Move halfway to the target to smooth out noisy measurements
+    int next = (int) (((long) rowsPerSlice + target) / 2);
+    rowsPerSlice = Math.max(1, Math.min(MAX_ROWS_PER_SLICE, next));
+  }
+
+  /**
+   * Move the rows from the body of one table to the end of the body of
+   * another table.
+   * 
+   * @param table the table element that the rows will be added to
+   * @param thatTable the table element with the donor rows
+   */
+  private native void appendBodyRows(Element table, Element thatTable)
+  /*-{
+    var body = table.tBodies[0];
+    var thatBody = thatTable.tBodies[0];
+    while (thatBody.firstChild) {
+      body.appendChild(thatBody.firstChild);
+    }
+  }-*/;
+
+  /**
+   * Get the index of the row that contains a cell.
+   * 
+   * @param table the table
+   * @param td the cell element
+   * @return the row index, or -1 if the cell is no longer in the table
+   */
+  private native int getCellRowIndex(HTMLTable table, Element td)
+  /*-{
+    var tr = td ? td.parentNode : null;
+    var body = table.@com.google.gwt.gen2.table.override.client.HTMLTable::getBodyElement()();
+    if (!tr || tr.parentNode != body) {
+      return -1;
+    }
+    return table.@com.google.gwt.gen2.table.override.client.HTMLTable::getRowIndex(Lcom/google/gwt/user/client/Element;)(tr);
+  }-*/;
+
+  /**
+   * Get a cell element without checking the bounds of the table.
+   */
+  private native Element getRawCellElement(HTMLTable table, int row, int cell)
+  /*-{
+    var formatter = table.@com.google.gwt.gen2.table.override.client.HTMLTable::getCellFormatter()();
+    return formatter.@com.google.gwt.gen2.table.override.client.HTMLTable.CellFormatter::getRawElement(II)(row, cell);
+  }-*/;
+
   private Element getWrapperDiv() {
     if (WRAPPER_DIV == null) {
       WRAPPER_DIV = DOM.createElement("div");
@@ -649,6 +1431,78 @@ public abstract class TableBulkRenderer<RowType> implements
     return WRAPPER_DIV;
   }
 
+  /**
+   * Check if the widgets in a row should be created.
+   * 
+   * @param row the index of the row
+   * @return true if the row is near the visible rows
+   */
+  private boolean isNearVisibleRows(int row) {
+    return row >= visibleFirstRow - lazyWidgetMargin
+        && row <= visibleLastRow + lazyWidgetMargin;
+  }
+
+  /**
+   * Render a pending widget cell and add its contents to the table. The styles
+   * set by the {@link CellRenderer} are applied to the existing cell.
+   * 
+   * @param dw the pending cell
+   * @param row the current index of the row
+   * @return true if the cell contains a widget that should be tracked
+   */
+  @SuppressWarnings("unchecked")
+  private boolean realizeWidget(DelayedWidget dw, int row) {
+    BulkCellView<RowType> cellView = new BulkCellView<RowType>(this);
+    cellView.buffer = new StringBuffer();
+    boolean wasEnabled = isLazyWidgetsEnabled;
+    isLazyWidgetsEnabled = false;
+    cellView.renderCellImpl(row, dw.cellIndex, (RowType) dw.rowValue,
+        (ColumnDefinition<RowType, ?>) dw.columnDef);
+    isLazyWidgetsEnabled = wasEnabled;
+
+    // Apply the styles to the placeholder
+    Element td = dw.cellElem;
+    if (cellView.curCellStyleName != null) {
+      DOM.setElementProperty(td, "className", cellView.curCellStyleName);
+    }
+    if (cellView.curCellHorizontalAlign != null) {
+      DOM.setElementProperty(td, "align",
+          cellView.curCellHorizontalAlign.getTextAlignString());
+    }
+    if (cellView.curCellVerticalAlign != null) {
+      DOM.setStyleAttribute(td, "verticalAlign",
+          cellView.curCellVerticalAlign.getVerticalAlignString());
+    }
+    for (Map.Entry<String, String> entry : cellView.curCellStyles.entrySet()) {
+      DOM.setStyleAttribute(td, entry.getKey(), entry.getValue());
+    }
+
+    // Add the contents
+    if (cellView.curCellWidget == null) {
+      widgetColumns.remove(dw.columnDef);
+      if (cellView.curCellHtml != null) {
+        DOM.setInnerHTML(td, cellView.curCellHtml);
+      }
+      return false;
+    }
+    dw.widget = cellView.curCellWidget;
+    setWidgetRaw(table, row, dw.cellIndex, dw.widget);
+    return true;
+  }
+
+  /**
+   * Start a new render, pre-empting the render that is in progress.
+   * 
+   * @return the stamp of the new render
+   */
+  private int startRendering() {
+    lastAttachTime = 0;
+    lastBuildTime = 0;
+    lastInsertTime = 0;
+    lastRenderedRowCount = 0;
+    return ++requestStamp;
+  }
+
   /**
    * Replace a table's body element with the body element from another table.
    * 
@@ -663,6 +1517,23 @@ public abstract class TableBulkRenderer<RowType> implements
     return thatChild;
   }-*/;
 
+  /**
+   * Track the widget cells of newly rendered rows so they can be created or
+   * released as the visible rows change.
+   * 
+   * @param delayedWidgets the widget cells, in the order they were rendered
+   */
+  private void trackLazyWidgets(List<DelayedWidget> delayedWidgets) {
+    for (DelayedWidget dw : delayedWidgets) {
+      if (dw.widget == null) {
+        dw.cellElem = getRawCellElement(table, dw.rowIndex, dw.cellIndex);
+      } else {
+        dw.cellElem = DOM.getParent(dw.widget.getElement());
+      }
+      lazyWidgets.add(dw);
+    }
+  }
+
   /**
    * Short term hack to get protected setBodyElement.
    */
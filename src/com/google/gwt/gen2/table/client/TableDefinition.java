@@ -207,6 +207,18 @@ public interface TableDefinition<RowType> {
         List<ColumnDefinition<RowType, ?>> visibleColumns) {
       this.rowIndex = rowIndex;
       renderRowValue(rowValue, rowRenderer);
+      renderCellsImpl(rowIndex, rowValue, visibleColumns);
+    }
+
+    /**
+     * Render all of the cells in a single row using the cell view.
+     * 
+     * @param rowIndex the index of the row
+     * @param rowValue the row value associated with the row
+     * @param visibleColumns the list of visible {@link ColumnDefinition}
+     */
+    protected void renderCellsImpl(int rowIndex, RowType rowValue,
+        List<ColumnDefinition<RowType, ?>> visibleColumns) {
       int numColumns = visibleColumns.size();
       for (int i = 0; i < numColumns; i++) {
         cellView.renderCellImpl(rowIndex, i, rowValue, visibleColumns.get(i));
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+/**
+ * A sink that receives the timing breakdown of every page load in a
+ * {@link PagingScrollTable}, so it can be logged or reported to a server.
+ */
+public interface TableMetricsSink {
+  /**
+   * Called after a page has finished loading, just after the
+   * {@link com.google.gwt.gen2.table.event.client.PageLoadEvent} is fired.
+   * 
+   * @param table the table that loaded the page
+   * @param timings the timing breakdown of the page load
+   */
+  void onPageLoad(PagingScrollTable<?> table, PageLoadTimings timings);
+}
@@ -19,18 +19,47 @@ import com.google.gwt.gen2.event.shared.AbstractEvent;
 import com.google.gwt.gen2.event.shared.EventHandler;
 import com.google.gwt.gen2.event.shared.HandlerManager;
 import com.google.gwt.gen2.event.shared.HandlerRegistration;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
 import com.google.gwt.gen2.table.event.client.HasRowCountChangeHandlers;
 import com.google.gwt.gen2.table.event.client.RowCountChangeEvent;
 import com.google.gwt.gen2.table.event.client.RowCountChangeHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A class to retrieve row data to be used in a table.
  * 
  * @param <RowType> the data type of the row values
  */
 public abstract class TableModel<RowType> implements HasRowCountChangeHandlers {
+  /**
+   * Callback for a {@link BatchRequest}. The callback is called once, after
+   * all of the ranges in the request have been loaded.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  public static interface BatchCallback<RowType> {
+    /**
+     * Called when an error occurs and the rows cannot be loaded.
+     * 
+     * @param caught the exception that was thrown
+     */
+    void onFailure(Throwable caught);
+
+    /**
+     * Consume the data created by {@link TableModel} in response to a
+     * {@link BatchRequest}.
+     * 
+     * @param request the request
+     * @param responses one response for each range in the request, in the same
+     *          order as the ranges
+     */
+    void onRowsReady(BatchRequest request, List<Response<RowType>> responses);
+  }
+
   /**
    * Callback for {@link TableModel}. Every {@link Request} should be associated
    * with a {@link TableModel.Callback} that should be called after a
@@ -55,6 +84,115 @@ public abstract class TableModel<RowType> implements HasRowCountChangeHandlers {
     void onRowsReady(Request request, Response<RowType> response);
   }
 
+  /**
+   * <p>
+   * A {@link Callback} that can receive the rows of a {@link Response} in
+   * chunks, as they arrive.
+   * </p>
+   * <p>
+   * Table models that load rows incrementally should check if the callback is
+   * a {@link StreamingCallback} and pass each chunk of rows to
+   * {@link #onRowsChunk(Request, Response)}, in order. The rows of each chunk
+   * follow the rows of the previous chunk. When all of the rows have been
+   * loaded, the table model must call
+   * {@link Callback#onRowsReady(Request, Response)} with the rows that have
+   * not been passed in a chunk. Table models that do not stream their rows
+   * just call {@link Callback#onRowsReady(Request, Response)} with all of the
+   * rows.
+   * </p>
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  public static interface StreamingCallback<RowType> extends Callback<RowType> {
+    /**
+     * Consume a chunk of the rows created by {@link TableModel} in response to
+     * a Request.
+     * 
+     * @param request the request
+     * @param chunk the next chunk of rows
+     */
+    void onRowsChunk(Request request, Response<RowType> chunk);
+  }
+
+  /**
+   * Collects the responses to the ranges of a {@link BatchRequest} that is
+   * split into individual {@link Request}s.
+   */
+  private class BatchCollector {
+    /**
+     * The callback of the batch request.
+     */
+    private BatchCallback<RowType> callback;
+
+    /**
+     * True if one of the ranges failed.
+     */
+    private boolean failed = false;
+
+    /**
+     * The number of ranges that have not returned yet.
+     */
+    private int remaining;
+
+    /**
+     * The batch request.
+     */
+    private BatchRequest request;
+
+    /**
+     * The response to each range.
+     */
+    private List<Response<RowType>> responses = new ArrayList<Response<RowType>>();
+
+    /**
+     * Construct a new {@link BatchCollector}.
+     * 
+     * @param request the batch request
+     * @param callback the callback of the batch request
+     */
+    public BatchCollector(BatchRequest request, BatchCallback<RowType> callback) {
+      this.request = request;
+      this.callback = callback;
+      this.remaining = request.getRangeCount();
+      for (int i = 0; i < remaining; i++) {
+        responses.add(null);
+      }
+    }
+
+    /**
+     * Request the row values of each range.
+     */
+    public void execute() {
+      if (remaining == 0) {
+        callback.onRowsReady(request, responses);
+        return;
+      }
+      int rangeCount = request.getRangeCount();
+      for (int i = 0; i < rangeCount && !failed; i++) {
+        final int range = i;
+        requestRows(request.getRequest(range), new Callback<RowType>() {
+          public void onFailure(Throwable caught) {
+            if (!failed) {
+              failed = true;
+              callback.onFailure(caught);
+            }
+          }
+
+          public void onRowsReady(Request rangeRequest,
+              Response<RowType> response) {
+            if (!failed) {
+              responses.set(range, response);
+              remaining--;
+              if (remaining == 0) {
+                callback.onRowsReady(request, responses);
+              }
+            }
+          }
+        });
+      }
+    }
+  }
+
   /**
    * Use the ALL_ROWS value in place of the numRows variable when requesting all
    * rows.
@@ -91,6 +229,26 @@ public abstract class TableModel<RowType> implements HasRowCountChangeHandlers {
     return rowCount;
   }
 
+  /**
+   * <p>
+   * Generate a {@link Response} for each range in a {@link BatchRequest}. The
+   * responses are passed into the {@link BatchCallback} together, after all of
+   * the ranges have been loaded.
+   * </p>
+   * <p>
+   * By default, each range is requested separately using
+   * {@link #requestRows(Request, Callback)}. Table models that load their data
+   * from a server should override this method to load all of the ranges in a
+   * single round trip.
+   * </p>
+   * 
+   * @param request the {@link BatchRequest} for row data
+   * @param callback the {@link BatchCallback} to use for the responses
+   */
+  public void requestRows(BatchRequest request, BatchCallback<RowType> callback) {
+    new BatchCollector(request, callback).execute();
+  }
+
   /**
    * Generate a {@link Response} based on a specific {@link Request}. The
    * response is passed into the {@link Callback}.
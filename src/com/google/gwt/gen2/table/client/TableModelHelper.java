@@ -19,8 +19,12 @@ import com.google.gwt.user.client.rpc.IsSerializable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * A helper class that provides all of the inner classes used by
@@ -32,6 +36,583 @@ import java.util.List;
  * This class should be removed once this bug is fixed.
  */
 public final class TableModelHelper {
+  /**
+   * A request for several disjoint ranges of rows that share the same
+   * {@link ColumnSortList}. A batch request can be answered in a single round
+   * trip, with one {@link Response} for each range.
+   */
+  public static class BatchRequest implements IsSerializable {
+    /**
+     * An ordered list of {@link ColumnSortInfo}.
+     */
+    private ColumnSortList columnSortList;
+
+    /**
+     * The indexes of the requested columns, or null for all columns.
+     */
+    private int[] columns;
+
+    /**
+     * The number of rows to request in each range.
+     */
+    private int[] numRows;
+
+    /**
+     * The filter that rows must match, or null for all rows.
+     */
+    private RowFilter rowFilter;
+
+    /**
+     * The first row of each range.
+     */
+    private int[] startRows;
+
+    /**
+     * Default constructor used for RPC.
+     */
+    public BatchRequest() {
+      this(new int[0], new int[0], null);
+    }
+
+    /**
+     * Construct a new {@link BatchRequest}.
+     * 
+     * @param startRows the first row of each range
+     * @param numRows the number of rows to request in each range
+     * @param columnSortList a list of {@link ColumnSortInfo}
+     */
+    public BatchRequest(int[] startRows, int[] numRows,
+        ColumnSortList columnSortList) {
+      this(startRows, numRows, columnSortList, null);
+    }
+
+    /**
+     * Construct a new {@link BatchRequest} for the rows that match a
+     * {@link RowFilter}. The ranges refer to rows in the filtered data.
+     * 
+     * @param startRows the first row of each range
+     * @param numRows the number of rows to request in each range
+     * @param columnSortList a list of {@link ColumnSortInfo}
+     * @param rowFilter the filter that rows must match, or null for all rows
+     */
+    public BatchRequest(int[] startRows, int[] numRows,
+        ColumnSortList columnSortList, RowFilter rowFilter) {
+      this(startRows, numRows, columnSortList, rowFilter, null);
+    }
+
+    /**
+     * Construct a new {@link BatchRequest} that only needs the values of some
+     * columns. See {@link Request#getColumns()}.
+     * 
+     * @param startRows the first row of each range
+     * @param numRows the number of rows to request in each range
+     * @param columnSortList a list of {@link ColumnSortInfo}
+     * @param rowFilter the filter that rows must match, or null for all rows
+     * @param columns the indexes of the requested columns, or null for all
+     */
+    public BatchRequest(int[] startRows, int[] numRows,
+        ColumnSortList columnSortList, RowFilter rowFilter, int[] columns) {
+      if (startRows.length != numRows.length) {
+        throw new IllegalArgumentException(
+            "Each range must have a start row and a number of rows");
+      }
+      int rangeCount = startRows.length;
+      this.startRows = new int[rangeCount];
+      this.numRows = new int[rangeCount];
+      for (int i = 0; i < rangeCount; i++) {
+        this.startRows[i] = startRows[i];
+        this.numRows[i] = numRows[i];
+      }
+      this.columnSortList = columnSortList;
+      this.rowFilter = rowFilter;
+      this.columns = copyColumns(columns);
+    }
+
+    /**
+     * @return the indexes of the requested columns, or null for all columns
+     */
+    public int[] getColumns() {
+      return copyColumns(columns);
+    }
+
+    /**
+     * @return the list of {@link ColumnSortInfo}
+     */
+    public ColumnSortList getColumnSortList() {
+      return columnSortList;
+    }
+
+    /**
+     * Get the number of rows requested in a range.
+     * 
+     * @param range the index of the range
+     * @return the number of requested rows
+     */
+    public int getNumRows(int range) {
+      return numRows[range];
+    }
+
+    /**
+     * @return the number of ranges in the request
+     */
+    public int getRangeCount() {
+      return startRows.length;
+    }
+
+    /**
+     * Get a single range as a {@link Request}.
+     * 
+     * @param range the index of the range
+     * @return the request for the range
+     */
+    public Request getRequest(int range) {
+      return new Request(startRows[range], numRows[range], columnSortList,
+          rowFilter, columns);
+    }
+
+    /**
+     * @return the filter that rows must match, or null for all rows
+     */
+    public RowFilter getRowFilter() {
+      return rowFilter;
+    }
+
+    /**
+     * Get the first row requested in a range.
+     * 
+     * @param range the index of the range
+     * @return the first requested row
+     */
+    public int getStartRow(int range) {
+      return startRows[range];
+    }
+  }
+
+  /**
+   * A read only view of a single row in a {@link ColumnarResponse}. Cell
+   * values are decoded from the columns of the response when they are
+   * accessed.
+   */
+  public static class ColumnarRow {
+    /**
+     * The response that contains the row.
+     */
+    private ColumnarResponse response;
+
+    /**
+     * The index of the row in the response.
+     */
+    private int row;
+
+    /**
+     * Construct a new {@link ColumnarRow}.
+     * 
+     * @param response the response that contains the row
+     * @param row the index of the row in the response
+     */
+    public ColumnarRow(ColumnarResponse response, int row) {
+      this.response = response;
+      this.row = row;
+    }
+
+    /**
+     * Get the value of a boolean cell.
+     * 
+     * @param column the column index
+     * @return the cell value, or false if the cell is null
+     */
+    public boolean getBoolean(int column) {
+      return response.getBoolean(row, column);
+    }
+
+    /**
+     * Get the value of a cell as an {@link Object}.
+     * 
+     * @param column the column index
+     * @return the cell value
+     */
+    public Object getCellValue(int column) {
+      return response.getCellValue(row, column);
+    }
+
+    /**
+     * @return the number of columns in the row
+     */
+    public int getColumnCount() {
+      return response.getColumnCount();
+    }
+
+    /**
+     * Get the value of a double or integer cell.
+     * 
+     * @param column the column index
+     * @return the cell value, or 0 if the cell is null
+     */
+    public double getDouble(int column) {
+      return response.getDouble(row, column);
+    }
+
+    /**
+     * Get the value of an integer cell.
+     * 
+     * @param column the column index
+     * @return the cell value, or 0 if the cell is null
+     */
+    public int getInt(int column) {
+      return response.getInt(row, column);
+    }
+
+    /**
+     * @return the index of the row in the response
+     */
+    public int getRowIndex() {
+      return row;
+    }
+
+    /**
+     * Get the value of a cell as a {@link String}.
+     * 
+     * @param column the column index
+     * @return the cell value, or null if the cell is null
+     */
+    public String getString(int column) {
+      return response.getString(row, column);
+    }
+
+    /**
+     * Check if a cell is null.
+     * 
+     * @param column the column index
+     * @return true if the cell is null
+     */
+    public boolean isNull(int column) {
+      return response.isNull(row, column);
+    }
+  }
+
+  /**
+   * <p>
+   * A serializable response that stores the cell values column by column
+   * instead of row by row. The cells of a string column are encoded as
+   * indexes into a dictionary of the distinct strings in that column, so
+   * repeated values are only transmitted once. Integer, double, and boolean
+   * columns are stored in primitive arrays.
+   * </p>
+   * <p>
+   * The response is decoded lazily into {@link ColumnarRow} views, so cell
+   * values are only unpacked when they are accessed.
+   * </p>
+   */
+  public static class ColumnarResponse extends Response<ColumnarRow> implements
+      IsSerializable {
+    /**
+     * The column type of boolean cell values.
+     */
+    public static final int TYPE_BOOLEAN = 0;
+
+    /**
+     * The column type of double cell values.
+     */
+    public static final int TYPE_DOUBLE = 1;
+
+    /**
+     * The column type of integer cell values.
+     */
+    public static final int TYPE_INTEGER = 2;
+
+    /**
+     * The column type of string cell values. Values of any other type are
+     * converted to strings.
+     */
+    public static final int TYPE_STRING = 3;
+
+    /**
+     * The column type of a column that was not requested. Every cell in the
+     * column is null, and no values are sent.
+     */
+    public static final int TYPE_OMITTED = 4;
+
+    /**
+     * The type of each column.
+     */
+    private int[] columnTypes;
+
+    /**
+     * The distinct strings of each string column.
+     */
+    private String[][] dictionaries;
+
+    /**
+     * The cell values of each double column.
+     */
+    private double[][] doubleValues;
+
+    /**
+     * The cell values of each integer and boolean column, or the dictionary
+     * index of each cell in a string column.
+     */
+    private int[][] intValues;
+
+    /**
+     * The null cells of each column, or null if a column has no null cells.
+     */
+    private boolean[][] nullValues;
+
+    /**
+     * The number of rows in the response.
+     */
+    private int rowCount;
+
+    /**
+     * Default constructor used for RPC.
+     */
+    public ColumnarResponse() {
+    }
+
+    /**
+     * Create a new {@link ColumnarResponse}. Use
+     * {@link #setColumnValues(int, List)} to set the cell values.
+     * 
+     * @param columnTypes the type of each column
+     * @param rowCount the number of rows in the response
+     */
+    public ColumnarResponse(int[] columnTypes, int rowCount) {
+      int columnCount = columnTypes.length;
+      this.columnTypes = new int[columnCount];
+      this.rowCount = rowCount;
+      dictionaries = new String[columnCount][];
+      doubleValues = new double[columnCount][];
+      intValues = new int[columnCount][];
+      nullValues = new boolean[columnCount][];
+      for (int column = 0; column < columnCount; column++) {
+        int type = columnTypes[column];
+        this.columnTypes[column] = type;
+        if (type == TYPE_DOUBLE) {
+          doubleValues[column] = new double[rowCount];
+        } else if (type == TYPE_STRING) {
+          dictionaries[column] = new String[0];
+          intValues[column] = new int[rowCount];
+        } else if (type == TYPE_BOOLEAN || type == TYPE_INTEGER) {
+          intValues[column] = new int[rowCount];
+        } else if (type != TYPE_OMITTED) {
+          throw new IllegalArgumentException("Unknown column type: " + type);
+        }
+      }
+    }
+
+    /**
+     * Get the value of a boolean cell.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return the cell value, or false if the cell is null
+     */
+    public boolean getBoolean(int row, int column) {
+      return isNull(row, column) ? false : intValues[column][row] != 0;
+    }
+
+    /**
+     * Get the value of a cell as an {@link Object}.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return the cell value
+     */
+    public Object getCellValue(int row, int column) {
+      if (isNull(row, column)) {
+        return null;
+      }
+      switch (columnTypes[column]) {
+        case TYPE_BOOLEAN:
+          return Boolean.valueOf(getBoolean(row, column));
+        case TYPE_DOUBLE:
+          return new Double(getDouble(row, column));
+        case TYPE_INTEGER:
+          return new Integer(getInt(row, column));
+        default:
+          return getString(row, column);
+      }
+    }
+
+    /**
+     * @return the number of columns in the response
+     */
+    public int getColumnCount() {
+      return columnTypes.length;
+    }
+
+    /**
+     * Get the type of a column.
+     * 
+     * @param column the column index
+     * @return the column type
+     */
+    public int getColumnType(int column) {
+      return columnTypes[column];
+    }
+
+    /**
+     * Get the number of distinct strings in a string column.
+     * 
+     * @param column the column index
+     * @return the size of the dictionary, or 0 if the column is not a string
+     *         column
+     */
+    public int getDictionarySize(int column) {
+      String[] dictionary = dictionaries[column];
+      return dictionary == null ? 0 : dictionary.length;
+    }
+
+    /**
+     * Get the value of a double or integer cell.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return the cell value, or 0 if the cell is null
+     */
+    public double getDouble(int row, int column) {
+      if (columnTypes[column] == TYPE_OMITTED) {
+        return 0;
+      } else if (columnTypes[column] == TYPE_DOUBLE) {
+        return doubleValues[column][row];
+      }
+      return intValues[column][row];
+    }
+
+    /**
+     * Get the value of an integer cell.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return the cell value, or 0 if the cell is null
+     */
+    public int getInt(int row, int column) {
+      if (columnTypes[column] == TYPE_OMITTED) {
+        return 0;
+      } else if (columnTypes[column] == TYPE_DOUBLE) {
+        return (int) doubleValues[column][row];
+      }
+      return intValues[column][row];
+    }
+
+    /**
+     * @return the number of rows in the response
+     */
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    @Override
+    public Iterator<ColumnarRow> getRowValues() {
+      return new Iterator<ColumnarRow>() {
+        private int nextRow = 0;
+
+        public boolean hasNext() {
+          return nextRow < rowCount;
+        }
+
+        public ColumnarRow next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return new ColumnarRow(ColumnarResponse.this, nextRow++);
+        }
+
+        public void remove() {
+          throw (new UnsupportedOperationException());
+        }
+      };
+    }
+
+    /**
+     * Get the value of a cell as a {@link String}.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return the cell value, or null if the cell is null
+     */
+    public String getString(int row, int column) {
+      if (isNull(row, column)) {
+        return null;
+      } else if (columnTypes[column] == TYPE_STRING) {
+        return dictionaries[column][intValues[column][row]];
+      }
+      return getCellValue(row, column).toString();
+    }
+
+    /**
+     * Check if a cell is null.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return true if the cell is null
+     */
+    public boolean isNull(int row, int column) {
+      if (columnTypes[column] == TYPE_OMITTED) {
+        return true;
+      }
+      boolean[] nulls = nullValues[column];
+      return nulls != null && nulls[row];
+    }
+
+    /**
+     * Set the values of all cells in a column. This method can only be used on
+     * a response that was created with {@link #ColumnarResponse(int[], int)},
+     * before it is serialized.
+     * 
+     * @param column the column index
+     * @param cellValues the cell values, one for each row
+     */
+    public void setColumnValues(int column, List<?> cellValues) {
+      if (cellValues.size() != rowCount) {
+        throw new IllegalArgumentException("Expected " + rowCount
+            + " cell values, but got " + cellValues.size());
+      }
+      if (columnTypes[column] == TYPE_OMITTED) {
+        return;
+      }
+
+      // Encode the values
+      int type = columnTypes[column];
+      boolean[] nulls = null;
+      Map<String, Integer> indexes = null;
+      List<String> dictionary = null;
+      if (type == TYPE_STRING) {
+        indexes = new HashMap<String, Integer>();
+        dictionary = new ArrayList<String>();
+      }
+      for (int row = 0; row < rowCount; row++) {
+        Object value = cellValues.get(row);
+        if (value == null) {
+          if (nulls == null) {
+            nulls = new boolean[rowCount];
+          }
+          nulls[row] = true;
+        } else if (type == TYPE_BOOLEAN) {
+          intValues[column][row] = Boolean.TRUE.equals(value) ? 1 : 0;
+        } else if (type == TYPE_DOUBLE) {
+          doubleValues[column][row] = ((Number) value).doubleValue();
+        } else if (type == TYPE_INTEGER) {
+          intValues[column][row] = ((Number) value).intValue();
+        } else {
+          // Look up the string in the dictionary
+          String string = value.toString();
+          Integer index = indexes.get(string);
+          if (index == null) {
+            index = new Integer(dictionary.size());
+            indexes.put(string, index);
+            dictionary.add(string);
+          }
+          intValues[column][row] = index.intValue();
+        }
+      }
+      nullValues[column] = nulls;
+      if (dictionary != null) {
+        dictionaries[column] = dictionary.toArray(new String[dictionary.size()]);
+      }
+    }
+  }
+
   /**
    * Information about the sort order of a specific column in a table.
    */
@@ -309,6 +890,16 @@ public final class TableModelHelper {
      */
     private ColumnSortList columnSortList;
 
+    /**
+     * The indexes of the requested columns, or null for all columns.
+     */
+    private int[] columns;
+
+    /**
+     * The filter that rows must match, or null for all rows.
+     */
+    private RowFilter rowFilter;
+
     /**
      * The first row of table data to request.
      */
@@ -340,9 +931,55 @@ public final class TableModelHelper {
      * @param columnSortList a list of {@link ColumnSortInfo}
      */
     public Request(int startRow, int numRows, ColumnSortList columnSortList) {
+      this(startRow, numRows, columnSortList, null);
+    }
+
+    /**
+     * Construct a new {@link Request} for the rows that match a
+     * {@link RowFilter}. The start row and number of rows refer to rows in the
+     * filtered data.
+     * 
+     * @param startRow the first row to request
+     * @param numRows the number of rows to request
+     * @param columnSortList a list of {@link ColumnSortInfo}
+     * @param rowFilter the filter that rows must match, or null for all rows
+     */
+    public Request(int startRow, int numRows, ColumnSortList columnSortList,
+        RowFilter rowFilter) {
+      this(startRow, numRows, columnSortList, rowFilter, null);
+    }
+
+    /**
+     * Construct a new {@link Request} that only needs the values of some
+     * columns. See {@link #getColumns()}.
+     * 
+     * @param startRow the first row to request
+     * @param numRows the number of rows to request
+     * @param columnSortList a list of {@link ColumnSortInfo}
+     * @param rowFilter the filter that rows must match, or null for all rows
+     * @param columns the indexes of the requested columns, or null for all
+     */
+    public Request(int startRow, int numRows, ColumnSortList columnSortList,
+        RowFilter rowFilter, int[] columns) {
       this.startRow = startRow;
       this.numRows = numRows;
       this.columnSortList = columnSortList;
+      this.rowFilter = rowFilter;
+      this.columns = copyColumns(columns);
+    }
+
+    /**
+     * Get the indexes of the columns that the requester will display. A table
+     * model may leave the values of other columns out of the returned rows, so
+     * hidden columns are not loaded or sent over the wire. Column indexes are
+     * stable identifiers of the columns in the data set, such as the index of
+     * a column in the full list of column definitions, and do not change when
+     * other columns are shown or hidden.
+     * 
+     * @return the indexes of the requested columns, or null for all columns
+     */
+    public int[] getColumns() {
+      return copyColumns(columns);
     }
 
     /**
@@ -359,12 +996,37 @@ public final class TableModelHelper {
       return numRows;
     }
 
+    /**
+     * @return the filter that rows must match, or null for all rows
+     */
+    public RowFilter getRowFilter() {
+      return rowFilter;
+    }
+
     /**
      * @return the first requested row
      */
     public int getStartRow() {
       return startRow;
     }
+
+    /**
+     * Check if the value of a column is requested.
+     * 
+     * @param column the column index
+     * @return true if the column is requested
+     */
+    public boolean isColumnRequested(int column) {
+      if (columns == null) {
+        return true;
+      }
+      for (int requested : columns) {
+        if (requested == column) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 
   /**
@@ -381,6 +1043,235 @@ public final class TableModelHelper {
     public abstract Iterator<RowType> getRowValues();
   }
 
+  /**
+   * A serializable filter expression that selects rows by the values in their
+   * cells. Filters compare a single column against a value, or combine other
+   * filters with AND or OR. Filters are immutable and compare by value, so they
+   * can be used as cache keys.
+   * 
+   * Cell values are compared by type: if a cell value is a {@link Number}, the
+   * filter value is parsed as a number; otherwise the filter value is compared
+   * to the string value of the cell. Use {@link CompiledRowFilter} to evaluate a
+   * filter against many rows.
+   */
+  public static class RowFilter implements IsSerializable {
+    /**
+     * A filter that matches rows that match all of its child filters.
+     */
+    public static final int TYPE_AND = 0;
+
+    /**
+     * A filter that matches cells whose string value contains the filter value,
+     * ignoring case.
+     */
+    public static final int TYPE_CONTAINS = 1;
+
+    /**
+     * A filter that matches cells that are equal to the filter value.
+     */
+    public static final int TYPE_EQUALS = 2;
+
+    /**
+     * A filter that matches rows that match any of its child filters.
+     */
+    public static final int TYPE_OR = 3;
+
+    /**
+     * A filter that matches cells between the minimum and maximum value,
+     * inclusive.
+     */
+    public static final int TYPE_RANGE = 4;
+
+    /**
+     * Create a filter that matches rows that match all of the specified
+     * filters.
+     * 
+     * @param filters the child filters
+     * @return the new filter
+     */
+    public static RowFilter and(RowFilter... filters) {
+      return new RowFilter(TYPE_AND, -1, null, null, filters);
+    }
+
+    /**
+     * Create a filter that matches cells whose string value contains the
+     * specified text, ignoring case.
+     * 
+     * @param column the column to filter
+     * @param text the text to look for
+     * @return the new filter
+     */
+    public static RowFilter contains(int column, String text) {
+      return new RowFilter(TYPE_CONTAINS, column, text, null, null);
+    }
+
+    /**
+     * Create a filter that matches cells that are equal to a value. A null value
+     * matches empty cells.
+     * 
+     * @param column the column to filter
+     * @param value the value to match
+     * @return the new filter
+     */
+    public static RowFilter equalTo(int column, String value) {
+      return new RowFilter(TYPE_EQUALS, column, value, null, null);
+    }
+
+    /**
+     * Create a filter that matches rows that match any of the specified filters.
+     * 
+     * @param filters the child filters
+     * @return the new filter
+     */
+    public static RowFilter or(RowFilter... filters) {
+      return new RowFilter(TYPE_OR, -1, null, null, filters);
+    }
+
+    /**
+     * Create a filter that matches cells between two values, inclusive. Empty
+     * cells never match.
+     * 
+     * @param column the column to filter
+     * @param minValue the minimum value, or null for no minimum
+     * @param maxValue the maximum value, or null for no maximum
+     * @return the new filter
+     */
+    public static RowFilter range(int column, String minValue, String maxValue) {
+      return new RowFilter(TYPE_RANGE, column, minValue, maxValue, null);
+    }
+
+    /**
+     * The child filters of an AND or OR filter.
+     */
+    private ArrayList<RowFilter> children;
+
+    /**
+     * The column to filter.
+     */
+    private int column;
+
+    /**
+     * The maximum value of a range filter.
+     */
+    private String maxValue;
+
+    /**
+     * The type of filter.
+     */
+    private int type;
+
+    /**
+     * The value to compare, or the minimum value of a range filter.
+     */
+    private String value;
+
+    /**
+     * Default constructor used for RPC.
+     */
+    public RowFilter() {
+      this(TYPE_AND, -1, null, null, null);
+    }
+
+    /**
+     * Construct a new {@link RowFilter}.
+     * 
+     * @param type the type of filter
+     * @param column the column to filter
+     * @param value the value or minimum value
+     * @param maxValue the maximum value
+     * @param filters the child filters
+     */
+    private RowFilter(int type, int column, String value, String maxValue,
+        RowFilter[] filters) {
+      this.type = type;
+      this.column = column;
+      this.value = value;
+      this.maxValue = maxValue;
+      this.children = new ArrayList<RowFilter>();
+      if (filters != null) {
+        for (RowFilter filter : filters) {
+          if (filter == null) {
+            throw new IllegalArgumentException("Child filters cannot be null");
+          }
+          children.add(filter);
+        }
+      }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      } else if (!(obj instanceof RowFilter)) {
+        return false;
+      }
+      RowFilter filter = (RowFilter) obj;
+      return type == filter.type && column == filter.column
+          && equalValues(value, filter.value)
+          && equalValues(maxValue, filter.maxValue)
+          && children.equals(filter.children);
+    }
+
+    /**
+     * Get the child filters of an AND or OR filter.
+     * 
+     * @return an immutable list of child filters
+     */
+    public List<RowFilter> getChildren() {
+      return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * @return the column to filter, or -1 for AND and OR filters
+     */
+    public int getColumn() {
+      return column;
+    }
+
+    /**
+     * @return the maximum value of a range filter, or null for no maximum
+     */
+    public String getMaxValue() {
+      return maxValue;
+    }
+
+    /**
+     * @return the type of filter
+     */
+    public int getType() {
+      return type;
+    }
+
+    /**
+     * Get the value to compare. For range filters, this is the minimum value, or
+     * null for no minimum.
+     * 
+     * @return the value to compare
+     */
+    public String getValue() {
+      return value;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 31 * type + column;
+      hash = 31 * hash + (value == null ? 0 : value.hashCode());
+      hash = 31 * hash + (maxValue == null ? 0 : maxValue.hashCode());
+      return 31 * hash + children.hashCode();
+    }
+
+    /**
+     * Check if two values are equal, either of which may be null.
+     * 
+     * @param value1 the first value
+     * @param value2 the second value
+     * @return true if the values are equal
+     */
+    private boolean equalValues(String value1, String value2) {
+      return value1 == null ? value2 == null : value1.equals(value2);
+    }
+  }
+
   /**
    * A response from the {@link TableModelHelper} that is serializable, and can
    * by used over RPC.
@@ -436,4 +1327,22 @@ public final class TableModelHelper {
       throw (new UnsupportedOperationException());
     }
   }
+
+  /**
+   * Copy an array of column indexes so requests cannot be changed after they
+   * are created.
+   * 
+   * @param columns the column indexes, or null for all columns
+   * @return a copy of the column indexes, or null for all columns
+   */
+  private static int[] copyColumns(int[] columns) {
+    if (columns == null) {
+      return null;
+    }
+    int[] copy = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      copy[i] = columns[i];
+    }
+    return copy;
+  }
 }
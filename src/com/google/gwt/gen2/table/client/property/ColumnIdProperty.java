@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client.property;
+
+/**
+ * A {@link ColumnProperty} that gives a column a stable identifier, such as the
+ * index of the column in the data set. Column identifiers are sent with
+ * requests when column projection is enabled, so they must not change when
+ * other columns are shown or hidden.
+ */
+public class ColumnIdProperty extends ColumnProperty {
+  /**
+   * The value returned by {@link #getColumnId()} if the column does not have
+   * an identifier.
+   */
+  public static final int NO_COLUMN_ID = -1;
+
+  /**
+   * Property type.
+   */
+  public static final Type<ColumnIdProperty> TYPE = new Type<ColumnIdProperty>() {
+    private ColumnIdProperty instance;
+
+    @Override
+    public ColumnIdProperty getDefault() {
+      if (instance == null) {
+        instance = new ColumnIdProperty(NO_COLUMN_ID);
+      }
+      return instance;
+    }
+  };
+
+  private int columnId;
+
+  /**
+   * Construct a new {@link ColumnIdProperty}.
+   * 
+   * @param columnId the identifier of the column
+   */
+  public ColumnIdProperty(int columnId) {
+    this.columnId = columnId;
+  }
+
+  /**
+   * Get the identifier of the column.
+   * 
+   * @return the identifier, or {@link #NO_COLUMN_ID} if the column does not
+   *         have one
+   */
+  public int getColumnId() {
+    return columnId;
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.gwt.gen2.table.event.client;
 
 import com.google.gwt.gen2.event.shared.AbstractEvent;
+import com.google.gwt.gen2.table.client.PageLoadTimings;
 
 /**
  * Logical event fired when a page has finished loaded.
@@ -37,13 +38,29 @@ public class PageLoadEvent extends AbstractEvent {
    */
   private int page;
 
+  /**
+   * The timing breakdown of the page load.
+   */
+  private PageLoadTimings timings;
+
   /**
    * Construct a new {@link PageLoadEvent}.
    * 
    * @param page the page that was loaded
    */
   public PageLoadEvent(int page) {
+    this(page, null);
+  }
+
+  /**
+   * Construct a new {@link PageLoadEvent}.
+   * 
+   * @param page the page that was loaded
+   * @param timings the timing breakdown of the page load, or null
+   */
+  public PageLoadEvent(int page, PageLoadTimings timings) {
     this.page = page;
+    this.timings = timings;
   }
 
   /**
@@ -53,6 +70,14 @@ public class PageLoadEvent extends AbstractEvent {
     return page;
   }
 
+  /**
+   * @return the timing breakdown of the page load, or null if the page load
+   *         was not timed
+   */
+  public PageLoadTimings getTimings() {
+    return timings;
+  }
+
   @Override
   protected Type getType() {
     return TYPE;
@@ -37,17 +37,40 @@ public class RowInsertionEvent extends AbstractEvent {
    */
   private int rowIndex;
 
+  /**
+   * The number of inserted rows.
+   */
+  private int rowCount;
+
   /**
    * Construct a new {@link RowInsertionEvent}.
    * 
    * @param rowIndex the index of the new row
    */
   public RowInsertionEvent(int rowIndex) {
+    this(rowIndex, 1);
+  }
+
+  /**
+   * Construct a new {@link RowInsertionEvent} for a range of rows.
+   * 
+   * @param rowIndex the index of the first new row
+   * @param rowCount the number of inserted rows
+   */
+  public RowInsertionEvent(int rowIndex, int rowCount) {
     this.rowIndex = rowIndex;
+    this.rowCount = rowCount;
+  }
+
+  /**
+   * @return the number of inserted rows
+   */
+  public int getRowCount() {
+    return rowCount;
   }
 
   /**
-   * @return the index of the inserted row
+   * @return the index of the inserted row, or the first inserted row of a range
    */
   public int getRowIndex() {
     return rowIndex;
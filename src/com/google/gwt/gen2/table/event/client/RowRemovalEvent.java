@@ -37,17 +37,40 @@ public class RowRemovalEvent extends AbstractEvent {
    */
   private int rowIndex;
 
+  /**
+   * The number of removed rows.
+   */
+  private int rowCount;
+
   /**
    * Construct a new {@link RowRemovalEvent}.
    * 
    * @param rowIndex the index of the removed row
    */
   public RowRemovalEvent(int rowIndex) {
+    this(rowIndex, 1);
+  }
+
+  /**
+   * Construct a new {@link RowRemovalEvent} for a range of rows.
+   * 
+   * @param rowIndex the index of the first removed row
+   * @param rowCount the number of removed rows
+   */
+  public RowRemovalEvent(int rowIndex, int rowCount) {
     this.rowIndex = rowIndex;
+    this.rowCount = rowCount;
+  }
+
+  /**
+   * @return the number of removed rows
+   */
+  public int getRowCount() {
+    return rowCount;
   }
 
   /**
-   * @return the index of the removed row
+   * @return the index of the removed row, or the first removed row of a range
    */
   public int getRowIndex() {
     return rowIndex;
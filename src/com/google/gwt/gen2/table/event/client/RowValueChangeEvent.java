@@ -18,6 +18,9 @@ package com.google.gwt.gen2.table.event.client;
 
 import com.google.gwt.gen2.event.shared.AbstractEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Logical event fired when a row is inserted.
  * 
@@ -39,6 +42,11 @@ public class RowValueChangeEvent<RowType> extends AbstractEvent {
    */
   private RowType rowValue;
 
+  /**
+   * The new row values of a range of rows, or null if a single row changed.
+   */
+  private List<RowType> rowValues;
+
   /**
    * The index of the row.
    */
@@ -56,19 +64,50 @@ public class RowValueChangeEvent<RowType> extends AbstractEvent {
   }
 
   /**
-   * @return the index of the row
+   * Construct a new {@link RowValueChangeEvent} for a range of rows.
+   * 
+   * @param rowIndex the index of the first row
+   * @param rowValues the new row values, which must not be empty
+   */
+  public RowValueChangeEvent(int rowIndex, List<RowType> rowValues) {
+    this.rowIndex = rowIndex;
+    this.rowValue = rowValues.get(0);
+    this.rowValues = rowValues;
+  }
+
+  /**
+   * @return the number of rows that changed
+   */
+  public int getRowCount() {
+    return (rowValues == null) ? 1 : rowValues.size();
+  }
+
+  /**
+   * @return the index of the row, or the first row of a range
    */
   public int getRowIndex() {
     return rowIndex;
   }
 
   /**
-   * @return the row value
+   * @return the row value, or the value of the first row of a range
    */
   public RowType getRowValue() {
     return rowValue;
   }
 
+  /**
+   * @return the new values of all rows that changed, starting at the row index
+   */
+  public List<RowType> getRowValues() {
+    if (rowValues == null) {
+      List<RowType> values = new ArrayList<RowType>();
+      values.add(rowValue);
+      return values;
+    }
+    return rowValues;
+  }
+
   @Override
   protected Type getType() {
     return TYPE;
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.server;
+
+import com.google.gwt.gen2.table.client.CellRenderer;
+import com.google.gwt.gen2.table.client.ColumnDefinition;
+import com.google.gwt.gen2.table.client.DefaultCellRenderer;
+import com.google.gwt.gen2.table.client.HasTableDefinition;
+import com.google.gwt.gen2.table.client.RendererCallback;
+import com.google.gwt.gen2.table.client.RowRenderer;
+import com.google.gwt.gen2.table.client.TableBulkRenderer;
+import com.google.gwt.gen2.table.client.TableDefinition;
+import com.google.gwt.gen2.table.client.TableDefinition.AbstractCellView;
+import com.google.gwt.gen2.table.client.TableDefinition.AbstractRowView;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.gwt.user.client.ui.HasHorizontalAlignment.HorizontalAlignmentConstant;
+import com.google.gwt.user.client.ui.HasVerticalAlignment.VerticalAlignmentConstant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Renders pages of a table into HTML on the server. The rows requested by a
+ * {@link Request} are loaded from a {@link TableQueryEngine} and rendered with
+ * the {@link RowRenderer} and {@link CellRenderer CellRenderers} of a
+ * {@link TableDefinition}, producing the same markup as the
+ * {@link TableBulkRenderer} does on the client. Clients can pass the HTML to
+ * {@link TableBulkRenderer#renderRows(String, RendererCallback)} instead of
+ * rendering the row values themselves, and attach the row values later.
+ * </p>
+ * 
+ * <h1>Limitations</h1>
+ * <p>
+ * Cell renderers run on the server, so they must not create widgets or use
+ * client only APIs such as deferred binding. Calling
+ * {@link AbstractCellView#setWidget(Widget)} throws an
+ * {@link UnsupportedOperationException}.
+ * </p>
+ * 
+ * <h1>Caching</h1>
+ * <p>
+ * Rendered pages are cached, keyed by the start row, number of rows, sort
+ * order, filter, and columns of the request and by the visible columns of the
+ * {@link TableDefinition}, up to {@link #getMaximumCachedPageCount()} pages.
+ * The renderer can be shared by concurrent servlet threads as long as the
+ * renderers in the {@link TableDefinition} are thread safe.
+ * </p>
+ * 
+ * @param <RowType> the data type of the row values
+ */
+public class TableHtmlRenderer<RowType> implements HasTableDefinition<RowType> {
+  /**
+   * A cell view that appends the HTML of each cell to a buffer.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  private static class HtmlCellView<RowType> extends AbstractCellView<RowType> {
+    /**
+     * The buffer used to assemble the HTML of the table.
+     */
+    private StringBuilder buffer;
+
+    /**
+     * The horizontal alignment to apply to the current cell.
+     */
+    private HorizontalAlignmentConstant curCellHorizontalAlign = null;
+
+    /**
+     * The html string to add to the cell.
+     */
+    private String curCellHtml = null;
+
+    /**
+     * The style attributes to apply to the current cell.
+     */
+    private Map<String, String> curCellStyles = new LinkedHashMap<String, String>();
+
+    /**
+     * The style name to be applied to the current cell.
+     */
+    private String curCellStyleName = null;
+
+    /**
+     * The vertical alignment to apply to the current cell.
+     */
+    private VerticalAlignmentConstant curCellVerticalAlign = null;
+
+    /**
+     * Construct a new {@link HtmlCellView}.
+     * 
+     * @param source the source of the table definition
+     * @param buffer the buffer used to assemble the HTML
+     */
+    public HtmlCellView(HasTableDefinition<RowType> source,
+        StringBuilder buffer) {
+      super(source);
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void setHorizontalAlignment(HorizontalAlignmentConstant align) {
+      curCellHorizontalAlign = align;
+    }
+
+    @Override
+    public void setHTML(String html) {
+      curCellHtml = html;
+    }
+
+    @Override
+    public void setStyleAttribute(String attr, String value) {
+      curCellStyles.put(attr, value);
+    }
+
+    @Override
+    public void setStyleName(String stylename) {
+      curCellStyleName = stylename;
+    }
+
+    @Override
+    public void setText(String text) {
+      setHTML(DefaultCellRenderer.escapeHtml(text));
+    }
+
+    @Override
+    public void setVerticalAlignment(VerticalAlignmentConstant align) {
+      curCellVerticalAlign = align;
+    }
+
+    @Override
+    public void setWidget(Widget widget) {
+      throw new UnsupportedOperationException(
+          "Widgets cannot be rendered on the server");
+    }
+
+    @Override
+    protected void renderCellImpl(int rowIndex, int cellIndex,
+        RowType rowValue, ColumnDefinition<RowType, ?> columnDef) {
+      curCellHtml = null;
+      curCellStyleName = null;
+      curCellHorizontalAlign = null;
+      curCellVerticalAlign = null;
+      curCellStyles.clear();
+      super.renderCellImpl(rowIndex, cellIndex, rowValue, columnDef);
+
+      // Add the open tag
+      buffer.append("<td");
+      if (curCellHorizontalAlign != null) {
+        buffer.append(" align=\"");
+        String align = curCellHorizontalAlign.getTextAlignString();
+        buffer.append(DefaultCellRenderer.escapeHtml(align));
+        buffer.append("\"");
+      }
+      if (curCellVerticalAlign != null) {
+        curCellStyles.put("verticalAlign",
+            curCellVerticalAlign.getVerticalAlignString());
+      }
+      appendStyles(buffer, curCellStyleName, curCellStyles);
+      buffer.append(">");
+
+      // Add contents
+      if (curCellHtml != null) {
+        buffer.append(curCellHtml);
+      }
+
+      // Add close tag
+      buffer.append("</td>");
+    }
+  }
+
+  /**
+   * A row view that appends the HTML of each row to a buffer.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  private static class HtmlRowView<RowType> extends AbstractRowView<RowType> {
+    /**
+     * The buffer used to assemble the HTML of the table.
+     */
+    private StringBuilder buffer;
+
+    /**
+     * The style attributes to apply to the current row.
+     */
+    private Map<String, String> curRowStyles = new LinkedHashMap<String, String>();
+
+    /**
+     * The style name to be applied to the current row.
+     */
+    private String curRowStyleName = null;
+
+    /**
+     * Construct a new {@link HtmlRowView}.
+     * 
+     * @param cellView the view of the cells
+     * @param buffer the buffer used to assemble the HTML
+     */
+    public HtmlRowView(HtmlCellView<RowType> cellView, StringBuilder buffer) {
+      super(cellView);
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void setStyleAttribute(String attr, String value) {
+      curRowStyles.put(attr, value);
+    }
+
+    @Override
+    public void setStyleName(String stylename) {
+      curRowStyleName = stylename;
+    }
+
+    @Override
+    protected void renderRowImpl(int rowIndex, RowType rowValue,
+        RowRenderer<RowType> rowRenderer,
+        List<ColumnDefinition<RowType, ?>> visibleColumns) {
+      super.renderRowImpl(rowIndex, rowValue, rowRenderer, visibleColumns);
+      buffer.append("</tr>");
+    }
+
+    @Override
+    protected void renderRowValue(RowType rowValue,
+        RowRenderer<RowType> rowRenderer) {
+      curRowStyleName = null;
+      curRowStyles.clear();
+      super.renderRowValue(rowValue, rowRenderer);
+
+      // Add the open tag
+      buffer.append("<tr");
+      appendStyles(buffer, curRowStyleName, curRowStyles);
+      buffer.append(">");
+    }
+  }
+
+  /**
+   * The default maximum number of rendered pages to cache.
+   */
+  public static final int DEFAULT_MAX_CACHED_PAGE_COUNT = 32;
+
+  /**
+   * The engine that loads the requested rows.
+   */
+  private final TableQueryEngine<RowType> engine;
+
+  /**
+   * The maximum number of rendered pages to cache.
+   */
+  private final int maxCachedPageCount;
+
+  /**
+   * The cached pages, keyed by request, in order of access.
+   */
+  private final Map<Object, String> pageCache;
+
+  /**
+   * The definition of the columns.
+   */
+  private final TableDefinition<RowType> tableDefinition;
+
+  /**
+   * Construct a new {@link TableHtmlRenderer}.
+   * 
+   * @param engine the engine that loads the requested rows
+   * @param tableDefinition the definition of the columns
+   */
+  public TableHtmlRenderer(TableQueryEngine<RowType> engine,
+      TableDefinition<RowType> tableDefinition) {
+    this(engine, tableDefinition, DEFAULT_MAX_CACHED_PAGE_COUNT);
+  }
+
+  /**
+   * Construct a new {@link TableHtmlRenderer}.
+   * 
+   * @param engine the engine that loads the requested rows
+   * @param tableDefinition the definition of the columns
+   * @param maxCachedPageCount the maximum number of rendered pages to cache
+   */
+  public TableHtmlRenderer(TableQueryEngine<RowType> engine,
+      TableDefinition<RowType> tableDefinition, int maxCachedPageCount) {
+    this.engine = engine;
+    this.tableDefinition = tableDefinition;
+    this.maxCachedPageCount = Math.max(0, maxCachedPageCount);
+
+    // Create a cache that removes the least recently used page
+    pageCache = Collections.synchronizedMap(new LinkedHashMap<Object, String>(
+        16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+        return size() > TableHtmlRenderer.this.maxCachedPageCount;
+      }
+    });
+  }
+
+  /**
+   * Remove all cached pages. Call this method if the output of the renderers
+   * changes.
+   */
+  public void clearCache() {
+    pageCache.clear();
+  }
+
+  /**
+   * @return the number of rendered pages that are currently cached
+   */
+  public int getCachedPageCount() {
+    return pageCache.size();
+  }
+
+  /**
+   * Get the HTML of the rows requested by a {@link Request}. The rows are
+   * rendered starting at row index zero, so the HTML replaces the contents of
+   * the table on the client.
+   * 
+   * @param request the request
+   * @return the HTML of a table that contains the requested rows
+   */
+  public String getHtml(Request request) {
+    // Check the cache. The visible columns are compared by identity, so
+    // showing or hiding a column renders the page again.
+    List<Object> cacheKey = Arrays.<Object> asList(request.getStartRow(),
+        request.getNumRows(),
+        TableQueryEngine.getSortKey(request.getColumnSortList()),
+        request.getRowFilter(), Arrays.toString(request.getColumns()),
+        new ArrayList<ColumnDefinition<RowType, ?>>(
+            tableDefinition.getVisibleColumnDefinitions()));
+    String html = pageCache.get(cacheKey);
+    if (html != null) {
+      return html;
+    }
+
+    // Render the rows
+    html = renderHtml(0, engine.getRowValues(request).iterator());
+    pageCache.put(cacheKey, html);
+    return html;
+  }
+
+  /**
+   * @return the maximum number of rendered pages to cache
+   */
+  public int getMaximumCachedPageCount() {
+    return maxCachedPageCount;
+  }
+
+  public TableDefinition<RowType> getTableDefinition() {
+    return tableDefinition;
+  }
+
+  /**
+   * Render row values into the HTML of a table, without caching the result.
+   * 
+   * @param startRowIndex the index of the first row, passed to the renderers
+   * @param rowValues the row values
+   * @return the HTML of a table that contains the rows
+   */
+  public String renderHtml(int startRowIndex, Iterator<RowType> rowValues) {
+    StringBuilder buffer = new StringBuilder("<table><tbody>");
+    HtmlCellView<RowType> cellView = new HtmlCellView<RowType>(this, buffer);
+    tableDefinition.renderRows(startRowIndex, rowValues,
+        new HtmlRowView<RowType>(cellView, buffer));
+    buffer.append("</tbody></table>");
+    return buffer.toString();
+  }
+
+  /**
+   * Append the class and style attributes of a row or cell. The values are
+   * escaped, so they cannot end the attribute.
+   * 
+   * @param buffer the buffer
+   * @param styleName the style name, or null
+   * @param styles the style attributes
+   */
+  private static void appendStyles(StringBuilder buffer, String styleName,
+      Map<String, String> styles) {
+    if (styleName != null) {
+      buffer.append(" class=\"");
+      buffer.append(DefaultCellRenderer.escapeHtml(styleName));
+      buffer.append("\"");
+    }
+    if (styles.size() > 0) {
+      buffer.append(" style=\"");
+      for (Map.Entry<String, String> entry : styles.entrySet()) {
+        buffer.append(DefaultCellRenderer.escapeHtml(entry.getKey()));
+        buffer.append(":");
+        buffer.append(DefaultCellRenderer.escapeHtml(entry.getValue()));
+        buffer.append(";");
+      }
+      buffer.append("\"");
+    }
+  }
+}
@@ -0,0 +1,595 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.server;
+
+import com.google.gwt.gen2.table.client.CompiledRowFilter;
+import com.google.gwt.gen2.table.client.CompiledRowFilter.CellSource;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnarResponse;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * An in-memory engine that answers {@link Request}s on the server. The engine
+ * is loaded with a fixed dataset, and returns the rows requested by the client
+ * in the order specified by the {@link ColumnSortList} of the request.
+ * Servlets can wrap the result in a
+ * {@link com.google.gwt.gen2.table.client.TableModelHelper.SerializableResponse}
+ * and return it over RPC, or request a {@link ColumnarResponse} that encodes
+ * the cell values of each column.
+ * </p>
+ * 
+ * <h1>Storage</h1>
+ * <p>
+ * The cell values of each column are extracted once, when the engine is
+ * created, and are stored in one array per column. The row values themselves
+ * are only used to build the response.
+ * </p>
+ * 
+ * <h1>Sort Indexes</h1>
+ * <p>
+ * The first time a column is sorted, the engine sorts the column and records
+ * the rank of every row in that column. Multi-column sorts compare the ranks
+ * of each column instead of the cell values. The resulting row order for each
+ * {@link ColumnSortList} is cached, up to {@link #getMaximumCachedSortCount()}
+ * orders, so later requests with the same sort order only cost the size of the
+ * page.
+ * </p>
+ * 
+ * <h1>Filters</h1>
+ * <p>
+ * Requests with a {@link RowFilter} only return the rows that match the
+ * filter, and their start row refers to the filtered rows. The filter is
+ * compiled into a {@link CompiledRowFilter} and evaluated against the column
+ * arrays in sorted order. The matching rows are cached with the sort orders,
+ * keyed by the sort order and the filter.
+ * </p>
+ * 
+ * <h1>Column Projection</h1>
+ * <p>
+ * Requests may only ask for some columns using {@link Request#getColumns()}.
+ * {@link #getColumnarResponse(Request)} leaves the other columns out of the
+ * response, and {@link #getProjectedRowValues(Request)} returns the cell values
+ * of the requested columns instead of the full row values.
+ * </p>
+ * 
+ * <h1>Thread Safety</h1>
+ * <p>
+ * The dataset cannot be changed after the engine is created, so the engine can
+ * be shared by concurrent servlet threads. Indexes are built on demand. Two
+ * threads that request the same missing index at the same time may both build
+ * it, but they will always see a complete index.
+ * </p>
+ * 
+ * @param <RowType> the data type of the row values
+ */
+public class TableQueryEngine<RowType> {
+  /**
+   * Extracts the value of a single column from a row value.
+   * 
+   * @param <RowType> the data type of the row values
+   */
+  public static interface ColumnAccessor<RowType> {
+    /**
+     * Get the value of the column in a row. Values are compared using their
+     * natural order, so they should implement {@link Comparable}. Null values
+     * are sorted before all other values.
+     * 
+     * @param rowValue the row value
+     * @return the cell value
+     */
+    Object getCellValue(RowType rowValue);
+  }
+
+  /**
+   * The sorted order of the rows in a single column.
+   */
+  private static class ColumnIndex {
+    /**
+     * The row indexes in ascending order.
+     */
+    private int[] order;
+
+    /**
+     * The rank of each row in the column. Rows with equal values have the same
+     * rank.
+     */
+    private int[] ranks;
+
+    /**
+     * Construct a new {@link ColumnIndex}.
+     * 
+     * @param order the row indexes in ascending order
+     * @param ranks the rank of each row
+     */
+    public ColumnIndex(int[] order, int[] ranks) {
+      this.order = order;
+      this.ranks = ranks;
+    }
+  }
+
+  /**
+   * The default maximum number of row orders to cache.
+   */
+  public static final int DEFAULT_MAX_CACHED_SORT_COUNT = 32;
+
+  /**
+   * A {@link Comparator} that compares cell values by their natural order.
+   */
+  private static final Comparator<Object> NATURAL_ORDER = new Comparator<Object>() {
+    @SuppressWarnings("unchecked")
+    public int compare(Object o1, Object o2) {
+      if (o1 == o2) {
+        return 0;
+      } else if (o1 == null) {
+        return -1;
+      } else if (o2 == null) {
+        return 1;
+      }
+      return ((Comparable<Object>) o1).compareTo(o2);
+    }
+  };
+
+  /**
+   * The sorted index of each column, built on demand.
+   */
+  private final AtomicReferenceArray<ColumnIndex> columnIndexes;
+
+  /**
+   * The cell values of each column.
+   */
+  private final Object[][] columns;
+
+  /**
+   * The {@link ColumnarResponse} type of each column.
+   */
+  private final int[] columnTypes;
+
+  /**
+   * The maximum number of row orders to cache.
+   */
+  private final int maxCachedSortCount;
+
+  /**
+   * The number of rows in the dataset.
+   */
+  private final int rowCount;
+
+  /**
+   * The row values.
+   */
+  private final List<RowType> rowValues;
+
+  /**
+   * The cached row orders, keyed by sort order, in order of access.
+   */
+  private final Map<Object, int[]> sortCache;
+
+  /**
+   * Construct a new {@link TableQueryEngine}.
+   * 
+   * @param rowValues the row values
+   * @param accessors the accessors used to extract each column
+   */
+  public TableQueryEngine(List<RowType> rowValues,
+      List<? extends ColumnAccessor<RowType>> accessors) {
+    this(rowValues, accessors, DEFAULT_MAX_CACHED_SORT_COUNT);
+  }
+
+  /**
+   * Construct a new {@link TableQueryEngine}.
+   * 
+   * @param rowValues the row values
+   * @param accessors the accessors used to extract each column
+   * @param maxCachedSortCount the maximum number of row orders to cache
+   */
+  public TableQueryEngine(List<RowType> rowValues,
+      List<? extends ColumnAccessor<RowType>> accessors, int maxCachedSortCount) {
+    this.rowValues = Collections.unmodifiableList(new ArrayList<RowType>(
+        rowValues));
+    this.rowCount = this.rowValues.size();
+    this.maxCachedSortCount = Math.max(0, maxCachedSortCount);
+
+    // Extract the cell values into columns
+    int columnCount = accessors.size();
+    columns = new Object[columnCount][];
+    columnTypes = new int[columnCount];
+    for (int column = 0; column < columnCount; column++) {
+      ColumnAccessor<RowType> accessor = accessors.get(column);
+      Object[] cellValues = new Object[rowCount];
+      for (int row = 0; row < rowCount; row++) {
+        cellValues[row] = accessor.getCellValue(this.rowValues.get(row));
+      }
+      columns[column] = cellValues;
+      columnTypes[column] = getColumnType(cellValues);
+    }
+    columnIndexes = new AtomicReferenceArray<ColumnIndex>(columnCount);
+
+    // Create a cache that removes the least recently used order
+    sortCache = Collections.synchronizedMap(new LinkedHashMap<Object, int[]>(
+        16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, int[]> eldest) {
+        return size() > TableQueryEngine.this.maxCachedSortCount;
+      }
+    });
+  }
+
+  /**
+   * @return the number of row orders that are currently cached
+   */
+  public int getCachedSortCount() {
+    return sortCache.size();
+  }
+
+  /**
+   * Get the rows requested by a {@link Request}, encoded column by column.
+   * Columns that only contain {@link Boolean}s, {@link Integer}s, or other
+   * {@link Number}s are encoded as booleans, integers, or doubles. All other
+   * columns are encoded as strings. Columns that were not requested have the
+   * type {@link ColumnarResponse#TYPE_OMITTED} and contain no values.
+   * 
+   * @param request the request
+   * @return the requested rows, in sorted order
+   */
+  public ColumnarResponse getColumnarResponse(Request request) {
+    int[] rows = getRowIndexes(request);
+    int[] types = new int[columns.length];
+    for (int column = 0; column < columns.length; column++) {
+      types[column] = request.isColumnRequested(column) ? columnTypes[column]
+          : ColumnarResponse.TYPE_OMITTED;
+    }
+    ColumnarResponse response = new ColumnarResponse(types, rows.length);
+    List<Object> cellValues = new ArrayList<Object>(rows.length);
+    for (int column = 0; column < columns.length; column++) {
+      if (types[column] == ColumnarResponse.TYPE_OMITTED) {
+        continue;
+      }
+      Object[] columnValues = columns[column];
+      cellValues.clear();
+      for (int row : rows) {
+        cellValues.add(columnValues[row]);
+      }
+      response.setColumnValues(column, cellValues);
+    }
+    return response;
+  }
+
+  /**
+   * @return the number of columns in the dataset
+   */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * @return the maximum number of row orders to cache
+   */
+  public int getMaximumCachedSortCount() {
+    return maxCachedSortCount;
+  }
+
+  /**
+   * Get the cell values of the rows requested by a {@link Request}, without
+   * loading the row values. Each row has one cell value per column in the
+   * dataset, and the cells of columns that were not requested are null.
+   * 
+   * @param request the request
+   * @return the cell values of the requested rows, in sorted order
+   */
+  public List<Object[]> getProjectedRowValues(Request request) {
+    int[] rows = getRowIndexes(request);
+    List<Integer> requested = new ArrayList<Integer>();
+    for (int column = 0; column < columns.length; column++) {
+      if (request.isColumnRequested(column)) {
+        requested.add(column);
+      }
+    }
+    List<Object[]> values = new ArrayList<Object[]>(rows.length);
+    for (int row : rows) {
+      Object[] cellValues = new Object[columns.length];
+      for (int column : requested) {
+        cellValues[column] = columns[column][row];
+      }
+      values.add(cellValues);
+    }
+    return values;
+  }
+
+  /**
+   * @return the number of rows in the dataset
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Get the row values of each range requested by a {@link BatchRequest}.
+   * 
+   * @param request the batch request
+   * @return the requested row values of each range, in sorted order
+   */
+  public List<List<RowType>> getRowValues(BatchRequest request) {
+    int rangeCount = request.getRangeCount();
+    List<List<RowType>> values = new ArrayList<List<RowType>>(rangeCount);
+    for (int i = 0; i < rangeCount; i++) {
+      values.add(getRowValues(request.getRequest(i)));
+    }
+    return values;
+  }
+
+  /**
+   * Get the row values requested by a {@link Request}. Columns in the
+   * {@link ColumnSortList} that do not exist in the dataset are ignored, and
+   * cells in columns of the {@link RowFilter} that do not exist are empty.
+   * 
+   * @param request the request
+   * @return the requested row values, in sorted order
+   */
+  public List<RowType> getRowValues(Request request) {
+    int[] rows = getRowIndexes(request);
+    List<RowType> values = new ArrayList<RowType>(rows.length);
+    for (int row : rows) {
+      values.add(rowValues.get(row));
+    }
+    return values;
+  }
+
+  /**
+   * Create the key that identifies a sort order in a cache.
+   * 
+   * @param sortList the sort list, or null if not sorted
+   * @return the key
+   */
+  static String getSortKey(ColumnSortList sortList) {
+    StringBuilder sortKey = new StringBuilder();
+    if (sortList != null) {
+      for (ColumnSortInfo sortInfo : sortList) {
+        sortKey.append(sortInfo.getColumn());
+        sortKey.append(sortInfo.isAscending() ? 'a' : 'd');
+      }
+    }
+    return sortKey.toString();
+  }
+
+  /**
+   * Get the index of a column, building it if needed.
+   * 
+   * @param column the column index
+   * @return the column index
+   */
+  private ColumnIndex getColumnIndex(int column) {
+    ColumnIndex index = columnIndexes.get(column);
+    if (index != null) {
+      return index;
+    }
+
+    // Sort the rows by their values in the column
+    final Object[] cellValues = columns[column];
+    Integer[] sorted = new Integer[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        return NATURAL_ORDER.compare(cellValues[o1], cellValues[o2]);
+      }
+    });
+
+    // Record the rank of each row
+    int[] order = new int[rowCount];
+    int[] ranks = new int[rowCount];
+    int rank = 0;
+    for (int i = 0; i < rowCount; i++) {
+      order[i] = sorted[i];
+      if (i > 0
+          && NATURAL_ORDER.compare(cellValues[order[i - 1]],
+              cellValues[order[i]]) != 0) {
+        rank++;
+      }
+      ranks[order[i]] = rank;
+    }
+
+    // Keep the first index if another thread built it already
+    index = new ColumnIndex(order, ranks);
+    if (!columnIndexes.compareAndSet(column, null, index)) {
+      index = columnIndexes.get(column);
+    }
+    return index;
+  }
+
+  /**
+   * Get the {@link ColumnarResponse} type of a column.
+   * 
+   * @param cellValues the cell values in the column
+   * @return the column type
+   */
+  private int getColumnType(Object[] cellValues) {
+    boolean hasValue = false;
+    boolean isBoolean = true;
+    boolean isInteger = true;
+    boolean isNumber = true;
+    for (Object value : cellValues) {
+      if (value != null) {
+        hasValue = true;
+        isBoolean &= value instanceof Boolean;
+        isInteger &= value instanceof Integer || value instanceof Short
+            || value instanceof Byte;
+        isNumber &= value instanceof Number;
+      }
+    }
+    if (!hasValue) {
+      return ColumnarResponse.TYPE_STRING;
+    } else if (isBoolean) {
+      return ColumnarResponse.TYPE_BOOLEAN;
+    } else if (isInteger) {
+      return ColumnarResponse.TYPE_INTEGER;
+    } else if (isNumber) {
+      return ColumnarResponse.TYPE_DOUBLE;
+    }
+    return ColumnarResponse.TYPE_STRING;
+  }
+
+  /**
+   * Get the indexes of the rows requested by a {@link Request}.
+   * 
+   * @param request the request
+   * @return the row indexes, in sorted order
+   */
+  private int[] getRowIndexes(Request request) {
+    int[] order = getRowOrder(request.getColumnSortList(),
+        request.getRowFilter());
+    int size = (order == null) ? rowCount : order.length;
+    int startRow = Math.max(0, request.getStartRow());
+    int numRows = request.getNumRows();
+    int endRow = size;
+    if (numRows >= 0) {
+      endRow = (int) Math.min(size, (long) startRow + numRows);
+    }
+
+    // Map the requested rows through the sort order
+    int[] rows = new int[Math.max(0, endRow - startRow)];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = (order == null) ? startRow + i : order[startRow + i];
+    }
+    return rows;
+  }
+
+  /**
+   * Get the order of the rows for a {@link ColumnSortList}.
+   * 
+   * @param sortList the sort list
+   * @return the row indexes in sorted order, or null for the original order
+   */
+  private int[] getRowOrder(ColumnSortList sortList) {
+    if (sortList == null || sortList.size() == 0) {
+      return null;
+    }
+
+    // Get the valid sort columns and create the cache key
+    final List<ColumnSortInfo> sortInfos = new ArrayList<ColumnSortInfo>();
+    StringBuilder key = new StringBuilder();
+    for (ColumnSortInfo sortInfo : sortList) {
+      int column = sortInfo.getColumn();
+      if (column >= 0 && column < columns.length) {
+        sortInfos.add(sortInfo);
+        key.append(column).append(sortInfo.isAscending() ? 'a' : 'd');
+      }
+    }
+    if (sortInfos.size() == 0) {
+      return null;
+    }
+
+    // Use the column index directly for a single ascending column
+    ColumnSortInfo primary = sortInfos.get(0);
+    if (sortInfos.size() == 1 && primary.isAscending()) {
+      return getColumnIndex(primary.getColumn()).order;
+    }
+
+    // Check the cache
+    String cacheKey = key.toString();
+    int[] order = sortCache.get(cacheKey);
+    if (order != null) {
+      return order;
+    }
+
+    // Sort the rows by comparing their ranks in each column
+    final int[][] ranks = new int[sortInfos.size()][];
+    for (int i = 0; i < ranks.length; i++) {
+      ranks[i] = getColumnIndex(sortInfos.get(i).getColumn()).ranks;
+    }
+    Integer[] sorted = new Integer[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        for (int i = 0; i < ranks.length; i++) {
+          int diff = ranks[i][o1] - ranks[i][o2];
+          if (diff != 0) {
+            return sortInfos.get(i).isAscending() ? diff : -diff;
+          }
+        }
+        return o1 - o2;
+      }
+    });
+    order = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      order[i] = sorted[i];
+    }
+    sortCache.put(cacheKey, order);
+    return order;
+  }
+
+  /**
+   * Get the order of the rows that match a {@link RowFilter}.
+   * 
+   * @param sortList the sort list
+   * @param filter the filter, or null for all rows
+   * @return the indexes of the matching rows in sorted order, or null for all
+   *         rows in the original order
+   */
+  private int[] getRowOrder(ColumnSortList sortList, RowFilter filter) {
+    int[] order = getRowOrder(sortList);
+    if (filter == null) {
+      return order;
+    }
+
+    // Check the cache
+    List<Object> cacheKey = Arrays.<Object> asList(getSortKey(sortList), filter);
+    int[] matches = sortCache.get(cacheKey);
+    if (matches != null) {
+      return matches;
+    }
+
+    // Evaluate the compiled filter against the columns in sorted order
+    CompiledRowFilter compiled = CompiledRowFilter.compile(filter);
+    CellSource cells = new CellSource() {
+      public Object getCellValue(int row, int column) {
+        if (column < 0 || column >= columns.length) {
+          return null;
+        }
+        return columns[column][row];
+      }
+    };
+    int[] rows = new int[rowCount];
+    int matchCount = 0;
+    for (int i = 0; i < rowCount; i++) {
+      int row = (order == null) ? i : order[i];
+      if (compiled.matches(cells, row)) {
+        rows[matchCount++] = row;
+      }
+    }
+    matches = new int[matchCount];
+    System.arraycopy(rows, 0, matches, 0, matchCount);
+    sortCache.put(cacheKey, matches);
+    return matches;
+  }
+}
@@ -20,6 +20,7 @@ import com.google.gwt.gen2.table.client.AbstractColumnDefinitionTest;
 import com.google.gwt.gen2.table.client.CachedTableModelTest;
 import com.google.gwt.gen2.table.client.ClientTableModelTest;
 import com.google.gwt.gen2.table.client.ColumnResizerTest;
+import com.google.gwt.gen2.table.client.CompiledRowFilterTest;
 import com.google.gwt.gen2.table.client.DefaultCellRendererTest;
 import com.google.gwt.gen2.table.client.DefaultTableDefinitionTest;
 import com.google.gwt.gen2.table.client.FixedWidthFlexTableTest;
@@ -28,17 +29,24 @@ import com.google.gwt.gen2.table.client.FlexTableBulkRendererTest;
 import com.google.gwt.gen2.table.client.GridBulkRendererTest;
 import com.google.gwt.gen2.table.client.GridTest;
 import com.google.gwt.gen2.table.client.InlineCellEditorTest;
+import com.google.gwt.gen2.table.client.IterableTableModelTest;
 import com.google.gwt.gen2.table.client.ListCellEditorTest;
 import com.google.gwt.gen2.table.client.ListColumnDefinitionTest;
 import com.google.gwt.gen2.table.client.ListTableModelTest;
 import com.google.gwt.gen2.table.client.MutableTableModelTest;
+import com.google.gwt.gen2.table.client.PagePrefetcherTest;
 import com.google.gwt.gen2.table.client.PagingScrollTableTest;
 import com.google.gwt.gen2.table.client.RadioCellEditorTest;
+import com.google.gwt.gen2.table.client.RowCacheTest;
+import com.google.gwt.gen2.table.client.RowOrderCacheTest;
+import com.google.gwt.gen2.table.client.RowRangeSetTest;
 import com.google.gwt.gen2.table.client.ScrollTableTest;
 import com.google.gwt.gen2.table.client.SelectionGridTest;
 import com.google.gwt.gen2.table.client.SortableGridTest;
 import com.google.gwt.gen2.table.client.TableModelTest;
 import com.google.gwt.gen2.table.client.TextCellEditorTest;
+import com.google.gwt.gen2.table.server.TableHtmlRendererTest;
+import com.google.gwt.gen2.table.server.TableQueryEngineTest;
 import com.google.gwt.junit.tools.GWTTestSuite;
 
 import junit.framework.Test;
@@ -57,6 +65,11 @@ public class TableSuite {
     suite.addTestSuite(MutableTableModelTest.class);
     suite.addTestSuite(ClientTableModelTest.class);
     suite.addTestSuite(ListTableModelTest.class);
+    suite.addTestSuite(IterableTableModelTest.class);
+    suite.addTestSuite(RowOrderCacheTest.class);
+    suite.addTestSuite(CompiledRowFilterTest.class);
+    suite.addTestSuite(RowRangeSetTest.class);
+    suite.addTestSuite(RowCacheTest.class);
     suite.addTestSuite(CachedTableModelTest.class);
 
     // Basic table tests
@@ -79,12 +92,17 @@ public class TableSuite {
     suite.addTestSuite(ListColumnDefinitionTest.class);
     suite.addTestSuite(DefaultTableDefinitionTest.class);
     suite.addTestSuite(PagingScrollTableTest.class);
+    suite.addTestSuite(PagePrefetcherTest.class);
 
     // Bulk Renderer Tests
     suite.addTestSuite(DefaultCellRendererTest.class);
     suite.addTestSuite(FlexTableBulkRendererTest.class);
     suite.addTestSuite(GridBulkRendererTest.class);
 
+    // Server tests
+    suite.addTestSuite(TableQueryEngineTest.class);
+    suite.addTestSuite(TableHtmlRendererTest.class);
+
     return suite;
   }
 }
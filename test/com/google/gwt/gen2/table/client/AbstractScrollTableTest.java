@@ -18,6 +18,7 @@ package com.google.gwt.gen2.table.client;
 import com.google.gwt.gen2.base.client.Gen2TestBase;
 import com.google.gwt.gen2.table.client.AbstractScrollTable.ScrollPolicy;
 import com.google.gwt.gen2.table.client.AbstractScrollTable.SortPolicy;
+import com.google.gwt.user.client.ui.RootPanel;
 import com.google.gwt.widgetideas.client.ResizableWidgetCollectionTest;
 
 /**
@@ -120,6 +121,37 @@ public abstract class AbstractScrollTableTest extends Gen2TestBase {
     }
   }
 
+  /**
+   * Test that the layout is applied after redrawing and resizing columns, and
+   * that each layout pass reads the layout a limited number of times.
+   */
+  public void testLayout() {
+    FixedWidthFlexTable headerTable = new FixedWidthFlexTable();
+    FixedWidthGrid dataTable = new FixedWidthGrid(5, 3);
+    FixedWidthFlexTable footerTable = new FixedWidthFlexTable();
+    headerTable.setHTML(0, 2, "header");
+    footerTable.setHTML(0, 2, "footer");
+    AbstractScrollTable table = getScrollTable(headerTable, dataTable,
+        footerTable);
+    RootPanel.get().add(table);
+
+    // A redraw reads the widths, the ideal widths and then the heights
+    table.redraw();
+    assertTrue(table.getLayoutReadCount() <= 3);
+
+    // Resizing a column reads the layout once
+    table.setColumnWidth(1, 120);
+    assertEquals(1, table.getLayoutReadCount());
+    assertEquals(120, table.getColumnWidth(1));
+
+    // The scroll table fits its contents if vertical scrolling is disabled
+    table.setScrollPolicy(ScrollPolicy.DISABLED);
+    table.setColumnWidth(1, 80);
+    assertEquals(80, table.getColumnWidth(1));
+    assertTrue(table.getOffsetHeight() >= dataTable.getOffsetHeight());
+    RootPanel.get().remove(table);
+  }
+
   public void testResizableWidget() {
     FixedWidthFlexTable headerTable = new FixedWidthFlexTable();
     FixedWidthGrid dataTable = new FixedWidthGrid();
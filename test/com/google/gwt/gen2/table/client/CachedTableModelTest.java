@@ -15,24 +15,101 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.MutableTableModelTest.TestRowInsertionHandler;
+import com.google.gwt.gen2.table.client.MutableTableModelTest.TestRowValueChangeHandler;
+import com.google.gwt.gen2.table.client.TableModel.BatchCallback;
+import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModel.StreamingCallback;
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * Test methods for {@link CachedTableModel} class.
  */
 public class CachedTableModelTest extends ClientTableModelTest {
+  /**
+   * A table model that holds onto its requests until they are flushed.
+   */
+  private static class DeferredTableModel extends TestTableModel {
+    /**
+     * The callbacks that have not been answered.
+     */
+    private List<Callback<List<Object>>> callbacks = new ArrayList<Callback<List<Object>>>();
+
+    /**
+     * The requests that have not been answered.
+     */
+    private List<Request> requests = new ArrayList<Request>();
+
+    /**
+     * Constructor.
+     * 
+     * @param rows the data that this model feeds from
+     */
+    public DeferredTableModel(List<List<Object>> rows) {
+      super(rows);
+    }
+
+    /**
+     * Answer all of the pending requests.
+     */
+    public void flush() {
+      while (requests.size() > 0) {
+        Request request = requests.remove(0);
+        Callback<List<Object>> callback = callbacks.remove(0);
+        super.requestRows(request, callback);
+      }
+    }
+
+    @Override
+    public Request getLastRequest() {
+      if (requests.size() > 0) {
+        return requests.get(requests.size() - 1);
+      }
+      return super.getLastRequest();
+    }
+
+    /**
+     * @return the number of requests that have not been answered
+     */
+    public int getPendingCount() {
+      return requests.size();
+    }
+
+    @Override
+    public void requestRows(Request request, Callback<List<Object>> callback) {
+      requests.add(request);
+      callbacks.add(callback);
+    }
+  }
+
   /**
    * A table model that records its previous requests.
    */
   private static class TestTableModel extends ListTableModel {
+    /**
+     * The last batch request received.
+     */
+    private BatchRequest lastBatchRequest = null;
+
     /**
      * The last request received.
      */
     private Request lastRequest = null;
 
+    /**
+     * The number of requests received.
+     */
+    private int requestCount = 0;
+
     /**
      * Constructor.
      * 
@@ -42,6 +119,13 @@ public class CachedTableModelTest extends ClientTableModelTest {
       super(rows);
     }
 
+    /**
+     * @return the last batch request
+     */
+    public BatchRequest getLastBatchRequest() {
+      return lastBatchRequest;
+    }
+
     /**
      * @return the last request
      */
@@ -49,9 +133,24 @@ public class CachedTableModelTest extends ClientTableModelTest {
       return lastRequest;
     }
 
+    /**
+     * @return the number of requests received
+     */
+    public int getRequestCount() {
+      return requestCount;
+    }
+
+    @Override
+    public void requestRows(BatchRequest request,
+        BatchCallback<List<Object>> callback) {
+      lastBatchRequest = request;
+      super.requestRows(request, callback);
+    }
+
     @Override
     public void requestRows(Request request, final Callback<List<Object>> callback) {
       lastRequest = request;
+      requestCount++;
       super.requestRows(request, callback);
     }
 
@@ -105,6 +204,142 @@ public class CachedTableModelTest extends ClientTableModelTest {
     assertEquals(20, tableModel.getPostCachedRowCount());
   }
 
+  /**
+   * Test that disjoint missing ranges are requested in a single batch.
+   */
+  public void testBatchRequests() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 40; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Cache some rows
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    tableModel.requestRows(new Request(10, 5), new TestCallback<List<Object>>(
+        10, 5, null));
+    assertNull(innerModel.getLastBatchRequest());
+    assertEquals(0, tableModel.getBatchRequestCount());
+
+    // Request the holes on both sides of the cached rows
+    tableModel.setPreCachedRowCount(5);
+    tableModel.setPostCachedRowCount(5);
+    TestCallback<List<Object>> callback = new TestCallback<List<Object>>(12,
+        5, null);
+    tableModel.requestRows(new Request(12, 5), callback);
+    assertTrue(callback.isExecuted());
+    assertEquals(1, tableModel.getBatchRequestCount());
+    BatchRequest batchRequest = innerModel.getLastBatchRequest();
+    assertEquals(2, batchRequest.getRangeCount());
+    assertEquals(7, batchRequest.getStartRow(0));
+    assertEquals(3, batchRequest.getNumRows(0));
+    assertEquals(15, batchRequest.getStartRow(1));
+    assertEquals(7, batchRequest.getNumRows(1));
+    assertEquals(15, tableModel.getCachedRowCount());
+
+    // All of the rows are cached now
+    tableModel.setPreCachedRowCount(0);
+    tableModel.setPostCachedRowCount(0);
+    tableModel.requestRows(new Request(7, 15), new TestCallback<List<Object>>(
+        7, 15, null));
+    assertEquals(batchRequest, innerModel.getLastBatchRequest());
+    assertEquals(1, tableModel.getBatchRequestCount());
+  }
+
+  /**
+   * Test that a batch request is sent to the underlying table model in a single
+   * call if the table model loads batches itself.
+   */
+  public void testBatchRequestsSingleCall() {
+    // Create the row data
+    final List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 40; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Create a table model that answers all ranges at once
+    final List<BatchRequest> batchRequests = new ArrayList<BatchRequest>();
+    TestTableModel innerModel = new TestTableModel(rowList) {
+      @Override
+      public void requestRows(BatchRequest request,
+          BatchCallback<List<Object>> callback) {
+        batchRequests.add(request);
+        List<Response<List<Object>>> responses = new ArrayList<Response<List<Object>>>();
+        for (int i = 0; i < request.getRangeCount(); i++) {
+          int startRow = request.getStartRow(i);
+          responses.add(new ListResponse(rowList.subList(startRow, startRow
+              + request.getNumRows(i))));
+        }
+        callback.onRowsReady(request, responses);
+      }
+    };
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    requestValues(tableModel, new Request(10, 5));
+    assertEquals(1, innerModel.getRequestCount());
+
+    // The holes on both sides are loaded in one call
+    tableModel.setPreCachedRowCount(5);
+    tableModel.setPostCachedRowCount(5);
+    List<Object> values = requestValues(tableModel, new Request(8, 10));
+    assertEquals(10, values.size());
+    assertEquals(new Integer(8), values.get(0));
+    assertEquals(new Integer(17), values.get(9));
+    assertEquals(1, batchRequests.size());
+    assertEquals(2, batchRequests.get(0).getRangeCount());
+    assertEquals(1, innerModel.getRequestCount());
+  }
+
+  /**
+   * Test that every range of a batch request fails if the underlying table
+   * model returns the wrong number of responses.
+   */
+  public void testBatchRequestsShortResponse() {
+    // Create the row data
+    final List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 40; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Create a table model that only answers the first range
+    TestTableModel innerModel = new TestTableModel(rowList) {
+      @Override
+      public void requestRows(BatchRequest request,
+          BatchCallback<List<Object>> callback) {
+        List<Response<List<Object>>> responses = new ArrayList<Response<List<Object>>>();
+        int startRow = request.getStartRow(0);
+        responses.add(new ListResponse(rowList.subList(startRow, startRow
+            + request.getNumRows(0))));
+        callback.onRowsReady(request, responses);
+      }
+    };
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    requestValues(tableModel, new Request(10, 5));
+
+    // The request that depends on the batch fails
+    tableModel.setPreCachedRowCount(5);
+    tableModel.setPostCachedRowCount(5);
+    final List<Throwable> failures = new ArrayList<Throwable>();
+    tableModel.requestRows(new Request(8, 10), new Callback<List<Object>>() {
+      public void onFailure(Throwable caught) {
+        failures.add(caught);
+      }
+
+      public void onRowsReady(Request request, Response<List<Object>> response) {
+        fail("Unexpected response");
+      }
+    });
+    assertEquals(1, failures.size());
+    assertEquals(0, tableModel.getPendingRequestCount());
+    assertEquals(5, tableModel.getCachedRowCount());
+  }
+
   /**
    * Test the cache.
    */
@@ -140,6 +375,11 @@ public class CachedTableModelTest extends ClientTableModelTest {
     tableModel.requestRows(request2, callback2);
     assertTrue(callback2.isExecuted());
     assertEquals(lastRequest, innerModel.getLastRequest());
+    assertEquals(10, tableModel.getRequestedRowCount());
+    assertEquals(5, tableModel.getCachedRowHitCount());
+    assertEquals(5, tableModel.getRequestedRowCount(request2));
+    assertEquals(5, tableModel.getCachedRowHitCount(request2));
+    assertEquals(-1, tableModel.getCachedRowHitCount(request1));
 
     // Send a request with pre and post caching, but we already have the data
     tableModel.setPreCachedRowCount(10);
@@ -173,5 +413,732 @@ public class CachedTableModelTest extends ClientTableModelTest {
     tableModel.requestRows(request6, callback6);
     assertTrue(callback6.isExecuted());
     assertEquals(lastRequest, innerModel.getLastRequest());
+
+    // Only the first and fourth requests missed the cache
+    assertEquals(30, tableModel.getRequestedRowCount());
+    assertEquals(20, tableModel.getCachedRowHitCount());
+
+    // Prefetches are not counted as the last request
+    TestCallback<List<Object>> callback7 = new TestCallback<List<Object>>(0, 5, null);
+    tableModel.prefetchRows(new Request(0, 5), callback7);
+    assertTrue(callback7.isExecuted());
+    assertEquals(5, tableModel.getRequestedRowCount(request6));
+    assertEquals(5, tableModel.getCachedRowHitCount(request6));
+  }
+
+  /**
+   * Test that the cache respects its maximum size.
+   */
+  public void testMaximumCachedRowCount() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 500; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Create a table model
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    tableModel.setMaximumCachedRowCount(RowCache.DEFAULT_CHUNK_SIZE * 2);
+    assertEquals(RowCache.DEFAULT_CHUNK_SIZE * 2,
+        tableModel.getMaximumCachedRowCount());
+
+    // Page through the data
+    for (int startRow = 0; startRow < 500; startRow += 10) {
+      Request request = new Request(startRow, 10);
+      TestCallback<List<Object>> callback = new TestCallback<List<Object>>(
+          startRow, 10, null);
+      tableModel.requestRows(request, callback);
+      assertTrue(callback.isExecuted());
+      assertTrue(tableModel.getCachedRowCount() <= RowCache.DEFAULT_CHUNK_SIZE * 2);
+    }
+    assertTrue(tableModel.getEvictedRowCount() > 0);
+
+    // The most recent page should still be cached
+    Request lastRequest = innerModel.getLastRequest();
+    Request request = new Request(490, 10);
+    TestCallback<List<Object>> callback = new TestCallback<List<Object>>(490,
+        10, null);
+    tableModel.requestRows(request, callback);
+    assertTrue(callback.isExecuted());
+    assertEquals(lastRequest, innerModel.getLastRequest());
+  }
+
+  /**
+   * Test that prefetched rows do not cause the viewed rows to be evicted.
+   */
+  public void testPrefetchRows() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 500; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Create a table model that can hold two chunks
+    int chunkSize = RowCache.DEFAULT_CHUNK_SIZE;
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    tableModel.setMaximumCachedRowCount(chunkSize * 2);
+
+    // View the first chunk, then prefetch the next two chunks
+    List<Object> values = requestValues(tableModel, new Request(0, chunkSize));
+    assertEquals(chunkSize, values.size());
+    for (int i = 1; i <= 2; i++) {
+      TestCallback<List<Object>> callback = new TestCallback<List<Object>>(
+          chunkSize * i, chunkSize, null);
+      tableModel.prefetchRows(new Request(chunkSize * i, chunkSize), callback);
+      assertTrue(callback.isExecuted());
+    }
+    assertEquals(chunkSize, tableModel.getEvictedRowCount());
+
+    // The viewed rows are still cached
+    Request lastRequest = innerModel.getLastRequest();
+    values = requestValues(tableModel, new Request(0, chunkSize));
+    assertEquals(chunkSize, values.size());
+    assertEquals(lastRequest, innerModel.getLastRequest());
+  }
+
+  /**
+   * Test that overlapping requests wait on pending requests.
+   */
+  public void testPendingRequests() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Create a table model
+    DeferredTableModel innerModel = new DeferredTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    tableModel.setPostCachedRowCount(20);
+
+    // Send a request that will be pending
+    Request request1 = new Request(0, 10);
+    TestCallback<List<Object>> callback1 = new TestCallback<List<Object>>(0,
+        10, null);
+    tableModel.requestRows(request1, callback1);
+    assertEquals(1, innerModel.getPendingCount());
+    assertEquals(1, tableModel.getPendingRequestCount());
+    assertFalse(callback1.isExecuted());
+
+    // Send a request contained in the pending request
+    Request request2 = new Request(10, 10);
+    TestCallback<List<Object>> callback2 = new TestCallback<List<Object>>(10,
+        10, null);
+    tableModel.requestRows(request2, callback2);
+    assertEquals(1, innerModel.getPendingCount());
+    assertEquals(1, tableModel.getCoalescedRequestCount());
+
+    // Send a request that overlaps the pending request
+    Request request3 = new Request(25, 10);
+    TestCallback<List<Object>> callback3 = new TestCallback<List<Object>>(25,
+        10, null);
+    tableModel.requestRows(request3, callback3);
+    assertEquals(2, innerModel.getPendingCount());
+    Request lastRequest = innerModel.getLastRequest();
+    assertEquals(30, lastRequest.getStartRow());
+    assertEquals(25, lastRequest.getNumRows());
+
+    // Cancel a request
+    Request request4 = new Request(5, 5);
+    TestCallback<List<Object>> callback4 = new TestCallback<List<Object>>(5,
+        5, null);
+    tableModel.requestRows(request4, callback4);
+    assertTrue(tableModel.cancelRequest(request4));
+    assertFalse(tableModel.cancelRequest(request4));
+
+    // Answer the requests
+    innerModel.flush();
+    assertEquals(0, tableModel.getPendingRequestCount());
+    assertTrue(callback1.isExecuted());
+    assertTrue(callback2.isExecuted());
+    assertTrue(callback3.isExecuted());
+    assertFalse(callback4.isExecuted());
+  }
+
+  /**
+   * Test that a request waiting on a pending request receives all of its rows
+   * when a row is inserted before the pending request returns.
+   */
+  public void testInsertWhilePending() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Send a request that will be pending
+    DeferredTableModel innerModel = new DeferredTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    List<Object> values = new ArrayList<Object>();
+    tableModel.requestRows(new Request(0, 10), createValueCallback(values));
+    assertEquals(1, innerModel.getPendingCount());
+
+    // Insert a row, then answer the stale request
+    tableModel.insertRow(5);
+    innerModel.flush();
+    assertEquals(0, tableModel.getPendingRequestCount());
+    assertEquals(10, values.size());
+    assertEquals(new Integer(0), values.get(0));
+    assertEquals(10, tableModel.getCachedRowCount());
+  }
+
+  /**
+   * Test that streamed chunks are passed to streaming callbacks as they arrive.
+   */
+  public void testStreamingRequests() {
+    // Create the row data
+    final List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Send a streaming request and a plain request for the same rows
+    DeferredTableModel innerModel = new DeferredTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    final List<Object> chunkValues = new ArrayList<Object>();
+    final List<Object> readyValues = new ArrayList<Object>();
+    tableModel.requestRows(new Request(0, 10),
+        new StreamingCallback<List<Object>>() {
+          public void onFailure(Throwable caught) {
+            fail(caught.getMessage());
+          }
+
+          public void onRowsChunk(Request request,
+              Response<List<Object>> chunk) {
+            Iterator<List<Object>> it = chunk.getRowValues();
+            while (it.hasNext()) {
+              chunkValues.add(it.next().get(0));
+            }
+          }
+
+          public void onRowsReady(Request request,
+              Response<List<Object>> response) {
+            Iterator<List<Object>> it = response.getRowValues();
+            while (it.hasNext()) {
+              readyValues.add(it.next().get(0));
+            }
+          }
+        });
+    List<Object> values = new ArrayList<Object>();
+    tableModel.requestRows(new Request(0, 10), createValueCallback(values));
+    assertEquals(1, innerModel.getPendingCount());
+    assertTrue(innerModel.callbacks.get(0) instanceof StreamingCallback);
+    StreamingCallback<List<Object>> pending = (StreamingCallback<List<Object>>) innerModel.callbacks.get(0);
+    Request request = innerModel.requests.get(0);
+
+    // Stream two chunks
+    pending.onRowsChunk(request, new ListResponse(rowList.subList(0, 4)));
+    assertEquals(4, chunkValues.size());
+    assertEquals(new Integer(3), chunkValues.get(3));
+    assertEquals(4, tableModel.getCachedRowCount());
+    pending.onRowsChunk(request, new ListResponse(rowList.subList(4, 8)));
+    assertEquals(8, chunkValues.size());
+    assertEquals(new Integer(7), chunkValues.get(7));
+    assertEquals(0, readyValues.size());
+    assertEquals(0, values.size());
+
+    // Finish the request
+    pending.onRowsReady(request, new ListResponse(rowList.subList(8, 10)));
+    assertEquals(8, chunkValues.size());
+    assertEquals(2, readyValues.size());
+    assertEquals(new Integer(8), readyValues.get(0));
+    assertEquals(10, values.size());
+    assertEquals(new Integer(9), values.get(9));
+    assertEquals(0, tableModel.getPendingRequestCount());
+  }
+
+  /**
+   * Test that requests with the same callback are all answered unless they are
+   * cancelled.
+   */
+  public void testSameCallbackRequests() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Create a table model
+    DeferredTableModel innerModel = new DeferredTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+
+    // Send two requests with the same callback
+    final List<Request> answered = new ArrayList<Request>();
+    Callback<List<Object>> callback = new Callback<List<Object>>() {
+      public void onFailure(Throwable caught) {
+        fail("Unexpected failure");
+      }
+
+      public void onRowsReady(Request request, Response<List<Object>> response) {
+        answered.add(request);
+      }
+    };
+    Request request1 = new Request(0, 10);
+    Request request2 = new Request(10, 10);
+    tableModel.requestRows(request1, callback);
+    tableModel.requestRows(request2, callback);
+    innerModel.flush();
+    assertEquals(2, answered.size());
+    assertEquals(request1, answered.get(0));
+    assertEquals(request2, answered.get(1));
+
+    // A cancelled request is not answered
+    answered.clear();
+    Request request3 = new Request(20, 10);
+    Request request4 = new Request(30, 10);
+    tableModel.requestRows(request3, callback);
+    tableModel.requestRows(request4, callback);
+    assertTrue(tableModel.cancelRequest(request3));
+    innerModel.flush();
+    assertEquals(1, answered.size());
+    assertEquals(request4, answered.get(0));
+  }
+
+  /**
+   * Test that rows are cached separately for each sort order.
+   */
+  public void testSortPartitions() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Create a table model
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    assertEquals(CachedTableModel.DEFAULT_SORT_PARTITION_COUNT,
+        tableModel.getMaximumSortPartitionCount());
+
+    // Create some sort orders
+    ColumnSortList ascending = new ColumnSortList();
+    ascending.add(new ColumnSortInfo(0, true));
+    ColumnSortList descending = new ColumnSortList();
+    descending.add(new ColumnSortInfo(0, false));
+    ColumnSortList other = new ColumnSortList();
+    other.add(new ColumnSortInfo(1, true));
+
+    // Request rows in two sort orders
+    tableModel.requestRows(new Request(0, 10, ascending),
+        new TestCallback<List<Object>>(0, 10, ascending));
+    tableModel.requestRows(new Request(0, 10, descending),
+        new TestCallback<List<Object>>(0, 10, descending));
+    assertEquals(2, tableModel.getPartitionMissCount());
+    assertEquals(20, tableModel.getCachedRowCount());
+
+    // Switching back should be served from the cache
+    Request lastRequest = innerModel.getLastRequest();
+    TestCallback<List<Object>> callback = new TestCallback<List<Object>>(0, 10,
+        ascending);
+    tableModel.requestRows(new Request(0, 10, ascending), callback);
+    assertTrue(callback.isExecuted());
+    assertEquals(lastRequest, innerModel.getLastRequest());
+    assertEquals(1, tableModel.getPartitionHitCount());
+
+    // A third sort order discards the least recently used partition
+    tableModel.requestRows(new Request(0, 10, other),
+        new TestCallback<List<Object>>(0, 10, other));
+    assertEquals(3, tableModel.getPartitionMissCount());
+    lastRequest = innerModel.getLastRequest();
+    tableModel.requestRows(new Request(0, 10, ascending),
+        new TestCallback<List<Object>>(0, 10, ascending));
+    assertEquals(lastRequest, innerModel.getLastRequest());
+    tableModel.requestRows(new Request(0, 10, descending),
+        new TestCallback<List<Object>>(0, 10, descending));
+    assertNotSame(lastRequest, innerModel.getLastRequest());
+
+    // Limit the cache to one partition
+    tableModel.setMaximumSortPartitionCount(1);
+    assertEquals(10, tableModel.getCachedRowCount());
+  }
+
+  /**
+   * Test that filtered requests are cached in their own partitions.
+   */
+  public void testFilterPartitions() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Request the first filtered rows
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    RowFilter filter = RowFilter.range(0, "10", "29");
+    List<Object> values = requestValues(tableModel, new Request(0, 15, null,
+        filter));
+    assertEquals(15, values.size());
+    assertEquals(new Integer(10), values.get(0));
+    assertEquals(filter, innerModel.getLastRequest().getRowFilter());
+
+    // A short response marks the end of the filtered rows
+    values = requestValues(tableModel, new Request(15, 10, null, filter));
+    assertEquals(5, values.size());
+    assertEquals(new Integer(29), values.get(4));
+    Request lastRequest = innerModel.getLastRequest();
+    values = requestValues(tableModel, new Request(15, 10, null, filter));
+    assertEquals(5, values.size());
+    assertEquals(lastRequest, innerModel.getLastRequest());
+
+    // Unfiltered rows use a different partition
+    values = requestValues(tableModel, new Request(0, 10));
+    assertEquals(new Integer(0), values.get(0));
+    assertEquals(1, tableModel.getPartitionMissCount());
+    assertNull(innerModel.getLastRequest().getRowFilter());
+
+    // An equal filter uses the same partition
+    lastRequest = innerModel.getLastRequest();
+    values = requestValues(tableModel, new Request(5, 5, null,
+        RowFilter.range(0, "10", "29")));
+    assertEquals(new Integer(15), values.get(0));
+    assertEquals(lastRequest, innerModel.getLastRequest());
+    assertEquals(1, tableModel.getPartitionMissCount());
+  }
+
+  /**
+   * Test that mutations empty a filtered partition.
+   */
+  public void testFilteredMutations() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Learn the number of filtered rows
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    RowFilter filter = RowFilter.range(0, "10", "29");
+    requestValues(tableModel, new Request(0, 30, null, filter));
+    assertEquals(20, tableModel.getRowCount());
+    assertEquals(1, innerModel.getRequestCount());
+
+    // Setting a row empties the filtered partition
+    List<Object> newRow = new ArrayList<Object>();
+    newRow.add(new Integer(20));
+    tableModel.setRowValue(2, newRow);
+    assertEquals(100, tableModel.getRowCount());
+    assertEquals(0, tableModel.getCachedRowCount());
+    List<Object> values = requestValues(tableModel, new Request(0, 30, null,
+        filter));
+    assertEquals(2, innerModel.getRequestCount());
+    assertEquals(21, values.size());
+    assertEquals(21, tableModel.getRowCount());
+
+    // Removing a row does not shift the filtered rows
+    tableModel.removeRow(0);
+    assertEquals(99, tableModel.getRowCount());
+    assertEquals(0, tableModel.getCachedRowCount());
+  }
+
+  /**
+   * Test that requests for no rows are answered with an empty response.
+   */
+  public void testEmptyRequests() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 40; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+
+    // Request rows past the last row
+    TestCallback<List<Object>> callback = new TestCallback<List<Object>>(40,
+        10, null);
+    tableModel.requestRows(new Request(40, 10), callback);
+    assertTrue(callback.isExecuted());
+    assertEquals(0, innerModel.getRequestCount());
+    assertEquals(0, tableModel.getCoalescedRequestCount());
+
+    // Request all rows
+    callback = new TestCallback<List<Object>>(0, TableModel.ALL_ROWS, null);
+    tableModel.requestRows(new Request(0, TableModel.ALL_ROWS), callback);
+    assertTrue(callback.isExecuted());
+    assertEquals(0, innerModel.getRequestCount());
+    assertEquals(0, tableModel.getPendingRequestCount());
+
+    // Request filtered rows past the end of the matching rows
+    RowFilter filter = RowFilter.range(0, "10", "14");
+    List<Object> values = requestValues(tableModel, new Request(0, 10, null,
+        filter));
+    assertEquals(5, values.size());
+    assertEquals(1, innerModel.getRequestCount());
+    callback = new TestCallback<List<Object>>(10, 10, null);
+    tableModel.requestRows(new Request(10, 10, null, filter), callback);
+    assertTrue(callback.isExecuted());
+    assertEquals(1, innerModel.getRequestCount());
+    assertEquals(0, tableModel.getCoalescedRequestCount());
+  }
+
+  /**
+   * Test that the cache loads the union of the requested columns.
+   */
+  public void testColumnProjection() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // The first request loads the requested columns
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    requestValues(tableModel, new Request(0, 10, null, null, new int[] {0, 2}));
+    Request lastRequest = innerModel.getLastRequest();
+    assertTrue(lastRequest.isColumnRequested(2));
+    assertFalse(lastRequest.isColumnRequested(1));
+    assertEquals(10, tableModel.getCachedRowCount());
+
+    // A subset of the loaded columns hits the cache
+    requestValues(tableModel, new Request(0, 10, null, null, new int[] {2}));
+    assertEquals(lastRequest, innerModel.getLastRequest());
+
+    // A new column discards the cache and loads the union
+    requestValues(tableModel, new Request(0, 10, null, null, new int[] {1}));
+    lastRequest = innerModel.getLastRequest();
+    assertEquals(3, lastRequest.getColumns().length);
+    assertTrue(lastRequest.isColumnRequested(0));
+    assertTrue(lastRequest.isColumnRequested(1));
+    assertTrue(lastRequest.isColumnRequested(2));
+    assertEquals(0, lastRequest.getStartRow());
+    assertEquals(10, tableModel.getCachedRowCount());
+
+    // Requesting all columns loads all columns from then on
+    requestValues(tableModel, new Request(0, 10));
+    assertNull(innerModel.getLastRequest().getColumns());
+    lastRequest = innerModel.getLastRequest();
+    requestValues(tableModel, new Request(0, 10, null, null, new int[] {4}));
+    assertEquals(lastRequest, innerModel.getLastRequest());
+  }
+
+  /**
+   * Test changing the requested columns while a request is pending.
+   */
+  public void testColumnProjectionWhilePending() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Send a request that will be pending
+    DeferredTableModel innerModel = new DeferredTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    List<Object> values1 = new ArrayList<Object>();
+    tableModel.requestRows(new Request(0, 10, null, null, new int[] {0}),
+        createValueCallback(values1));
+
+    // Request a new column before the first request returns
+    List<Object> values2 = new ArrayList<Object>();
+    tableModel.requestRows(new Request(0, 10, null, null, new int[] {1}),
+        createValueCallback(values2));
+    assertEquals(2, innerModel.getPendingCount());
+    assertEquals(2, innerModel.getLastRequest().getColumns().length);
+
+    // Both requests receive all of their rows
+    innerModel.flush();
+    assertEquals(10, values1.size());
+    assertEquals(10, values2.size());
+    assertEquals(new Integer(9), values1.get(9));
+    assertEquals(0, tableModel.getPendingRequestCount());
+  }
+
+  /**
+   * Test that shared models use one cache and one set of pending requests.
+   */
+  public void testSharedModels() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new Integer(row));
+    }
+
+    // Create two shared models and one private model
+    DeferredTableModel innerModel = new DeferredTableModel(rowList);
+    CachedTableModel<List<Object>> master = CachedTableModel.createSharedModel(innerModel);
+    CachedTableModel<List<Object>> detail = CachedTableModel.createSharedModel(innerModel);
+    CachedTableModel<List<Object>> other = new CachedTableModel<List<Object>>(innerModel);
+    int storeCount = CachedTableModel.getSharedStoreCount();
+    assertEquals(2, master.getSharedModelCount());
+    assertEquals(1, other.getSharedModelCount());
+
+    // The cache limits are shared
+    master.setMaximumCachedRowCount(RowCache.DEFAULT_CHUNK_SIZE * 4);
+    assertEquals(RowCache.DEFAULT_CHUNK_SIZE * 4,
+        detail.getMaximumCachedRowCount());
+    assertEquals(RowCache.UNLIMITED, other.getMaximumCachedRowCount());
+
+    // A request pending for one model is not sent again for the other
+    TestCallback<List<Object>> masterCallback = new TestCallback<List<Object>>(
+        0, 10, null);
+    master.requestRows(new Request(0, 10), masterCallback);
+    TestCallback<List<Object>> detailCallback = new TestCallback<List<Object>>(
+        5, 5, null);
+    detail.requestRows(new Request(5, 5), detailCallback);
+    assertEquals(1, innerModel.getPendingCount());
+    assertEquals(1, detail.getPendingRequestCount());
+    assertEquals(1, detail.getCoalescedRequestCount());
+    innerModel.flush();
+    assertTrue(masterCallback.isExecuted());
+    assertTrue(detailCallback.isExecuted());
+    assertEquals(10, detail.getCachedRowCount());
+    assertEquals(0, other.getCachedRowCount());
+
+    // Rows loaded by one model are served to the other from the cache
+    detail.requestRows(new Request(0, 10), new TestCallback<List<Object>>(0,
+        10, null));
+    assertEquals(0, innerModel.getPendingCount());
+    assertEquals(10, detail.getCachedRowHitCount());
+
+    // Each model keeps its own sort order
+    master.setMaximumSortPartitionCount(1);
+    detail.setMaximumSortPartitionCount(1);
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, false));
+    detail.requestRows(new Request(0, 10, sortList),
+        new TestCallback<List<Object>>(0, 10, sortList));
+    innerModel.flush();
+    List<Object> values = requestValues(master, new Request(0, 10));
+    assertEquals(new Integer(0), values.get(0));
+    assertEquals(0, innerModel.getPendingCount());
+    assertEquals(20, master.getCachedRowCount());
+
+    // Mutations empty the partitions used by the other models
+    TestRowInsertionHandler insertionHandler = new TestRowInsertionHandler();
+    detail.addRowInsertionHandler(insertionHandler);
+    TestRowCountChangeHandler rowCountHandler = new TestRowCountChangeHandler();
+    detail.addRowCountChangeHandler(rowCountHandler);
+    master.insertRow(0);
+    assertEquals(10, master.getCachedRowCount());
+    detail.requestRows(new Request(0, 10, sortList),
+        new TestCallback<List<Object>>(0, 10, sortList));
+    assertEquals(1, innerModel.getPendingCount());
+    innerModel.flush();
+
+    // The other models fire the events of the mutations
+    insertionHandler.assertRowIndex(0);
+    rowCountHandler.assertNewRowCount(101);
+    TestRowValueChangeHandler<List<Object>> valueHandler = new TestRowValueChangeHandler<List<Object>>();
+    detail.addRowValueChangeHandler(valueHandler);
+    List<Object> rowValue = new ArrayList<Object>();
+    master.setRowValue(3, rowValue);
+    valueHandler.assertRowIndex(3);
+    valueHandler.assertRowValue(rowValue);
+
+    // The cache is discarded with the last shared model
+    detail.release();
+    detail.release();
+    assertEquals(1, master.getSharedModelCount());
+    assertEquals(10, master.getCachedRowCount());
+    master.release();
+    assertEquals(0, master.getCachedRowCount());
+    assertEquals(storeCount - 1, CachedTableModel.getSharedStoreCount());
+    CachedTableModel<List<Object>> newModel = CachedTableModel.createSharedModel(innerModel);
+    assertEquals(storeCount, CachedTableModel.getSharedStoreCount());
+    assertEquals(1, newModel.getSharedModelCount());
+    assertEquals(RowCache.UNLIMITED, newModel.getMaximumCachedRowCount());
+    newModel.release();
+    assertEquals(storeCount - 1, CachedTableModel.getSharedStoreCount());
+  }
+
+  /**
+   * Test that inserting and removing rows shifts the cache.
+   */
+  public void testShiftCache() {
+    // Create the row data
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      ArrayList<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      columnList.add(new CellPair(row, 0));
+    }
+
+    // Create a table model and cache some rows
+    TestTableModel innerModel = new TestTableModel(rowList);
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    tableModel.requestRows(new Request(0, 20), new TestCallback<List<Object>>(
+        0, 20, null));
+    assertEquals(20, tableModel.getCachedRowCount());
+
+    // Insert a row, which only requires the new row to be requested
+    tableModel.insertRow(5);
+    assertEquals(20, tableModel.getCachedRowCount());
+    tableModel.requestRows(new Request(0, 20), new TestCallback<List<Object>>(
+        0, 20, null));
+    Request lastRequest = innerModel.getLastRequest();
+    assertEquals(5, lastRequest.getStartRow());
+    assertEquals(1, lastRequest.getNumRows());
+
+    // Remove a row, which should not require any request
+    tableModel.removeRow(5);
+    tableModel.requestRows(new Request(0, 20), new TestCallback<List<Object>>(
+        0, 20, null));
+    assertEquals(lastRequest, innerModel.getLastRequest());
+  }
+
+  /**
+   * Create a callback that adds the values in the first column of the returned
+   * rows to a list.
+   * 
+   * @param values the list of values
+   * @return the callback
+   */
+  private Callback<List<Object>> createValueCallback(final List<Object> values) {
+    return new Callback<List<Object>>() {
+      public void onFailure(Throwable caught) {
+        fail(caught.getMessage());
+      }
+
+      public void onRowsReady(Request request, Response<List<Object>> response) {
+        Iterator<List<Object>> it = response.getRowValues();
+        while (it.hasNext()) {
+          values.add(it.next().get(0));
+        }
+      }
+    };
+  }
+
+  /**
+   * Request rows from a table model that responds synchronously.
+   * 
+   * @param tableModel the table model
+   * @param request the request
+   * @return the values in the first column of the returned rows
+   */
+  private List<Object> requestValues(TableModel<List<Object>> tableModel,
+      Request request) {
+    List<Object> values = new ArrayList<Object>();
+    tableModel.requestRows(request, createValueCallback(values));
+    return values;
   }
 }
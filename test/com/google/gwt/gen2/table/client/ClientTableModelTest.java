@@ -16,9 +16,12 @@
 package com.google.gwt.gen2.table.client;
 
 import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.client.TableModelHelper.Response;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -136,4 +139,91 @@ public class ClientTableModelTest extends TableModelTestBase {
     Request request = new Request(0, NUM_ROWS);
     tableModel.requestRows(request, callback);
   }
+
+  /**
+   * Test that sorted requests reflect changes to ranges of rows.
+   */
+  public void testSortedRequestsAfterRangeChanges() {
+    // Create a table model over a single column
+    final List<Object> values = new ArrayList<Object>();
+    for (int value : new int[] {5, 3, 9, 1, 7}) {
+      values.add(new Integer(value));
+    }
+    ClientTableModel tableModel = new ClientTableModel() {
+      @Override
+      public Object getCell(int rowNum, int colNum) {
+        if (colNum == 0 && rowNum < values.size()) {
+          return values.get(rowNum);
+        }
+        return null;
+      }
+
+      @Override
+      protected boolean onRowInserted(int beforeRow) {
+        values.add(beforeRow, new Integer(0));
+        return true;
+      }
+
+      @Override
+      protected boolean onRowRemoved(int row) {
+        values.remove(row);
+        return true;
+      }
+
+      @Override
+      protected boolean onSetRowValue(int row, List<Object> rowValue) {
+        values.set(row, rowValue.get(0));
+        return true;
+      }
+    };
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, true));
+    Request request = new Request(0, TableModel.ALL_ROWS, sortList);
+    assertRequestedRows(tableModel, request, 1, 3, 5, 7, 9);
+
+    // Remove a range of rows
+    tableModel.removeRows(0, 3);
+    assertRequestedRows(tableModel, request, 1, 7);
+
+    // Insert a range of rows
+    tableModel.insertRows(0, 1);
+    assertRequestedRows(tableModel, request, 0, 1, 7);
+
+    // Set the values of a range of rows
+    List<List<Object>> rowValues = new ArrayList<List<Object>>();
+    for (int value : new int[] {8, 4}) {
+      List<Object> rowValue = new ArrayList<Object>();
+      rowValue.add(new Integer(value));
+      rowValues.add(rowValue);
+    }
+    tableModel.setRowValues(0, rowValues);
+    assertRequestedRows(tableModel, request, 4, 7, 8);
+  }
+
+  /**
+   * Assert the values in the first column of the requested rows.
+   * 
+   * @param tableModel the table model
+   * @param request the request
+   * @param expected the expected values
+   */
+  private void assertRequestedRows(ClientTableModel tableModel,
+      Request request, final int... expected) {
+    final List<Boolean> executed = new ArrayList<Boolean>();
+    tableModel.requestRows(request, new Callback<List<Object>>() {
+      public void onFailure(Throwable caught) {
+        fail();
+      }
+
+      public void onRowsReady(Request request, Response<List<Object>> response) {
+        Iterator<List<Object>> rows = response.getRowValues();
+        for (int value : expected) {
+          assertEquals(new Integer(value), rows.next().get(0));
+        }
+        assertFalse(rows.hasNext());
+        executed.add(Boolean.TRUE);
+      }
+    });
+    assertEquals(1, executed.size());
+  }
 }
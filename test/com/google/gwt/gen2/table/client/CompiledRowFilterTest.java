@@ -0,0 +1,123 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.base.client.Gen2TestBase;
+import com.google.gwt.gen2.table.client.CompiledRowFilter.CellSource;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+
+/**
+ * Tests methods in the {@link CompiledRowFilter} class.
+ */
+public class CompiledRowFilterTest extends Gen2TestBase {
+  /**
+   * The test data.
+   */
+  private static final Object[][] DATA = {
+      {"Apple", new Integer(3), new Double(1.5)},
+      {"banana", new Integer(10), null}, {null, new Integer(-2), new Double(0)},
+      {"Cherry", null, new Double(2.25)}};
+
+  /**
+   * The source of the test data.
+   */
+  private static final CellSource CELLS = new CellSource() {
+    public Object getCellValue(int row, int column) {
+      return DATA[row][column];
+    }
+  };
+
+  /**
+   * Test combining filters with AND and OR.
+   */
+  public void testComposite() {
+    assertMatches(RowFilter.and(RowFilter.contains(0, "a"), RowFilter.range(
+        1, "5", null)), 1);
+    assertMatches(RowFilter.or(RowFilter.equalTo(0, "Apple"),
+        RowFilter.equalTo(1, "-2")), 0, 2);
+    assertMatches(RowFilter.and(), 0, 1, 2, 3);
+    assertMatches(RowFilter.or());
+    assertMatches(null, 0, 1, 2, 3);
+  }
+
+  /**
+   * Test the contains filter.
+   */
+  public void testContains() {
+    assertMatches(RowFilter.contains(0, "AN"), 1);
+    assertMatches(RowFilter.contains(0, "e"), 0, 3);
+    assertMatches(RowFilter.contains(1, "1"), 1);
+    assertMatches(RowFilter.contains(0, ""), 0, 1, 3);
+  }
+
+  /**
+   * Test the equals filter.
+   */
+  public void testEquals() {
+    assertMatches(RowFilter.equalTo(0, "Apple"), 0);
+    assertMatches(RowFilter.equalTo(0, "apple"));
+    assertMatches(RowFilter.equalTo(0, null), 2);
+    assertMatches(RowFilter.equalTo(1, "10"), 1);
+    assertMatches(RowFilter.equalTo(2, "1.50"), 0);
+    assertMatches(RowFilter.equalTo(1, "ten"));
+  }
+
+  /**
+   * Test the value semantics of filters.
+   */
+  public void testFilterEquality() {
+    RowFilter filter = RowFilter.or(RowFilter.equalTo(0, "a"),
+        RowFilter.range(1, null, "5"));
+    RowFilter same = RowFilter.or(RowFilter.equalTo(0, "a"), RowFilter.range(
+        1, null, "5"));
+    assertEquals(filter, same);
+    assertEquals(filter.hashCode(), same.hashCode());
+    assertFalse(filter.equals(RowFilter.and(RowFilter.equalTo(0, "a"),
+        RowFilter.range(1, null, "5"))));
+    assertFalse(filter.equals(RowFilter.or(RowFilter.equalTo(0, "a"))));
+    assertEquals(2, filter.getChildren().size());
+  }
+
+  /**
+   * Test the range filter.
+   */
+  public void testRange() {
+    assertMatches(RowFilter.range(1, "0", "5"), 0);
+    assertMatches(RowFilter.range(1, null, "3"), 0, 2);
+    assertMatches(RowFilter.range(2, "0", null), 0, 2, 3);
+    assertMatches(RowFilter.range(0, "B", "c"), 1, 3);
+    assertMatches(RowFilter.range(1, "x", null));
+  }
+
+  /**
+   * Assert the rows that match a filter.
+   * 
+   * @param filter the filter
+   * @param expected the indexes of the rows that should match
+   */
+  private void assertMatches(RowFilter filter, int... expected) {
+    CompiledRowFilter compiled = CompiledRowFilter.compile(filter);
+    int next = 0;
+    for (int row = 0; row < DATA.length; row++) {
+      if (compiled.matches(CELLS, row)) {
+        assertTrue("Unexpected match in row " + row, next < expected.length
+            && expected[next] == row);
+        next++;
+      }
+    }
+    assertEquals(expected.length, next);
+  }
+}
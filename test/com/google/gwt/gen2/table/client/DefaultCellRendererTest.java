@@ -103,6 +103,36 @@ public class DefaultCellRendererTest extends Gen2TestBase {
     }
   }
 
+  public void testEscapeHtml() {
+    assertEquals("", DefaultCellRenderer.escapeHtml(null));
+    assertEquals("test", DefaultCellRenderer.escapeHtml("test"));
+    assertEquals("a=&quot;b&quot; &lt;&amp;&gt;",
+        DefaultCellRenderer.escapeHtml("a=\"b\" <&>"));
+  }
+
+  public void testRenderCellHtml() {
+    DefaultCellRenderer<Object, Object> renderer = new DefaultCellRenderer<Object, Object>();
+    CustomColumnDefinition colDef = new CustomColumnDefinition();
+
+    // Text is escaped
+    colDef.setCellValue(null, "test");
+    assertEquals("test", renderer.renderCellHtml(null, colDef));
+    colDef.setCellValue(null, "<b>a & \"b\"</b>");
+    assertEquals("&lt;b&gt;a &amp; &quot;b&quot;&lt;/b&gt;",
+        renderer.renderCellHtml(null, colDef));
+    colDef.setCellValue(null, null);
+    assertEquals("", renderer.renderCellHtml(null, colDef));
+
+    // Widgets cannot be rendered as html
+    colDef.setCellValue(null, new Label("hello"));
+    assertNull(renderer.renderCellHtml(null, colDef));
+
+    // Html as html
+    renderer = new DefaultCellRenderer<Object, Object>(true);
+    colDef.setCellValue(null, "<b>test</b>");
+    assertEquals("<b>test</b>", renderer.renderCellHtml(null, colDef));
+  }
+
   public void testRenderRowValue() {
     DefaultCellRenderer<Object, Object> renderer = new DefaultCellRenderer<Object, Object>();
 
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.base.client.Gen2TestBase;
+import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests methods in the {@link IterableTableModel} class.
+ */
+public class IterableTableModelTest extends Gen2TestBase {
+  /**
+   * Test that requests honor the requested range.
+   */
+  public void testRequestRange() {
+    IterableTableModel<String> tableModel = new IterableTableModel<String>(
+        createRows());
+    assertRequestedRows(tableModel, new Request(0, TableModel.ALL_ROWS), "c",
+        "a", "d", "b");
+    assertRequestedRows(tableModel, new Request(1, 2), "a", "d");
+    assertRequestedRows(tableModel, new Request(3, 10), "b");
+    assertRequestedRows(tableModel, new Request(5, 10));
+  }
+
+  /**
+   * Test that filtered requests fail without a table definition.
+   */
+  public void testFilterWithoutDefinition() {
+    IterableTableModel<String> tableModel = new IterableTableModel<String>(
+        createRows());
+    final List<Throwable> failures = new ArrayList<Throwable>();
+    tableModel.requestRows(new Request(0, 10, null, RowFilter.equalTo(0, "a")),
+        new Callback<String>() {
+          public void onFailure(Throwable caught) {
+            failures.add(caught);
+          }
+
+          public void onRowsReady(Request request, Response<String> response) {
+            fail();
+          }
+        });
+    assertEquals(1, failures.size());
+    assertTrue(failures.get(0) instanceof UnsupportedOperationException);
+  }
+
+  /**
+   * Test that requests are sorted using the table definition.
+   */
+  public void testSortedRequests() {
+    List<ColumnDefinition<String, ?>> colDefs = new ArrayList<ColumnDefinition<String, ?>>();
+    colDefs.add(new AbstractColumnDefinition<String, String>() {
+      @Override
+      public String getCellValue(String rowValue) {
+        return rowValue;
+      }
+
+      @Override
+      public void setCellValue(String rowValue, String cellValue) {
+      }
+    });
+    List<String> rows = createRows();
+    IterableTableModel<String> tableModel = new IterableTableModel<String>(
+        rows, new DefaultTableDefinition<String>(colDefs));
+
+    // Sort ascending
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, true));
+    assertRequestedRows(tableModel, new Request(1, 2, sortList), "b", "c");
+
+    // Sort descending
+    sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, false));
+    assertRequestedRows(tableModel, new Request(0, TableModel.ALL_ROWS,
+        sortList), "d", "c", "b", "a");
+    assertEquals("c", rows.get(0));
+
+    // Change the rows
+    rows.add("e");
+    tableModel.clearRowOrderCache();
+    assertRequestedRows(tableModel, new Request(0, 1, sortList), "e");
+  }
+
+  /**
+   * Assert the requested rows.
+   * 
+   * @param tableModel the table model
+   * @param request the request
+   * @param expected the expected rows
+   */
+  private void assertRequestedRows(IterableTableModel<String> tableModel,
+      Request request, final String... expected) {
+    final List<Boolean> executed = new ArrayList<Boolean>();
+    tableModel.requestRows(request, new Callback<String>() {
+      public void onFailure(Throwable caught) {
+        fail();
+      }
+
+      public void onRowsReady(Request request, Response<String> response) {
+        Iterator<String> rows = response.getRowValues();
+        for (String value : expected) {
+          assertEquals(value, rows.next());
+        }
+        assertFalse(rows.hasNext());
+        executed.add(Boolean.TRUE);
+      }
+    });
+    assertEquals(1, executed.size());
+  }
+
+  /**
+   * @return the test rows
+   */
+  private List<String> createRows() {
+    List<String> rows = new ArrayList<String>();
+    rows.add("c");
+    rows.add("a");
+    rows.add("d");
+    rows.add("b");
+    return rows;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link Response} that contains a list of row values, used to feed
+ * streaming callbacks in tests.
+ */
+class ListResponse extends Response<List<Object>> {
+  /**
+   * The row values.
+   */
+  private List<List<Object>> rowValues;
+
+  /**
+   * Constructor.
+   * 
+   * @param rowValues the row values
+   */
+  public ListResponse(List<List<Object>> rowValues) {
+    this.rowValues = rowValues;
+  }
+
+  @Override
+  public Iterator<List<Object>> getRowValues() {
+    return rowValues.iterator();
+  }
+}
@@ -15,9 +15,15 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.Response;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -132,6 +138,24 @@ public class ListTableModelTest extends ClientTableModelTest {
     }
   }
 
+  /**
+   * Test insertion and deletion of ranges of rows.
+   */
+  public void testRangeInsertion() {
+    ListTableModel tableModel = getTableModel(false);
+    tableModel.insertRows(1, 3);
+    assertEquals(NUM_ROWS + 3, tableModel.getRowCount());
+    ((CellPair) tableModel.getCellValue(0, 0)).assertPair(0, 0);
+    assertNull(tableModel.getCellValue(1, 0));
+    assertNull(tableModel.getCellValue(3, 0));
+    ((CellPair) tableModel.getCellValue(4, 0)).assertPair(1, 0);
+
+    // Remove the new rows and the row after them
+    tableModel.removeRows(1, 4);
+    assertEquals(NUM_ROWS - 1, tableModel.getRowCount());
+    ((CellPair) tableModel.getCellValue(1, 1)).assertPair(2, 1);
+  }
+
   /**
    * Test setting data.
    */
@@ -166,4 +190,76 @@ public class ListTableModelTest extends ClientTableModelTest {
       assertEquals(NUM_ROWS + 3, tableModel.getRowCount());
     }
   }
+
+  /**
+   * Test that requests are sorted without reordering the underlying data.
+   */
+  public void testSortedRequests() {
+    // Create a table model
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 6; row++) {
+      List<Object> rowValue = new ArrayList<Object>();
+      rowValue.add(new Integer(row % 3));
+      rowValue.add(new Integer(row));
+      rowList.add(rowValue);
+    }
+    ListTableModel tableModel = new ListTableModel(rowList);
+
+    // Request all rows in descending order
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(1, false));
+    assertRequestedRows(tableModel, new Request(0, ListTableModel.ALL_ROWS,
+        sortList), 5, 4, 3, 2, 1, 0);
+    assertEquals(new Integer(0), rowList.get(0).get(1));
+
+    // Request a page sorted by two columns
+    sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(1, false));
+    sortList.add(new ColumnSortInfo(0, true));
+    assertRequestedRows(tableModel, new Request(1, 3, sortList), 0, 4, 1);
+
+    // Changing a row value updates the order
+    List<Object> rowValue = new ArrayList<Object>();
+    rowValue.add(new Integer(-1));
+    rowValue.add(new Integer(6));
+    tableModel.setRowValue(5, rowValue);
+    assertRequestedRows(tableModel, new Request(0, 2, sortList), 6, 3);
+
+    // Unsorted requests use the original order
+    assertRequestedRows(tableModel, new Request(4, 5), 4, 6);
+
+    // Filtered requests only return the matching rows
+    RowFilter filter = RowFilter.equalTo(0, "1");
+    assertRequestedRows(tableModel, new Request(0, 5, sortList, filter), 4, 1);
+    assertRequestedRows(tableModel, new Request(1, 5, sortList, filter), 1);
+    assertRequestedRows(tableModel, new Request(0, ListTableModel.ALL_ROWS,
+        null, RowFilter.range(1, "3", null)), 3, 4, 6);
+  }
+
+  /**
+   * Assert the values in the second column of the requested rows.
+   * 
+   * @param tableModel the table model
+   * @param request the request
+   * @param expected the expected values
+   */
+  private void assertRequestedRows(ListTableModel tableModel, Request request,
+      final int... expected) {
+    final List<Boolean> executed = new ArrayList<Boolean>();
+    tableModel.requestRows(request, new Callback<List<Object>>() {
+      public void onFailure(Throwable caught) {
+        fail();
+      }
+
+      public void onRowsReady(Request request, Response<List<Object>> response) {
+        Iterator<List<Object>> rows = response.getRowValues();
+        for (int value : expected) {
+          assertEquals(new Integer(value), rows.next().get(1));
+        }
+        assertFalse(rows.hasNext());
+        executed.add(Boolean.TRUE);
+      }
+    });
+    assertEquals(1, executed.size());
+  }
 }
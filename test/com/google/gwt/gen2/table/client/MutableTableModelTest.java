@@ -23,6 +23,9 @@ import com.google.gwt.gen2.table.event.client.RowRemovalHandler;
 import com.google.gwt.gen2.table.event.client.RowValueChangeEvent;
 import com.google.gwt.gen2.table.event.client.RowValueChangeHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Tests methods in the {@link MutableTableModel} class.
  */
@@ -132,6 +135,67 @@ public class MutableTableModelTest extends TableModelTestBase {
     };
   }
 
+  /**
+   * Test that range mutations fire a single event for the whole range.
+   */
+  public void testRangeMutations() {
+    MutableTableModel<Object> tableModel = getTableModel(false);
+    tableModel.setRowCount(50);
+    final List<Object> events = new ArrayList<Object>();
+    tableModel.addRowInsertionHandler(new RowInsertionHandler() {
+      public void onRowInsertion(RowInsertionEvent event) {
+        events.add(event);
+      }
+    });
+    tableModel.addRowRemovalHandler(new RowRemovalHandler() {
+      public void onRowRemoval(RowRemovalEvent event) {
+        events.add(event);
+      }
+    });
+    tableModel.addRowValueChangeHandler(new RowValueChangeHandler<Object>() {
+      public void onRowValueChange(RowValueChangeEvent<Object> event) {
+        events.add(event);
+      }
+    });
+
+    // Insert a range of rows
+    tableModel.insertRows(5, 2000);
+    assertEquals(1, events.size());
+    RowInsertionEvent insertion = (RowInsertionEvent) events.get(0);
+    assertEquals(5, insertion.getRowIndex());
+    assertEquals(2000, insertion.getRowCount());
+    assertEquals(2050, tableModel.getRowCount());
+
+    // Remove a range of rows
+    tableModel.removeRows(10, 1000);
+    assertEquals(2, events.size());
+    RowRemovalEvent removal = (RowRemovalEvent) events.get(1);
+    assertEquals(10, removal.getRowIndex());
+    assertEquals(1000, removal.getRowCount());
+    assertEquals(1050, tableModel.getRowCount());
+
+    // Set a range of values past the last row
+    List<Object> values = new ArrayList<Object>();
+    values.add("a");
+    values.add("b");
+    values.add("c");
+    tableModel.setRowValues(1049, values);
+    assertEquals(3, events.size());
+    RowValueChangeEvent<?> change = (RowValueChangeEvent<?>) events.get(2);
+    assertEquals(1049, change.getRowIndex());
+    assertEquals(3, change.getRowCount());
+    assertEquals("a", change.getRowValue());
+    assertEquals(values, change.getRowValues());
+    assertEquals(1052, tableModel.getRowCount());
+
+    // Empty ranges do nothing
+    tableModel.insertRows(0, 0);
+    tableModel.removeRows(0, 0);
+    tableModel.setRowValues(0, new ArrayList<Object>());
+    assertEquals(3, events.size());
+    assertEquals(1052, tableModel.getRowCount());
+  }
+
   public void testRowInsertionHandlerWithoutRowCount() {
     // Create a table model
     MutableTableModel<Object> tableModel = getTableModel(false);
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.base.client.Gen2TestBase;
+import com.google.gwt.gen2.table.client.AbstractColumnDefinitionTest.CustomColumnDefinition;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests methods in the {@link PagePrefetcher} class.
+ */
+public class PagePrefetcherTest extends Gen2TestBase {
+  /**
+   * A {@link ListTableModel} that records requests and can hold them until
+   * they are flushed.
+   */
+  private static class TestListTableModel extends ListTableModel {
+    /**
+     * The callbacks of the held requests.
+     */
+    private List<Callback<List<Object>>> callbacks = new ArrayList<Callback<List<Object>>>();
+
+    /**
+     * True to hold requests until they are flushed.
+     */
+    private boolean holdRequests = false;
+
+    /**
+     * The requests that were received.
+     */
+    private List<Request> requests = new ArrayList<Request>();
+
+    public TestListTableModel(List<List<Object>> rows) {
+      super(rows);
+    }
+
+    /**
+     * Respond to all held requests.
+     */
+    public void flush() {
+      List<Request> held = requests.subList(requests.size() - callbacks.size(),
+          requests.size());
+      for (int i = 0; i < callbacks.size(); i++) {
+        super.requestRows(held.get(i), callbacks.get(i));
+      }
+      callbacks.clear();
+    }
+
+    @Override
+    public void requestRows(Request request, Callback<List<Object>> callback) {
+      requests.add(request);
+      if (holdRequests) {
+        callbacks.add(callback);
+      } else {
+        super.requestRows(request, callback);
+      }
+    }
+  }
+
+  /**
+   * Test that the prediction follows the direction and speed of paging.
+   */
+  public void testPrediction() {
+    PagePrefetcher<List<Object>> prefetcher = new PagePrefetcher<List<Object>>(
+        getPagingScrollTable(createTableModel()));
+    assertEquals(1, prefetcher.getDirection());
+    assertEquals(1, prefetcher.getPredictedPageCount());
+
+    // Page forward quickly
+    prefetcher.recordPageChange(0, 1, 1000);
+    prefetcher.recordPageChange(1, 2, 1500);
+    prefetcher.recordPageChange(2, 3, 2000);
+    assertEquals(1, prefetcher.getDirection());
+    assertEquals(3, prefetcher.getPredictedPageCount());
+    prefetcher.recordPageChange(3, 4, 2500);
+    assertEquals(3, prefetcher.getPredictedPageCount());
+    prefetcher.setMaximumPrefetchPageCount(2);
+    assertEquals(2, prefetcher.getPredictedPageCount());
+
+    // Page forward slowly
+    prefetcher.recordPageChange(4, 5, 10000);
+    assertEquals(1, prefetcher.getPredictedPageCount());
+
+    // Page backward
+    prefetcher.recordPageChange(5, 4, 10100);
+    assertEquals(-1, prefetcher.getDirection());
+    assertEquals(1, prefetcher.getPredictedPageCount());
+    prefetcher.recordPageChange(4, 3, 10200);
+    assertEquals(2, prefetcher.getPredictedPageCount());
+
+    // Reload the same page
+    prefetcher.recordPageChange(3, 3, 10300);
+    assertEquals(-1, prefetcher.getDirection());
+    assertEquals(2, prefetcher.getPredictedPageCount());
+  }
+
+  /**
+   * Test prefetching pages.
+   */
+  public void testPrefetch() {
+    TestListTableModel tableModel = createTableModel();
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(tableModel);
+    table.setPageSize(10);
+    PagePrefetcher<List<Object>> prefetcher = new PagePrefetcher<List<Object>>(
+        table);
+
+    // Prefetch the next page
+    table.gotoPage(0, true);
+    tableModel.requests.clear();
+    prefetcher.prefetch();
+    assertEquals(1, tableModel.requests.size());
+    assertEquals(10, tableModel.requests.get(0).getStartRow());
+    assertEquals(10, tableModel.requests.get(0).getNumRows());
+    assertEquals(0, prefetcher.getOutstandingPrefetchCount());
+    assertEquals(1, prefetcher.getPrefetchedPageCount());
+
+    // Do not prefetch past the last page
+    prefetcher.recordPageChange(0, 8, 0);
+    prefetcher.recordPageChange(8, 9, 0);
+    table.gotoPage(9, true);
+    tableModel.requests.clear();
+    prefetcher.prefetch();
+    assertEquals(0, tableModel.requests.size());
+
+    // Disable prefetching
+    prefetcher.setEnabled(false);
+    table.gotoPage(5, true);
+    tableModel.requests.clear();
+    prefetcher.prefetch();
+    assertEquals(0, tableModel.requests.size());
+  }
+
+  /**
+   * Test the limit on outstanding prefetches and cancelling prefetches.
+   */
+  public void testOutstandingPrefetches() {
+    TestListTableModel tableModel = createTableModel();
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(tableModel);
+    table.setPageSize(10);
+    PagePrefetcher<List<Object>> prefetcher = new PagePrefetcher<List<Object>>(
+        table);
+    prefetcher.setMaximumOutstandingPrefetchCount(2);
+    prefetcher.recordPageChange(0, 1, 0);
+    prefetcher.recordPageChange(1, 2, 100);
+    prefetcher.recordPageChange(2, 3, 200);
+    table.gotoPage(3, true);
+
+    // Only two prefetches can be outstanding
+    tableModel.holdRequests = true;
+    tableModel.requests.clear();
+    prefetcher.prefetch();
+    assertEquals(2, tableModel.requests.size());
+    assertEquals(40, tableModel.requests.get(0).getStartRow());
+    assertEquals(50, tableModel.requests.get(1).getStartRow());
+    assertEquals(2, prefetcher.getOutstandingPrefetchCount());
+    prefetcher.prefetch();
+    assertEquals(2, tableModel.requests.size());
+
+    // Cancelled prefetches still count until they return
+    prefetcher.cancelPrefetches();
+    prefetcher.prefetch();
+    assertEquals(2, tableModel.requests.size());
+    tableModel.flush();
+    assertEquals(0, prefetcher.getOutstandingPrefetchCount());
+    assertEquals(0, prefetcher.getPrefetchedPageCount());
+
+    // Remove the prefetcher from the table
+    prefetcher.removeFromTable();
+    tableModel.holdRequests = false;
+    table.gotoPage(2, true);
+    assertEquals(1, prefetcher.getDirection());
+  }
+
+  /**
+   * Test that cancelled prefetches are cancelled in a {@link CachedTableModel}.
+   */
+  public void testCachedPrefetches() {
+    TestListTableModel innerModel = createTableModel();
+    CachedTableModel<List<Object>> tableModel = new CachedTableModel<List<Object>>(innerModel);
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(tableModel);
+    table.setPageSize(10);
+    PagePrefetcher<List<Object>> prefetcher = new PagePrefetcher<List<Object>>(
+        table);
+    table.gotoPage(0, true);
+
+    // Prefetch the next page
+    innerModel.holdRequests = true;
+    innerModel.requests.clear();
+    prefetcher.prefetch();
+    assertEquals(1, innerModel.requests.size());
+    assertEquals(1, prefetcher.getOutstandingPrefetchCount());
+    assertEquals(1, tableModel.getPendingRequestCount());
+
+    // Cancelling the prefetch cancels the cached request
+    prefetcher.cancelPrefetches();
+    assertEquals(0, prefetcher.getOutstandingPrefetchCount());
+    prefetcher.setMaximumOutstandingPrefetchCount(1);
+    prefetcher.prefetch();
+    assertEquals(1, innerModel.requests.size());
+
+    // The response is still cached
+    innerModel.flush();
+    assertEquals(0, tableModel.getPendingRequestCount());
+    assertEquals(0, prefetcher.getPrefetchedPageCount());
+    assertEquals(20, tableModel.getCachedRowCount());
+  }
+
+  /**
+   * @return a new table model with 100 rows
+   */
+  private TestListTableModel createTableModel() {
+    List<List<Object>> rowList = new ArrayList<List<Object>>();
+    for (int row = 0; row < 100; row++) {
+      List<Object> columnList = new ArrayList<Object>();
+      rowList.add(columnList);
+      for (int column = 0; column < 2; column++) {
+        columnList.add(row + ":" + column);
+      }
+    }
+    return new TestListTableModel(rowList);
+  }
+
+  /**
+   * @return a {@link PagingScrollTable}
+   */
+  private PagingScrollTable<List<Object>> getPagingScrollTable(
+      TableModel<List<Object>> tableModel) {
+    List<ColumnDefinition<List<Object>, ?>> colDefs = new ArrayList<ColumnDefinition<List<Object>, ?>>();
+    for (int i = 0; i < 2; i++) {
+      colDefs.add(new CustomColumnDefinition<List<Object>, Object>());
+    }
+    return new PagingScrollTable<List<Object>>(tableModel,
+        new DefaultTableDefinition<List<Object>>(colDefs));
+  }
+}
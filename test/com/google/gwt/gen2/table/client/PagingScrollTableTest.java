@@ -15,18 +15,26 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.dom.client.Document;
 import com.google.gwt.gen2.table.client.AbstractColumnDefinitionTest.CustomColumnDefinition;
 import com.google.gwt.gen2.table.client.SortableGrid.ColumnSorter;
 import com.google.gwt.gen2.table.client.SortableGrid.ColumnSorterCallback;
+import com.google.gwt.gen2.table.client.TableDefinition.AbstractCellView;
+import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModel.StreamingCallback;
 import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.property.ColumnIdProperty;
 import com.google.gwt.gen2.table.event.client.PageChangeEvent;
 import com.google.gwt.gen2.table.event.client.PageChangeHandler;
 import com.google.gwt.gen2.table.event.client.PageCountChangeEvent;
 import com.google.gwt.gen2.table.event.client.PageCountChangeHandler;
 import com.google.gwt.gen2.table.event.client.PageLoadEvent;
 import com.google.gwt.gen2.table.event.client.PageLoadHandler;
+import com.google.gwt.user.client.Element;
 import com.google.gwt.user.client.ui.HTML;
+import com.google.gwt.user.client.ui.Label;
+import com.google.gwt.user.client.ui.RootPanel;
 import com.google.gwt.user.client.ui.Widget;
 
 import java.util.ArrayList;
@@ -231,6 +239,58 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     }
   }
 
+  /**
+   * Test requesting only the visible columns.
+   */
+  public void testColumnProjection() {
+    TestListTableModel listModel = new TestListTableModel(createRowList());
+    CachedTableModel<List<Object>> cachedModel = new CachedTableModel<List<Object>>(
+        listModel);
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(cachedModel);
+    DefaultTableDefinition<List<Object>> tableDef = (DefaultTableDefinition<List<Object>>) table.getTableDefinition();
+    assertFalse(table.isColumnProjectionEnabled());
+    assertNull(table.getRequestedColumns());
+
+    // The columns are indexes in the full list of columns
+    table.setColumnProjectionEnabled(true);
+    tableDef.setColumnVisible(tableDef.getColumnDefinition(2), false);
+    int[] columns = table.getRequestedColumns();
+    assertEquals(9, columns.length);
+    assertEquals(1, columns[1]);
+    assertEquals(3, columns[2]);
+    assertEquals(9, columns[8]);
+
+    // Reload the page from the cache
+    table.setPageSize(5);
+    table.gotoPage(0, true);
+    assertEquals(9, listModel.getLastRequest().getColumns().length);
+    assertFalse(listModel.getLastRequest().isColumnRequested(2));
+    int hitCount = cachedModel.getCachedRowHitCount();
+    table.reloadPage();
+    assertTrue(cachedModel.getCachedRowHitCount() > hitCount);
+
+    // Swapping the visible columns loads the missing column
+    tableDef.setColumnVisible(tableDef.getColumnDefinition(2), true);
+    tableDef.setColumnVisible(tableDef.getColumnDefinition(5), false);
+    columns = table.getRequestedColumns();
+    assertEquals(2, columns[2]);
+    assertEquals(6, columns[5]);
+    hitCount = cachedModel.getCachedRowHitCount();
+    table.reloadPage();
+    assertEquals(hitCount, cachedModel.getCachedRowHitCount());
+    assertTrue(listModel.getLastRequest().isColumnRequested(2));
+
+    // Hiding a loaded column is served from the cache
+    tableDef.setColumnVisible(tableDef.getColumnDefinition(3), false);
+    table.reloadPage();
+    assertTrue(cachedModel.getCachedRowHitCount() > hitCount);
+
+    // An explicit column id replaces the index
+    AbstractColumnDefinition<List<Object>, ?> colDef = (AbstractColumnDefinition<List<Object>, ?>) tableDef.getColumnDefinition(0);
+    colDef.setColumnProperty(ColumnIdProperty.TYPE, new ColumnIdProperty(100));
+    assertEquals(100, table.getRequestedColumns()[0]);
+  }
+
   /**
    * Test column sorting.
    */
@@ -724,6 +784,85 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     }
   }
 
+  /**
+   * Test the accessors and the first block of infinite scroll.
+   */
+  public void testInfiniteScroll() {
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(
+        createTableModel());
+    assertFalse(table.isInfiniteScrollEnabled());
+    assertEquals(0, table.getMaximumLoadedRowCount());
+    table.setPageSize(10);
+    table.setInfiniteScrollEnabled(true);
+    table.setMaximumLoadedRowCount(30);
+    assertTrue(table.isInfiniteScrollEnabled());
+    assertEquals(30, table.getMaximumLoadedRowCount());
+    table.setMaximumLoadedRowCount(-1);
+    assertEquals(0, table.getMaximumLoadedRowCount());
+
+    // The first block is loaded without virtual rendering
+    table.setVirtualRenderingEnabled(true);
+    table.gotoPage(0, true);
+    assertEquals(0, table.getAbsoluteFirstRowIndex());
+    assertEquals(0, table.getFirstRenderedRowIndex());
+    assertEquals("0:0", table.getRowValue(0).get(0));
+    assertEquals("9:0", table.getRowValue(9).get(0));
+  }
+
+  /**
+   * Test that lazy widgets are created for the visible rows after infinite
+   * scroll trims rows from the top of the data table.
+   */
+  public void testInfiniteScrollLazyWidgets() {
+    // Create a table that renders a widget in each row
+    CustomColumnDefinition<List<Object>, Object> columnDef = new CustomColumnDefinition<List<Object>, Object>();
+    columnDef.setCellRenderer(new CellRenderer<List<Object>, Object>() {
+      public void renderRowValue(List<Object> rowValue,
+          ColumnDefinition<List<Object>, Object> columnDef,
+          AbstractCellView<List<Object>> view) {
+        view.setWidget(new Label(rowValue.get(0).toString()));
+      }
+    });
+    DefaultTableDefinition<List<Object>> tableDef = new DefaultTableDefinition<List<Object>>();
+    tableDef.addColumnDefinition(columnDef);
+    PagingScrollTable<List<Object>> table = new PagingScrollTable<List<Object>>(
+        createTableModel(), tableDef);
+    FixedWidthGrid dataTable = table.getDataTable();
+    FixedWidthGridBulkRenderer<List<Object>> renderer = new FixedWidthGridBulkRenderer<List<Object>>(
+        dataTable, table);
+    renderer.setLazyWidgetsEnabled(true);
+    renderer.setLazyWidgetMargin(0);
+    table.setBulkRenderer(renderer);
+    table.setPageSize(10);
+    table.setInfiniteScrollEnabled(true);
+    table.setMaximumLoadedRowCount(20);
+    table.setPixelSize(400, 100);
+    RootPanel.get().add(table);
+
+    // Scroll to the bottom until the first rows are trimmed
+    table.gotoPage(0, true);
+    Element wrapper = table.getDataWrapper();
+    for (int i = 0; i < 3 && table.getAbsoluteFirstRowIndex() == 0; i++) {
+      scrollDataTable(table, wrapper.getScrollHeight());
+    }
+    assertEquals(5, table.getAbsoluteFirstRowIndex());
+    assertEquals(24, table.getAbsoluteLastRowIndex());
+    assertEquals("5:0", table.getRowValue(0).get(0));
+
+    // Scroll just below the spacer above the first rendered row
+    int rowHeight = dataTable.getOffsetHeight() / dataTable.getRowCount();
+    int clientHeight = wrapper.getClientHeight();
+    int scrollTop = clientHeight + rowHeight / 2;
+    int firstVisibleRow = scrollTop / rowHeight;
+    assertTrue(firstVisibleRow < 5);
+    assertNull(dataTable.getWidget(firstVisibleRow, 0));
+    scrollDataTable(table, 5 * rowHeight + scrollTop);
+    assertEquals(5, table.getAbsoluteFirstRowIndex());
+    Label label = (Label) dataTable.getWidget(firstVisibleRow, 0);
+    assertEquals(table.getRowValue(firstVisibleRow).get(0), label.getText());
+    RootPanel.get().remove(table);
+  }
+
   public void testOnDataTableRendered() {
     final List<Object> tester = new ArrayList<Object>();
     TableModel<List<Object>> tableModel = createTableModel();
@@ -807,6 +946,43 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     pch.assertNewPageCount(1);
   }
 
+  /**
+   * Test the timings reported when a page loads.
+   */
+  public void testPageLoadTimings() {
+    PagingScrollTable<List<Object>> table = getPagingScrollTable();
+    TestPageLoadHandler plh = new TestPageLoadHandler();
+    table.addPageLoadHandler(plh);
+    final List<PageLoadTimings> reported = new ArrayList<PageLoadTimings>();
+    assertNull(table.getMetricsSink());
+    TableMetricsSink sink = new TableMetricsSink() {
+      public void onPageLoad(PagingScrollTable<?> source,
+          PageLoadTimings timings) {
+        reported.add(timings);
+      }
+    };
+    table.setMetricsSink(sink);
+    assertEquals(sink, table.getMetricsSink());
+
+    // Load a page
+    table.setPageSize(5);
+    table.gotoPage(1, true);
+    plh.assertPage(1);
+    assertEquals(1, reported.size());
+    PageLoadTimings timings = reported.get(0);
+    assertEquals(1, timings.getPage());
+    assertEquals(5, timings.getRenderedRowCount());
+    assertEquals(PageLoadTimings.UNKNOWN_CACHE_HIT_RATIO,
+        timings.getCacheHitRatio());
+    assertTrue(timings.getTotalTime() >= timings.getRequestTime());
+
+    // Stop reporting timings
+    table.setMetricsSink(null);
+    table.gotoPage(2, false);
+    plh.assertPage(2);
+    assertEquals(1, reported.size());
+  }
+
   /**
    * Test page navigation.
    */
@@ -990,6 +1166,200 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     assertTrue(table.isPageLoading());
   }
 
+  /**
+   * Test that the rows of a page are rendered as they are streamed.
+   */
+  public void testPagingStreamedRows() {
+    final List<List<Object>> rowList = createRowList();
+    final List<Request> requests = new ArrayList<Request>();
+    final List<Callback<List<Object>>> callbacks = new ArrayList<Callback<List<Object>>>();
+    TableModel<List<Object>> tableModel = new TableModel<List<Object>>() {
+      @Override
+      public void requestRows(Request request,
+          TableModel.Callback<List<Object>> callback) {
+        requests.add(request);
+        callbacks.add(callback);
+      }
+    };
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(tableModel);
+    table.setBulkRenderer(new FixedWidthGridBulkRenderer<List<Object>>(
+        table.getDataTable(), table.getTableDefinition()));
+    table.setPageSize(10);
+    table.gotoPage(0, true);
+    assertEquals(1, callbacks.size());
+    assertTrue(callbacks.get(0) instanceof StreamingCallback);
+    StreamingCallback<List<Object>> callback = (StreamingCallback<List<Object>>) callbacks.get(0);
+    Request request = requests.get(0);
+
+    // The first chunk is rendered right away
+    callback.onRowsChunk(request, new ListResponse(rowList.subList(0, 4)));
+    assertEquals(4, table.getDataTable().getRowCount());
+    assertEquals("3:0", table.getRowValue(3).get(0));
+    assertTrue(table.isPageLoading());
+
+    // The last chunk finishes the page
+    callback.onRowsReady(request, new ListResponse(rowList.subList(4, 10)));
+    assertEquals(10, table.getDataTable().getRowCount());
+    assertEquals("9:0", table.getRowValue(9).get(0));
+    assertFalse(table.isPageLoading());
+  }
+
+  /**
+   * Test rendering only the rows that changed when reloading a page.
+   */
+  public void testRowDiffing() {
+    List<List<Object>> rowList = createRowList();
+    TestListTableModel tableModel = new TestListTableModel(rowList);
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(tableModel);
+    FixedWidthGrid dataTable = table.getDataTable();
+    table.setPageSize(10);
+    assertFalse(table.isRowDiffingEnabled());
+    table.setRowDiffingEnabled(true);
+    assertTrue(table.isRowDiffingEnabled());
+    table.gotoPage(0, true);
+    assertEquals(10, dataTable.getRowCount());
+
+    // Reloading an unchanged page does not render any rows
+    dataTable.setHTML(0, 0, "marker");
+    dataTable.setHTML(5, 0, "marker");
+    table.reloadPage();
+    assertEquals(10, dataTable.getRowCount());
+    assertEquals("marker", dataTable.getHTML(0, 0));
+    assertEquals("marker", dataTable.getHTML(5, 0));
+
+    // Insert and replace rows without firing events
+    List<Object> insertedRow = new ArrayList<Object>();
+    List<Object> replacedRow = new ArrayList<Object>();
+    rowList.add(1, insertedRow);
+    rowList.set(4, replacedRow);
+    table.reloadPage();
+    assertEquals(10, dataTable.getRowCount());
+    assertEquals("marker", dataTable.getHTML(0, 0));
+    assertEquals("cell 1:0", dataTable.getHTML(1, 0));
+    assertEquals("cell 4:0", dataTable.getHTML(4, 0));
+    assertEquals("marker", dataTable.getHTML(6, 0));
+    assertEquals(insertedRow, table.getRowValue(1));
+    assertEquals("1:0", table.getRowValue(2).get(0));
+    assertEquals(replacedRow, table.getRowValue(4));
+    assertEquals("8:0", table.getRowValue(9).get(0));
+
+    // Rows inserted by the table model stay in sync
+    tableModel.insertRow(0);
+    assertEquals(10, dataTable.getRowCount());
+    assertNull(table.getRowValue(0));
+    assertEquals("0:0", table.getRowValue(1).get(0));
+    table.reloadPage();
+    assertEquals("marker", dataTable.getHTML(7, 0));
+
+    // Render the entire page when most rows change
+    for (int i = 0; i < 10; i++) {
+      rowList.set(i, new ArrayList<Object>());
+    }
+    table.reloadPage();
+    assertEquals("cell 1:0", dataTable.getHTML(1, 0));
+    assertEquals("cell 7:0", dataTable.getHTML(7, 0));
+  }
+
+  /**
+   * Test selecting all rows across pages.
+   */
+  public void testSelectAllRows() {
+    PagingScrollTable<List<Object>> table = getPagingScrollTable();
+    FixedWidthGrid dataTable = table.getDataTable();
+    table.setPageSize(5);
+    table.setCrossPageSelectionEnabled(true);
+    table.gotoPage(0, true);
+
+    // Select all rows without loading them
+    table.selectAllRows();
+    RowRangeSet selected = table.getSelectedRowIndexes();
+    assertTrue(selected.isInverted());
+    assertEquals(25, selected.size(25));
+    assertEquals(5, dataTable.getSelectedRows().size());
+
+    // Rows on other pages are selected when they are loaded
+    table.gotoPage(2, true);
+    assertEquals(5, dataTable.getSelectedRows().size());
+    dataTable.selectRow(1, true, false);
+    assertFalse(selected.contains(11));
+    assertEquals(24, selected.size(25));
+
+    // Deselect all rows, clearing the set in place
+    table.deselectAllRows();
+    assertTrue(selected.isEmpty());
+    assertSame(selected, table.getSelectedRowIndexes());
+    assertEquals(0, dataTable.getSelectedRows().size());
+  }
+
+  /**
+   * Test that the selection is kept when the sort order changes if a
+   * {@link PagingScrollTable.RowIndexProvider} is set, and cleared otherwise.
+   */
+  public void testSelectionAcrossSort() {
+    PagingScrollTable<List<Object>> table = getPagingScrollTable();
+    FixedWidthGrid dataTable = table.getDataTable();
+    table.setPageSize(5);
+    table.setCrossPageSelectionEnabled(true);
+    table.gotoPage(0, true);
+
+    // Identify rows by the row number in their first cell
+    table.setRowIndexProvider(new PagingScrollTable.RowIndexProvider<List<Object>>() {
+      public int getRowIndex(List<Object> rowValue) {
+        String cell = (String) rowValue.get(0);
+        return Integer.parseInt(cell.substring(0, cell.indexOf(':')));
+      }
+    });
+
+    // Select "1:0" on page 0 and "7:0" on page 1
+    dataTable.selectRow(1, false);
+    table.gotoPage(1, true);
+    dataTable.selectRow(2, false);
+    RowRangeSet selected = table.getSelectedRowIndexes();
+    assertEquals(2, selected.size(25));
+    assertTrue(selected.contains(1));
+    assertTrue(selected.contains(7));
+
+    // Page 1 of the descending order does not contain the selected rows
+    dataTable.sortColumn(0, false);
+    assertEquals(2, table.getSelectedRowIndexes().size(25));
+    assertEquals(0, dataTable.getSelectedRows().size());
+
+    // The selected rows are reselected on the pages that load
+    table.gotoPage(0, true);
+    assertEquals("7:0", table.getRowValue(2).get(0));
+    assertTrue(dataTable.isRowSelected(2));
+    assertEquals(1, dataTable.getSelectedRows().size());
+    table.gotoPage(4, true);
+    assertEquals("1:0", table.getRowValue(3).get(0));
+    assertTrue(dataTable.isRowSelected(3));
+    assertEquals(1, dataTable.getSelectedRows().size());
+
+    // A selection of all rows keeps the deselected rows after sorting
+    table.gotoPage(0, true);
+    table.selectAllRows();
+    dataTable.selectRow(2, true, false);
+    dataTable.sortColumn(0, true);
+    selected = table.getSelectedRowIndexes();
+    assertTrue(selected.isInverted());
+    assertEquals(5, dataTable.getSelectedRows().size());
+    table.gotoPage(4, true);
+    assertEquals("7:0", table.getRowValue(2).get(0));
+    assertFalse(dataTable.isRowSelected(2));
+    assertEquals(4, dataTable.getSelectedRows().size());
+    assertEquals(24, table.getSelectedRowIndexes().size(25));
+
+    // Without a row index provider, sorting clears the selection
+    table.setRowIndexProvider(null);
+    selected = table.getSelectedRowIndexes();
+    assertEquals(4, selected.size(25));
+    assertTrue(selected.contains(21));
+    assertEquals(4, table.getSelectedRowValues().size());
+    dataTable.sortColumn(0, false);
+    assertEquals(0, dataTable.getSelectedRows().size());
+    assertTrue(selected.isEmpty());
+    assertEquals(0, table.getSelectedRowValues().size());
+  }
+
   /**
    * Test changing a row value.
    */
@@ -1019,6 +1389,44 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     }
   }
 
+  /**
+   * Test that range mutations in the table model refresh the page once.
+   */
+  public void testRowRangeChanged() {
+    PagingScrollTable<List<Object>> table = getPagingScrollTable();
+    TestListTableModel tableModel = (TestListTableModel) table.getTableModel();
+    table.setPageSize(5);
+    table.gotoPage(1, true);
+    TestPageLoadHandler plh = new TestPageLoadHandler();
+    table.addPageLoadHandler(plh);
+
+    // Set row values that overlap the start of the page
+    List<List<Object>> values = new ArrayList<List<Object>>();
+    for (int i = 0; i < 3; i++) {
+      values.add(new ArrayList<Object>());
+    }
+    tableModel.setRowValues(4, values);
+    assertEquals(values.get(1), table.getRowValue(0));
+    assertEquals(values.get(2), table.getRowValue(1));
+    plh.assertNotFired();
+
+    // Insert rows before the page
+    tableModel.insertRows(0, 3);
+    plh.assertPage(1);
+    assertEquals(values.get(0), table.getRowValue(2));
+
+    // Remove rows after the page, which does not reload it
+    plh = new TestPageLoadHandler();
+    table.addPageLoadHandler(plh);
+    tableModel.removeRows(20, 3);
+    plh.assertNotFired();
+
+    // Remove rows on the page
+    tableModel.removeRows(0, 3);
+    plh.assertPage(1);
+    assertEquals(values.get(1), table.getRowValue(0));
+  }
+
   /**
    * Test values associated with rows.
    */
@@ -1048,6 +1456,52 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     assertNull(table.getRowValue(6));
   }
 
+  /**
+   * Test rendering only the rows near the viewport.
+   */
+  public void testVirtualRendering() {
+    TestListTableModel tableModel = (TestListTableModel) createTableModel();
+    PagingScrollTable<List<Object>> table = getPagingScrollTable(tableModel);
+    FixedWidthGrid dataTable = table.getDataTable();
+    table.setOverscanRowCount(5);
+    table.setVirtualRenderingEnabled(true);
+    assertTrue(table.isVirtualRenderingEnabled());
+    assertEquals(5, table.getOverscanRowCount());
+
+    // Only the rows near the viewport are rendered
+    table.gotoPage(0, true);
+    assertEquals(11, dataTable.getRowCount());
+    assertEquals(0, table.getFirstRenderedRowIndex());
+    assertEquals("0:0", table.getRowValue(0).get(0));
+    assertEquals("10:0", table.getRowValue(10).get(0));
+
+    // Change a row that is not rendered
+    List<Object> rowValue = new ArrayList<Object>();
+    rowValue.add("new");
+    tableModel.setRowValue(20, rowValue);
+    assertEquals(11, dataTable.getRowCount());
+    assertEquals("10:0", table.getRowValue(10).get(0));
+
+    // Remove a rendered row
+    tableModel.removeRow(2);
+    assertEquals(11, dataTable.getRowCount());
+    assertEquals("3:0", table.getRowValue(2).get(0));
+    assertEquals("11:0", table.getRowValue(10).get(0));
+
+    // Insert a rendered row
+    tableModel.insertRow(1);
+    assertEquals(11, dataTable.getRowCount());
+    assertNull(table.getRowValue(1));
+    assertEquals("1:0", table.getRowValue(2).get(0));
+    assertEquals("10:0", table.getRowValue(10).get(0));
+
+    // Disable virtual rendering
+    table.setVirtualRenderingEnabled(false);
+    assertEquals(25, dataTable.getRowCount());
+    assertEquals(0, table.getFirstRenderedRowIndex());
+    assertEquals("new", table.getRowValue(20).get(0));
+  }
+
   /**
    * @return a {@link PagingScrollTable}
    */
@@ -1078,7 +1532,13 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
    * @return a new table model with 25 rows
    */
   private TableModel<List<Object>> createTableModel() {
-    // Create the row data
+    return new TestListTableModel(createRowList());
+  }
+
+  /**
+   * @return a new list of 25 rows
+   */
+  private List<List<Object>> createRowList() {
     List<List<Object>> rowList = new ArrayList<List<Object>>();
     for (int row = 0; row < 25; row++) {
       ArrayList<Object> columnList = new ArrayList<Object>();
@@ -1087,7 +1547,7 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
         columnList.add(row + ":" + column);
       }
     }
-    return new TestListTableModel(rowList);
+    return rowList;
   }
 
   /**
@@ -1110,4 +1570,17 @@ public class PagingScrollTableTest extends AbstractScrollTableTest {
     scrollTable.setFooterTable(footerTable);
     return scrollTable;
   }
+
+  /**
+   * Scroll the data table and fire the scroll event.
+   * 
+   * @param table the table to scroll
+   * @param scrollTop the new scroll position
+   */
+  private void scrollDataTable(PagingScrollTable<List<Object>> table,
+      int scrollTop) {
+    Element wrapper = table.getDataWrapper();
+    wrapper.setScrollTop(scrollTop);
+    wrapper.dispatchEvent(Document.get().createScrollEvent());
+  }
 }
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.base.client.Gen2TestBase;
+import com.google.gwt.gen2.table.client.RowCache.RowSizeEstimator;
+import com.google.gwt.gen2.table.client.RowCache.WindowEvictionPolicy;
+
+/**
+ * Tests methods in the {@link RowCache} class.
+ */
+public class RowCacheTest extends Gen2TestBase {
+  /**
+   * Test the basic get and put methods.
+   */
+  public void testGetAndPut() {
+    RowCache<String> cache = new RowCache<String>(4);
+    assertFalse(cache.contains(0));
+    assertNull(cache.get(0));
+    assertFalse(cache.contains(-1));
+
+    // Add some rows
+    cache.put(0, "a");
+    cache.put(9, "b");
+    cache.put(10, null);
+    assertEquals(3, cache.getRowCount());
+    assertTrue(cache.contains(0));
+    assertTrue(cache.contains(9));
+    assertTrue(cache.contains(10));
+    assertFalse(cache.contains(1));
+    assertEquals("a", cache.get(0));
+    assertEquals("b", cache.get(9));
+    assertNull(cache.get(10));
+
+    // Replace a row
+    cache.put(9, "c");
+    assertEquals(3, cache.getRowCount());
+    assertEquals("c", cache.get(9));
+
+    // Remove a row
+    cache.remove(9);
+    assertFalse(cache.contains(9));
+    assertEquals(2, cache.getRowCount());
+
+    // Clear the cache
+    cache.clear();
+    assertEquals(0, cache.getRowCount());
+    assertFalse(cache.contains(0));
+  }
+
+  /**
+   * Test shifting rows with insertRow and removeRow.
+   */
+  public void testInsertAndRemoveRow() {
+    RowCache<String> cache = new RowCache<String>(4);
+    for (int i = 0; i < 8; i++) {
+      cache.put(i, "row" + i);
+    }
+    cache.put(10, "row10");
+
+    // Insert a row in the first chunk
+    cache.insertRow(2);
+    assertEquals(9, cache.getRowCount());
+    assertEquals("row1", cache.get(1));
+    assertFalse(cache.contains(2));
+    assertEquals("row2", cache.get(3));
+    assertEquals("row3", cache.get(4));
+    assertEquals("row7", cache.get(8));
+    assertFalse(cache.contains(10));
+    assertEquals("row10", cache.get(11));
+
+    // Remove the inserted row
+    cache.removeRow(2);
+    assertEquals(9, cache.getRowCount());
+    for (int i = 0; i < 8; i++) {
+      assertEquals("row" + i, cache.get(i));
+    }
+    assertFalse(cache.contains(8));
+    assertFalse(cache.contains(9));
+    assertEquals("row10", cache.get(10));
+
+    // Remove a cached row
+    cache.removeRow(0);
+    assertEquals(8, cache.getRowCount());
+    assertEquals("row1", cache.get(0));
+    assertEquals("row7", cache.get(6));
+    assertFalse(cache.contains(7));
+    assertEquals("row10", cache.get(9));
+
+    // Insert a row after the cached rows
+    cache.insertRow(20);
+    assertEquals(8, cache.getRowCount());
+    assertEquals("row10", cache.get(9));
+  }
+
+  /**
+   * Test shifting ranges of rows with insertRows and removeRows.
+   */
+  public void testInsertAndRemoveRows() {
+    RowCache<String> cache = new RowCache<String>(4);
+    for (int i = 0; i < 8; i++) {
+      cache.put(i, "row" + i);
+    }
+    cache.put(10, "row10");
+
+    // Insert rows across several chunks
+    cache.insertRows(2, 5);
+    assertEquals(9, cache.getRowCount());
+    assertEquals("row1", cache.get(1));
+    for (int i = 2; i < 7; i++) {
+      assertFalse(cache.contains(i));
+    }
+    assertEquals("row2", cache.get(7));
+    assertEquals("row7", cache.get(12));
+    assertEquals("row10", cache.get(15));
+
+    // Remove the inserted rows
+    cache.removeRows(2, 5);
+    assertEquals(9, cache.getRowCount());
+    for (int i = 0; i < 8; i++) {
+      assertEquals("row" + i, cache.get(i));
+    }
+    assertFalse(cache.contains(8));
+    assertEquals("row10", cache.get(10));
+
+    // Remove cached rows
+    cache.removeRows(1, 3);
+    assertEquals(6, cache.getRowCount());
+    assertEquals("row0", cache.get(0));
+    assertEquals("row4", cache.get(1));
+    assertEquals("row7", cache.get(4));
+    assertFalse(cache.contains(5));
+    assertEquals("row10", cache.get(7));
+    assertEquals(0, cache.getEvictedRowCount());
+  }
+
+  /**
+   * Test eviction using the {@link RowCache.LruEvictionPolicy}.
+   */
+  public void testLruEviction() {
+    RowCache<String> cache = new RowCache<String>(4);
+    cache.setMaximumRowCount(8);
+    for (int i = 0; i < 8; i++) {
+      cache.put(i, "row" + i);
+    }
+    assertEquals(0, cache.getEvictedRowCount());
+
+    // Access the first chunk so the second chunk is the oldest
+    cache.get(0);
+    cache.put(8, "row8");
+    assertEquals(5, cache.getRowCount());
+    assertEquals(4, cache.getEvictedRowCount());
+    assertEquals(1, cache.getEvictedChunkCount());
+    assertTrue(cache.contains(0));
+    assertFalse(cache.contains(4));
+    assertTrue(cache.contains(8));
+
+    // Reset the statistics
+    cache.resetStatistics();
+    assertEquals(0, cache.getEvictedRowCount());
+    assertEquals(0, cache.getEvictedChunkCount());
+  }
+
+  /**
+   * Test that rows in the focus range are never evicted.
+   */
+  public void testFocusRange() {
+    RowCache<String> cache = new RowCache<String>(4);
+    cache.setFocusRange(0, 11);
+    cache.setMaximumRowCount(4);
+    for (int i = 0; i < 12; i++) {
+      cache.put(i, "row" + i);
+    }
+    assertEquals(12, cache.getRowCount());
+    assertEquals(0, cache.getEvictedRowCount());
+
+    // Move the focus range
+    cache.setFocusRange(8, 11);
+    cache.put(12, "row12");
+    assertEquals(4, cache.getRowCount());
+    assertTrue(cache.contains(8));
+    assertTrue(cache.contains(11));
+  }
+
+  /**
+   * Test that the focus range moves with the rows when rows are inserted or
+   * removed.
+   */
+  public void testShiftFocusRange() {
+    RowCache<String> cache = new RowCache<String>(4);
+    cache.setMaximumRowCount(4);
+    cache.setFocusRange(4, 7);
+    for (int i = 0; i < 8; i++) {
+      cache.put(i, "row" + i);
+    }
+
+    // Insert rows before the focus range
+    cache.insertRows(2, 3);
+    assertEquals(7, cache.getFocusFirstRow());
+    assertEquals(10, cache.getFocusLastRow());
+    cache.put(20, "row20");
+    assertEquals("row4", cache.get(7));
+    assertEquals("row7", cache.get(10));
+
+    // Insert rows inside the focus range
+    cache.insertRows(8, 2);
+    assertEquals(7, cache.getFocusFirstRow());
+    assertEquals(12, cache.getFocusLastRow());
+
+    // Remove rows overlapping the start of the focus range
+    cache.removeRows(5, 3);
+    assertEquals(5, cache.getFocusFirstRow());
+    assertEquals(9, cache.getFocusLastRow());
+    assertFalse(cache.contains(5));
+    assertEquals("row5", cache.get(7));
+    assertEquals("row7", cache.get(9));
+  }
+
+  /**
+   * Test eviction using the {@link RowCache.WindowEvictionPolicy}.
+   */
+  public void testWindowEviction() {
+    RowCache<String> cache = new RowCache<String>(4);
+    cache.setEvictionPolicy(new WindowEvictionPolicy());
+    for (int i = 0; i < 20; i++) {
+      cache.put(i, "row" + i);
+    }
+
+    // Focus in the middle and shrink the cache
+    cache.setFocusRange(8, 11);
+    cache.setMaximumRowCount(12);
+    assertEquals(12, cache.getRowCount());
+    assertFalse(cache.contains(0));
+    assertTrue(cache.contains(4));
+    assertTrue(cache.contains(15));
+    assertFalse(cache.contains(16));
+  }
+
+  /**
+   * Test the byte size limit.
+   */
+  public void testMaximumByteSize() {
+    RowCache<String> cache = new RowCache<String>(2);
+    cache.setRowSizeEstimator(new RowSizeEstimator<String>() {
+      public int getRowSize(String rowValue) {
+        return rowValue.length();
+      }
+    });
+    cache.put(0, "aaaa");
+    cache.put(1, "bb");
+    assertEquals(6, cache.getByteSize());
+    cache.put(1, "b");
+    assertEquals(5, cache.getByteSize());
+
+    // Exceed the limit
+    cache.setMaximumByteSize(6);
+    cache.put(2, "cccc");
+    assertEquals(4, cache.getByteSize());
+    assertFalse(cache.contains(0));
+    assertTrue(cache.contains(2));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.base.client.Gen2TestBase;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+
+/**
+ * Tests methods in the {@link RowOrderCache} class.
+ */
+public class RowOrderCacheTest extends Gen2TestBase {
+  /**
+   * A {@link RowOrderCache} over a 2D array that counts cell reads.
+   */
+  private static class TestRowOrderCache extends RowOrderCache {
+    private Object[][] data;
+    private int readCount = 0;
+
+    public TestRowOrderCache(Object[][] data) {
+      this.data = data;
+    }
+
+    @Override
+    protected Object getCellValue(int row, int column) {
+      readCount++;
+      return data[row][column];
+    }
+
+    @Override
+    protected int getRowCount() {
+      return data.length;
+    }
+  }
+
+  /**
+   * Test comparing cell values.
+   */
+  public void testCompareCellValues() {
+    assertEquals(0, RowOrderCache.compareCellValues(null, null));
+    assertTrue(RowOrderCache.compareCellValues(null, "a") < 0);
+    assertTrue(RowOrderCache.compareCellValues("a", null) > 0);
+    assertTrue(RowOrderCache.compareCellValues(new Integer(2), new Integer(10)) < 0);
+    assertTrue(RowOrderCache.compareCellValues("b", "a") > 0);
+
+    // Values of different types are compared as strings
+    assertTrue(RowOrderCache.compareCellValues(new Integer(2), "10") > 0);
+  }
+
+  /**
+   * Test calculating and caching the order of the rows.
+   */
+  public void testRowOrder() {
+    TestRowOrderCache cache = new TestRowOrderCache(new Object[][] {
+        {new Integer(3), "b"}, {new Integer(1), "a"}, {null, "b"},
+        {new Integer(2), "a"}});
+    assertNull(cache.getRowOrder(null));
+    assertNull(cache.getRowOrder(new ColumnSortList()));
+
+    // Sort by a single column
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, true));
+    assertOrder(cache.getRowOrder(sortList), 2, 1, 3, 0);
+    assertEquals(1, cache.getCachedOrderCount());
+    assertEquals(4, cache.readCount);
+
+    // The order is cached
+    ColumnSortList sameList = new ColumnSortList();
+    sameList.add(new ColumnSortInfo(0, true));
+    assertOrder(cache.getRowOrder(sameList), 2, 1, 3, 0);
+    assertEquals(1, cache.getCachedOrderCount());
+    assertEquals(4, cache.readCount);
+
+    // Changing the original sort list does not affect the cache
+    sortList.add(new ColumnSortInfo(1, false));
+    assertOrder(cache.getRowOrder(sortList), 2, 0, 1, 3);
+    assertEquals(2, cache.getCachedOrderCount());
+    assertOrder(cache.getRowOrder(sameList), 2, 1, 3, 0);
+
+    // Limit the cache
+    cache.setMaximumCachedOrderCount(1);
+    assertEquals(1, cache.getMaximumCachedOrderCount());
+    assertEquals(1, cache.getCachedOrderCount());
+    cache.clear();
+    assertEquals(0, cache.getCachedOrderCount());
+  }
+
+  /**
+   * Test calculating and caching the order of filtered rows.
+   */
+  public void testFilteredRowOrder() {
+    TestRowOrderCache cache = new TestRowOrderCache(new Object[][] {
+        {new Integer(3), "b"}, {new Integer(1), "a"}, {null, "b"},
+        {new Integer(2), "a"}});
+    RowFilter filter = RowFilter.equalTo(1, "a");
+
+    // Filter without sorting
+    assertOrder(cache.getRowOrder(null, filter), 1, 3);
+    assertEquals(1, cache.getCachedOrderCount());
+    assertEquals(4, cache.readCount);
+
+    // Filter and sort, only reading the sort keys of the matching rows
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, false));
+    assertOrder(cache.getRowOrder(sortList, filter), 3, 1);
+    assertEquals(2, cache.getCachedOrderCount());
+    assertEquals(10, cache.readCount);
+
+    // An equal filter uses the cached order
+    assertOrder(cache.getRowOrder(sortList, RowFilter.equalTo(1, "a")), 3, 1);
+    assertEquals(10, cache.readCount);
+
+    // The same sort order without a filter is cached separately
+    assertOrder(cache.getRowOrder(sortList), 0, 3, 1, 2);
+    assertEquals(3, cache.getCachedOrderCount());
+  }
+
+  /**
+   * Assert the order of the rows.
+   * 
+   * @param order the actual order
+   * @param expected the expected order
+   */
+  private void assertOrder(int[] order, int... expected) {
+    assertEquals(expected.length, order.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], order[i]);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.client;
+
+import com.google.gwt.gen2.base.client.Gen2TestBase;
+
+/**
+ * Tests methods in the {@link RowRangeSet} class.
+ */
+public class RowRangeSetTest extends Gen2TestBase {
+  /**
+   * Test adding rows and ranges.
+   */
+  public void testAdd() {
+    RowRangeSet set = new RowRangeSet();
+    assertTrue(set.isEmpty());
+    assertFalse(set.contains(0));
+
+    // Adjacent rows are merged into a single range
+    set.add(3);
+    set.add(4);
+    set.add(2);
+    assertRanges(set, 2, 4);
+    assertTrue(set.contains(3));
+    assertFalse(set.contains(5));
+    assertFalse(set.isEmpty());
+
+    // Separate ranges
+    set.addRange(10, 19);
+    set.add(7);
+    assertRanges(set, 2, 4, 7, 7, 10, 19);
+    assertEquals(14, set.size(100));
+    assertEquals(9, set.size(15));
+
+    // Merge several ranges
+    set.addRange(5, 9);
+    assertRanges(set, 2, 19);
+
+    // Many separate rows
+    set.clear();
+    for (int i = 0; i < 100; i += 2) {
+      set.add(i);
+    }
+    assertEquals(50, set.getRangeCount());
+    assertEquals(50, set.size(1000));
+    assertTrue(set.contains(98));
+    assertFalse(set.contains(97));
+    assertEquals(4, set.getRangeStart(2));
+    assertEquals(4, set.getRangeEnd(2));
+  }
+
+  /**
+   * Test inverted sets.
+   */
+  public void testAddAll() {
+    RowRangeSet set = new RowRangeSet();
+    set.addAll();
+    assertTrue(set.isInverted());
+    assertFalse(set.isEmpty());
+    assertTrue(set.contains(1000000));
+    assertEquals(0, set.getRangeCount());
+    assertEquals(1000000, set.size(1000000));
+
+    // Removing rows adds excluded ranges
+    set.removeRange(5, 9);
+    set.remove(20);
+    assertTrue(set.contains(4));
+    assertFalse(set.contains(7));
+    assertFalse(set.contains(20));
+    assertRanges(set, 5, 9, 20, 20);
+    assertEquals(94, set.size(100));
+    assertEquals("all except [5-9, 20]", set.toString());
+
+    // Adding rows removes excluded ranges
+    set.add(7);
+    assertRanges(set, 5, 6, 8, 9, 20, 20);
+    set.clear();
+    assertFalse(set.isInverted());
+    assertTrue(set.isEmpty());
+  }
+
+  /**
+   * Test equality.
+   */
+  public void testEquals() {
+    RowRangeSet set1 = new RowRangeSet();
+    RowRangeSet set2 = new RowRangeSet();
+    set1.addRange(1, 5);
+    set2.add(1);
+    set2.addRange(2, 5);
+    assertEquals(set1, set2);
+    assertEquals(set1.hashCode(), set2.hashCode());
+    set2.addAll();
+    set2.removeRange(1, 5);
+    assertFalse(set1.equals(set2));
+  }
+
+  /**
+   * Test shifting rows when rows are inserted or removed.
+   */
+  public void testInsertAndRemoveRows() {
+    RowRangeSet set = new RowRangeSet();
+    set.addRange(2, 4);
+    set.addRange(10, 12);
+
+    // Insert rows before and inside of a range
+    set.insertRows(0, 1);
+    assertRanges(set, 3, 5, 11, 13);
+    set.insertRows(4, 2);
+    assertRanges(set, 3, 3, 6, 7, 13, 15);
+    set.insertRows(20, 5);
+    assertRanges(set, 3, 3, 6, 7, 13, 15);
+
+    // Remove rows between and inside of ranges
+    set.removeRows(4, 2);
+    assertRanges(set, 3, 5, 11, 13);
+    set.removeRows(4, 8);
+    assertRanges(set, 3, 5);
+    set.removeRows(0, 10);
+    assertEquals(0, set.getRangeCount());
+  }
+
+  /**
+   * Test removing rows and ranges.
+   */
+  public void testRemove() {
+    RowRangeSet set = new RowRangeSet();
+    set.addRange(0, 9);
+    set.remove(0);
+    set.remove(5);
+    set.remove(20);
+    assertRanges(set, 1, 4, 6, 9);
+    set.removeRange(3, 7);
+    assertRanges(set, 1, 2, 8, 9);
+    set.removeRange(0, 100);
+    assertTrue(set.isEmpty());
+
+    // Invalid range indexes
+    try {
+      set.getRangeStart(0);
+      fail("Expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Assert the ranges in a set.
+   * 
+   * @param set the set
+   * @param expected pairs of the first and last row in each range
+   */
+  private void assertRanges(RowRangeSet set, int... expected) {
+    assertEquals(expected.length / 2, set.getRangeCount());
+    for (int i = 0; i < set.getRangeCount(); i++) {
+      assertEquals(expected[2 * i], set.getRangeStart(i));
+      assertEquals(expected[2 * i + 1], set.getRangeEnd(i));
+    }
+  }
+}
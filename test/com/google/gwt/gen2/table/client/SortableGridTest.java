@@ -17,6 +17,8 @@ package com.google.gwt.gen2.table.client;
 
 import com.google.gwt.gen2.table.client.SortableGrid.ColumnSorter;
 import com.google.gwt.gen2.table.client.SortableGrid.ColumnSorterCallback;
+import com.google.gwt.gen2.table.client.SortableGrid.DefaultColumnSorter;
+import com.google.gwt.gen2.table.client.SortableGrid.SortKeyType;
 import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.event.client.ColumnSortEvent;
 import com.google.gwt.gen2.table.event.client.ColumnSortHandler;
@@ -252,4 +254,64 @@ public class SortableGridTest extends SelectionGridTest {
     testGrid.setColumnSortList(newList);
     assertEquals(newList, testGrid.getColumnSortList());
   }
+
+  /**
+   * Test sorting with typed sort keys across multiple columns.
+   */
+  public void testTypedSorting() {
+    // Initialize the grid
+    SortableGrid testGrid = new SortableGrid(4, 3);
+    String[][] data = { {"10", "b", "x"}, {"9", "A", "y"}, {"100", "a", "x"},
+        {"abc", "B", "y"}};
+    for (int row = 0; row < 4; row++) {
+      for (int col = 0; col < 3; col++) {
+        testGrid.setHTML(row, col, data[row][col]);
+      }
+    }
+
+    // Sort key types
+    DefaultColumnSorter sorter = new DefaultColumnSorter();
+    assertEquals(SortKeyType.STRING, sorter.getSortKeyType(0));
+    sorter.setSortKeyType(0, SortKeyType.NUMERIC);
+    sorter.setSortKeyType(1, SortKeyType.CASE_INSENSITIVE);
+    assertEquals(SortKeyType.NUMERIC, sorter.getSortKeyType(0));
+    testGrid.setColumnSorter(sorter);
+
+    // Sort numerically, with values that are not numbers last
+    testGrid.sortColumn(0, true);
+    assertColumnValues(testGrid, 0, "9", "10", "100", "abc");
+
+    // Sort ignoring case, using the numeric column as the secondary sort
+    testGrid.sortColumn(1, true);
+    assertColumnValues(testGrid, 0, "9", "100", "10", "abc");
+
+    // Sort by three columns
+    testGrid.sortColumn(2, false);
+    assertColumnValues(testGrid, 0, "9", "abc", "100", "10");
+
+    // Sort numerically in descending order, with values that are not numbers
+    // still last
+    testGrid.sortColumn(0, false);
+    assertColumnValues(testGrid, 0, "100", "10", "9", "abc");
+
+    // Remove a sort key type
+    sorter.setSortKeyType(0, null);
+    assertEquals(SortKeyType.STRING, sorter.getSortKeyType(0));
+    assertNull(SortKeyType.NUMERIC.getSortKey("abc"));
+    assertEquals("abc", SortKeyType.CASE_INSENSITIVE.getSortKey("aBC"));
+  }
+
+  /**
+   * Assert the values in a column of a grid.
+   * 
+   * @param grid the grid
+   * @param column the column index
+   * @param expected the expected values
+   */
+  private void assertColumnValues(SortableGrid grid, int column,
+      String... expected) {
+    for (int row = 0; row < expected.length; row++) {
+      assertEquals(expected[row], grid.getHTML(row, column));
+    }
+  }
 }
@@ -16,6 +16,11 @@
 package com.google.gwt.gen2.table.client;
 
 import com.google.gwt.gen2.base.client.Gen2TestBase;
+import com.google.gwt.gen2.table.client.AbstractColumnDefinitionTest.CustomColumnDefinition;
+import com.google.gwt.gen2.table.client.TableDefinition.AbstractCellView;
+import com.google.gwt.gen2.table.client.TableModel.Callback;
+import com.google.gwt.gen2.table.client.TableModel.StreamingCallback;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
 import com.google.gwt.gen2.table.override.client.FlexTable;
 import com.google.gwt.gen2.table.override.client.HTMLTable;
 import com.google.gwt.gen2.table.override.client.HTMLTable.RowFormatter;
@@ -23,6 +28,7 @@ import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.RootPanel;
 import com.google.gwt.user.client.ui.Widget;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -113,6 +119,44 @@ public abstract class TableBulkRendererTestBase extends Gen2TestBase {
     }
   }
 
+  /**
+   * Test that the number of rows per slice adapts to the frame budget.
+   */
+  public void testFrameBudget() {
+    TableBulkRenderer<Object> renderer = new FlexTableBulkRenderer<Object>(
+        new FlexTable(), (TableDefinition<Object>) null);
+    assertEquals(TableBulkRenderer.DEFAULT_FRAME_BUDGET,
+        renderer.getFrameBudget());
+    assertEquals(TableBulkRenderer.INITIAL_ROWS_PER_SLICE,
+        renderer.getRowsPerSlice());
+
+    // The deprecated time slice sets the initial budget
+    TableBulkRenderer.TIME_SLICE = 50;
+    try {
+      assertEquals(50, new FlexTableBulkRenderer<Object>(new FlexTable(),
+          (TableDefinition<Object>) null).getFrameBudget());
+    } finally {
+      TableBulkRenderer.TIME_SLICE = TableBulkRenderer.DEFAULT_FRAME_BUDGET;
+    }
+
+    // Cheap rows increase the number of rows per slice
+    renderer.setFrameBudget(20);
+    renderer.recordSlice(10, 2);
+    assertEquals(55, renderer.getRowsPerSlice());
+    renderer.recordSlice(55, 0);
+    assertEquals(82, renderer.getRowsPerSlice());
+
+    // Expensive rows decrease it
+    renderer.recordSlice(82, 82);
+    assertEquals(51, renderer.getRowsPerSlice());
+    renderer.recordSlice(1, 1000);
+    assertEquals(25, renderer.getRowsPerSlice());
+
+    // Cancelling stops the current render
+    renderer.cancelRendering();
+    assertFalse(renderer.isRendering());
+  }
+
   public void testEmptyTable() {
     doTest(createOracle(0, 0), 0, new TestCallback() {
       @Override
@@ -160,6 +204,155 @@ public abstract class TableBulkRendererTestBase extends Gen2TestBase {
     });
   }
 
+  /**
+   * Test that streamed rows are rendered as each chunk arrives.
+   */
+  public void testStreamingRows() {
+    // Create a table model that holds onto its callbacks
+    final List<List<Object>> rows = new ArrayList<List<Object>>();
+    for (int row = 0; row < 5; row++) {
+      List<Object> rowValue = new ArrayList<Object>();
+      for (int column = 0; column < 2; column++) {
+        rowValue.add(cellContents(row, column));
+      }
+      rows.add(rowValue);
+    }
+    final List<Callback<List<Object>>> callbacks = new ArrayList<Callback<List<Object>>>();
+    ListTableModel model = new ListTableModel(rows) {
+      @Override
+      public void requestRows(Request request, Callback<List<Object>> callback) {
+        callbacks.add(callback);
+      }
+    };
+
+    // Start rendering
+    final List<Boolean> rendered = new ArrayList<Boolean>();
+    TableRendererPair<List<Object>> pair = createTableAndRenderer(2);
+    pair.renderer.renderRows(model, new RendererCallback() {
+      public void onRendered() {
+        rendered.add(Boolean.TRUE);
+      }
+    });
+    assertEquals(1, callbacks.size());
+    assertTrue(callbacks.get(0) instanceof StreamingCallback);
+    StreamingCallback<List<Object>> callback = (StreamingCallback<List<Object>>) callbacks.get(0);
+    Request request = new Request(0, MutableTableModel.ALL_ROWS);
+
+    // Stream the first chunk
+    callback.onRowsChunk(request, new ListResponse(rows.subList(0, 2)));
+    assertEquals(2, pair.table.getRowCount());
+    assertEquals(cellContents(1, 1), pair.table.getText(1, 1));
+    assertEquals(0, rendered.size());
+
+    // Stream the second chunk
+    callback.onRowsChunk(request, new ListResponse(rows.subList(2, 4)));
+    assertEquals(4, pair.table.getRowCount());
+    assertEquals(cellContents(0, 0), pair.table.getText(0, 0));
+    assertEquals(cellContents(3, 0), pair.table.getText(3, 0));
+    assertEquals(0, rendered.size());
+
+    // Finish the request
+    callback.onRowsReady(request, new ListResponse(rows.subList(4, 5)));
+    assertEquals(5, pair.table.getRowCount());
+    assertEquals(cellContents(4, 1), pair.table.getText(4, 1));
+    assertEquals(1, rendered.size());
+  }
+
+  /**
+   * Test that widgets are only created for rows near the visible rows.
+   */
+  public void testLazyWidgets() {
+    // Create a column that renders widgets
+    CustomColumnDefinition<List<Object>, Object> columnDef = new CustomColumnDefinition<List<Object>, Object>();
+    columnDef.setCellRenderer(new CellRenderer<List<Object>, Object>() {
+      public void renderRowValue(List<Object> rowValue,
+          ColumnDefinition<List<Object>, Object> columnDef,
+          AbstractCellView<List<Object>> view) {
+        view.setWidget(new Label(rowValue.get(0).toString()));
+      }
+    });
+    DefaultTableDefinition<List<Object>> tableDef = new DefaultTableDefinition<List<Object>>();
+    tableDef.addColumnDefinition(columnDef);
+    FlexTable table = new FlexTable();
+    TableBulkRenderer<List<Object>> renderer = new FlexTableBulkRenderer<List<Object>>(
+        table, tableDef);
+    assertFalse(renderer.isLazyWidgetsEnabled());
+    renderer.setLazyWidgetsEnabled(true);
+    renderer.setLazyWidgetMargin(5);
+
+    // Only the rows near the first row get widgets
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    for (int i = 0; i < 100; i++) {
+      List<Object> rowValue = new ArrayList<Object>();
+      rowValue.add("r" + i);
+      rows.add(rowValue);
+    }
+    renderer.renderRows(rows);
+    assertEquals(100, table.getRowCount());
+    assertEquals(94, renderer.getPendingWidgetCount());
+    assertEquals("r5", ((Label) table.getWidget(5, 0)).getText());
+    assertNull(table.getWidget(6, 0));
+
+    // Scroll to the middle
+    renderer.setVisibleRows(50, 55);
+    assertEquals(84, renderer.getPendingWidgetCount());
+    assertNull(table.getWidget(0, 0));
+    assertEquals("r45", ((Label) table.getWidget(45, 0)).getText());
+    assertEquals("r60", ((Label) table.getWidget(60, 0)).getText());
+    assertNull(table.getWidget(61, 0));
+
+    // Disabling lazy widgets creates the pending widgets
+    renderer.setLazyWidgetsEnabled(false);
+    assertEquals(0, renderer.getPendingWidgetCount());
+    assertEquals("r0", ((Label) table.getWidget(0, 0)).getText());
+    assertEquals("r99", ((Label) table.getWidget(99, 0)).getText());
+  }
+
+  /**
+   * Test that rows rendered from the template match rows rendered through the
+   * cell view.
+   */
+  public void testTemplateMatchesCellView() {
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    for (int row = 0; row < 4; row++) {
+      List<Object> rowValue = new ArrayList<Object>();
+      rowValue.add("cell " + row);
+      rowValue.add("<b>" + row + "</b> & \"" + row + "\"");
+      rowValue.add(row == 2 ? null : new Integer(row));
+      rows.add(rowValue);
+    }
+
+    // The DefaultCellRenderer fills the template, a subclass uses the cell view
+    FlexTable templateTable = new FlexTable();
+    TableDefinition<List<Object>> templateDef = createTableDefinition(
+        new DefaultCellRenderer<List<Object>, Object>(),
+        new DefaultCellRenderer<List<Object>, Object>(true));
+    TableBulkRenderer<List<Object>> templateRenderer = new FlexTableBulkRenderer<List<Object>>(
+        templateTable, templateDef);
+    templateRenderer.renderRows(rows);
+    FlexTable cellViewTable = new FlexTable();
+    TableDefinition<List<Object>> cellViewDef = createTableDefinition(
+        new DefaultCellRenderer<List<Object>, Object>() {
+        }, new DefaultCellRenderer<List<Object>, Object>(true) {
+        });
+    TableBulkRenderer<List<Object>> cellViewRenderer = new FlexTableBulkRenderer<List<Object>>(
+        cellViewTable, cellViewDef);
+    cellViewRenderer.renderRows(rows);
+
+    // Compare the rendered cells
+    assertEquals(4, templateTable.getRowCount());
+    assertEquals(4, cellViewTable.getRowCount());
+    for (int row = 0; row < 4; row++) {
+      assertEquals(3, templateTable.getCellCount(row));
+      for (int column = 0; column < 3; column++) {
+        assertEquals(cellViewTable.getHTML(row, column), templateTable.getHTML(
+            row, column));
+      }
+    }
+    assertEquals("cell 1", templateTable.getText(1, 0));
+    assertEquals("<b>1</b> & \"1\"", templateTable.getText(1, 1));
+  }
+
   public void testStyles() {
     doTest(createEmptyOracle(4, 4), 4, new TestCallback() {
       @Override
@@ -198,6 +391,36 @@ public abstract class TableBulkRendererTestBase extends Gen2TestBase {
     pair.renderer.renderRows(model, callback);
   }
 
+  /**
+   * Create a table definition with three columns that return the values of a
+   * row. The first two columns render text and the third renders HTML.
+   * 
+   * @param textRenderer the renderer of the text columns
+   * @param htmlRenderer the renderer of the HTML column
+   * @return the table definition
+   */
+  private TableDefinition<List<Object>> createTableDefinition(
+      CellRenderer<List<Object>, Object> textRenderer,
+      CellRenderer<List<Object>, Object> htmlRenderer) {
+    DefaultTableDefinition<List<Object>> tableDef = new DefaultTableDefinition<List<Object>>();
+    for (int i = 0; i < 3; i++) {
+      final int column = i;
+      AbstractColumnDefinition<List<Object>, Object> columnDef = new AbstractColumnDefinition<List<Object>, Object>() {
+        @Override
+        public Object getCellValue(List<Object> rowValue) {
+          return rowValue.get(column);
+        }
+
+        @Override
+        public void setCellValue(List<Object> rowValue, Object cellValue) {
+        }
+      };
+      columnDef.setCellRenderer(i == 2 ? htmlRenderer : textRenderer);
+      tableDef.addColumnDefinition(columnDef);
+    }
+    return tableDef;
+  }
+
   private String cellContents(int rowNum, int cellNum) {
     return "cell " + rowNum + ":" + cellNum;
   }
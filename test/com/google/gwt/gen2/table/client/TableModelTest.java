@@ -15,6 +15,7 @@
  */
 package com.google.gwt.gen2.table.client;
 
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
 import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
 import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
 import com.google.gwt.gen2.table.client.TableModelHelper.Request;
@@ -67,6 +68,26 @@ public class TableModelTest extends TableModelTestBase {
     assertEquals(request2.getStartRow(), 5);
     assertEquals(request2.getNumRows(), 10);
     assertEquals(request2.getColumnSortList(), sortList);
+    assertNull(request2.getColumns());
+    assertTrue(request2.isColumnRequested(7));
+
+    // With columns
+    int[] columns = new int[] {0, 2};
+    Request request3 = new Request(0, 10, null, null, columns);
+    columns[0] = 1;
+    assertEquals(0, request3.getColumns()[0]);
+    request3.getColumns()[1] = 1;
+    assertTrue(request3.isColumnRequested(2));
+    assertFalse(request3.isColumnRequested(1));
+
+    // Batch requests pass the columns to each range
+    BatchRequest batch = new BatchRequest(new int[] {0, 20}, new int[] {5, 5},
+        null, null, new int[] {3});
+    assertEquals(1, batch.getColumns().length);
+    Request range = batch.getRequest(1);
+    assertEquals(20, range.getStartRow());
+    assertTrue(range.isColumnRequested(3));
+    assertFalse(range.isColumnRequested(0));
   }
 
   /**
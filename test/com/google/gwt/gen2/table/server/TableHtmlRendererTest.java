@@ -0,0 +1,206 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.server;
+
+import com.google.gwt.gen2.table.client.AbstractColumnDefinition;
+import com.google.gwt.gen2.table.client.CellRenderer;
+import com.google.gwt.gen2.table.client.ColumnDefinition;
+import com.google.gwt.gen2.table.client.DefaultRowRenderer;
+import com.google.gwt.gen2.table.client.DefaultTableDefinition;
+import com.google.gwt.gen2.table.client.TableDefinition.AbstractCellView;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.server.TableQueryEngine.ColumnAccessor;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests methods in the {@link TableHtmlRenderer} class. The renderer only runs
+ * on the server, so we test it using junit.
+ */
+public class TableHtmlRendererTest extends TestCase {
+  /**
+   * A column that displays a cell of a row of strings.
+   */
+  private static class StringColumnDefinition extends
+      AbstractColumnDefinition<String[], String> implements
+      ColumnAccessor<String[]> {
+    private int column;
+
+    public StringColumnDefinition(int column) {
+      this.column = column;
+    }
+
+    @Override
+    public String getCellValue(String[] rowValue) {
+      return rowValue[column];
+    }
+
+    @Override
+    public void setCellValue(String[] rowValue, String cellValue) {
+      rowValue[column] = cellValue;
+    }
+  }
+
+  /**
+   * Test that attribute values are escaped.
+   */
+  public void testEscapedAttributes() {
+    StringColumnDefinition columnDef = new StringColumnDefinition(0);
+    columnDef.setCellRenderer(new CellRenderer<String[], String>() {
+      public void renderRowValue(String[] rowValue,
+          ColumnDefinition<String[], String> columnDef,
+          AbstractCellView<String[]> view) {
+        view.setStyleName("a\" onclick=\"x");
+        view.setStyleAttribute("color", "red\"><b");
+      }
+    });
+    DefaultTableDefinition<String[]> tableDef =
+        new DefaultTableDefinition<String[]>();
+    tableDef.addColumnDefinition(columnDef);
+    TableHtmlRenderer<String[]> renderer = new TableHtmlRenderer<String[]>(
+        createEngine(), tableDef);
+    assertEquals("<table><tbody><tr>"
+        + "<td class=\"a&quot; onclick=&quot;x\""
+        + " style=\"color:red&quot;&gt;&lt;b;\">"
+        + "</td></tr></tbody></table>", renderer.getHtml(new Request(0, 1)));
+  }
+
+  /**
+   * Test rendering a page of rows.
+   */
+  public void testGetHtml() {
+    TableHtmlRenderer<String[]> renderer = createRenderer();
+    assertEquals("<table><tbody>"
+        + "<tr style=\"background:red;\">"
+        + "<td>a</td><td class=\"b\">1 &lt; 2</td></tr>"
+        + "<tr style=\"background:blue;\">"
+        + "<td>b</td><td class=\"b\">&amp;</td></tr>"
+        + "</tbody></table>", renderer.getHtml(new Request(0, 2)));
+
+    // Sort descending by the first column
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, false));
+    String html = renderer.getHtml(new Request(0, 1, sortList));
+    assertEquals("<table><tbody>"
+        + "<tr style=\"background:red;\"><td>c</td><td class=\"b\"></td></tr>"
+        + "</tbody></table>", html);
+  }
+
+  /**
+   * Test that rendered pages are cached.
+   */
+  public void testPageCache() {
+    TableHtmlRenderer<String[]> renderer = createRenderer();
+    assertEquals(TableHtmlRenderer.DEFAULT_MAX_CACHED_PAGE_COUNT,
+        renderer.getMaximumCachedPageCount());
+    String html = renderer.getHtml(new Request(0, 2));
+    assertEquals(1, renderer.getCachedPageCount());
+    assertSame(html, renderer.getHtml(new Request(0, 2)));
+    assertEquals(1, renderer.getCachedPageCount());
+
+    // Different requests are cached separately
+    renderer.getHtml(new Request(1, 2));
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(0, true));
+    renderer.getHtml(new Request(0, 2, sortList));
+    assertEquals(3, renderer.getCachedPageCount());
+    renderer.getHtml(new Request(0, 2, null, null, new int[] {0}));
+    assertEquals(4, renderer.getCachedPageCount());
+
+    // Hiding a column renders the page again
+    DefaultTableDefinition<String[]> tableDef =
+        (DefaultTableDefinition<String[]>) renderer.getTableDefinition();
+    tableDef.setColumnVisible(tableDef.getColumnDefinition(1), false);
+    assertEquals("<table><tbody>"
+        + "<tr style=\"background:red;\"><td>a</td></tr>"
+        + "<tr style=\"background:blue;\"><td>b</td></tr>"
+        + "</tbody></table>", renderer.getHtml(new Request(0, 2)));
+    assertEquals(5, renderer.getCachedPageCount());
+    renderer.clearCache();
+    assertEquals(0, renderer.getCachedPageCount());
+
+    // The least recently used page is removed
+    TableHtmlRenderer<String[]> small = new TableHtmlRenderer<String[]>(
+        createEngine(), renderer.getTableDefinition(), 1);
+    small.getHtml(new Request(0, 1));
+    small.getHtml(new Request(1, 1));
+    assertEquals(1, small.getCachedPageCount());
+  }
+
+  /**
+   * Test that widgets cannot be rendered on the server.
+   */
+  public void testWidgets() {
+    StringColumnDefinition columnDef = new StringColumnDefinition(0);
+    columnDef.setCellRenderer(new CellRenderer<String[], String>() {
+      public void renderRowValue(String[] rowValue,
+          ColumnDefinition<String[], String> columnDef,
+          AbstractCellView<String[]> view) {
+        view.setWidget(null);
+      }
+    });
+    DefaultTableDefinition<String[]> tableDef = new DefaultTableDefinition<String[]>();
+    tableDef.addColumnDefinition(columnDef);
+    TableHtmlRenderer<String[]> renderer = new TableHtmlRenderer<String[]>(
+        createEngine(), tableDef);
+    try {
+      renderer.getHtml(new Request(0, 1));
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+      assertEquals(0, renderer.getCachedPageCount());
+    }
+  }
+
+  /**
+   * @return a new engine over the test rows
+   */
+  private TableQueryEngine<String[]> createEngine() {
+    List<String[]> rows = new ArrayList<String[]>();
+    rows.add(new String[] {"a", "1 < 2"});
+    rows.add(new String[] {"b", "&"});
+    rows.add(new String[] {"c", null});
+    List<ColumnAccessor<String[]>> accessors = new ArrayList<ColumnAccessor<String[]>>();
+    accessors.add(new StringColumnDefinition(0));
+    accessors.add(new StringColumnDefinition(1));
+    return new TableQueryEngine<String[]>(rows, accessors);
+  }
+
+  /**
+   * @return a new renderer over the test rows
+   */
+  private TableHtmlRenderer<String[]> createRenderer() {
+    DefaultTableDefinition<String[]> tableDef = new DefaultTableDefinition<String[]>();
+    tableDef.setRowRenderer(new DefaultRowRenderer<String[]>(new String[] {
+        "red", "blue"}));
+    tableDef.addColumnDefinition(new StringColumnDefinition(0));
+    StringColumnDefinition styled = new StringColumnDefinition(1);
+    styled.setCellRenderer(new CellRenderer<String[], String>() {
+      public void renderRowValue(String[] rowValue,
+          ColumnDefinition<String[], String> columnDef,
+          AbstractCellView<String[]> view) {
+        view.setStyleName("b");
+        view.setText(columnDef.getCellValue(rowValue));
+      }
+    });
+    tableDef.addColumnDefinition(styled);
+    return new TableHtmlRenderer<String[]>(createEngine(), tableDef);
+  }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2008 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.gen2.table.server;
+
+import com.google.gwt.gen2.table.client.TableModelHelper.BatchRequest;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortInfo;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnSortList;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnarResponse;
+import com.google.gwt.gen2.table.client.TableModelHelper.ColumnarRow;
+import com.google.gwt.gen2.table.client.TableModelHelper.Request;
+import com.google.gwt.gen2.table.client.TableModelHelper.RowFilter;
+import com.google.gwt.gen2.table.server.TableQueryEngine.ColumnAccessor;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests methods in the {@link TableQueryEngine} class. The engine only runs on
+ * the server, so we test it using junit.
+ */
+public class TableQueryEngineTest extends TestCase {
+  /**
+   * Accesses a column in a row of strings.
+   */
+  private static class StringColumnAccessor implements ColumnAccessor<String[]> {
+    private int column;
+
+    public StringColumnAccessor(int column) {
+      this.column = column;
+    }
+
+    public Object getCellValue(String[] rowValue) {
+      return rowValue[column];
+    }
+  }
+
+  /**
+   * Test requesting rows in their original order.
+   */
+  public void testUnsorted() {
+    TableQueryEngine<String[]> engine = createEngine();
+    assertEquals(6, engine.getRowCount());
+    assertEquals(3, engine.getColumnCount());
+
+    // Request a page
+    List<String[]> rows = engine.getRowValues(new Request(1, 2));
+    assertEquals(2, rows.size());
+    assertEquals("b", rows.get(0)[0]);
+    assertEquals("c", rows.get(1)[0]);
+
+    // Request past the end
+    rows = engine.getRowValues(new Request(4, 10));
+    assertEquals(2, rows.size());
+    assertEquals(0, engine.getRowValues(new Request(10, 10)).size());
+
+    // Request all rows
+    assertEquals(6, engine.getRowValues(new Request(0, -1)).size());
+  }
+
+  /**
+   * Test sorting by a single column.
+   */
+  public void testSingleColumnSort() {
+    TableQueryEngine<String[]> engine = createEngine();
+
+    // Sort ascending
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(2, true));
+    List<String[]> rows = engine.getRowValues(new Request(0, 6, sortList));
+    assertOrder(rows, "f", "c", "a", "b", "d", "e");
+    assertEquals(0, engine.getCachedSortCount());
+
+    // Sort descending
+    sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(2, false));
+    rows = engine.getRowValues(new Request(2, 3, sortList));
+    assertOrder(rows, "d", "a", "c");
+    assertEquals(1, engine.getCachedSortCount());
+
+    // Ignore columns that do not exist
+    sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(5, false));
+    rows = engine.getRowValues(new Request(0, 2, sortList));
+    assertOrder(rows, "a", "b");
+  }
+
+  /**
+   * Test sorting by multiple columns.
+   */
+  public void testMultiColumnSort() {
+    TableQueryEngine<String[]> engine = createEngine();
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(2, true));
+    sortList.add(new ColumnSortInfo(1, false));
+    List<String[]> rows = engine.getRowValues(new Request(0, 6, sortList));
+    assertOrder(rows, "e", "b", "d", "f", "c", "a");
+
+    // The order is cached
+    assertEquals(1, engine.getCachedSortCount());
+    rows = engine.getRowValues(new Request(3, 2, sortList));
+    assertOrder(rows, "f", "c");
+    assertEquals(1, engine.getCachedSortCount());
+
+    // Request several ranges in the same order
+    List<List<String[]>> ranges = engine.getRowValues(new BatchRequest(
+        new int[] {0, 4}, new int[] {2, 5}, sortList));
+    assertEquals(2, ranges.size());
+    assertOrder(ranges.get(0), "e", "b");
+    assertOrder(ranges.get(1), "c", "a");
+    assertEquals(1, engine.getCachedSortCount());
+  }
+
+  /**
+   * Test filtering rows.
+   */
+  public void testFilteredRequests() {
+    TableQueryEngine<String[]> engine = createEngine();
+
+    // Filter and sort
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(2, true));
+    RowFilter filter = RowFilter.equalTo(1, "g1");
+    assertOrder(engine.getRowValues(new Request(0, 6, sortList, filter)), "f",
+        "c", "a");
+    assertOrder(engine.getRowValues(new Request(1, 5, sortList, filter)), "c",
+        "a");
+    assertEquals(1, engine.getCachedSortCount());
+
+    // Filter without sorting
+    filter = RowFilter.or(RowFilter.equalTo(2, "x"), RowFilter.contains(0,
+        "E"));
+    assertOrder(engine.getRowValues(new Request(0, -1, null, filter)), "b",
+        "d", "e");
+    List<List<String[]>> ranges = engine.getRowValues(new BatchRequest(
+        new int[] {0, 2}, new int[] {1, 1}, null, filter));
+    assertOrder(ranges.get(0), "b");
+    assertOrder(ranges.get(1), "e");
+    assertEquals(2, engine.getCachedSortCount());
+
+    // Filters on columns that do not exist match empty cells
+    assertEquals(0, engine.getRowValues(
+        new Request(0, 6, null, RowFilter.contains(5, ""))).size());
+  }
+
+  /**
+   * Test encoding the requested rows column by column.
+   */
+  public void testColumnarResponse() {
+    List<Object[]> rows = new ArrayList<Object[]>();
+    rows.add(new Object[] {"a", 3, 1.5, true});
+    rows.add(new Object[] {"b", 1, 2, false});
+    rows.add(new Object[] {"a", null, null, null});
+    rows.add(new Object[] {null, 2, 0.5, true});
+    List<ColumnAccessor<Object[]>> accessors = new ArrayList<ColumnAccessor<Object[]>>();
+    for (int i = 0; i < 4; i++) {
+      final int column = i;
+      accessors.add(new ColumnAccessor<Object[]>() {
+        public Object getCellValue(Object[] rowValue) {
+          return rowValue[column];
+        }
+      });
+    }
+    TableQueryEngine<Object[]> engine = new TableQueryEngine<Object[]>(rows,
+        accessors);
+
+    // Sort by the integer column
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(1, true));
+    ColumnarResponse response = engine.getColumnarResponse(new Request(0, 4,
+        sortList));
+    assertEquals(4, response.getRowCount());
+    assertEquals(4, response.getColumnCount());
+    assertEquals(ColumnarResponse.TYPE_STRING, response.getColumnType(0));
+    assertEquals(ColumnarResponse.TYPE_INTEGER, response.getColumnType(1));
+    assertEquals(ColumnarResponse.TYPE_DOUBLE, response.getColumnType(2));
+    assertEquals(ColumnarResponse.TYPE_BOOLEAN, response.getColumnType(3));
+    assertEquals(2, response.getDictionarySize(0));
+
+    // Decode the rows
+    Iterator<ColumnarRow> it = response.getRowValues();
+    ColumnarRow row = it.next();
+    assertEquals("a", row.getString(0));
+    assertTrue(row.isNull(1));
+    assertNull(row.getCellValue(2));
+    assertFalse(row.getBoolean(3));
+    row = it.next();
+    assertEquals("b", row.getString(0));
+    assertEquals(1, row.getInt(1));
+    assertEquals(2.0, row.getDouble(2));
+    assertEquals(Boolean.FALSE, row.getCellValue(3));
+    row = it.next();
+    assertNull(row.getString(0));
+    assertEquals(new Integer(2), row.getCellValue(1));
+    assertEquals(0.5, row.getDouble(2));
+    assertTrue(row.getBoolean(3));
+    row = it.next();
+    assertEquals("a", row.getString(0));
+    assertEquals("3", row.getString(1));
+    assertEquals(3, row.getRowIndex());
+    assertFalse(it.hasNext());
+  }
+
+  /**
+   * Test leaving the columns that were not requested out of the response.
+   */
+  public void testColumnProjection() {
+    TableQueryEngine<String[]> engine = createEngine();
+    ColumnSortList sortList = new ColumnSortList();
+    sortList.add(new ColumnSortInfo(2, true));
+    Request request = new Request(0, 2, sortList, null, new int[] {0});
+
+    // Columnar response
+    ColumnarResponse response = engine.getColumnarResponse(request);
+    assertEquals(3, response.getColumnCount());
+    assertEquals(ColumnarResponse.TYPE_STRING, response.getColumnType(0));
+    assertEquals(ColumnarResponse.TYPE_OMITTED, response.getColumnType(1));
+    assertEquals(ColumnarResponse.TYPE_OMITTED, response.getColumnType(2));
+    ColumnarRow row = response.getRowValues().next();
+    assertEquals("f", row.getString(0));
+    assertTrue(row.isNull(1));
+    assertNull(row.getCellValue(2));
+
+    // Projected row values
+    List<Object[]> rows = engine.getProjectedRowValues(request);
+    assertEquals(2, rows.size());
+    assertEquals("f", rows.get(0)[0]);
+    assertNull(rows.get(0)[1]);
+    assertNull(rows.get(0)[2]);
+    assertEquals("c", rows.get(1)[0]);
+
+    // All columns
+    rows = engine.getProjectedRowValues(new Request(0, 1));
+    assertEquals("a", rows.get(0)[0]);
+    assertEquals("g1", rows.get(0)[1]);
+    assertEquals("m", rows.get(0)[2]);
+  }
+
+  /**
+   * Test the limit on cached orders.
+   */
+  public void testMaximumCachedSortCount() {
+    List<ColumnAccessor<String[]>> accessors = new ArrayList<ColumnAccessor<String[]>>();
+    accessors.add(new StringColumnAccessor(0));
+    accessors.add(new StringColumnAccessor(1));
+    TableQueryEngine<String[]> engine = new TableQueryEngine<String[]>(
+        createRows(), accessors, 1);
+    assertEquals(1, engine.getMaximumCachedSortCount());
+    for (int column = 0; column < 2; column++) {
+      ColumnSortList sortList = new ColumnSortList();
+      sortList.add(new ColumnSortInfo(column, false));
+      engine.getRowValues(new Request(0, 1, sortList));
+      assertEquals(1, engine.getCachedSortCount());
+    }
+  }
+
+  /**
+   * Test that concurrent requests return consistent results.
+   */
+  public void testConcurrentRequests() throws InterruptedException {
+    final TableQueryEngine<String[]> engine = createEngine();
+    final List<String> failures = new ArrayList<String>();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      final boolean ascending = (i % 2 == 0);
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          ColumnSortList sortList = new ColumnSortList();
+          sortList.add(new ColumnSortInfo(2, true));
+          sortList.add(new ColumnSortInfo(1, ascending));
+          Request request = new Request(0, 1, sortList);
+          String first = engine.getRowValues(request).get(0)[0];
+          String expected = ascending ? "f" : "e";
+          if (!expected.equals(first)) {
+            synchronized (failures) {
+              failures.add(first);
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, failures.size());
+  }
+
+  /**
+   * Assert the order of rows by their first column.
+   * 
+   * @param rows the rows
+   * @param expected the expected values of the first column
+   */
+  private void assertOrder(List<String[]> rows, String... expected) {
+    assertEquals(expected.length, rows.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], rows.get(i)[0]);
+    }
+  }
+
+  /**
+   * @return a new engine over the test rows
+   */
+  private TableQueryEngine<String[]> createEngine() {
+    List<ColumnAccessor<String[]>> accessors = new ArrayList<ColumnAccessor<String[]>>();
+    accessors.add(new StringColumnAccessor(0));
+    accessors.add(new StringColumnAccessor(1));
+    accessors.add(new StringColumnAccessor(2));
+    return new TableQueryEngine<String[]>(createRows(), accessors);
+  }
+
+  /**
+   * @return the test rows
+   */
+  private List<String[]> createRows() {
+    List<String[]> rows = new ArrayList<String[]>();
+    rows.add(new String[] {"a", "g1", "m"});
+    rows.add(new String[] {"b", "g2", "x"});
+    rows.add(new String[] {"c", "g1", "c"});
+    rows.add(new String[] {"d", "g2", "x"});
+    rows.add(new String[] {"e", "g3", "z"});
+    rows.add(new String[] {"f", "g1", "a"});
+    return rows;
+  }
+}